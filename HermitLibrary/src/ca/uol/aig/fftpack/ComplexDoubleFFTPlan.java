@@ -0,0 +1,255 @@
+package ca.uol.aig.fftpack;
+
+
+/**
+ * An FFT plan for complex periodic sequences of a given size.  The plan
+ * holds the size, its prime factorization and the table of
+ * trigonometric functions; these are computed once, in the constructor,
+ * and never change.
+ *
+ * <p>Unlike {@link ComplexDoubleFFT}, a plan allocates no working data
+ * per transform, and one plan can be shared by any number of threads.
+ * Each transform needs a {@link Workspace}; the caller can pass one in,
+ * made by {@link #newWorkspace()}, or use the methods without a
+ * workspace parameter, which use one per thread.  Either way, once the
+ * workspace exists, the transforms allocate nothing.
+ *
+ * <p>The transforms and the layout of their results are the same as
+ * those of ComplexDoubleFFT, and give identical results.
+ */
+public final class ComplexDoubleFFTPlan
+    extends ComplexDoubleFFT_Mixed
+{
+
+    // ******************************************************************** //
+    // Public Classes.
+    // ******************************************************************** //
+
+    /**
+     * Working storage for transforms by a plan.  A workspace may be
+     * used by one thread at a time, for any plan of the same size.
+     */
+    public static final class Workspace {
+        private Workspace(int n) {
+            size = n;
+            scratch = new double[2 * n];
+            data = new double[2 * n];
+        }
+
+        // The transform size this workspace is for.
+        private final int size;
+
+        // Scratch array for the transform passes.
+        private final double[] scratch;
+
+        // Interleaved copy of the data for the Complex1D transforms.
+        private final double[] data;
+    }
+
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Create a plan for sequences of size <em>n</em>.
+     *
+     * @param   n       The size of a complex data sequence.  When n is a
+     *                  product of small numbers (4, 2, 3, 5), the
+     *                  transform is very efficient.
+     */
+    public ComplexDoubleFFTPlan(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("The FFT size must be positive");
+        ndim = n;
+        norm_factor = n;
+        wavetable = new double[4 * n + 15];
+        cffti(n, wavetable);
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the size of the sequences this plan transforms.
+     *
+     * @return          The transform size, in complex values.
+     */
+    public int size() {
+        return ndim;
+    }
+
+
+    /**
+     * Create a workspace for use with this plan, or any plan of the
+     * same size.
+     *
+     * @return          A new workspace.
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(ndim);
+    }
+
+
+    // ******************************************************************** //
+    // Transforms.
+    // ******************************************************************** //
+
+    /**
+     * Forward complex FFT transform, using this thread's workspace.
+     *
+     * @param   x       2*n values: x[2*i] and x[2*i+1] are the real and
+     *                  imaginary parts of the i-th complex value.  It is
+     *                  replaced by the transform, in the same layout.
+     */
+    public void ft(double[] x) {
+        ft(x, threadWorkspace.get());
+    }
+
+
+    /**
+     * Forward complex FFT transform, using a given workspace.
+     *
+     * @param   x       2*n values: x[2*i] and x[2*i+1] are the real and
+     *                  imaginary parts of the i-th complex value.  It is
+     *                  replaced by the transform, in the same layout.
+     * @param   work    The workspace to use.
+     */
+    public void ft(double[] x, Workspace work) {
+        check(x.length, 2 * ndim, work);
+        cfftf1(ndim, x, wavetable, -1, work.scratch);
+    }
+
+
+    /**
+     * Forward complex FFT transform of separate real and imaginary
+     * arrays, using a given workspace.
+     *
+     * @param   x       An array of n complex values, replaced by the
+     *                  transform.
+     * @param   work    The workspace to use.
+     */
+    public void ft(Complex1D x, Workspace work) {
+        transform(x, work, -1);
+    }
+
+
+    /**
+     * Backward complex FFT transform, using this thread's workspace.
+     * This is the unnormalized inverse of {@link #ft(double[])}.
+     *
+     * @param   x       2*n interleaved values, replaced by the
+     *                  transform.
+     */
+    public void bt(double[] x) {
+        bt(x, threadWorkspace.get());
+    }
+
+
+    /**
+     * Backward complex FFT transform, using a given workspace.  This is
+     * the unnormalized inverse of {@link #ft(double[], Workspace)}.
+     *
+     * @param   x       2*n interleaved values, replaced by the
+     *                  transform.
+     * @param   work    The workspace to use.
+     */
+    public void bt(double[] x, Workspace work) {
+        check(x.length, 2 * ndim, work);
+        cfftf1(ndim, x, wavetable, +1, work.scratch);
+    }
+
+
+    /**
+     * Backward complex FFT transform of separate real and imaginary
+     * arrays, using a given workspace.  This is the unnormalized inverse
+     * of {@link #ft(Complex1D, Workspace)}.
+     *
+     * @param   x       An array of n complex values, replaced by the
+     *                  transform.
+     * @param   work    The workspace to use.
+     */
+    public void bt(Complex1D x, Workspace work) {
+        transform(x, work, +1);
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Transform separate real and imaginary arrays, by interleaving them
+     * in the workspace.
+     *
+     * @param   x       An array of n complex values, replaced by the
+     *                  transform.
+     * @param   work    The workspace to use.
+     * @param   isign   -1 for the forward transform, +1 for the backward.
+     */
+    private void transform(Complex1D x, Workspace work, int isign) {
+        check(x.x.length, ndim, work);
+        final double[] y = work.data;
+        for (int i = 0; i < ndim; i++) {
+            y[2 * i] = x.x[i];
+            y[2 * i + 1] = x.y[i];
+        }
+        cfftf1(ndim, y, wavetable, isign, work.scratch);
+        for (int i = 0; i < ndim; i++) {
+            x.x[i] = y[2 * i];
+            x.y[i] = y[2 * i + 1];
+        }
+    }
+
+
+    /**
+     * Check that a data array and a workspace fit this plan.
+     *
+     * @param   len     The length of the data array.
+     * @param   want    The length it should be.
+     * @param   work    The workspace.
+     */
+    private void check(int len, int want, Workspace work) {
+        if (len != want)
+            throw new IllegalArgumentException("The length of data can not match that of the wavetable");
+        if (work.size != ndim)
+            throw new IllegalArgumentException("The workspace is for a different FFT size");
+    }
+
+
+    // ******************************************************************** //
+    // Public Data.
+    // ******************************************************************** //
+
+    /**
+     * <em>norm_factor</em> can be used to normalize this FFT transform.
+     * This is because a call of forward transform (<em>ft</em>) followed
+     * by a call of backward transform (<em>bt</em>) will multiply the
+     * input sequence by <em>norm_factor</em>.
+     */
+    public final double norm_factor;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The transform size.
+    private final int ndim;
+
+    // The factorization and trigonometric tables.  Only the part from
+    // 2*n on is used; the transforms use the workspace as scratch.
+    private final double[] wavetable;
+
+    // Workspaces for the transforms which don't take one.
+    private final ThreadLocal<Workspace> threadWorkspace = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return newWorkspace();
+        }
+    };
+
+}
+
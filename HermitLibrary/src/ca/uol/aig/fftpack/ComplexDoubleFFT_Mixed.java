@@ -294,9 +294,10 @@ class ComplexDoubleFFT_Mixed
 
 /*----------------------------------------------------------------------
    passfg: Complex FFT's forward/backward processing of general factor;
-   isign is +1 for backward and -1 for forward transforms
+   isign is +1 for backward and -1 for forward transforms.  Returns
+   true if the results are left in ch rather than c1.
   ----------------------------------------------------------------------*/
-     void passfg(int nac[], int ido, int ip, int l1, int idl1,
+     boolean passfg(int ido, int ip, int l1, int idl1,
                        final double cc[], double c1[], double c2[], double ch[], double ch2[],
                        final double wtable[], int offset, int isign)
      {
@@ -386,9 +387,7 @@ class ComplexDoubleFFT_Mixed
 	          ch2[ik+jc*idl1]=c2[ik+j*idl1]-c2[ik-1+jc*idl1];
 	      }
           }
-          nac[0]=1;
-          if(ido==2) return;
-          nac[0]=0;
+          if(ido==2) return true;
           for(ik=0; ik<idl1; ik++) c2[ik]=ch2[ik];
           for(j=1; j<ip; j++)
           {
@@ -441,6 +440,7 @@ class ComplexDoubleFFT_Mixed
 	          }
 	      }
           }
+          return false;
       }
 
 /*---------------------------------------------------------
@@ -448,19 +448,31 @@ class ComplexDoubleFFT_Mixed
   --------------------------------------------------------*/
      void cfftf1(int n, double c[], final double wtable[], int isign)
      {
-          int     idot, i;
+          cfftf1(n, c, wtable, isign, new double[2*n]);
+     }
+
+/**
+  * Complex forward or backward FFT, using a given working array.  This
+  * uses no instance state, so it may be called from several threads at
+  * once, if each has its own working array.
+  *
+  * @param  n       The size of the transform.
+  * @param  c       The 2*n interleaved data to transform, in place.
+  * @param  wtable  The wavenumber table from cffti().
+  * @param  isign   -1 for the forward transform, +1 for the backward.
+  * @param  ch      Working array of at least 2*n elements.  Its
+  *                 contents are ignored and overwritten.
+*/
+     void cfftf1(int n, double c[], final double wtable[], int isign, final double[] ch)
+     {
           int     k1, l1, l2;
           int     na, nf, ip, iw, ido, idl1;
-          int[]  nac = new int[1];
 
           int     iw1, iw2;
-          double[] ch = new double[2*n];
+          int     idot;
 
           iw1=2*n;
           iw2=4*n;
-          System.arraycopy(wtable, 0, ch, 0, 2*n);
-
-          nac[0] = 0;
 
           nf=(int)wtable[1+iw2];
           na=0;
@@ -523,21 +535,22 @@ class ComplexDoubleFFT_Mixed
 	      }
 	      else
 	      {
+	          boolean inCh;
 	          if(na==0)
                   {
-                        passfg(nac, idot, ip, l1, idl1, c, c, c, ch, ch, wtable, iw, isign);
+                        inCh = passfg(idot, ip, l1, idl1, c, c, c, ch, ch, wtable, iw, isign);
                   }
 	          else
                   {
-                        passfg(nac, idot, ip, l1, idl1, ch, ch, ch, c, c, wtable, iw, isign);
+                        inCh = passfg(idot, ip, l1, idl1, ch, ch, ch, c, c, wtable, iw, isign);
                   }
-	          if(nac[0] !=0) na=1-na;
+	          if(inCh) na=1-na;
 	      }
 	      l1=l2;
 	      iw+=(ip-1)*idot;
           }
           if(na==0) return;
-          for(i=0; i<2*n; i++) c[i]=ch[i];
+          System.arraycopy(ch, 0, c, 0, 2*n);
      } 
 
 /*---------------------------------------------------------
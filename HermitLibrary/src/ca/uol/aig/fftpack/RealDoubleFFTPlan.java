@@ -0,0 +1,265 @@
+package ca.uol.aig.fftpack;
+
+
+/**
+ * An FFT plan for real periodic sequences of a given size.  The plan
+ * holds the size, its prime factorization and the table of
+ * trigonometric functions; these are computed once, in the constructor,
+ * and never change.
+ *
+ * <p>Unlike {@link RealDoubleFFT}, a plan keeps no working data, so one
+ * plan can be shared by any number of threads.  Each transform needs a
+ * {@link Workspace}; the caller can pass one in, made by
+ * {@link #newWorkspace()}, or use the methods without a workspace
+ * parameter, which use one per thread.  Either way, once the workspace
+ * exists, the transforms allocate nothing.
+ *
+ * <p>The transforms and the layout of their results are the same as
+ * those of RealDoubleFFT, and give identical results.
+ */
+public final class RealDoubleFFTPlan
+    extends RealDoubleFFT_Mixed
+{
+
+    // ******************************************************************** //
+    // Public Classes.
+    // ******************************************************************** //
+
+    /**
+     * Working storage for transforms by a plan.  A workspace may be
+     * used by one thread at a time, for any plan of the same size.
+     */
+    public static final class Workspace {
+        private Workspace(int n) {
+            size = n;
+            data = new double[n];
+        }
+
+        // The transform size this workspace is for.
+        private final int size;
+
+        // Scratch array for the transform passes.
+        private final double[] data;
+    }
+
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Create a plan for sequences of size <em>n</em>.
+     *
+     * @param   n       The size of a real data sequence.  When n is a
+     *                  product of small numbers (4, 2, 3, 5), the
+     *                  transform is very efficient.
+     */
+    public RealDoubleFFTPlan(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("The FFT size must be positive");
+        ndim = n;
+        norm_factor = n;
+        wavetable = new double[2 * n + 15];
+        rffti(n, wavetable);
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the size of the sequences this plan transforms.
+     *
+     * @return          The transform size.
+     */
+    public int size() {
+        return ndim;
+    }
+
+
+    /**
+     * Create a workspace for use with this plan, or any plan of the
+     * same size.
+     *
+     * @return          A new workspace.
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(ndim);
+    }
+
+
+    // ******************************************************************** //
+    // Transforms.
+    // ******************************************************************** //
+
+    /**
+     * Forward real FFT transform, using this thread's workspace.  See
+     * {@link RealDoubleFFT#ft(double[])} for the layout of the results.
+     *
+     * @param   x       An array which contains the sequence to be
+     *                  transformed.  It is replaced by the transform
+     *                  coefficients.
+     */
+    public void ft(double[] x) {
+        ft(x, threadWorkspace.get());
+    }
+
+
+    /**
+     * Forward real FFT transform, using a given workspace.  See
+     * {@link RealDoubleFFT#ft(double[])} for the layout of the results.
+     *
+     * @param   x       An array which contains the sequence to be
+     *                  transformed.  It is replaced by the transform
+     *                  coefficients.
+     * @param   work    The workspace to use.
+     */
+    public void ft(double[] x, Workspace work) {
+        check(x.length, work);
+        if (ndim > 1)
+            rfftf1(ndim, x, wavetable, 0, work.data);
+    }
+
+
+    /**
+     * Forward real FFT transform, giving the results as complex
+     * coefficients.  See {@link RealDoubleFFT#ft(double[], Complex1D)}.
+     * The arrays in y are re-used if they are the right size, else
+     * they are replaced.
+     *
+     * @param   x       An array which contains the sequence to be
+     *                  transformed.  It is replaced by the transform
+     *                  coefficients.
+     * @param   y       Set to the first n/2+1 (n even) or (n+1)/2
+     *                  (n odd) complex FFT coefficients.
+     * @param   work    The workspace to use.
+     */
+    public void ft(double[] x, Complex1D y, Workspace work) {
+        ft(x, work);
+
+        final int m = ndim / 2 + 1;
+        if (y.x == null || y.x.length != m)
+            y.x = new double[m];
+        if (y.y == null || y.y.length != m)
+            y.y = new double[m];
+
+        y.x[0] = x[0];
+        y.y[0] = 0.0;
+        for (int i = 1; i < (ndim + 1) / 2; i++) {
+            y.x[i] = x[2 * i - 1];
+            y.y[i] = x[2 * i];
+        }
+        if (ndim % 2 == 0) {
+            y.x[ndim / 2] = x[ndim - 1];
+            y.y[ndim / 2] = 0.0;
+        }
+    }
+
+
+    /**
+     * Backward real FFT transform, using this thread's workspace.  This
+     * is the unnormalized inverse of {@link #ft(double[])}.
+     *
+     * @param   x       An array which contains the transform
+     *                  coefficients.  It is replaced by the sequence.
+     */
+    public void bt(double[] x) {
+        bt(x, threadWorkspace.get());
+    }
+
+
+    /**
+     * Backward real FFT transform, using a given workspace.  This is the
+     * unnormalized inverse of {@link #ft(double[], Workspace)}.
+     *
+     * @param   x       An array which contains the transform
+     *                  coefficients.  It is replaced by the sequence.
+     * @param   work    The workspace to use.
+     */
+    public void bt(double[] x, Workspace work) {
+        check(x.length, work);
+        if (ndim > 1)
+            rfftb1(ndim, x, wavetable, 0, work.data);
+    }
+
+
+    /**
+     * Backward real FFT transform from complex coefficients.  This is
+     * the unnormalized inverse of
+     * {@link #ft(double[], Complex1D, Workspace)}.
+     *
+     * @param   x       The first n/2+1 (n even) or (n+1)/2 (n odd)
+     *                  complex FFT coefficients.
+     * @param   y       Array of size n in which to place the sequence.
+     * @param   work    The workspace to use.
+     */
+    public void bt(Complex1D x, double[] y, Workspace work) {
+        if (x.x.length != ndim / 2 + 1)
+            throw new IllegalArgumentException("The length of data can not match that of the wavetable");
+        check(y.length, work);
+
+        y[0] = x.x[0];
+        for (int i = 1; i < (ndim + 1) / 2; i++) {
+            y[2 * i - 1] = x.x[i];
+            y[2 * i] = x.y[i];
+        }
+        if (ndim % 2 == 0)
+            y[ndim - 1] = x.x[ndim / 2];
+        if (ndim > 1)
+            rfftb1(ndim, y, wavetable, 0, work.data);
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Check that a data array and a workspace fit this plan.
+     *
+     * @param   len     The length of the data array.
+     * @param   work    The workspace.
+     */
+    private void check(int len, Workspace work) {
+        if (len != ndim)
+            throw new IllegalArgumentException("The length of data can not match that of the wavetable");
+        if (work.size != ndim)
+            throw new IllegalArgumentException("The workspace is for a different FFT size");
+    }
+
+
+    // ******************************************************************** //
+    // Public Data.
+    // ******************************************************************** //
+
+    /**
+     * <em>norm_factor</em> can be used to normalize this FFT transform.
+     * This is because a call of forward transform (<em>ft</em>) followed
+     * by a call of backward transform (<em>bt</em>) will multiply the
+     * input sequence by <em>norm_factor</em>.
+     */
+    public final double norm_factor;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The transform size.
+    private final int ndim;
+
+    // The factorization and trigonometric tables.  Only the part from
+    // n on is used; the transforms use the workspace as scratch.
+    private final double[] wavetable;
+
+    // Workspaces for the transforms which don't take one.
+    private final ThreadLocal<Workspace> threadWorkspace = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return newWorkspace();
+        }
+    };
+
+}
+
@@ -38,9 +38,6 @@ class RealDoubleFFT_Mixed
         double  arg;
         int     ido, ipm;
         int     nfm1;
-        
-        // Create a working array.
-        tempData = new double[n];
 
         nl=n;
         nf=0;
@@ -130,9 +127,24 @@ class RealDoubleFFT_Mixed
   --------------------------------------------------------*/
     void rfftf1(int n, double[] c, final double[] wtable, int offset)
     {
-        final double[] td = tempData;
-        System.arraycopy(wtable, offset, td, 0, n);
+        rfftf1(n, c, wtable, offset, tempData(n));
+    }
+
 
+    /**
+     * Real forward FFT, using a given working array.  This uses no
+     * instance state, so it may be called from several threads at once,
+     * if each has its own working array.
+     *
+     * @param   n       The size of the transform.
+     * @param   c       The data to transform, in place.
+     * @param   wtable  The wavenumber table from rffti1().
+     * @param   offset  The offset of the table in wtable.
+     * @param   td      Working array of at least n elements.  Its
+     *                  contents are ignored and overwritten.
+     */
+    void rfftf1(int n, double[] c, final double[] wtable, int offset, final double[] td)
+    {
         int nf = (int) wtable[1 + 2 * n + offset];
         int na = 1;
         int l2 = n;
@@ -180,10 +192,9 @@ class RealDoubleFFT_Mixed
             l2 = l1;
         }
         
-        // If na == 1, the results are in c.  Otherwise they're in tempData.
+        // If na == 1, the results are in c.  Otherwise they're in td.
         if (na == 0)
-            for (int i = 0; i < n; i++)
-                c[i] = td[i];
+            System.arraycopy(td, 0, c, 0, n);
     }
 
     
@@ -206,10 +217,25 @@ class RealDoubleFFT_Mixed
   --------------------------------------------------------*/
     void rfftb1(int n, double c[], final double wtable[], int offset)
     {
-        int     k1, l1, l2, na, nf, ip, iw, ido, idl1;
+        rfftb1(n, c, wtable, offset, tempData(n));
+    }
 
-        final double[] td = tempData;
-        System.arraycopy(wtable, offset, td, 0, n);
+
+    /**
+     * Real backward FFT, using a given working array.  This uses no
+     * instance state, so it may be called from several threads at once,
+     * if each has its own working array.
+     *
+     * @param   n       The size of the transform.
+     * @param   c       The data to transform, in place.
+     * @param   wtable  The wavenumber table from rffti1().
+     * @param   offset  The offset of the table in wtable.
+     * @param   td      Working array of at least n elements.  Its
+     *                  contents are ignored and overwritten.
+     */
+    void rfftb1(int n, double c[], final double wtable[], int offset, final double[] td)
+    {
+        int     k1, l1, l2, na, nf, ip, iw, ido, idl1;
 
         nf=(int)wtable[1+2*n+offset];
         na=0;
@@ -286,8 +312,21 @@ class RealDoubleFFT_Mixed
         }
         
         if (na == 1)
-            for (int i = 0; i < n; i++)
-                c[i] = td[i];
+            System.arraycopy(td, 0, c, 0, n);
+    }
+
+
+    /**
+     * Get this instance's working array, creating it if need be.
+     *
+     * @param   n       The size of the transform.
+     * @return          A working array of at least n elements.
+     */
+    private double[] tempData(int n)
+    {
+        if (tempData == null || tempData.length < n)
+            tempData = new double[n];
+        return tempData;
     }
     
 
@@ -1263,7 +1302,8 @@ class RealDoubleFFT_Mixed
     // Private Data.
     // ******************************************************************** //
     
-    // Working data array for FFT.
+    // Working data array for the transforms which don't take one.  This
+    // makes them unsafe to use from multiple threads.
     private double[] tempData = null;
     
 }
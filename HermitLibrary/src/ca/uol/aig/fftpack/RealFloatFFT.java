@@ -0,0 +1,205 @@
+package ca.uol.aig.fftpack;
+
+
+/**
+ * A single-precision FFT plan for real periodic sequences of a given size.
+ * This works like {@link RealDoubleFFTPlan}, but on float arrays, which
+ * halves the memory traffic of the transform.  For data which is only
+ * good to a few decimal digits anyway, such as 16-bit audio, the
+ * results are as useful as those of the double-precision transform.
+ *
+ * <p>The plan holds the size, its prime factorization and the table of
+ * trigonometric functions; these are computed once, in the constructor,
+ * and never change.  One plan can be shared by any number of threads.
+ * Each transform needs a {@link Workspace}; the caller can pass one in,
+ * made by {@link #newWorkspace()}, or use the methods without a
+ * workspace parameter, which use one per thread.  Either way, once the
+ * workspace exists, the transforms allocate nothing.
+ *
+ * <p>The layout of the results is the same as that of
+ * {@link RealDoubleFFT#ft(double[])}.
+ */
+public final class RealFloatFFT
+    extends RealFloatFFT_Mixed
+{
+
+    // ******************************************************************** //
+    // Public Classes.
+    // ******************************************************************** //
+
+    /**
+     * Working storage for transforms by a plan.  A workspace may be
+     * used by one thread at a time, for any plan of the same size.
+     */
+    public static final class Workspace {
+        private Workspace(int n) {
+            size = n;
+            data = new float[n];
+        }
+
+        // The transform size this workspace is for.
+        private final int size;
+
+        // Scratch array for the transform passes.
+        private final float[] data;
+    }
+
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Create a plan for sequences of size <em>n</em>.
+     *
+     * @param   n       The size of a real data sequence.  When n is a
+     *                  product of small numbers (4, 2, 3, 5), the
+     *                  transform is very efficient.
+     */
+    public RealFloatFFT(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("The FFT size must be positive");
+        ndim = n;
+        norm_factor = n;
+        wavetable = new float[2 * n + 15];
+        rffti(n, wavetable);
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the size of the sequences this plan transforms.
+     *
+     * @return          The transform size.
+     */
+    public int size() {
+        return ndim;
+    }
+
+
+    /**
+     * Create a workspace for use with this plan, or any plan of the
+     * same size.
+     *
+     * @return          A new workspace.
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(ndim);
+    }
+
+
+    // ******************************************************************** //
+    // Transforms.
+    // ******************************************************************** //
+
+    /**
+     * Forward real FFT transform, using this thread's workspace.  See
+     * {@link RealDoubleFFT#ft(double[])} for the layout of the results.
+     *
+     * @param   x       An array which contains the sequence to be
+     *                  transformed.  It is replaced by the transform
+     *                  coefficients.
+     */
+    public void ft(float[] x) {
+        ft(x, threadWorkspace.get());
+    }
+
+
+    /**
+     * Forward real FFT transform, using a given workspace.  See
+     * {@link RealDoubleFFT#ft(double[])} for the layout of the results.
+     *
+     * @param   x       An array which contains the sequence to be
+     *                  transformed.  It is replaced by the transform
+     *                  coefficients.
+     * @param   work    The workspace to use.
+     */
+    public void ft(float[] x, Workspace work) {
+        check(x.length, work);
+        if (ndim > 1)
+            rfftf1(ndim, x, wavetable, 0, work.data);
+    }
+
+
+    /**
+     * Backward real FFT transform, using this thread's workspace.  This
+     * is the unnormalized inverse of {@link #ft(float[])}.
+     *
+     * @param   x       An array which contains the transform
+     *                  coefficients.  It is replaced by the sequence.
+     */
+    public void bt(float[] x) {
+        bt(x, threadWorkspace.get());
+    }
+
+
+    /**
+     * Backward real FFT transform, using a given workspace.  This is the
+     * unnormalized inverse of {@link #ft(float[], Workspace)}.
+     *
+     * @param   x       An array which contains the transform
+     *                  coefficients.  It is replaced by the sequence.
+     * @param   work    The workspace to use.
+     */
+    public void bt(float[] x, Workspace work) {
+        check(x.length, work);
+        if (ndim > 1)
+            rfftb1(ndim, x, wavetable, 0, work.data);
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Check that a data array and a workspace fit this plan.
+     *
+     * @param   len     The length of the data array.
+     * @param   work    The workspace.
+     */
+    private void check(int len, Workspace work) {
+        if (len != ndim)
+            throw new IllegalArgumentException("The length of data can not match that of the wavetable");
+        if (work.size != ndim)
+            throw new IllegalArgumentException("The workspace is for a different FFT size");
+    }
+
+
+    // ******************************************************************** //
+    // Public Data.
+    // ******************************************************************** //
+
+    /**
+     * <em>norm_factor</em> can be used to normalize this FFT transform.
+     * This is because a call of forward transform (<em>ft</em>) followed
+     * by a call of backward transform (<em>bt</em>) will multiply the
+     * input sequence by <em>norm_factor</em>.
+     */
+    public final float norm_factor;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The transform size.
+    private final int ndim;
+
+    // The factorization and trigonometric tables.  Only the part from
+    // n on is used; the transforms use the workspace as scratch.
+    private final float[] wavetable;
+
+    // Workspaces for the transforms which don't take one.
+    private final ThreadLocal<Workspace> threadWorkspace = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return newWorkspace();
+        }
+    };
+
+}
+
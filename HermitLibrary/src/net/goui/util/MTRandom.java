@@ -105,6 +105,9 @@ public class MTRandom extends Random {
 	private final static int MAGIC_SEED    = 19650218;
 	private final static long DEFAULT_SEED = 5489L;
 
+	// Scale factor from 53 random bits to a double in [0, 1)
+	private final static double DOUBLE_UNIT = 1.0 / (1L << 53);
+
 	// Internal state
 	private transient int[] mt;
 	private transient int mti;
@@ -314,41 +317,119 @@ public class MTRandom extends Random {
 	 */
 	@Override
 	protected final synchronized int next(int bits) {
-		// ---- Begin Mersenne Twister Algorithm ----
-		int y, kk;
-		if (mti >= N) {             // generate N words at one time
-
-			// In the original C implementation, mti is checked here
-			// to determine if initialisation has occurred; if not
-			// it initialises this instance with DEFAULT_SEED (5489).
-			// This is no longer necessary as initialisation of the
-			// Java instance must result in initialisation occurring
-			// Use the constructor MTRandom(true) to enable backwards
-			// compatible behaviour.
-			
-			for (kk = 0; kk < N-M; kk++) {
-				y = (mt[kk] & UPPER_MASK) | (mt[kk+1] & LOWER_MASK);
-				mt[kk] = mt[kk+M] ^ (y >>> 1) ^ MAGIC[y & 0x1];
+		if (mti >= N) generate();
+		return (temper(mt[mti++]) >>> (32-bits));
+	}
+
+	/**
+	 * This method fills part of an integer array with the next values
+	 * in the pseudo random number sequence.  The values, and the state
+	 * of this instance afterwards, are exactly the same as if nextInt()
+	 * had been called len times; but this is much faster, as the state
+	 * block is regenerated and tempered in tight loops, and the lock
+	 * is only taken once.
+	 * 
+	 * @param dst The array to fill.
+	 * @param off The offset in dst at which to start.
+	 * @param len The number of values to generate.
+	 * @throws IndexOutOfBoundsException if off and len are not a valid
+	 * range in dst.
+	 */
+	public final synchronized void nextInts(int[] dst, int off, int len) {
+		if (off < 0 || len < 0 || off + len > dst.length)
+			throw new IndexOutOfBoundsException("Bad range in nextInts()");
+		final int[] mt = this.mt;
+		int i = off, end = off + len;
+		while (i < end) {
+			if (mti >= N) generate();
+			int k = mti, n = Math.min(N - k, end - i);
+			for (int stop = k + n; k < stop; k++)
+				dst[i++] = temper(mt[k]);
+			mti = k;
+		}
+	}
+
+	/**
+	 * This method fills part of a double array with the next values
+	 * in the pseudo random number sequence, uniformly distributed in
+	 * [0, 1).  The values, and the state of this instance afterwards,
+	 * are exactly the same as if nextDouble() had been called len
+	 * times, each using two 32-bit words; but this is much faster, as
+	 * the state block is regenerated and tempered in tight loops, and
+	 * the lock is only taken once.
+	 * 
+	 * @param dst The array to fill.
+	 * @param off The offset in dst at which to start.
+	 * @param len The number of values to generate.
+	 * @throws IndexOutOfBoundsException if off and len are not a valid
+	 * range in dst.
+	 */
+	public final synchronized void nextDoubles(double[] dst, int off, int len) {
+		if (off < 0 || len < 0 || off + len > dst.length)
+			throw new IndexOutOfBoundsException("Bad range in nextDoubles()");
+		final int[] mt = this.mt;
+		int i = off, end = off + len;
+		while (i < end) {
+			if (mti >= N) generate();
+
+			// Take as many whole pairs of words as are left in the block.
+			int k = mti, n = Math.min((N - k) >>> 1, end - i);
+			for (int stop = k + 2 * n; k < stop; k += 2) {
+				long a = temper(mt[k]) >>> 6;
+				long b = temper(mt[k+1]) >>> 5;
+				dst[i++] = ((a << 27) + b) * DOUBLE_UNIT;
 			}
-			for (;kk < N-1; kk++) {
-				y = (mt[kk] & UPPER_MASK) | (mt[kk+1] & LOWER_MASK);
-				mt[kk] = mt[kk+(M-N)] ^ (y >>> 1) ^ MAGIC[y & 0x1];
+			mti = k;
+
+			// A double may straddle the end of the block.
+			if (i < end && mti == N-1) {
+				long a = temper(mt[mti]) >>> 6;
+				generate();
+				long b = temper(mt[mti++]) >>> 5;
+				dst[i++] = ((a << 27) + b) * DOUBLE_UNIT;
 			}
-			y = (mt[N-1] & UPPER_MASK) | (mt[0] & LOWER_MASK);
-			mt[N-1] = mt[M-1] ^ (y >>> 1) ^ MAGIC[y & 0x1];
+		}
+	}
+
+	// Regenerate the whole state block of N words at once, and reset
+	// the index to its start.
+	private final void generate() {
+		// ---- Begin Mersenne Twister Algorithm ----
+		final int[] mt = this.mt;
+		int y, kk;
 
-			mti = 0;
+		// In the original C implementation, mti is checked here
+		// to determine if initialisation has occurred; if not
+		// it initialises this instance with DEFAULT_SEED (5489).
+		// This is no longer necessary as initialisation of the
+		// Java instance must result in initialisation occurring
+		// Use the constructor MTRandom(true) to enable backwards
+		// compatible behaviour.
+
+		for (kk = 0; kk < N-M; kk++) {
+			y = (mt[kk] & UPPER_MASK) | (mt[kk+1] & LOWER_MASK);
+			mt[kk] = mt[kk+M] ^ (y >>> 1) ^ MAGIC[y & 0x1];
+		}
+		for (;kk < N-1; kk++) {
+			y = (mt[kk] & UPPER_MASK) | (mt[kk+1] & LOWER_MASK);
+			mt[kk] = mt[kk+(M-N)] ^ (y >>> 1) ^ MAGIC[y & 0x1];
 		}
-  
-		y = mt[mti++];
+		y = (mt[N-1] & UPPER_MASK) | (mt[0] & LOWER_MASK);
+		mt[N-1] = mt[M-1] ^ (y >>> 1) ^ MAGIC[y & 0x1];
+
+		mti = 0;
+		// ---- End Mersenne Twister Algorithm ----
+	}
 
-		// Tempering
+	// Temper one word of the state into an output value.
+	private static int temper(int y) {
+		// ---- Begin Mersenne Twister Algorithm ----
 		y ^= (y >>> 11);
 		y ^= (y << 7) & MAGIC_MASK1;
 		y ^= (y << 15) & MAGIC_MASK2;
 		y ^= (y >>> 18);
 		// ---- End Mersenne Twister Algorithm ----
-		return (y >>> (32-bits));
+		return y;
 	}
 
 	// This is a fairly obscure little code section to pack a
@@ -46,6 +46,8 @@ import static java.lang.Math.tan;
 import static java.lang.Math.toDegrees;
 import static java.lang.Math.toRadians;
 
+import java.util.Arrays;
+
 import org.hermit.astro.Observation.OField;
 import org.hermit.geo.Position;
 
@@ -342,9 +344,11 @@ public abstract class Body
 		observation = o;
 		whichBody = which;
 		
-		// Create the data cache.
-		dataCache = new Double[NUM_FIELDS];
-		invalidate();
+		// Create the data cache.  All stamps start at zero, which is never
+		// a valid generation, so everything starts out invalid.
+		dataCache = new double[NUM_FIELDS];
+		cacheStamp = new int[NUM_FIELDS];
+		cacheGeneration = 1;
 	}
 
 
@@ -380,15 +384,16 @@ public abstract class Body
 	 * @throws	AstroError	The request was invalid.
 	 */
 	public double get(Field key) throws AstroError {
-		if (dataCache[key.ordinal()] == null)
+		final int i = key.ordinal();
+		if (cacheStamp[i] != cacheGeneration) {
 			key.calculate(this);
+
+			// Get the value.  It has to be there now.
+			if (cacheStamp[i] != cacheGeneration)
+				throw new CalcError("Calculator for field " + key + " failed");
+		}
 		
-		// Get the value.  It has to be there now.
-		Double val = dataCache[key.ordinal()];
-		if (val == null)
-			throw new CalcError("Calculator for field " + key + " failed");
-		
-		return val;
+		return dataCache[i];
 	}
 	
 
@@ -622,6 +627,7 @@ public abstract class Body
 			@Override void c(Body b) throws AstroError { b.calcRiseSet(); }
 		};
 		Field.register(Field.RISE_TIME, calc);
+		Field.register(Field.TRANSIT_TIME, calc);
 		Field.register(Field.SET_TIME, calc);
 		Field.register(Field.RISE_TWILIGHT, calc);
 		Field.register(Field.SET_TWILIGHT, calc);
@@ -676,17 +682,72 @@ public abstract class Body
 		double[] αn = { α1, α2, α3 };
 		double[] δn = { δ1, δ2, δ3 };
 		
-		// OK!  First, calculate approximate time.
-		double cosH0 = (sin(h_o) - sin(φ) * sin(δ2)) / (cos(φ) * cos(δ2));
-		if (cosH0  < -1 || cosH0 > 1)
-			;  // FIXME: signal no rise or set!
+		// Calculate the times.  If the body doesn't rise or set today,
+		// rise and set come back as NaN.
+		double[] times = new double[3];
+		riseSetTimes(h_o, Θ0, φ, L, ΔT, αn, δn, times);
+		double rise = times[0];
+		double transit = times[1];
+		double set = times[2];
+
+		put(Field.RISE_TIME, rise);
+		put(Field.TRANSIT_TIME, transit);
+		put(Field.SET_TIME, set);
+		
+		// Now, if this is the Sun, calculate the times of twilight.
+		if (whichBody == Name.SUN) {
+			// Calculate the duration of twilight.
+			double t = calculateTwilight(Θ0, φ, L, ΔT, αn, δn,
+										 set / 24.0, HALFPI + TWILIGHT);
+			put(Field.RISE_TWILIGHT, rise - t);
+			put(Field.SET_TWILIGHT, set + t);
+		}
+	}
+
+
+	/**
+	 * Calculate the rise, transit and set times of a body on a given day,
+	 * given its apparent positions at 0h TD on the day before, the day
+	 * itself, and the day after.
+	 * 
+	 * <p>From AA chapter 15.
+	 * 
+	 * @param	h_o			The standard altitude of the body, in radians.
+	 * @param	Θ0			The apparent sidereal time at 0h UT on the day,
+	 * 						in radians.
+	 * @param	φ			The observer's latitude, in radians.
+	 * @param	L			The observer's longitude, in radians, positive
+	 * 						east.
+	 * @param	ΔT			ΔT on the day, in seconds.
+	 * @param	αn			The apparent right ascensions on the three days.
+	 * @param	δn			The apparent declinations on the three days.
+	 * @param	out			Array in which the UT times of rise, transit
+	 * 						and set, in decimal hours, will be placed.
+	 * 						If the body doesn't rise or set, rise and set
+	 * 						are NaN.
+	 * @return				{@link RiseSetCalculator#RISES_AND_SETS},
+	 * 						{@link RiseSetCalculator#CIRCUMPOLAR}, or
+	 * 						{@link RiseSetCalculator#NEVER_RISES}.
+	 */
+	static int riseSetTimes(double h_o, double Θ0, double φ, double L,
+							double ΔT, double[] αn, double[] δn, double[] out)
+	{
+		// OK!  First, calculate approximate time.  If cos(H0) is out
+		// of range, the body is always above or always below h_o; in
+		// that case acos() gives us NaN for rise and set.
+		double cosH0 = (sin(h_o) - sin(φ) * sin(δn[1])) / (cos(φ) * cos(δn[1]));
+		int status = RiseSetCalculator.RISES_AND_SETS;
+		if (cosH0 < -1)
+			status = RiseSetCalculator.CIRCUMPOLAR;
+		else if (cosH0 > 1)
+			status = RiseSetCalculator.NEVER_RISES;
 		double H0 = acos(cosH0) % PI;
 		if (H0 < 0)
 			H0 += PI;
 
 		// Calculate transit, rise and set.  These are in fractions of a day.
 		// Note the reversed sign of L relative to Meeus.
-		double transit = ((α2 - L - Θ0) / TWOPI) % 1.0;
+		double transit = ((αn[1] - L - Θ0) / TWOPI) % 1.0;
 		if (transit < 0)
 			transit += 1.0;
 		double rise = (transit - H0 / TWOPI) % 1.0;
@@ -697,26 +758,15 @@ public abstract class Body
 			set += 1.0;
 
 		// Refine the values by interpolation.
-		transit = refineRiseSet(h_o, Θ0, φ, L, ΔT, αn, null, transit) * 24.0;
-		rise = refineRiseSet(h_o, Θ0, φ, L, ΔT, αn, δn, rise) * 24.0;
-		set = refineRiseSet(h_o, Θ0, φ, L, ΔT, αn, δn, set) * 24.0;
-
-		put(Field.RISE_TIME, rise);
-		put(Field.TRANSIT_TIME, transit);
-		put(Field.SET_TIME, set);
+		out[0] = refineRiseSet(h_o, Θ0, φ, L, ΔT, αn, δn, rise) * 24.0;
+		out[1] = refineRiseSet(h_o, Θ0, φ, L, ΔT, αn, null, transit) * 24.0;
+		out[2] = refineRiseSet(h_o, Θ0, φ, L, ΔT, αn, δn, set) * 24.0;
 		
-		// Now, if this is the Sun, calculate the times of twilight.
-		if (whichBody == Name.SUN) {
-			// Calculate the duration of twilight.
-			double t = calculateTwilight(Θ0, φ, L, ΔT, αn, δn,
-										 set / 24.0, HALFPI + TWILIGHT);
-			put(Field.RISE_TWILIGHT, rise - t);
-			put(Field.SET_TWILIGHT, set + t);
-		}
+		return status;
 	}
 
 
-	private double refineRiseSet(double h_o, double Θ0, double φ, double L,
+	private static double refineRiseSet(double h_o, double Θ0, double φ, double L,
 								 double ΔT, double[] αn, double[] δn, double m)
 	{
 		final double[] args = { -1, 0, 1 };
@@ -743,7 +793,7 @@ public abstract class Body
 	}
 	
 	
-	private double calculateTwilight(double Θ0, double φ, double L, double ΔT,
+	static double calculateTwilight(double Θ0, double φ, double L, double ΔT,
 			 					     double[] αn, double[] δn, double m, double z)
 	{
 		double Θ0_now = modTwoPi(Θ0 + TWOPI * SIDEREAL_RATIO * m);
@@ -925,6 +975,60 @@ public abstract class Body
 	}
 
 
+    // ******************************************************************** //
+	// Ephemeris Support.
+	// ******************************************************************** //
+
+	/**
+	 * If our Observation has an {@link Ephemeris} which covers the
+	 * current time, take the heliocentric co-ordinates of the body from
+	 * it.  If so, the results are stored in the cache as HE_LATITUDE,
+	 * HE_LONGITUDE and HE_RADIUS.
+	 * 
+	 * @return				true if the position was set from the
+	 * 						ephemeris; false if it needs to be calculated.
+	 * @throws	AstroError	Invalid request.
+	 */
+	boolean heFromEphemeris() throws AstroError {
+		Ephemeris eph = observation.getEphemeris();
+		double td = observation.getTd();
+		if (eph == null || !eph.coversHeliocentric(whichBody, td))
+			return false;
+
+		final double[] pos = ephemerisPos;
+		eph.getHeliocentric(whichBody, td, pos);
+		put(Field.HE_LONGITUDE, pos[0]);
+		put(Field.HE_LATITUDE, pos[1]);
+		put(Field.HE_RADIUS, pos[2]);
+		return true;
+	}
+
+
+	/**
+	 * If our Observation has an {@link Ephemeris} which covers the
+	 * current time, take the geocentric ecliptic co-ordinates of the body
+	 * from it.  If so, the results are stored in the cache as
+	 * EARTH_DISTANCE, EC_LONGITUDE and EC_LATITUDE.
+	 * 
+	 * @return				true if the position was set from the
+	 * 						ephemeris; false if it needs to be calculated.
+	 * @throws	AstroError	Invalid request.
+	 */
+	boolean ecFromEphemeris() throws AstroError {
+		Ephemeris eph = observation.getEphemeris();
+		double td = observation.getTd();
+		if (eph == null || !eph.coversGeocentric(whichBody, td))
+			return false;
+
+		final double[] pos = ephemerisPos;
+		eph.getGeocentric(whichBody, td, pos);
+		put(Field.EC_LONGITUDE, pos[0]);
+		put(Field.EC_LATITUDE, pos[1]);
+		put(Field.EARTH_DISTANCE, pos[2]);
+		return true;
+	}
+
+
     // ******************************************************************** //
 	// Global Utilities.
 	// ******************************************************************** //
@@ -1051,17 +1155,24 @@ public abstract class Body
 	 * @param	key			The name of the value to save.
 	 * @param	val			The value.
 	 */
-	protected void put(Field key, Double val) {
-		dataCache[key.ordinal()] = val;
+	protected void put(Field key, double val) {
+		final int i = key.ordinal();
+		dataCache[i] = val;
+		cacheStamp[i] = cacheGeneration;
 	}
 	
 	
 	/**
-	 * Invalidate the data cache.
+	 * Invalidate the data cache.  This simply moves us on to a new
+	 * generation, so that all the existing values become stale.
 	 */
 	protected void invalidate() {
-	    for (int i = 0; i < NUM_FIELDS; ++i)
-	        dataCache[i] = null;
+		if (++cacheGeneration == 0) {
+			// The generation counter wrapped; clear out the stamps so
+			// that no old value can be mistaken for a current one.
+			Arrays.fill(cacheStamp, 0);
+			cacheGeneration = 1;
+		}
 	}
 	
 	
@@ -1088,7 +1199,19 @@ public abstract class Body
 
 	// Cache of values calculated for this body at the currently
 	// configured date / time.
-	private Double[] dataCache;
+	private double[] dataCache;
+
+	// For each entry in dataCache, the cache generation in which it was
+	// calculated.  An entry is valid only if its stamp equals
+	// cacheGeneration; zero is never a valid generation.
+	private int[] cacheStamp;
+
+	// The current cache generation.  Incrementing this invalidates all
+	// the cached values in one go.
+	private int cacheGeneration;
+
+	// Working buffer for positions read from the ephemeris.
+	private final double[] ephemerisPos = new double[3];
 
 }
 
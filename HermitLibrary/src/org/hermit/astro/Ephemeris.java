@@ -0,0 +1,594 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * <br>Copyright 2009 Ian Cameron Smith
+ *
+ * <p>References:
+ * <dl>
+ * <dt>AA</dt>
+ * <dd>"Astronomical Algorithms", by Jean Meeus, ISBN-10: 0-943396-61-1.</dd>
+ * <dt>NR</dt>
+ * <dd>"Numerical Recipes", by Press, Teukolsky, Vetterling and Flannery,
+ * section 5.8, Chebyshev Approximation.</dd>
+ * </dl>
+ *
+ * <p>This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * as published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+
+package org.hermit.astro;
+
+
+import static java.lang.Math.PI;
+import static java.lang.Math.atan2;
+import static java.lang.Math.ceil;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+import org.hermit.astro.Body.Field;
+import org.hermit.astro.Body.Name;
+
+
+/**
+ * A compact, pre-computed ephemeris for the Sun, Moon and planets.
+ *
+ * <p>Over a given range of dates, the positions calculated by the full
+ * theories (VSOP87 for the planets, and the ELP-based series in
+ * {@link Moon}) are approximated by piecewise Chebyshev polynomials,
+ * in the same way as the JPL ephemerides.  Each body's range is split
+ * into fixed-length segments, and each segment holds the coefficients
+ * for the three rectangular co-ordinates of the body; evaluating a
+ * position then takes a handful of multiply-adds, rather than summing
+ * hundreds of periodic terms.
+ *
+ * <p>Two frames are stored:
+ * <ul>
+ * <li>Heliocentric ecliptic co-ordinates for the planets (including
+ *     the Earth); this is what {@link Field#HE_LONGITUDE},
+ *     {@link Field#HE_LATITUDE} and {@link Field#HE_RADIUS} give.</li>
+ * <li>Geocentric apparent ecliptic co-ordinates for every body except
+ *     the Earth; this is what {@link Field#EC_LONGITUDE},
+ *     {@link Field#EC_LATITUDE} and {@link Field#EARTH_DISTANCE} give.</li>
+ * </ul>
+ *
+ * <p>An Ephemeris can be written to a file with {@link #write(File)},
+ * and loaded again with {@link #map(File)}, which memory-maps the file
+ * rather than reading it; so a service can start up with a ready-made
+ * ephemeris at almost no cost.  An Ephemeris is immutable, and can be
+ * shared between threads.
+ *
+ * <p>To have an {@link Observation} take its positions from an
+ * Ephemeris, call {@link Observation#setEphemeris(Ephemeris)}.  At
+ * times outside the ephemeris' range, the full theories are used.
+ */
+public class Ephemeris
+	implements AstroConstants
+{
+
+	// ******************************************************************** //
+	// Constructors.
+	// ******************************************************************** //
+
+	/**
+	 * Create an Ephemeris from a buffer in the file format.
+	 *
+	 * @param	buf			Buffer containing the header and the
+	 * 						coefficients.
+	 * @throws	IOException	The buffer is not a valid ephemeris.
+	 */
+	private Ephemeris(DoubleBuffer buf) throws IOException {
+		if (buf.limit() < HEADER_SIZE || buf.get(0) != MAGIC)
+			throw new IOException("Not an ephemeris file");
+		if (buf.get(1) != VERSION)
+			throw new IOException("Unsupported ephemeris version " + buf.get(1));
+		if ((int) buf.get(4) != Body.NUM_BODIES)
+			throw new IOException("Ephemeris has the wrong number of bodies");
+
+		data = buf;
+		startTd = buf.get(2);
+		endTd = buf.get(3);
+
+		// Read the index.
+		numCoeffs = new int[NUM_FRAMES][Body.NUM_BODIES];
+		numSegs = new int[NUM_FRAMES][Body.NUM_BODIES];
+		span = new double[NUM_FRAMES][Body.NUM_BODIES];
+		offset = new int[NUM_FRAMES][Body.NUM_BODIES];
+		for (int f = 0; f < NUM_FRAMES; ++f) {
+			for (int b = 0; b < Body.NUM_BODIES; ++b) {
+				int i = indexPos(f, b);
+				numCoeffs[f][b] = (int) buf.get(i);
+				numSegs[f][b] = (int) buf.get(i + 1);
+				span[f][b] = buf.get(i + 2);
+				offset[f][b] = (int) buf.get(i + 3);
+
+				int end = offset[f][b] + numSegs[f][b] * 3 * numCoeffs[f][b];
+				if (end > buf.limit())
+					throw new IOException("Ephemeris file is truncated");
+			}
+		}
+	}
+
+
+	/**
+	 * Calculate an ephemeris for all the bodies over a given range
+	 * of dates, using the default segment lengths and polynomial
+	 * degrees.
+	 *
+	 * <p>This evaluates the full theory many times for each body, and
+	 * takes a noticeable time -- it's intended to be done once, with
+	 * the result then saved with {@link #write(File)}.
+	 *
+	 * @param	startTd		The start of the range, as a Julian date in TD.
+	 * @param	endTd		The end of the range, as a Julian date in TD.
+	 * @return				The new ephemeris.
+	 * @throws	AstroError	Invalid date range.
+	 */
+	public static Ephemeris build(double startTd, double endTd)
+		throws AstroError
+	{
+		if (!(endTd > startTd))
+			throw new AstroError("Ephemeris end date must be after the start");
+
+		// Figure out the layout.
+		int[][] ncoeff = new int[NUM_FRAMES][Body.NUM_BODIES];
+		int[][] nseg = new int[NUM_FRAMES][Body.NUM_BODIES];
+		int size = HEADER_SIZE;
+		for (int f = 0; f < NUM_FRAMES; ++f) {
+			for (Name which : Body.ALL_BODIES) {
+				int b = which.ordinal();
+				if (!hasFrame(f, which))
+					continue;
+				ncoeff[f][b] = DEF_COEFFS[f][b];
+				nseg[f][b] = (int) ceil((endTd - startTd) / DEF_SPANS[f][b]);
+				size += nseg[f][b] * 3 * ncoeff[f][b];
+			}
+		}
+
+		DoubleBuffer buf = ByteBuffer.allocate(size * 8)
+									 .order(ByteOrder.LITTLE_ENDIAN)
+									 .asDoubleBuffer();
+
+		// Write the header.
+		buf.put(0, MAGIC);
+		buf.put(1, VERSION);
+		buf.put(2, startTd);
+		buf.put(3, endTd);
+		buf.put(4, Body.NUM_BODIES);
+		int pos = HEADER_SIZE;
+		for (int f = 0; f < NUM_FRAMES; ++f) {
+			for (int b = 0; b < Body.NUM_BODIES; ++b) {
+				int i = indexPos(f, b);
+				buf.put(i, ncoeff[f][b]);
+				buf.put(i + 1, nseg[f][b]);
+				buf.put(i + 2, DEF_SPANS[f][b]);
+				buf.put(i + 3, pos);
+				pos += nseg[f][b] * 3 * ncoeff[f][b];
+			}
+		}
+
+		// Now fit all the segments.
+		Observation obs = new Observation(Instant.fromTd(startTd));
+		for (int f = 0; f < NUM_FRAMES; ++f) {
+			for (Name which : Body.ALL_BODIES) {
+				int b = which.ordinal();
+				int n = ncoeff[f][b];
+				if (n == 0)
+					continue;
+
+				double[][] samples = new double[3][n];
+				double[] xyz = new double[3];
+				int base = (int) buf.get(indexPos(f, b) + 3);
+				double len = DEF_SPANS[f][b];
+				for (int s = 0; s < nseg[f][b]; ++s) {
+					double segStart = startTd + s * len;
+
+					// Sample the body at the Chebyshev nodes of this segment.
+					for (int k = 0; k < n; ++k) {
+						double x = cos(PI * (k + 0.5) / n);
+						obs.setTime(Instant.fromTd(segStart + (x + 1) * len / 2));
+						sample(obs, f, which, xyz);
+						samples[0][k] = xyz[0];
+						samples[1][k] = xyz[1];
+						samples[2][k] = xyz[2];
+					}
+
+					// Convert the samples to coefficients.
+					for (int c = 0; c < 3; ++c) {
+						int cbase = base + (s * 3 + c) * n;
+						for (int j = 0; j < n; ++j) {
+							double sum = 0;
+							for (int k = 0; k < n; ++k)
+								sum += samples[c][k] * cos(PI * j * (k + 0.5) / n);
+							buf.put(cbase + j, (j == 0 ? 1.0 : 2.0) * sum / n);
+						}
+					}
+				}
+			}
+		}
+
+		try {
+			return new Ephemeris(buf);
+		} catch (IOException e) {
+			throw new CalcError("Failed to build ephemeris: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Get the rectangular co-ordinates of a body in a given frame from
+	 * an Observation, calculated by the full theory.
+	 *
+	 * @param	obs			The Observation, set to the required time.
+	 * @param	frame		The frame to get.
+	 * @param	which		The body to get.
+	 * @param	xyz			Array in which the rectangular co-ordinates
+	 * 						will be placed.
+	 * @throws	AstroError	Invalid request.
+	 */
+	private static void sample(Observation obs, int frame, Name which, double[] xyz)
+		throws AstroError
+	{
+		Body body = obs.getBody(which);
+		double lon, lat, rad;
+		if (frame == FRAME_HELIO) {
+			lon = body.get(Field.HE_LONGITUDE);
+			lat = body.get(Field.HE_LATITUDE);
+			rad = body.get(Field.HE_RADIUS);
+		} else {
+			lon = body.get(Field.EC_LONGITUDE);
+			lat = body.get(Field.EC_LATITUDE);
+			rad = body.get(Field.EARTH_DISTANCE);
+		}
+		xyz[0] = rad * cos(lat) * cos(lon);
+		xyz[1] = rad * cos(lat) * sin(lon);
+		xyz[2] = rad * sin(lat);
+	}
+
+
+	// ******************************************************************** //
+	// File I/O.
+	// ******************************************************************** //
+
+	/**
+	 * Write this ephemeris to a file.  The file is a flat array of
+	 * little-endian doubles, and can be loaded with {@link #map(File)}.
+	 *
+	 * @param	file		The file to write.
+	 * @throws	IOException	Failed to write the file.
+	 */
+	public void write(File file) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(data.limit() * 8)
+									 .order(ByteOrder.LITTLE_ENDIAN);
+		bytes.asDoubleBuffer().put(data.duplicate());
+
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel chan = out.getChannel();
+			while (bytes.hasRemaining())
+				chan.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+
+	/**
+	 * Load an ephemeris from a file written by {@link #write(File)}.
+	 * The file is memory-mapped, not read, so this is very fast; the
+	 * coefficients are paged in as they are used.
+	 *
+	 * @param	file		The file to load.
+	 * @return				The ephemeris.
+	 * @throws	IOException	Failed to map the file, or it is not a
+	 * 						valid ephemeris.
+	 */
+	public static Ephemeris map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel chan = raf.getChannel();
+			ByteBuffer bytes = chan.map(FileChannel.MapMode.READ_ONLY, 0, chan.size());
+			return new Ephemeris(bytes.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+		} finally {
+			// The mapping remains valid after the file is closed.
+			raf.close();
+		}
+	}
+
+
+	// ******************************************************************** //
+	// Accessors.
+	// ******************************************************************** //
+
+	/**
+	 * Get the start of the range covered by this ephemeris.
+	 *
+	 * @return				The start of the range, as a Julian date in TD.
+	 */
+	public double getStartTd() {
+		return startTd;
+	}
+
+
+	/**
+	 * Get the end of the range covered by this ephemeris.
+	 *
+	 * @return				The end of the range, as a Julian date in TD.
+	 */
+	public double getEndTd() {
+		return endTd;
+	}
+
+
+	/**
+	 * Determine whether this ephemeris can provide the heliocentric
+	 * position of a given body at a given time.
+	 *
+	 * @param	which		The body of interest.
+	 * @param	td			The Julian date in TD.
+	 * @return				true iff the heliocentric position is available.
+	 */
+	public boolean coversHeliocentric(Name which, double td) {
+		return covers(FRAME_HELIO, which, td);
+	}
+
+
+	/**
+	 * Determine whether this ephemeris can provide the geocentric
+	 * position of a given body at a given time.
+	 *
+	 * @param	which		The body of interest.
+	 * @param	td			The Julian date in TD.
+	 * @return				true iff the geocentric position is available.
+	 */
+	public boolean coversGeocentric(Name which, double td) {
+		return covers(FRAME_GEO, which, td);
+	}
+
+
+	private boolean covers(int frame, Name which, double td) {
+		return numCoeffs[frame][which.ordinal()] > 0 &&
+							td >= startTd && td <= endTd;
+	}
+
+
+	// ******************************************************************** //
+	// Position Calculation.
+	// ******************************************************************** //
+
+	/**
+	 * Get the heliocentric ecliptic co-ordinates of a planet.
+	 *
+	 * @param	which		The planet of interest.
+	 * @param	td			The Julian date in TD.
+	 * @param	pos			An array { L, B, R } in which the heliocentric
+	 * 						longitude and latitude in radians, and the
+	 * 						radius vector in AU, will be placed.
+	 * @throws	AstroError	The position is not covered by this ephemeris.
+	 */
+	public void getHeliocentric(Name which, double td, double[] pos)
+		throws AstroError
+	{
+		if (!coversHeliocentric(which, td))
+			throw new AstroError("Ephemeris has no heliocentric position for " +
+								 which.name + " at " + td);
+		evaluate(FRAME_HELIO, which.ordinal(), td, pos);
+		toSpherical(pos);
+	}
+
+
+	/**
+	 * Get the geocentric apparent ecliptic co-ordinates of a body.
+	 *
+	 * @param	which		The body of interest.
+	 * @param	td			The Julian date in TD.
+	 * @param	pos			An array { λ, β, Δ } in which the ecliptic
+	 * 						longitude and latitude in radians, and the
+	 * 						distance from the Earth in AU, will be placed.
+	 * @throws	AstroError	The position is not covered by this ephemeris.
+	 */
+	public void getGeocentric(Name which, double td, double[] pos)
+		throws AstroError
+	{
+		if (!coversGeocentric(which, td))
+			throw new AstroError("Ephemeris has no geocentric position for " +
+								 which.name + " at " + td);
+		evaluate(FRAME_GEO, which.ordinal(), td, pos);
+		toSpherical(pos);
+	}
+
+
+	/**
+	 * Get the heliocentric ecliptic rectangular co-ordinates of a planet.
+	 * This is the fastest way to get a position from the ephemeris, as
+	 * it avoids the conversion to spherical co-ordinates.
+	 *
+	 * @param	which		The planet of interest.
+	 * @param	td			The Julian date in TD.
+	 * @param	xyz			An array { x, y, z } in which the co-ordinates
+	 * 						in AU will be placed.  x points to the equinox,
+	 * 						and z to the north ecliptic pole.
+	 * @throws	AstroError	The position is not covered by this ephemeris.
+	 */
+	public void getHeliocentricXyz(Name which, double td, double[] xyz)
+		throws AstroError
+	{
+		if (!coversHeliocentric(which, td))
+			throw new AstroError("Ephemeris has no heliocentric position for " +
+								 which.name + " at " + td);
+		evaluate(FRAME_HELIO, which.ordinal(), td, xyz);
+	}
+
+
+	/**
+	 * Get the geocentric apparent ecliptic rectangular co-ordinates of
+	 * a body.  This is the fastest way to get a position from the
+	 * ephemeris, as it avoids the conversion to spherical co-ordinates.
+	 *
+	 * @param	which		The body of interest.
+	 * @param	td			The Julian date in TD.
+	 * @param	xyz			An array { x, y, z } in which the co-ordinates
+	 * 						in AU will be placed.  x points to the equinox,
+	 * 						and z to the north ecliptic pole.
+	 * @throws	AstroError	The position is not covered by this ephemeris.
+	 */
+	public void getGeocentricXyz(Name which, double td, double[] xyz)
+		throws AstroError
+	{
+		if (!coversGeocentric(which, td))
+			throw new AstroError("Ephemeris has no geocentric position for " +
+								 which.name + " at " + td);
+		evaluate(FRAME_GEO, which.ordinal(), td, xyz);
+	}
+
+
+	/**
+	 * Evaluate the rectangular co-ordinates of a body at a given time,
+	 * using Clenshaw's recurrence.
+	 *
+	 * @param	f			The frame.
+	 * @param	b			The body ordinal.
+	 * @param	td			The Julian date in TD.
+	 * @param	xyz			Array in which the co-ordinates will be placed.
+	 */
+	private void evaluate(int f, int b, double td, double[] xyz) {
+		final int n = numCoeffs[f][b];
+		final double len = span[f][b];
+
+		// Find the segment.  The end of the range may be exactly on the
+		// end of the last segment.
+		int s = (int) ((td - startTd) / len);
+		if (s >= numSegs[f][b])
+			s = numSegs[f][b] - 1;
+		double x = 2 * (td - startTd - s * len) / len - 1;
+		double x2 = 2 * x;
+
+		int base = offset[f][b] + s * 3 * n;
+		for (int c = 0; c < 3; ++c, base += n) {
+			double d = 0, dd = 0;
+			for (int j = n - 1; j >= 1; --j) {
+				double sv = d;
+				d = x2 * d - dd + data.get(base + j);
+				dd = sv;
+			}
+			xyz[c] = x * d - dd + data.get(base);
+		}
+	}
+
+
+	/**
+	 * Convert rectangular co-ordinates to spherical, in place.
+	 *
+	 * @param	pos			On entry, { x, y, z }; on exit,
+	 * 						{ longitude, latitude, radius }.
+	 */
+	private static void toSpherical(double[] pos) {
+		double x = pos[0], y = pos[1], z = pos[2];
+		double ρ = sqrt(x * x + y * y);
+		double lon = atan2(y, x);
+		if (lon < 0)
+			lon += TWOPI;
+		pos[0] = lon;
+		pos[1] = atan2(z, ρ);
+		pos[2] = sqrt(ρ * ρ + z * z);
+	}
+
+
+	// ******************************************************************** //
+	// Layout.
+	// ******************************************************************** //
+
+	/**
+	 * Determine whether a body has a position in a given frame.
+	 */
+	private static boolean hasFrame(int frame, Name which) {
+		if (frame == FRAME_HELIO)
+			return which.terms != null;
+		else
+			return which != Name.EARTH;
+	}
+
+
+	/**
+	 * Get the position in the file of the index entry for a given
+	 * frame and body.
+	 */
+	private static int indexPos(int frame, int body) {
+		return 5 + (frame * Body.NUM_BODIES + body) * 4;
+	}
+
+
+	// ******************************************************************** //
+	// Class Data.
+	// ******************************************************************** //
+
+	// The frames we store.
+	private static final int FRAME_HELIO = 0;
+	private static final int FRAME_GEO = 1;
+	private static final int NUM_FRAMES = 2;
+
+	// Magic number and version of the file format.  The file is all
+	// little-endian doubles:
+	//	 magic, version, startTd, endTd, num bodies,
+	//	 { ncoeffs, nsegs, span, offset } for each frame and body,
+	//	 the coefficients.
+	// The coefficients for each frame and body are stored by segment,
+	// then co-ordinate (x, y, z), then Chebyshev order.
+	private static final double MAGIC = 0x48455048;
+	private static final double VERSION = 1;
+	private static final int HEADER_SIZE = 5 + NUM_FRAMES * Body.NUM_BODIES * 4;
+
+	// Default segment lengths in days, and number of coefficients, for
+	// each frame and body.  Order is as per Body.Name.  The fast-moving
+	// bodies get short segments; geocentric positions need shorter
+	// segments than heliocentric, because they include the Earth's motion.
+	private static final double[][] DEF_SPANS = {
+		//	  Sun    Moon   Merc   Venus  Earth  Mars   Jup    Sat    Ura    Nep
+		{	  0,     0,     8,     16,    16,    16,    32,    32,    32,    32 },
+		{	  8,     4,     8,     8,     0,     8,     16,    16,    16,    16 },
+	};
+	private static final int[][] DEF_COEFFS = {
+		{	  0,     0,     14,    12,    12,    12,    10,    10,    8,     8 },
+		{	  12,    14,    14,    12,    0,     12,    12,    12,    10,    10 },
+	};
+
+
+	// ******************************************************************** //
+	// Private Data.
+	// ******************************************************************** //
+
+	// The whole ephemeris, in file format.  This may be a heap buffer or
+	// a mapped file.  We only ever use absolute gets, so it's safe to
+	// share between threads.
+	private final DoubleBuffer data;
+
+	// The range of dates covered, as Julian dates in TD.
+	private final double startTd;
+	private final double endTd;
+
+	// The index, by frame and body: number of coefficients per
+	// co-ordinate, number of segments, segment length in days, and the
+	// position in data of the first coefficient.  A body with no
+	// data in a frame has zero coefficients.
+	private final int[][] numCoeffs;
+	private final int[][] numSegs;
+	private final double[][] span;
+	private final int[][] offset;
+
+}
@@ -97,9 +97,15 @@ public class Moon
 	 * and EC_LATITUDE.
 	 *
 	 * <p>From AA chapter 47.
+	 * 
+	 * @throws	AstroError		Invalid request.
 	 */
 	@Override
-	void calcEcPosition() {
+	void calcEcPosition() throws AstroError {
+		// If we have a pre-computed ephemeris, use it.
+		if (ecFromEphemeris())
+			return;
+
 		// Calculate the Julian centuries elapsed since J2000 in
 		// dynamical time.  We also need the time in millenia.
 		double T = (observation.getTd() - J2000) / 36525;
@@ -43,6 +43,8 @@ import static java.lang.Math.tan;
 import static java.lang.Math.toDegrees;
 import static java.lang.Math.toRadians;
 
+import java.util.Arrays;
+
 import org.hermit.geo.GeoConstants;
 import org.hermit.geo.Position;
 
@@ -205,9 +207,11 @@ public class Observation
         // Create the table where we will store bodies as we create them.
         celestialBodies = new Body[Body.NUM_BODIES];
         
-        // Create the data cache.
-        dataCache = new Double[NUM_FIELDS];
-        invalidate();
+        // Create the data cache.  All stamps start at zero, which is never
+        // a valid generation, so everything starts out invalid.
+        dataCache = new double[NUM_FIELDS];
+        cacheStamp = new int[NUM_FIELDS];
+        cacheGeneration = 1;
     }
 
 
@@ -407,6 +411,37 @@ public class Observation
 	}
 	
 
+    // ******************************************************************** //
+	// Ephemeris Setup.
+	// ******************************************************************** //
+	
+	/**
+	 * Get the pre-computed ephemeris used by this Observation, if any.
+	 * 
+	 * @return				The ephemeris in use; null if none.
+	 */
+	public Ephemeris getEphemeris() {
+		return ephemeris;
+	}
+
+
+	/**
+	 * Set a pre-computed ephemeris for this Observation to use.  When
+	 * the observation time is within the ephemeris' range, the positions
+	 * of the bodies will be taken from it, instead of from the full
+	 * theories.  This clears out any cached data we may have calculated.
+	 * 
+	 * @param	eph			The ephemeris to use; null to always use the
+	 * 						full theories.
+	 */
+	public void setEphemeris(Ephemeris eph) {
+		ephemeris = eph;
+
+		// Invalidate the data caches.
+		invalidate();
+	}
+	
+
     // ******************************************************************** //
 	// Celestial Bodies.
 	// ******************************************************************** //
@@ -513,16 +548,17 @@ public class Observation
 	 * @return				The field value.
 	 */
 	public double get(OField key) {
-        if (dataCache[key.ordinal()] == null)
+        final int i = key.ordinal();
+        if (cacheStamp[i] != cacheGeneration) {
             key.calculate(this);
-        
-        // Get the value.  It has to be there now.
-        Double val = dataCache[key.ordinal()];
-        if (val == null)
-            throw new CalcError("Calculator for observation field " +
-                                key + " failed");
 
-		return val;
+            // Get the value.  It has to be there now.
+            if (cacheStamp[i] != cacheGeneration)
+                throw new CalcError("Calculator for observation field " +
+                                    key + " failed");
+        }
+
+		return dataCache[i];
 	}
 	
 	
@@ -532,8 +568,10 @@ public class Observation
 	 * @param	key			The name of the value to save.
 	 * @param	val			The value.
 	 */
-	protected void put(OField key, Double val) {
-        dataCache[key.ordinal()] = val;
+	protected void put(OField key, double val) {
+        final int i = key.ordinal();
+        dataCache[i] = val;
+        cacheStamp[i] = cacheGeneration;
 	}
 	
 	
@@ -541,9 +579,14 @@ public class Observation
 	 * Invalidate all of the data caches associated with this Observation.
 	 */
 	protected void invalidate() {
-		// Clear the data calculated for this Observation.
-        for (int i = 0; i < NUM_FIELDS; ++i)
-            dataCache[i] = null;
+		// Clear the data calculated for this Observation, by moving on to
+		// a new cache generation.
+        if (++cacheGeneration == 0) {
+            // The generation counter wrapped; clear out the stamps so
+            // that no old value can be mistaken for a current one.
+            Arrays.fill(cacheStamp, 0);
+            cacheGeneration = 1;
+        }
 		
 		// Clear the caches in all the bodies.
 		for (Body b : celestialBodies)
@@ -1166,12 +1209,24 @@ public class Observation
 	// The observer's altitude above sea level in metres.
 	private double observerAlt = 0.0;
 
+	// Pre-computed ephemeris to take body positions from; null if none.
+	private Ephemeris ephemeris = null;
+
 	// The celestial bodies in this Universe.
 	private Body[] celestialBodies;
 
-	// Cache of values calculated for this body at the currently
+	// Cache of values calculated for this Observation at the currently
 	// configured date / time.
-	private Double[] dataCache;
+	private double[] dataCache;
+
+	// For each entry in dataCache, the cache generation in which it was
+	// calculated.  An entry is valid only if its stamp equals
+	// cacheGeneration; zero is never a valid generation.
+	private int[] cacheStamp;
+
+	// The current cache generation.  Incrementing this invalidates all
+	// the cached values in one go.
+	private int cacheGeneration;
 
 }
 
@@ -103,9 +103,15 @@ public class Planet
 	 * HE_LONGITUDE and HE_RADIUS.
 	 *
 	 * <p>From AA chapter 32.
+	 * 
+	 * @throws	AstroError		Invalid request.
 	 */
 	@Override
-	void calcHePosition() {
+	void calcHePosition() throws AstroError {
+		// If we have a pre-computed ephemeris, use it.
+		if (heFromEphemeris())
+			return;
+
 		// Calculate the Julian centuries elapsed since J2000 in
 		// dynamical time.  We also need the time in millenia.
 		double T = (observation.getTd() - J2000) / 36525;
@@ -145,6 +151,10 @@ public class Planet
 		if (whichPlanet == Planet.Name.EARTH)
 			throw new AstroError("Can't calculate the ecliptic position of the Earth");
 		
+		// If we have a pre-computed ephemeris, use it.
+		if (ecFromEphemeris())
+			return;
+
 		// We need data for the Earth too.
 		Planet earth = observation.getPlanet(Planet.Name.EARTH);
 		
@@ -244,6 +254,63 @@ public class Planet
 	}
 
 
+    // ******************************************************************** //
+	// Batch Calculation.
+	// ******************************************************************** //
+
+	/**
+	 * Calculate the heliocentric co-ordinates of a planet for many
+	 * instants in one pass.  This is much faster than setting the time
+	 * on an Observation and asking for HE_LONGITUDE, HE_LATITUDE and
+	 * HE_RADIUS at each instant, and gives identical results.
+	 * 
+	 * @param	which		Which planet to calculate; must be a planet,
+	 * 						not the Sun or Moon.
+	 * @param	td			The Julian dates, in TD, of the instants
+	 * 						to calculate for.
+	 * @param	L			Array in which the heliocentric longitudes in
+	 * 						radians will be placed; must be at least as
+	 * 						long as td.
+	 * @param	B			Array in which the heliocentric latitudes in
+	 * 						radians will be placed; must be at least as
+	 * 						long as td.
+	 * @param	R			Array in which the radius vectors in AU will be
+	 * 						placed; must be at least as long as td.
+	 * @throws	AstroError	The given body is not a planet.
+	 */
+	public static void calculateHePositions(Name which, double[] td,
+											double[] L, double[] B, double[] R)
+		throws AstroError
+	{
+		if (which.terms == null)
+			throw new AstroError("Cannot calculate heliocentric positions for " +
+								 which.name);
+
+		// Calculate the Julian millennia elapsed since J2000 in
+		// dynamical time, exactly as calcHePosition() does.
+		final int n = td.length;
+		double[] Tm = new double[n];
+		for (int i = 0; i < n; ++i) {
+			double T = (td[i] - J2000) / 36525;
+			Tm[i] = T / 10.0;
+		}
+		
+		which.terms.calculateL(Tm, L);
+		which.terms.calculateB(Tm, B);
+		which.terms.calculateR(Tm, R);
+
+		// Normalize the angles as per calcHePosition().
+		for (int i = 0; i < n; ++i) {
+			L[i] %= TWOPI;
+			if (L[i] < 0)
+				L[i] += TWOPI;
+			B[i] %= PI;
+			if (B[i] < -HALFPI)
+				B[i] += PI;
+		}
+	}
+
+
 	// ******************************************************************** //
 	// Private Data.
 	// ******************************************************************** //
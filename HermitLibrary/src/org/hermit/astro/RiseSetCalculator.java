@@ -0,0 +1,204 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * <br>Copyright 2009 Ian Cameron Smith
+ * 
+ * <p>References:
+ * <dl>
+ * <dt>AA</dt>
+ * <dd>"Astronomical Algorithms", by Jean Meeus, ISBN-10: 0-943396-61-1.</dd>
+ * </dl>
+ * The primary reference for this version of the software is AA.
+ * 
+ * <p>Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ * <p>This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * as published by the Free Software Foundation (see COPYING).
+ * 
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+
+package org.hermit.astro;
+
+
+import static java.lang.Math.asin;
+import static java.lang.Math.floor;
+import static java.lang.Math.toRadians;
+
+import org.hermit.astro.Body.Field;
+import org.hermit.astro.Body.Name;
+import org.hermit.astro.Observation.OField;
+import org.hermit.geo.Position;
+
+
+/**
+ * Calculator for the rise, transit and set times of a body over a range
+ * of days.
+ * 
+ * <p>The rise and set time for any one day can be got from
+ * {@link Body#get(Field)}; but each such calculation needs the body's
+ * apparent position on the day before, the day itself and the day
+ * after, so a table of N days calculated that way works out 3N
+ * positions.  This class slides a 3-day window along the range instead,
+ * so each day's position is worked out once.  The results are identical
+ * to those given by an {@link Observation} set to 0h UT on each day.
+ * 
+ * <p>In addition, this class reports explicitly on the days when the
+ * body doesn't rise or set at all.
+ */
+public class RiseSetCalculator
+	implements AstroConstants
+{
+
+	// ******************************************************************** //
+	// Public Constants.
+	// ******************************************************************** //
+
+	/**
+	 * Status for a day on which the body rises and sets normally.
+	 */
+	public static final int RISES_AND_SETS = 0;
+
+	/**
+	 * Status for a day on which the body is above the horizon all day,
+	 * and so doesn't rise or set.
+	 */
+	public static final int CIRCUMPOLAR = 1;
+
+	/**
+	 * Status for a day on which the body is below the horizon all day,
+	 * and so doesn't rise or set.
+	 */
+	public static final int NEVER_RISES = 2;
+
+
+	// ******************************************************************** //
+	// Constructors.
+	// ******************************************************************** //
+
+	/**
+	 * Create a rise / set calculator.
+	 */
+	public RiseSetCalculator() {
+		sidereal = new Observation(0.0);
+		positions = new Observation(0.0);
+	}
+
+
+	// ******************************************************************** //
+	// Calculation.
+	// ******************************************************************** //
+
+	/**
+	 * Calculate the rise, transit and set times of a body for each day in
+	 * a range of days.
+	 * 
+	 * <p>For days when the body doesn't rise or set, the rise and set
+	 * times are NaN, and the status says why.  The transit time is always
+	 * set.
+	 * 
+	 * @param	which		The body to calculate; any body except the Earth.
+	 * @param	pos			The observer's position.
+	 * @param	startJd		The first day to calculate, as a UT Julian date;
+	 * 						if this is not 0h UT, the day containing this
+	 * 						time is used.
+	 * @param	days		The number of days to calculate.
+	 * @param	rise		Array in which the UT rise time on each day,
+	 * 						in decimal hours, will be placed.
+	 * @param	transit		Array in which the UT transit time on each day,
+	 * 						in decimal hours, will be placed.
+	 * @param	set			Array in which the UT set time on each day,
+	 * 						in decimal hours, will be placed.
+	 * @param	status		Array in which the status of each day will be
+	 * 						placed: {@link #RISES_AND_SETS},
+	 * 						{@link #CIRCUMPOLAR} or {@link #NEVER_RISES}.
+	 * 						May be null if not required.
+	 * @throws	AstroError	Invalid request.
+	 */
+	public void computeRange(Name which, Position pos, double startJd, int days,
+							 double[] rise, double[] transit, double[] set,
+							 int[] status)
+		throws AstroError
+	{
+		if (which == Name.EARTH)
+			throw new AstroError("Cannot calculate rise/set for the Earth");
+		
+		// Get the observer's position.  NOTE: my L is positive east,
+		// the opposite to Astronomical Algorithms.
+		double φ = pos.getLatRads();
+		double L = pos.getLonRads();
+		
+		// Get the apparent positions of the body at 0h TD on every day
+		// from the day before the range to the day after.
+		double midnight = floor(startJd + 0.5) - 0.5;
+		if (αDays == null || αDays.length < days + 2) {
+			αDays = new double[days + 2];
+			δDays = new double[days + 2];
+		}
+		for (int d = 0; d < days + 2; ++d) {
+			positions.setTime(Instant.fromTd(midnight + d - 1));
+			Body b = positions.getBody(which);
+			αDays[d] = b.get(Field.RIGHT_ASCENSION_AP);
+			δDays[d] = b.get(Field.DECLINATION_AP);
+		}
+		
+		// Now slide the 3-day window along the range.
+		for (int d = 0; d < days; ++d) {
+			sidereal.setTime(new Instant(midnight + d));
+			
+			// We need the apparent sidereal time for midnight UT,
+			// in radians.
+			double Θ0 = toRadians(sidereal.get(OField.GAST_MIDNIGHT) * 15.0);
+			double ΔT = sidereal.getTime().getΔT();
+			
+			// Figure out the standard altitude for this body's rise or set.
+			// This is just as per Body.calcRiseSet().
+			double h_o;
+			if (which == Name.MOON) {
+				double Δ = sidereal.getMoon().get(Field.EARTH_DISTANCE);
+				double π = asin(0.0000426345 / Δ);
+				h_o = 0.7275 * π - REFRACTION;
+			} else
+				h_o = -(REFRACTION + which.θ_o / 2);
+			
+			for (int i = 0; i < 3; ++i) {
+				αn[i] = αDays[d + i];
+				δn[i] = δDays[d + i];
+			}
+			int s = Body.riseSetTimes(h_o, Θ0, φ, L, ΔT, αn, δn, times);
+			rise[d] = times[0];
+			transit[d] = times[1];
+			set[d] = times[2];
+			if (status != null)
+				status[d] = s;
+		}
+	}
+
+
+	// ******************************************************************** //
+	// Private Data.
+	// ******************************************************************** //
+
+	// Observation used to get the sidereal time at 0h UT each day.
+	private final Observation sidereal;
+	
+	// Observation used to get the body positions at 0h TD each day.
+	private final Observation positions;
+	
+	// The body's apparent RA and declination at 0h TD on each day,
+	// starting with the day before the range.  Grown as needed.
+	private double[] αDays = null;
+	private double[] δDays = null;
+	
+	// Working buffers for the 3-day window, and the results for one day.
+	private final double[] αn = new double[3];
+	private final double[] δn = new double[3];
+	private final double[] times = new double[3];
+
+}
@@ -0,0 +1,264 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * <br>Copyright 2009 Ian Cameron Smith
+ *
+ * <p>References:
+ * <dl>
+ * <dt>AA</dt>
+ * <dd>"Astronomical Algorithms", by Jean Meeus, ISBN-10: 0-943396-61-1.</dd>
+ * </dl>
+ * The primary reference for this version of the software is AA.
+ *
+ * <p>Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ * <p>This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * as published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+
+package org.hermit.astro;
+
+
+import static java.lang.Math.PI;
+import static java.lang.Math.asin;
+import static java.lang.Math.atan2;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.tan;
+import static java.lang.Math.toRadians;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hermit.astro.Body.Field;
+import org.hermit.astro.Body.Name;
+import org.hermit.astro.Observation.OField;
+import org.hermit.geo.Position;
+import org.hermit.utils.SharedPool;
+
+
+/**
+ * Calculator for the local position of a body, as seen from every point
+ * on a grid of observer positions at a single instant.
+ *
+ * <p>The local altitude and azimuth for any one observer can be got from
+ * {@link Body#get(Field)}; but a separate {@link Observation} is needed
+ * for each observer, and each one works out the observer-independent
+ * part of the calculation -- nutation, obliquity, sidereal time and the
+ * body's apparent RA and declination -- all over again.  This class
+ * works that out once, and then does the per-observer part (hour angle,
+ * parallax and altitude / azimuth) for all the grid points, split
+ * across a fork / join pool.  The results are identical to those given
+ * by an Observation for each point.
+ *
+ * <p>A SkyGrid may be used for many calculations, but not from several
+ * threads at once.  Since it runs in a fork / join pool, it needs
+ * Android API level 21 or later.
+ */
+public class SkyGrid
+	implements AstroConstants
+{
+
+	// ******************************************************************** //
+	// Constructors.
+	// ******************************************************************** //
+
+	/**
+	 * Create a sky grid calculator which runs in the library's
+	 * {@link SharedPool shared fork / join pool}.
+	 */
+	public SkyGrid() {
+		this(SharedPool.get());
+	}
+
+
+	/**
+	 * Create a sky grid calculator which runs in a given fork / join pool.
+	 *
+	 * @param	pool		The pool to run the per-observer calculations in.
+	 */
+	public SkyGrid(ForkJoinPool pool) {
+		this.pool = pool;
+		geocentric = new Observation(0.0);
+	}
+
+
+	// ******************************************************************** //
+	// Calculation.
+	// ******************************************************************** //
+
+	/**
+	 * Calculate the local position of a body, as seen from each of a
+	 * grid of observer positions.
+	 *
+	 * <p>The observer positions are given as raw co-ordinates, in the
+	 * form used by {@link Position}: latitude in the range -PI/2 .. PI/2,
+	 * and longitude in the range -PI .. PI, positive east.  The
+	 * positions are not normalized here.
+	 *
+	 * @param	which		The body to calculate; any body except the Earth.
+	 * @param	when		The instant to calculate for.
+	 * @param	lat			The latitude of each observer, in radians.
+	 * @param	lon			The longitude of each observer, in radians.
+	 * @param	altitude	Array in which the local altitude of the body
+	 * 						for each observer, in radians, will be placed.
+	 * 						This is as per {@link Field#LOCAL_ALTITUDE}.
+	 * @param	azimuth		Array in which the local azimuth of the body
+	 * 						for each observer, in radians eastwards from
+	 * 						north, will be placed.  This is as per
+	 * 						{@link Field#LOCAL_AZIMUTH}.
+	 * @param	hourAngle	Array in which the local hour angle of the body
+	 * 						for each observer, in radians, will be placed.
+	 * 						May be null if not required.
+	 * @throws	AstroError	Invalid request.
+	 */
+	public void compute(Name which, Instant when,
+						double[] lat, double[] lon,
+						double[] altitude, double[] azimuth, double[] hourAngle)
+		throws AstroError
+	{
+		if (which == Name.EARTH)
+			throw new AstroError("Cannot calculate local position of the Earth");
+		int n = lat.length;
+		if (lon.length != n || altitude.length < n || azimuth.length < n ||
+									(hourAngle != null && hourAngle.length < n))
+			throw new AstroError("SkyGrid: array sizes do not match");
+
+		// Work out the observer-independent part of the calculation.
+		geocentric.setTime(when);
+		Body body = geocentric.getBody(which);
+		double α = body.get(Field.RIGHT_ASCENSION_AP);
+		double δ = body.get(Field.DECLINATION_AP);
+		double Δ = body.get(Field.EARTH_DISTANCE);
+		double θo = geocentric.get(OField.GAST_INSTANT);
+
+		// Convert the GST to radians, and get the equatorial horizontal
+		// parallax in radians.
+		double θor = toRadians(θo * 15.0);
+		double π = asin(0.0000426345 / Δ);
+
+		// Now do the per-observer part.
+		Cells task = new Cells(α, δ, θor, π, lat, lon,
+							   altitude, azimuth, hourAngle, 0, n);
+		if (n <= LEAF_SIZE)
+			task.computeDirect();
+		else
+			pool.invoke(task);
+	}
+
+
+	/**
+	 * A task which calculates the local positions for a range of
+	 * grid cells, splitting itself up if the range is large.
+	 */
+	private static final class Cells extends RecursiveAction {
+		Cells(double α, double δ, double θor, double π,
+			  double[] lat, double[] lon,
+			  double[] altitude, double[] azimuth, double[] hourAngle,
+			  int start, int end)
+		{
+			this.α = α;
+			this.δ = δ;
+			this.θor = θor;
+			this.π = π;
+			this.lat = lat;
+			this.lon = lon;
+			this.altitude = altitude;
+			this.azimuth = azimuth;
+			this.hourAngle = hourAngle;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= LEAF_SIZE) {
+				computeDirect();
+				return;
+			}
+			int mid = (start + end) >>> 1;
+			invokeAll(new Cells(α, δ, θor, π, lat, lon,
+								altitude, azimuth, hourAngle, start, mid),
+					  new Cells(α, δ, θor, π, lat, lon,
+							    altitude, azimuth, hourAngle, mid, end));
+		}
+
+		/**
+		 * Calculate the local positions for this task's cells.  This is
+		 * just as per Body.calcHourAngle() and Body.calcAltAzimuth().
+		 */
+		void computeDirect() {
+			final double tanδ = tan(δ);
+			final double sinδ = sin(δ);
+			final double cosδ = cos(δ);
+			final double sinπ = sin(π);
+
+			for (int i = start; i < end; ++i) {
+				double φ = lat[i];
+				double L = lon[i];
+
+				// Get the local hour angle.  Note longitude is positive
+				// East, contrary to Meeus.
+				double H = Body.modTwoPi(θor + L - α);
+
+				double sinφ = sin(φ);
+				double cosφ = cos(φ);
+				double cosH = cos(H);
+				double Ay = sin(H);
+				double Ax = cosH * sinφ - tanδ * cosφ;
+				double A = atan2(Ay, Ax);
+
+				// Make azimuth north-based.
+				A = (A + PI) % TWOPI;
+
+				// Calculate the "local geocentric" altitude, and the
+				// parallax in altitude.
+				double sinh = sinφ * sinδ + cosφ * cosδ * cosH;
+				double h = asin(sinh);
+				double ρ = Position.centreDistance(φ);
+				double p = asin(ρ * sinπ * cos(h));
+
+				azimuth[i] = A;
+				altitude[i] = h - p;
+				if (hourAngle != null)
+					hourAngle[i] = H;
+			}
+		}
+
+		private static final long serialVersionUID = 1L;
+
+		private final double α, δ, θor, π;
+		private final double[] lat, lon;
+		private final double[] altitude, azimuth, hourAngle;
+		private final int start, end;
+	}
+
+
+	// ******************************************************************** //
+	// Class Data.
+	// ******************************************************************** //
+
+	// The number of grid cells below which we don't split up the work.
+	private static final int LEAF_SIZE = 4096;
+
+
+	// ******************************************************************** //
+	// Private Data.
+	// ******************************************************************** //
+
+	// The pool we run the per-observer calculations in.
+	private final ForkJoinPool pool;
+
+	// Observation used to get the observer-independent part of the
+	// calculation.
+	private final Observation geocentric;
+
+}
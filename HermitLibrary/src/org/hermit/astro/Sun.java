@@ -102,6 +102,10 @@ public class Sun
 	 */
 	@Override
 	void calcEcPosition() throws AstroError {
+		// If we have a pre-computed ephemeris, use it.
+		if (ecFromEphemeris())
+			return;
+
 		// We need data for the Earth too.
 		Planet earth = observation.getPlanet(Planet.Name.EARTH);
 		
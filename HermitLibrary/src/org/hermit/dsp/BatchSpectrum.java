@@ -0,0 +1,286 @@
+/**
+ * dsp: various digital signal processing algorithms
+ * <br>Copyright 2009 Ian Cameron Smith
+ *
+ * <p>This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * as published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+
+package org.hermit.dsp;
+
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hermit.utils.SharedPool;
+
+
+/**
+ * Spectrum analysis of many audio channels at once, shared across a
+ * pool of threads.  Given one block of 16-bit samples for each channel,
+ * in either interleaved or planar layout, this computes the spectrum of
+ * every channel, writing them all into one matrix of
+ * channels * bins values.
+ *
+ * <p>The channels are divided evenly among a fixed number of workers,
+ * one per thread of the pool.  Each worker has its own single-precision
+ * {@link FFTTransformer}, with its own FFT plan and working buffers, so
+ * the workers share nothing but the (read-only) input and window, and
+ * write to separate parts of the output.  Nothing is allocated per
+ * batch.  Each spectrum is the same as a single-precision
+ * FFTTransformer would give for that channel.
+ *
+ * <p>A processor may be used by one thread at a time.  The pool is a
+ * ForkJoinPool, which needs Android API level 21 or later.
+ */
+public final class BatchSpectrum {
+
+    // ******************************************************************** //
+    // Public Constants.
+    // ******************************************************************** //
+
+    /**
+     * The possible arrangements of multi-channel input data.
+     */
+    public enum Layout {
+        /** Samples are interleaved: all channels of the first sample,
+         * then all channels of the second, and so on. */
+        INTERLEAVED,
+
+        /** Channels are planar: all of the first channel's samples,
+         * then all of the second's, and so on. */
+        PLANAR,
+    }
+
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a batch processor which uses the library's
+     * {@link SharedPool shared fork-join pool}.
+     *
+     * @param   size        The number of samples per channel in a block.
+     *                      Must be a power of 2.
+     * @param   winfunc     Window function to apply to all input data.
+     * @throws  IllegalArgumentException    Invalid parameter.
+     */
+    public BatchSpectrum(int size, Window.Function winfunc) {
+        this(SharedPool.get(), size, new Window(size, winfunc));
+    }
+
+
+    /**
+     * Create a batch processor which uses a given fork-join pool.  One
+     * worker is created for each thread of the pool's parallelism.
+     *
+     * @param   pool        The pool to run the transforms in.
+     * @param   size        The number of samples per channel in a block.
+     *                      Must be a power of 2.
+     * @param   window      Window function to apply to all input data.
+     *                      Its block size must be the same as the size
+     *                      parameter.  May be null, for no windowing.
+     * @throws  IllegalArgumentException    Invalid parameter.
+     */
+    public BatchSpectrum(ForkJoinPool pool, int size, Window window) {
+        this.pool = pool;
+        blockSize = size;
+        bins = size / 2;
+
+        workers = new Worker[pool.getParallelism()];
+        for (int i = 0; i < workers.length; ++i)
+            workers[i] = new Worker(new FFTTransformer(size, window, true));
+    }
+
+
+    // ******************************************************************** //
+    // Configuration.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of samples per channel in a block.
+     *
+     * @return              The block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+
+    /**
+     * Get the number of values in each channel's spectrum.
+     *
+     * @return              The number of frequency bins; this is half
+     *                      the block size.
+     */
+    public int getBins() {
+        return bins;
+    }
+
+
+    /**
+     * Get the number of workers the channels are shared among.
+     *
+     * @return              The number of workers.
+     */
+    public int getWorkers() {
+        return workers.length;
+    }
+
+
+    // ******************************************************************** //
+    // Processing.
+    // ******************************************************************** //
+
+    /**
+     * Compute the spectra of one block of multi-channel audio.
+     *
+     * @param   input       The input data buffer.
+     * @param   off         Offset in the buffer at which the block starts.
+     * @param   channels    The number of channels in the block.  The
+     *                      block is channels * getBlockSize() samples.
+     * @param   layout      The arrangement of the channels in the block.
+     * @param   out         Buffer in which to place the spectra: channel
+     *                      c's spectrum is at c * getBins().  It must
+     *                      have room for channels * getBins() values.
+     * @throws  IllegalArgumentException    Invalid buffer size.
+     */
+    public void process(short[] input, int off, int channels, Layout layout, float[] out) {
+        if (channels < 0 || off < 0 || input.length - off < (long) channels * blockSize)
+            throw new IllegalArgumentException("bad input buffer size in BatchSpectrum:" +
+                                               " need " + channels + " * " + blockSize +
+                                               " at " + off + "; given " + input.length);
+        if (out.length < (long) channels * bins)
+            throw new IllegalArgumentException("bad output buffer size in BatchSpectrum:" +
+                                               " need " + channels + " * " + bins +
+                                               "; given " + out.length);
+
+        // Deal the channels out to the workers in even ranges.
+        final int nw = Math.max(1, Math.min(workers.length,
+                                            (channels + MIN_CHANNELS - 1) / MIN_CHANNELS));
+        for (int w = 0; w < nw; ++w) {
+            Worker worker = workers[w];
+            worker.reinitialize();
+            worker.input = input;
+            worker.off = off;
+            worker.channels = channels;
+            worker.layout = layout;
+            worker.out = out;
+            worker.start = (int) ((long) channels * w / nw);
+            worker.end = (int) ((long) channels * (w + 1) / nw);
+        }
+
+        if (nw == 1) {
+            workers[0].invoke();
+        } else {
+            batch.reinitialize();
+            batch.n = nw;
+            pool.invoke(batch);
+        }
+
+        // Drop the references to the caller's buffers.
+        for (int w = 0; w < nw; ++w) {
+            workers[w].input = null;
+            workers[w].out = null;
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Private Classes.
+    // ******************************************************************** //
+
+    /**
+     * Task which runs the first n workers in parallel.
+     */
+    private final class Batch extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (int w = 1; w < n; ++w)
+                workers[w].fork();
+            workers[0].invoke();
+            for (int w = 1; w < n; ++w)
+                workers[w].join();
+        }
+
+        // The number of workers to run.
+        private int n;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+
+    /**
+     * A worker, which transforms a range of channels.  Each worker
+     * has its own transformer, so workers can run concurrently.
+     */
+    private final class Worker extends RecursiveAction {
+        Worker(FFTTransformer fft) {
+            this.fft = fft;
+        }
+
+        @Override
+        protected void compute() {
+            for (int c = start; c < end; ++c) {
+                if (layout == Layout.INTERLEAVED)
+                    fft.setInput(input, off + c, blockSize, channels);
+                else
+                    fft.setInput(input, off + c * blockSize, blockSize);
+                fft.transform();
+                fft.getResults(out, c * bins);
+            }
+        }
+
+        // This worker's transformer.
+        private final FFTTransformer fft;
+
+        // The current batch, and the range of channels this worker does.
+        private short[] input;
+        private int off;
+        private int channels;
+        private Layout layout;
+        private float[] out;
+        private int start;
+        private int end;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The smallest number of channels worth giving to a worker.
+    private static final int MIN_CHANNELS = 2;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The pool the workers run in.
+    private final ForkJoinPool pool;
+
+    // The number of samples per channel in a block.
+    private final int blockSize;
+
+    // The number of values in each channel's spectrum.
+    private final int bins;
+
+    // The workers, one per thread of the pool.
+    private final Worker[] workers;
+
+    // The task which runs the workers.
+    private final Batch batch = new Batch();
+
+}
+
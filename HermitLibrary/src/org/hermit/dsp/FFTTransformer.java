@@ -19,6 +19,7 @@ package org.hermit.dsp;
 import org.hermit.utils.Bitwise;
 
 import ca.uol.aig.fftpack.RealDoubleFFT;
+import ca.uol.aig.fftpack.RealFloatFFT;
 
 
 /**
@@ -46,6 +47,11 @@ import ca.uol.aig.fftpack.RealDoubleFFT;
  * locks.  For example, if the input buffer is also accessed by a thread
  * which reads from the audio, you only need to lock out that thread during
  * {@link #setInput(float[], int, int)}, not the entire FFT process.
+ * 
+ * <p>By default the transform is done in double precision.  A transformer
+ * created in single-precision mode keeps the data in float arrays from
+ * input, through windowing and the FFT, to the magnitudes; this is
+ * plenty for 16-bit audio, and moves half as much data.
  */
 public final class FFTTransformer {
 
@@ -94,17 +100,48 @@ public final class FFTTransformer {
      * @throws  IllegalArgumentException    Invalid parameter.
      */
     public FFTTransformer(int size, Window window) {
+        this(size, window, false);
+    }
+    
+
+    /**
+     * Create an FFT transformer for a given sample size, optionally
+     * working in single precision.  This preallocates resources
+     * appropriate to that block size.  A specified window function will
+     * be applied to all input data.
+     * 
+     * @param   size        The number of samples in a block that we will
+     *                      be asked to transform.  Must be a power of 2.
+     * @param   window      Window function to apply to all input data.
+     *                      Its block size must be the same as the size
+     *                      parameter.  May be null, for no windowing.
+     * @param   single      If true, do all the work in float arrays;
+     *                      else work in double precision.
+     * @throws  IllegalArgumentException    Invalid parameter.
+     */
+    public FFTTransformer(int size, Window window, boolean single) {
         if (!Bitwise.isPowerOf2(size))
             throw new IllegalArgumentException("size for FFT must" +
                                                " be a power of 2 (was " + size + ")");
         
         windowFunc = window;
-        transformer = new RealDoubleFFT(size);
-        
         blockSize = size;
         
-        // Allocate working data arrays.
-        xre = new double[blockSize];
+        // Allocate the transformer and working data arrays for the
+        // requested precision.
+        if (single) {
+            transformer = null;
+            xre = null;
+            floatTransformer = new RealFloatFFT(size);
+            floatWork = floatTransformer.newWorkspace();
+            xref = new float[blockSize];
+        } else {
+            transformer = new RealDoubleFFT(size);
+            xre = new double[blockSize];
+            floatTransformer = null;
+            floatWork = null;
+            xref = null;
+        }
     }
     
 
@@ -112,6 +149,17 @@ public final class FFTTransformer {
     // Configuration.
     // ******************************************************************** //
 
+    /**
+     * Query whether this transformer works in single precision.
+     * 
+     * @return              True if the data is kept in float arrays;
+     *                      false if in double.
+     */
+    public boolean isSinglePrecision() {
+        return xref != null;
+    }
+
+
     /**
      * Set a new windowing function for this analyser.
      * 
@@ -148,8 +196,11 @@ public final class FFTTransformer {
                                                "; given " + input.length);
        
         // Copy and transform the samples into our internal data buffer.
-        for (int i = 0; i < blockSize; i++)
-            xre[i] = input[off + i];
+        if (xref != null)
+            System.arraycopy(input, off, xref, 0, blockSize);
+        else
+            for (int i = 0; i < blockSize; i++)
+                xre[i] = input[off + i];
     }
     
 
@@ -175,8 +226,44 @@ public final class FFTTransformer {
                                                "; given " + input.length);
 
         // Copy and transform the samples into our internal data buffer.
-        for (int i = 0; i < blockSize; i++)
-            xre[i] = (double) input[off + i] / 32768.0;
+        if (xref != null)
+            for (int i = 0; i < blockSize; i++)
+                xref[i] = (float) input[off + i] / 32768f;
+        else
+            for (int i = 0; i < blockSize; i++)
+                xre[i] = (double) input[off + i] / 32768.0;
+    }
+
+
+    /**
+     * Set up a new data block for the FFT algorithm from samples spaced
+     * out in a buffer, such as one channel of interleaved multi-channel
+     * audio.  The data in the provided buffer will be copied out, and
+     * that buffer will not be referenced again.
+     * 
+     * @param   input       The input data buffer.
+     * @param   off         Offset in the buffer of the first sample
+     *                      to be transformed.
+     * @param   count       Number of samples in the data to be
+     *                      transformed.  Must be the same as the size
+     *                      parameter that was given to the constructor.
+     * @param   stride      Distance in the buffer between successive
+     *                      samples; 1 for contiguous data.
+     * @throws  IllegalArgumentException    Invalid data size.
+     */
+    public final void setInput(short[] input, int off, int count, int stride) {
+        if (count != blockSize)
+            throw new IllegalArgumentException("bad input count in FFT:" +
+                                               " constructed for " + blockSize +
+                                               "; given " + count);
+
+        // Copy and transform the samples into our internal data buffer.
+        if (xref != null)
+            for (int i = 0; i < blockSize; i++)
+                xref[i] = (float) input[off + i * stride] / 32768f;
+        else
+            for (int i = 0; i < blockSize; i++)
+                xre[i] = (double) input[off + i * stride] / 32768.0;
     }
 
 
@@ -188,6 +275,13 @@ public final class FFTTransformer {
      * Transform the data provided in the last call to setInput.
      */
     public final void transform() {
+        if (xref != null) {
+            if (windowFunc != null)
+                windowFunc.transform(xref);
+            floatTransformer.ft(xref, floatWork);
+            return;
+        }
+        
         // If we have a window function, apply it now.
         if (windowFunc != null)
             windowFunc.transform(xre);
@@ -216,14 +310,45 @@ public final class FFTTransformer {
             throw new IllegalArgumentException("bad output buffer size in FFT:" +
                                                " must be " + (blockSize / 2) +
                                                "; given " + buffer.length);
+        getResults(buffer, 0);
+        return buffer;
+    }
+
+
+    /**
+     * Get the real results of the last transformation into part of a
+     * larger buffer.  This allows several spectra to be stored in one
+     * array.
+     * 
+     * @param   buffer  Buffer in which the real part of the results
+     *                  will be placed.  If transform() has not been
+     *                  called, the results will be garbage.
+     * @param   off     Offset in buffer at which to place the results;
+     *                  there must be room for half the length of the
+     *                  input block from here.
+     * @throws  IllegalArgumentException    Invalid buffer size.
+     */
+    public final void getResults(float[] buffer, int off) {
+        if (off < 0 || buffer.length - off < blockSize / 2)
+            throw new IllegalArgumentException("bad output buffer size in FFT:" +
+                                               " need " + (blockSize / 2) +
+                                               " at " + off + "; given " + buffer.length);
        
         final float scale = blockSize * FUDGE;
+        if (xref != null) {
+            for (int i = 0; i < blockSize / 2; i++) {
+                float r = xref[i * 2];
+                float im = i == 0 ? 0f : xref[i * 2 - 1];
+                buffer[off + i] = (float) Math.sqrt(r * r + im * im) / scale;
+            }
+            return;
+        }
+        
         for (int i = 0; i < blockSize / 2; i++) {
             double r = xre[i * 2];
             double im = i == 0 ? 0.0 : xre[i * 2 - 1];
-            buffer[i] = (float) (Math.sqrt(r * r + im * im)) / scale;
+            buffer[off + i] = (float) (Math.sqrt(r * r + im * im)) / scale;
         }
-        return buffer;
     }
 
 
@@ -270,9 +395,16 @@ public final class FFTTransformer {
         // Now do the rolling average of each value.
         final float scale = blockSize * FUDGE;
         for (int i = 0; i < blockSize / 2; i++) {
-            double r = xre[i * 2];
-            double im = i == 0 ? 0.0 : xre[i * 2 - 1];
-            final float val = (float) (Math.sqrt(r * r + im * im)) / scale;
+            final float val;
+            if (xref != null) {
+                float r = xref[i * 2];
+                float im = i == 0 ? 0f : xref[i * 2 - 1];
+                val = (float) Math.sqrt(r * r + im * im) / scale;
+            } else {
+                double r = xre[i * 2];
+                double im = i == 0 ? 0.0 : xre[i * 2 - 1];
+                val = (float) (Math.sqrt(r * r + im * im)) / scale;
+            }
 
             final float[] hist = histories[i];
             final float prev = hist[index];
@@ -350,14 +482,23 @@ public final class FFTTransformer {
     // Window function to apply to all input data.  If null, no windowing.
     private Window windowFunc = null;
 
-    // The FFT transformer.
-    private RealDoubleFFT transformer;
+    // The FFT transformer; null in single-precision mode.
+    private final RealDoubleFFT transformer;
+
+    // The single-precision FFT plan, and its workspace; null in
+    // double-precision mode.
+    private final RealFloatFFT floatTransformer;
+    private final RealFloatFFT.Workspace floatWork;
 
     // The size of an input data block.
     private final int blockSize;
     
-    // Working array -- real data being processed.
+    // Working array -- real data being processed.  Null in
+    // single-precision mode.
     private final double[] xre;
+    
+    // Working array for single-precision mode, else null.
+    private final float[] xref;
 
 }
 
@@ -0,0 +1,331 @@
+/**
+ * dsp: various digital signal processing algorithms
+ * <br>Copyright 2009 Ian Cameron Smith
+ *
+ * <p>This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * as published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+
+package org.hermit.dsp;
+
+
+import java.util.Arrays;
+
+
+/**
+ * A streaming short-time Fourier transform.  Audio is supplied in
+ * chunks of any length; a spectrum of the most recent block of samples
+ * is produced every <em>hop</em> samples.  When the hop is smaller than
+ * the block size the blocks overlap, so the frame rate can be raised
+ * without reducing the frequency resolution: for example, a 2048-point
+ * FFT with a hop of 512 (75% overlap) gives 86 frames per second at
+ * 44.1 kHz.
+ *
+ * <p>Usage: create a ShortTimeFFT with the block size, hop and window.
+ * Then, for each chunk of input:
+ * <ul>
+ * <li>Call {@link #framesFor(int)} to find how many spectra the chunk
+ *     will produce, if you need to size the output buffer.
+ * <li>Call {@link #process(short[], int, int, float[], int)} (or the
+ *     float version) to add the chunk.  The spectra it completes are
+ *     written one after another into your output buffer.
+ * </ul>
+ *
+ * <p>The input is kept in a ring buffer, and the transforms are done in
+ * single precision by an {@link FFTTransformer}; each spectrum is the
+ * same as FFTTransformer would give for the same block.  Nothing is
+ * allocated after construction.  An instance is not thread-safe.
+ */
+public final class ShortTimeFFT {
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Create a short-time FFT.  This preallocates all the resources
+     * needed.
+     *
+     * @param   size        The number of samples in each transformed
+     *                      block.  Must be a power of 2.
+     * @param   hop         The number of samples between the starts of
+     *                      successive blocks.  If less than size, the
+     *                      blocks overlap; if more, some samples are
+     *                      skipped.
+     * @param   winfunc     Window function to apply to each block.
+     * @throws  IllegalArgumentException    Invalid parameter.
+     */
+    public ShortTimeFFT(int size, int hop, Window.Function winfunc) {
+        this(size, hop, new Window(size, winfunc));
+    }
+
+
+    /**
+     * Create a short-time FFT.  This preallocates all the resources
+     * needed.
+     *
+     * @param   size        The number of samples in each transformed
+     *                      block.  Must be a power of 2.
+     * @param   hop         The number of samples between the starts of
+     *                      successive blocks.  If less than size, the
+     *                      blocks overlap; if more, some samples are
+     *                      skipped.
+     * @param   window      Window function to apply to each block.  Its
+     *                      block size must be the same as the size
+     *                      parameter.  May be null, for no windowing.
+     * @throws  IllegalArgumentException    Invalid parameter.
+     */
+    public ShortTimeFFT(int size, int hop, Window window) {
+        if (hop < 1)
+            throw new IllegalArgumentException("hop for STFT must" +
+                                               " be positive (was " + hop + ")");
+
+        transformer = new FFTTransformer(size, window, true);
+        blockSize = size;
+        hopSize = hop;
+        bins = size / 2;
+
+        // The ring holds two copies of the last block, so the block is
+        // always contiguous in it.
+        ring = new float[2 * size];
+        reset();
+    }
+
+
+    // ******************************************************************** //
+    // Configuration.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of samples in each transformed block.
+     *
+     * @return              The block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+
+    /**
+     * Get the number of samples between the starts of successive blocks.
+     *
+     * @return              The hop size.
+     */
+    public int getHop() {
+        return hopSize;
+    }
+
+
+    /**
+     * Get the number of values in each spectrum produced.
+     *
+     * @return              The number of frequency bins; this is half
+     *                      the block size.
+     */
+    public int getBins() {
+        return bins;
+    }
+
+
+    /**
+     * Discard all buffered input.  The next spectrum will be produced
+     * when a full block of new input has been supplied.
+     */
+    public void reset() {
+        Arrays.fill(ring, 0f);
+        ringPos = 0;
+        untilNext = blockSize;
+    }
+
+
+    // ******************************************************************** //
+    // Processing.
+    // ******************************************************************** //
+
+    /**
+     * Find how many spectra will be produced by the next chunk of input.
+     *
+     * @param   count       The number of samples in the chunk.
+     * @return              The number of spectra which processing that
+     *                      chunk will produce.
+     */
+    public int framesFor(int count) {
+        if (count < untilNext)
+            return 0;
+        return 1 + (count - untilNext) / hopSize;
+    }
+
+
+    /**
+     * Add a chunk of 16-bit audio, and produce the spectra it completes.
+     *
+     * @param   input       The input data buffer.
+     * @param   off         Offset in the buffer at which the chunk starts.
+     * @param   count       Number of samples in the chunk.  This can be
+     *                      any number.
+     * @param   out         Buffer in which to place the spectra, each
+     *                      {@link #getBins()} values long, one after
+     *                      another.
+     * @param   outOff      Offset in out at which to place the first
+     *                      spectrum.  There must be room for
+     *                      {@link #framesFor(int) framesFor(count)}
+     *                      spectra from here.
+     * @return              The number of spectra produced.
+     * @throws  IllegalArgumentException    The output buffer is too small.
+     */
+    public int process(short[] input, int off, int count, float[] out, int outOff) {
+        checkOutput(count, out, outOff);
+
+        int frames = 0;
+        while (count > 0) {
+            final int n = chunk(count);
+            final float[] r = ring;
+            final int p = ringPos;
+            for (int i = 0; i < n; ++i) {
+                final float v = (float) input[off + i] / 32768f;
+                r[p + i] = v;
+                r[p + blockSize + i] = v;
+            }
+            off += n;
+            count -= n;
+            if (advance(n))
+                emit(out, outOff + frames++ * bins);
+        }
+        return frames;
+    }
+
+
+    /**
+     * Add a chunk of audio, and produce the spectra it completes.
+     *
+     * @param   input       The input data buffer.
+     * @param   off         Offset in the buffer at which the chunk starts.
+     * @param   count       Number of samples in the chunk.  This can be
+     *                      any number.
+     * @param   out         Buffer in which to place the spectra, each
+     *                      {@link #getBins()} values long, one after
+     *                      another.
+     * @param   outOff      Offset in out at which to place the first
+     *                      spectrum.  There must be room for
+     *                      {@link #framesFor(int) framesFor(count)}
+     *                      spectra from here.
+     * @return              The number of spectra produced.
+     * @throws  IllegalArgumentException    The output buffer is too small.
+     */
+    public int process(float[] input, int off, int count, float[] out, int outOff) {
+        checkOutput(count, out, outOff);
+
+        int frames = 0;
+        while (count > 0) {
+            final int n = chunk(count);
+            System.arraycopy(input, off, ring, ringPos, n);
+            System.arraycopy(input, off, ring, ringPos + blockSize, n);
+            off += n;
+            count -= n;
+            if (advance(n))
+                emit(out, outOff + frames++ * bins);
+        }
+        return frames;
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Check that an output buffer has room for the spectra of a chunk.
+     *
+     * @param   count       Number of samples in the chunk.
+     * @param   out         The output buffer.
+     * @param   outOff      Offset in out of the first spectrum.
+     * @throws  IllegalArgumentException    The output buffer is too small.
+     */
+    private void checkOutput(int count, float[] out, int outOff) {
+        final long need = (long) framesFor(count) * bins;
+        if (outOff < 0 || out.length - outOff < need)
+            throw new IllegalArgumentException("bad output buffer size in STFT:" +
+                                               " need " + need + " at " + outOff +
+                                               "; given " + out.length);
+    }
+
+
+    /**
+     * Get the number of samples to take next: as many as we have, up to
+     * the end of the ring or the next frame.
+     *
+     * @param   count       Number of samples remaining.
+     * @return              The number of samples to take.
+     */
+    private int chunk(int count) {
+        return Math.min(count, Math.min(untilNext, blockSize - ringPos));
+    }
+
+
+    /**
+     * Account for samples added to the ring.
+     *
+     * @param   n           Number of samples added at ringPos.
+     * @return              True if a frame is now due.
+     */
+    private boolean advance(int n) {
+        ringPos += n;
+        if (ringPos == blockSize)
+            ringPos = 0;
+        untilNext -= n;
+        if (untilNext > 0)
+            return false;
+        untilNext = hopSize;
+        return true;
+    }
+
+
+    /**
+     * Transform the current block, and write its spectrum.
+     *
+     * @param   out         The output buffer.
+     * @param   off         Offset in out at which to place the spectrum.
+     */
+    private void emit(float[] out, int off) {
+        // The oldest sample is at ringPos, so the block runs from there.
+        transformer.setInput(ring, ringPos, blockSize);
+        transformer.transform();
+        transformer.getResults(out, off);
+    }
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The transformer which does the windowing and FFT of each block.
+    private final FFTTransformer transformer;
+
+    // The size of a transformed block, and the number of samples between
+    // blocks.
+    private final int blockSize;
+    private final int hopSize;
+
+    // The number of values in each spectrum.
+    private final int bins;
+
+    // Ring buffer of the most recent input.  Each sample is stored at
+    // index i and i + blockSize, so the last blockSize samples are
+    // always at ring[ringPos .. ringPos + blockSize).
+    private final float[] ring;
+
+    // Index in the ring at which the next sample goes.
+    private int ringPos;
+
+    // Number of samples to take before the next spectrum is due.
+    private int untilNext;
+
+}
+
@@ -0,0 +1,569 @@
+/**
+ * dsp: various digital signal processing algorithms
+ * <br>Copyright 2009 Ian Cameron Smith
+ *
+ * <p>This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2
+ * as published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+
+package org.hermit.dsp;
+
+
+import java.util.Arrays;
+
+import ca.uol.aig.fftpack.RealFloatFFT;
+
+
+/**
+ * A power spectral density estimator, using Welch's method.  The input
+ * is divided into overlapping segments; each segment is windowed and
+ * transformed, and the power spectra of the segments are averaged.
+ *
+ * <p>Usage: create a WelchPSD with the segment size, hop, window,
+ * sample rate and the largest number of segments you will want to
+ * average.  Supply audio of any chunk size with
+ * {@link #process(short[], int, int)} (or the float version), and read
+ * the current estimate with {@link #getPower(float[])} or
+ * {@link #getPowerDb(float[])}.  The averaging mode and the number of
+ * segments averaged can be changed at any time, without reallocating.
+ *
+ * <p>The output is a one-sided power spectral density, in units of
+ * full scale squared per Hz: the power of each segment is divided by
+ * the sample rate and the energy of the window, so that the sum of the
+ * bins times the bin width is the mean square of the signal, whatever
+ * window is used.  There are size / 2 + 1 bins, from DC to the Nyquist
+ * frequency.
+ *
+ * <p>The history of segment spectra is kept in one flat ring buffer of
+ * maxFrames * bins values.  Nothing is allocated after construction.
+ * An instance is not thread-safe.
+ */
+public final class WelchPSD {
+
+    // ******************************************************************** //
+    // Public Constants.
+    // ******************************************************************** //
+
+    /**
+     * The ways of combining the spectra of successive segments.
+     */
+    public enum Averaging {
+        /** The mean of the last N segments.  This needs a history of
+         * at least N segments. */
+        LINEAR,
+
+        /** An exponential moving average, with a time constant of about
+         * N segments.  This needs no history. */
+        EXPONENTIAL,
+
+        /** The maximum of each bin over the last N segments.  This needs
+         * a history of at least N segments. */
+        PEAK_HOLD,
+    }
+
+
+    /**
+     * The lowest level returned by {@link #getPowerDb(float[])}, in dB.
+     */
+    public static final float MIN_DB = -300f;
+
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a PSD estimator.  This preallocates all the resources
+     * needed.  The initial averaging mode is linear over maxFrames
+     * segments, or exponential over 8 if maxFrames is zero.
+     *
+     * @param   size        The number of samples in each segment.
+     * @param   hop         The number of samples between the starts of
+     *                      successive segments; half the size is usual.
+     * @param   winfunc     Window function to apply to each segment.
+     * @param   sampleRate  The sample rate of the input, in Hz.
+     * @param   maxFrames   The largest number of segments which will be
+     *                      averaged in LINEAR or PEAK_HOLD mode; this is
+     *                      the size of the history.  May be zero, for
+     *                      exponential averaging only.
+     * @throws  IllegalArgumentException    Invalid parameter.
+     */
+    public WelchPSD(int size, int hop, Window.Function winfunc,
+                    float sampleRate, int maxFrames)
+    {
+        this(size, hop, new Window(size, winfunc), sampleRate, maxFrames);
+    }
+
+
+    /**
+     * Create a PSD estimator.  This preallocates all the resources
+     * needed.  The initial averaging mode is linear over maxFrames
+     * segments, or exponential over 8 if maxFrames is zero.
+     *
+     * @param   size        The number of samples in each segment.
+     * @param   hop         The number of samples between the starts of
+     *                      successive segments; half the size is usual.
+     * @param   window      Window function to apply to each segment.
+     *                      Its block size must be the same as the size
+     *                      parameter.
+     * @param   sampleRate  The sample rate of the input, in Hz.
+     * @param   maxFrames   The largest number of segments which will be
+     *                      averaged in LINEAR or PEAK_HOLD mode; this is
+     *                      the size of the history.  May be zero, for
+     *                      exponential averaging only.
+     * @throws  IllegalArgumentException    Invalid parameter.
+     */
+    public WelchPSD(int size, int hop, Window window, float sampleRate, int maxFrames) {
+        if (size < 2 || hop < 1 || maxFrames < 0 || !(sampleRate > 0))
+            throw new IllegalArgumentException("bad parameters for WelchPSD:" +
+                                               " size " + size + ", hop " + hop +
+                                               ", rate " + sampleRate +
+                                               ", frames " + maxFrames);
+        if (window.getBlockSize() != size)
+            throw new IllegalArgumentException("bad window for WelchPSD:" +
+                                               " size " + window.getBlockSize() +
+                                               "; need " + size);
+
+        segSize = size;
+        hopSize = hop;
+        bins = size / 2 + 1;
+        rate = sampleRate;
+        windowFunc = window;
+        fft = new RealFloatFFT(size);
+        fftWork = fft.newWorkspace();
+        scale = 1.0 / (sampleRate * window.getEnergy());
+
+        ring = new float[2 * size];
+        segment = new float[size];
+        capacity = maxFrames;
+        history = new float[maxFrames * bins];
+        latest = new float[bins];
+        sum = new double[bins];
+        ema = new double[bins];
+
+        if (maxFrames > 0)
+            setAveraging(Averaging.LINEAR, maxFrames);
+        else
+            setAveraging(Averaging.EXPONENTIAL, 8);
+        reset();
+    }
+
+
+    // ******************************************************************** //
+    // Configuration.
+    // ******************************************************************** //
+
+    /**
+     * Set the averaging mode, and the number of segments to average.
+     * This does not discard the data collected so far: in LINEAR and
+     * PEAK_HOLD modes, the most recent segments in the history are
+     * used straight away.
+     *
+     * @param   mode        The averaging mode.
+     * @param   frames      The number of segments to average over; for
+     *                      EXPONENTIAL, the equivalent number of segments,
+     *                      giving a smoothing factor of 2 / (frames + 1).
+     * @throws  IllegalArgumentException    Invalid parameter; LINEAR and
+     *                      PEAK_HOLD need frames to be in 1 .. maxFrames.
+     */
+    public void setAveraging(Averaging mode, int frames) {
+        if (frames < 1 || (mode != Averaging.EXPONENTIAL && frames > capacity))
+            throw new IllegalArgumentException("bad frame count for WelchPSD " + mode +
+                                               ": " + frames + "; history is " + capacity);
+        averaging = mode;
+        numFrames = frames;
+        alpha = 2.0 / (frames + 1);
+
+        // Re-build the running sum for the new length.
+        resum();
+    }
+
+
+    /**
+     * Get the current averaging mode.
+     *
+     * @return              The averaging mode.
+     */
+    public Averaging getAveraging() {
+        return averaging;
+    }
+
+
+    /**
+     * Get the number of segments being averaged.
+     *
+     * @return              The number of segments, as set by
+     *                      {@link #setAveraging(Averaging, int)}.
+     */
+    public int getFrames() {
+        return numFrames;
+    }
+
+
+    /**
+     * Get the number of values in each spectrum.
+     *
+     * @return              The number of frequency bins; this is half
+     *                      the segment size, plus one.
+     */
+    public int getBins() {
+        return bins;
+    }
+
+
+    /**
+     * Get the frequency of a bin.
+     *
+     * @param   bin         The bin number.
+     * @return              The frequency of the centre of the bin, in Hz.
+     */
+    public float getFrequency(int bin) {
+        return bin * rate / segSize;
+    }
+
+
+    /**
+     * Get the number of segments processed since the last reset.
+     *
+     * @return              The number of segments.
+     */
+    public long getSegments() {
+        return segments;
+    }
+
+
+    /**
+     * Discard all input and the average.
+     */
+    public void reset() {
+        Arrays.fill(ring, 0f);
+        ringPos = 0;
+        untilNext = segSize;
+        Arrays.fill(history, 0f);
+        Arrays.fill(sum, 0.0);
+        Arrays.fill(ema, 0.0);
+        histPos = 0;
+        segments = 0;
+        sinceResum = 0;
+    }
+
+
+    // ******************************************************************** //
+    // Processing.
+    // ******************************************************************** //
+
+    /**
+     * Add a chunk of 16-bit audio, and process the segments it completes.
+     *
+     * @param   input       The input data buffer.
+     * @param   off         Offset in the buffer at which the chunk starts.
+     * @param   count       Number of samples in the chunk.  This can be
+     *                      any number.
+     * @return              The number of segments completed.
+     */
+    public int process(short[] input, int off, int count) {
+        int done = 0;
+        while (count > 0) {
+            final int n = Math.min(count, Math.min(untilNext, segSize - ringPos));
+            final float[] r = ring;
+            final int p = ringPos;
+            for (int i = 0; i < n; ++i) {
+                final float v = (float) input[off + i] / 32768f;
+                r[p + i] = v;
+                r[p + segSize + i] = v;
+            }
+            off += n;
+            count -= n;
+            if (advance(n)) {
+                addSegment();
+                ++done;
+            }
+        }
+        return done;
+    }
+
+
+    /**
+     * Add a chunk of audio, and process the segments it completes.
+     *
+     * @param   input       The input data buffer, in units of full scale.
+     * @param   off         Offset in the buffer at which the chunk starts.
+     * @param   count       Number of samples in the chunk.  This can be
+     *                      any number.
+     * @return              The number of segments completed.
+     */
+    public int process(float[] input, int off, int count) {
+        int done = 0;
+        while (count > 0) {
+            final int n = Math.min(count, Math.min(untilNext, segSize - ringPos));
+            System.arraycopy(input, off, ring, ringPos, n);
+            System.arraycopy(input, off, ring, ringPos + segSize, n);
+            off += n;
+            count -= n;
+            if (advance(n)) {
+                addSegment();
+                ++done;
+            }
+        }
+        return done;
+    }
+
+
+    // ******************************************************************** //
+    // Results.
+    // ******************************************************************** //
+
+    /**
+     * Get the current power spectral density estimate.  If no segments
+     * have been processed, it is all zero.
+     *
+     * @param   buffer      Buffer in which to place the estimate, in full
+     *                      scale squared per Hz.  Its length must be
+     *                      {@link #getBins()}.
+     * @return              The parameter buffer.
+     * @throws  IllegalArgumentException    Invalid buffer size.
+     */
+    public float[] getPower(float[] buffer) {
+        if (buffer.length != bins)
+            throw new IllegalArgumentException("bad output buffer size in WelchPSD:" +
+                                               " must be " + bins +
+                                               "; given " + buffer.length);
+
+        if (segments == 0) {
+            Arrays.fill(buffer, 0f);
+            return buffer;
+        }
+
+        switch (averaging) {
+        case LINEAR:
+            final double div = Math.min(numFrames, segments);
+            for (int i = 0; i < bins; ++i)
+                buffer[i] = (float) (sum[i] / div);
+            break;
+        case EXPONENTIAL:
+            for (int i = 0; i < bins; ++i)
+                buffer[i] = (float) ema[i];
+            break;
+        case PEAK_HOLD:
+            final int n = (int) Math.min(numFrames, segments);
+            System.arraycopy(history, row(0), buffer, 0, bins);
+            for (int f = 1; f < n; ++f) {
+                final int base = row(f);
+                for (int i = 0; i < bins; ++i)
+                    if (history[base + i] > buffer[i])
+                        buffer[i] = history[base + i];
+            }
+            break;
+        }
+        return buffer;
+    }
+
+
+    /**
+     * Get the current power spectral density estimate, in decibels.
+     * Powers below {@link #MIN_DB} dB are given as MIN_DB.
+     *
+     * @param   buffer      Buffer in which to place the estimate, in dB
+     *                      relative to full scale squared per Hz.  Its
+     *                      length must be {@link #getBins()}.
+     * @return              The parameter buffer.
+     * @throws  IllegalArgumentException    Invalid buffer size.
+     */
+    public float[] getPowerDb(float[] buffer) {
+        getPower(buffer);
+        for (int i = 0; i < bins; ++i) {
+            final float p = buffer[i];
+            buffer[i] = p > MIN_POWER ? (float) (10.0 * Math.log10(p)) : MIN_DB;
+        }
+        return buffer;
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Account for samples added to the ring.
+     *
+     * @param   n           Number of samples added at ringPos.
+     * @return              True if a segment is now complete.
+     */
+    private boolean advance(int n) {
+        ringPos += n;
+        if (ringPos == segSize)
+            ringPos = 0;
+        untilNext -= n;
+        if (untilNext > 0)
+            return false;
+        untilNext = hopSize;
+        return true;
+    }
+
+
+    /**
+     * Transform the current segment, and add its power spectrum to
+     * the history and averages.
+     */
+    private void addSegment() {
+        // Window and transform the segment.  The oldest sample is at
+        // ringPos, so the segment runs from there.
+        final float[] x = segment;
+        System.arraycopy(ring, ringPos, x, 0, segSize);
+        windowFunc.transform(x);
+        fft.ft(x, fftWork);
+
+        // Work out the one-sided power.  The DC term, and the Nyquist
+        // term if the size is even, have no mirror image to fold in.
+        final float[] p = latest;
+        final double s2 = 2 * scale;
+        p[0] = (float) (x[0] * x[0] * scale);
+        for (int k = 1; k < (segSize + 1) / 2; ++k) {
+            final float re = x[2 * k - 1];
+            final float im = x[2 * k];
+            p[k] = (float) ((re * re + im * im) * s2);
+        }
+        if (segSize % 2 == 0)
+            p[bins - 1] = (float) (x[segSize - 1] * x[segSize - 1] * scale);
+
+        // Update the exponential average.  Start it at the first
+        // segment, rather than zero, so there is no start-up bias.
+        if (segments == 0)
+            for (int i = 0; i < bins; ++i)
+                ema[i] = p[i];
+        else
+            for (int i = 0; i < bins; ++i)
+                ema[i] += alpha * (p[i] - ema[i]);
+
+        // Add to the history, dropping the segment which falls out of
+        // the linear average.
+        if (capacity > 0) {
+            final int len = Math.min(numFrames, capacity);
+            if (segments >= len) {
+                final int out = row(len - 1);
+                for (int i = 0; i < bins; ++i)
+                    sum[i] -= history[out + i];
+            }
+            histPos = histPos + 1 == capacity ? 0 : histPos + 1;
+            System.arraycopy(p, 0, history, histPos * bins, bins);
+            for (int i = 0; i < bins; ++i)
+                sum[i] += p[i];
+        }
+        ++segments;
+
+        // Re-build the sum from time to time, so it doesn't drift.
+        if (++sinceResum >= numFrames)
+            resum();
+    }
+
+
+    /**
+     * Get the index in the history of a recent segment.
+     *
+     * @param   age         The age of the segment: 0 for the most recent.
+     * @return              The index of its first bin in history.
+     */
+    private int row(int age) {
+        int r = histPos - age;
+        if (r < 0)
+            r += capacity;
+        return r * bins;
+    }
+
+
+    /**
+     * Re-compute the running sum of the linear average from the history.
+     */
+    private void resum() {
+        sinceResum = 0;
+        Arrays.fill(sum, 0.0);
+        if (capacity == 0)
+            return;
+        final int n = (int) Math.min(Math.min(numFrames, capacity), segments);
+        for (int f = 0; f < n; ++f) {
+            final int base = row(f);
+            for (int i = 0; i < bins; ++i)
+                sum[i] += history[base + i];
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The power corresponding to MIN_DB.
+    private static final float MIN_POWER = 1e-30f;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The size of a segment, the number of samples between segments, and
+    // the number of bins in the spectrum.
+    private final int segSize;
+    private final int hopSize;
+    private final int bins;
+
+    // The input sample rate in Hz.
+    private final float rate;
+
+    // The window function, and the single-precision FFT and its workspace.
+    private final Window windowFunc;
+    private final RealFloatFFT fft;
+    private final RealFloatFFT.Workspace fftWork;
+
+    // Factor converting squared FFT magnitudes to power density: one over
+    // the sample rate times the window energy.
+    private final double scale;
+
+    // Ring buffer of the most recent input.  Each sample is stored at
+    // index i and i + segSize, so the last segSize samples are always
+    // at ring[ringPos .. ringPos + segSize).
+    private final float[] ring;
+
+    // Index in the ring at which the next sample goes.
+    private int ringPos;
+
+    // Number of samples to take before the next segment is due.
+    private int untilNext;
+
+    // Working buffer for the segment being transformed.
+    private final float[] segment;
+
+    // Power spectrum of the most recent segment.
+    private final float[] latest;
+
+    // History of segment power spectra: capacity rows of bins values,
+    // used as a ring; the most recent is row histPos.
+    private final int capacity;
+    private final float[] history;
+    private int histPos;
+
+    // Running sum of the last numFrames rows of history, for the linear
+    // average, and the number of segments since it was last re-built.
+    private final double[] sum;
+    private int sinceResum;
+
+    // The exponential moving average.
+    private final double[] ema;
+
+    // The averaging mode, the number of segments averaged, and the
+    // exponential smoothing factor.
+    private Averaging averaging;
+    private int numFrames;
+    private double alpha;
+
+    // Number of segments processed since reset.
+    private long segments;
+
+}
+
@@ -95,6 +95,16 @@ public final class Window {
             makeWeedonGauss(kernel, size);
             break;
         }
+        
+        // Keep a single-precision copy for float data, so that windowing
+        // float data doesn't go through double.
+        if (kernel == null)
+            floatKernel = null;
+        else {
+            floatKernel = new float[size];
+            for (int i = 0; i < size; ++i)
+                floatKernel[i] = (float) kernel[i];
+        }
     }
 
     
@@ -135,6 +145,39 @@ public final class Window {
     }
     
 
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the block size this window function is for.
+     * 
+     * @return              The number of samples in a block.
+     */
+    public final int getBlockSize() {
+        return blockSize;
+    }
+    
+
+    /**
+     * Get the energy of the window function: the sum of the squares of
+     * its factors.  Dividing the power of a windowed block by this
+     * corrects for the power the window removes.
+     * 
+     * @return              The sum of the squared window factors, as
+     *                      applied to float data.  For a rectangular
+     *                      window this is the block size.
+     */
+    public final double getEnergy() {
+        if (floatKernel == null)
+            return blockSize;
+        double sum = 0;
+        for (int i = 0; i < blockSize; ++i)
+            sum += (double) floatKernel[i] * floatKernel[i];
+        return sum;
+    }
+    
+
     // ******************************************************************** //
     // Data Transformation.
     // ******************************************************************** //
@@ -175,6 +218,45 @@ public final class Window {
                 input[off + i] *= kernel[i];
     }
     
+
+    /**
+     * Apply the window function to a given block of single-precision
+     * data.  The data in the provided buffer will be multiplied by the
+     * window function.
+     * 
+     * @param   input       The input data buffer.  This data will be
+     *                      transformed in-place by the window function.
+     * @throws  IllegalArgumentException    Invalid data size.
+     */
+    public final void transform(float[] input) {
+        transform(input, 0, input.length);
+    }
+    
+
+    /**
+     * Apply the window function to a given block of single-precision
+     * data.  The data in the provided buffer will be multiplied by the
+     * window function.
+     * 
+     * @param   input       The input data buffer.  This data will be
+     *                      transformed in-place by the window function.
+     * @param   off         Offset in the buffer at which the data to
+     *                      be transformed starts.
+     * @param   count       Number of samples in the data to be
+     *                      transformed.  Must be the same as the size
+     *                      parameter that was given to the constructor.
+     * @throws  IllegalArgumentException    Invalid data size.
+     */
+    public final void transform(float[] input, int off, int count) {
+        if (count != blockSize)
+            throw new IllegalArgumentException("bad input count in Window:" +
+                                               " constructed for " + blockSize +
+                                               "; given " + input.length);
+        if (floatKernel != null)
+            for (int i = 0; i < blockSize; i++)
+                input[off + i] *= floatKernel[i];
+    }
+    
     
     // ******************************************************************** //
     // Private Constants.
@@ -200,6 +282,9 @@ public final class Window {
     // The window function, as a pre-computed array of multiplication factors.
     // If null, do no transformation -- this is a unity rectangular window.
     private final double[] kernel;
+    
+    // The window function, rounded to single precision; null if kernel is.
+    private final float[] floatKernel;
 
 }
 
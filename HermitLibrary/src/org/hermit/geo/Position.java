@@ -289,9 +289,25 @@ public class Position
         if (Double.isNaN(latitudeR))
             return Double.NaN;
         
+        return centreDistance(latitudeR);
+    }
+
+
+    /**
+     * Get the distance from the centre of the Earth to a point at a
+     * given latitude.  This is the same as {@link #getCentreDistance()},
+     * for callers working with raw co-ordinates.
+     * 
+     * <p>From AA chapter 11.
+     *
+     * @param   latRadians  The geographic latitude, in radians.
+     * @return              The distance to the centre of the Earth, in
+     *                      units of EQUATORIAL_RADIUS.
+     */
+    public static double centreDistance(double latRadians) {
         double ρ = 0.9983271 +
-                   0.0016764 * cos(2 * latitudeR) -
-                   0.0000035 * cos(4 * latitudeR);
+                   0.0016764 * cos(2 * latRadians) -
+                   0.0000035 * cos(4 * latRadians);
         return ρ;
     }
 
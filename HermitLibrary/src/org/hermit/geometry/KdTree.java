@@ -0,0 +1,424 @@
+/**
+ * geometry: basic geometric classes.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry;
+
+
+/**
+ * A static 2-d tree over a fixed set of points, for nearest-neighbour,
+ * radius and rectangle queries.
+ *
+ * <p>The points are given as flat arrays of X and Y co-ordinates, and
+ * are referred to by their index in those arrays.  The tree is stored
+ * implicitly: the points are permuted so that the median of each
+ * sub-range is at its middle, with the smaller half before it and the
+ * larger half after.  Each level splits on whichever axis the points
+ * in the range are more spread out along.  So the whole tree is a few
+ * flat arrays, and queries allocate nothing.
+ *
+ * <p>Nearest-neighbour ties are broken in favour of the lower index, so
+ * the results are exactly the same as a brute-force scan of the points
+ * in order.  Once built, the tree is immutable, and may be queried from
+ * several threads at once.
+ */
+public class KdTree {
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Build a tree over the given points.
+     *
+     * @param   xs          The X co-ordinates of the points.  These
+     *                      are copied.
+     * @param   ys          The Y co-ordinates of the points.  These
+     *                      are copied.
+     */
+    public KdTree(double[] xs, double[] ys) {
+        this(xs, ys, xs.length);
+    }
+
+
+    /**
+     * Build a tree over the points in a point cloud.
+     *
+     * @param   cloud       The points.  These are copied.
+     */
+    public KdTree(PointCloud cloud) {
+        this(cloud.xArray(), cloud.yArray(), cloud.size());
+    }
+
+
+    /**
+     * Build a tree over the first n of the given points.
+     *
+     * @param   xs          The X co-ordinates of the points.  These
+     *                      are copied.
+     * @param   ys          The Y co-ordinates of the points.  These
+     *                      are copied.
+     * @param   n           The number of points to index.
+     */
+    public KdTree(double[] xs, double[] ys, int n) {
+        if (n > xs.length || n > ys.length)
+            throw new IllegalArgumentException("KdTree: not enough points");
+
+        numPoints = n;
+        nodeXs = new double[n];
+        nodeYs = new double[n];
+        nodeIds = new int[n];
+        splitY = new boolean[n];
+        System.arraycopy(xs, 0, nodeXs, 0, n);
+        System.arraycopy(ys, 0, nodeYs, 0, n);
+        for (int i = 0; i < n; ++i)
+            nodeIds[i] = i;
+
+        build(0, n);
+    }
+
+
+    /**
+     * Build the sub-tree over a range of nodes.
+     *
+     * @param   lo          Index of the first node in the range.
+     * @param   hi          Index after the last node in the range.
+     */
+    private void build(int lo, int hi) {
+        while (hi - lo > 1) {
+            // Split on the axis with the widest spread.
+            double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; ++i) {
+                final double x = nodeXs[i], y = nodeYs[i];
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (y < minY) minY = y;
+                if (y > maxY) maxY = y;
+            }
+            final boolean onY = maxY - minY > maxX - minX;
+            final int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, onY ? nodeYs : nodeXs);
+            splitY[mid] = onY;
+
+            // Recurse on the smaller side, loop on the larger; the right
+            // side is never larger than the left, so the recursion is at
+            // most log2(n) deep.
+            build(mid + 1, hi);
+            hi = mid;
+        }
+    }
+
+
+    /**
+     * Partially sort a range of nodes on one co-ordinate, so that the
+     * node at index k has its final sorted value, with no larger values
+     * before it and no smaller after.
+     *
+     * @param   lo          Index of the first node in the range.
+     * @param   hi          Index after the last node in the range.
+     * @param   k           The index of the node to place.
+     * @param   keys        The co-ordinate to sort on.
+     */
+    private void select(int lo, int hi, int k, double[] keys) {
+        int l = lo, r = hi - 1;
+        while (l < r) {
+            // Median-of-three pivot.
+            final int m = (l + r) >>> 1;
+            if (keys[m] < keys[l]) swap(m, l);
+            if (keys[r] < keys[l]) swap(r, l);
+            if (keys[r] < keys[m]) swap(r, m);
+            final double pivot = keys[m];
+
+            // Hoare partition.
+            int i = l, j = r;
+            while (i <= j) {
+                while (keys[i] < pivot) ++i;
+                while (keys[j] > pivot) --j;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            if (k <= j)
+                r = j;
+            else if (k >= i)
+                l = i;
+            else
+                break;
+        }
+    }
+
+
+    private void swap(int a, int b) {
+        final double x = nodeXs[a]; nodeXs[a] = nodeXs[b]; nodeXs[b] = x;
+        final double y = nodeYs[a]; nodeYs[a] = nodeYs[b]; nodeYs[b] = y;
+        final int id = nodeIds[a]; nodeIds[a] = nodeIds[b]; nodeIds[b] = id;
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of points in this tree.
+     *
+     * @return              The number of points.
+     */
+    public int size() {
+        return numPoints;
+    }
+
+
+    // ******************************************************************** //
+    // Nearest-Neighbour Queries.
+    // ******************************************************************** //
+
+    /**
+     * Find the point closest to a given position.
+     *
+     * @param   x           The X co-ordinate of the query position.
+     * @param   y           The Y co-ordinate of the query position.
+     * @return              The index of the closest point; the lowest
+     *                      such index if several are equally close.
+     *                      -1 if the tree is empty.
+     */
+    public int nearest(double x, double y) {
+        if (numPoints == 0)
+            return -1;
+        return nodeIds[nearest(0, numPoints, x, y, -1)];
+    }
+
+
+    /**
+     * Search a sub-tree for the point closest to a given position.
+     *
+     * @param   lo          Index of the first node in the sub-tree.
+     * @param   hi          Index after the last node in the sub-tree.
+     * @param   x           The X co-ordinate of the query position.
+     * @param   y           The Y co-ordinate of the query position.
+     * @param   best        The best node found so far; -1 if none.
+     * @return              The best node found.
+     */
+    private int nearest(int lo, int hi, double x, double y, int best) {
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final double dx = x - nodeXs[mid];
+            final double dy = y - nodeYs[mid];
+            final double d = dx * dx + dy * dy;
+            if (best < 0 || NearestHeap.worse(dist(best, x, y), nodeIds[best], d, nodeIds[mid]))
+                best = mid;
+
+            // Search the near side first; then the far side, if it
+            // could hold anything as close as the best so far.
+            final double diff = splitY[mid] ? dy : dx;
+            final int nlo, nhi, flo, fhi;
+            if (diff < 0) {
+                nlo = lo;  nhi = mid;  flo = mid + 1;  fhi = hi;
+            } else {
+                nlo = mid + 1;  nhi = hi;  flo = lo;  fhi = mid;
+            }
+            best = nearest(nlo, nhi, x, y, best);
+            if (diff * diff > dist(best, x, y))
+                break;
+            lo = flo;
+            hi = fhi;
+        }
+        return best;
+    }
+
+
+    /**
+     * Find the k points closest to a given position.
+     *
+     * @param   x           The X co-ordinate of the query position.
+     * @param   y           The Y co-ordinate of the query position.
+     * @param   k           The number of points to find.
+     * @param   ids         Array in which to place the indices of the
+     *                      points found, closest first.  Must have room
+     *                      for k entries.
+     * @param   dists       Array in which to place the squared distances
+     *                      of the points found.  Must have room for k
+     *                      entries.
+     * @return              The number of points found; this is k, or
+     *                      the size of the tree if smaller.
+     */
+    public int nearest(double x, double y, int k, int[] ids, double[] dists) {
+        if (ids.length < k || dists.length < k)
+            throw new IllegalArgumentException("KdTree: result arrays too small");
+        if (k <= 0)
+            return 0;
+        final int count = nearest(0, numPoints, x, y, k, ids, dists, 0);
+        NearestHeap.sort(ids, dists, count);
+        return count;
+    }
+
+
+    /**
+     * Search a sub-tree for the k points closest to a given position.
+     *
+     * @return              The number of candidates in the heap.
+     */
+    private int nearest(int lo, int hi, double x, double y,
+                        int k, int[] ids, double[] dists, int count)
+    {
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final double dx = x - nodeXs[mid];
+            final double dy = y - nodeYs[mid];
+            count = NearestHeap.offer(ids, dists, count, k,
+                                      nodeIds[mid], dx * dx + dy * dy);
+
+            final double diff = splitY[mid] ? dy : dx;
+            final int nlo, nhi, flo, fhi;
+            if (diff < 0) {
+                nlo = lo;  nhi = mid;  flo = mid + 1;  fhi = hi;
+            } else {
+                nlo = mid + 1;  nhi = hi;  flo = lo;  fhi = mid;
+            }
+            count = nearest(nlo, nhi, x, y, k, ids, dists, count);
+            if (diff * diff > NearestHeap.limit(dists, count, k))
+                break;
+            lo = flo;
+            hi = fhi;
+        }
+        return count;
+    }
+
+
+    // ******************************************************************** //
+    // Range Queries.
+    // ******************************************************************** //
+
+    /**
+     * Find all the points within a given distance of a position.
+     *
+     * @param   x           The X co-ordinate of the query position.
+     * @param   y           The Y co-ordinate of the query position.
+     * @param   r           The search radius.  Points at exactly this
+     *                      distance are included.
+     * @param   ids         Array in which to place the indices of the
+     *                      points found, in no particular order.  If
+     *                      there are more than will fit, the extra ones
+     *                      are counted but not stored.
+     * @return              The number of points found.
+     */
+    public int withinRadius(double x, double y, double r, int[] ids) {
+        return withinRadius(0, numPoints, x, y, r, r * r, ids, 0);
+    }
+
+
+    private int withinRadius(int lo, int hi, double x, double y,
+                             double r, double r2, int[] ids, int count)
+    {
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final double dx = x - nodeXs[mid];
+            final double dy = y - nodeYs[mid];
+            if (dx * dx + dy * dy <= r2) {
+                if (count < ids.length)
+                    ids[count] = nodeIds[mid];
+                ++count;
+            }
+
+            // Search whichever sides the circle overlaps.
+            final double diff = splitY[mid] ? dy : dx;
+            if (diff >= -r)
+                count = withinRadius(mid + 1, hi, x, y, r, r2, ids, count);
+            if (diff > r)
+                break;
+            hi = mid;
+        }
+        return count;
+    }
+
+
+    /**
+     * Find all the points within a given rectangle.
+     *
+     * @param   region      The rectangle to search.  Points on its
+     *                      edges are included.
+     * @param   ids         Array in which to place the indices of the
+     *                      points found, in no particular order.  If
+     *                      there are more than will fit, the extra ones
+     *                      are counted but not stored.
+     * @return              The number of points found.
+     */
+    public int inRegion(Region region, int[] ids) {
+        return inRegion(0, numPoints,
+                        region.getX1(), region.getY1(),
+                        region.getX2(), region.getY2(), ids, 0);
+    }
+
+
+    private int inRegion(int lo, int hi, double x1, double y1,
+                         double x2, double y2, int[] ids, int count)
+    {
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final double x = nodeXs[mid];
+            final double y = nodeYs[mid];
+            if (x >= x1 && x <= x2 && y >= y1 && y <= y2) {
+                if (count < ids.length)
+                    ids[count] = nodeIds[mid];
+                ++count;
+            }
+
+            final double v = splitY[mid] ? y : x;
+            final double min = splitY[mid] ? y1 : x1;
+            final double max = splitY[mid] ? y2 : x2;
+            if (max >= v)
+                count = inRegion(mid + 1, hi, x1, y1, x2, y2, ids, count);
+            if (min > v)
+                break;
+            hi = mid;
+        }
+        return count;
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Get the squared distance from a node to a position.
+     */
+    private double dist(int node, double x, double y) {
+        final double dx = x - nodeXs[node];
+        final double dy = y - nodeYs[node];
+        return dx * dx + dy * dy;
+    }
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The number of points in the tree.
+    private final int numPoints;
+
+    // The co-ordinates and original indices of the points, in tree
+    // order: the node for each sub-range is at its middle.
+    private final double[] nodeXs;
+    private final double[] nodeYs;
+    private final int[] nodeIds;
+
+    // For each node, true if it splits its range on Y, else on X.
+    private final boolean[] splitY;
+
+}
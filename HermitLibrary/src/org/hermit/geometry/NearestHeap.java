@@ -0,0 +1,135 @@
+/**
+ * geometry: basic geometric classes.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry;
+
+
+/**
+ * Helpers for the k-nearest queries of the spatial indexes.  The k
+ * best candidates found so far are kept as a max-heap in the caller's
+ * arrays of IDs and squared distances, so a query needs no storage of
+ * its own.  Candidates are ordered by distance, then by ID, so that
+ * ties are resolved the same way as a brute-force scan.
+ */
+final class NearestHeap {
+
+    private NearestHeap() {
+    }
+
+
+    /**
+     * Determine whether one candidate is worse than another.
+     *
+     * @param   da          Squared distance of the first candidate.
+     * @param   ia          ID of the first candidate.
+     * @param   db          Squared distance of the second candidate.
+     * @param   ib          ID of the second candidate.
+     * @return              True if a comes after b.
+     */
+    static boolean worse(double da, int ia, double db, int ib) {
+        return da > db || (da == db && ia > ib);
+    }
+
+
+    /**
+     * Offer a candidate to the heap.
+     *
+     * @param   ids         Heap of candidate IDs.
+     * @param   dists       Heap of candidate squared distances.
+     * @param   count       Number of candidates in the heap.
+     * @param   k           Maximum number of candidates to keep.
+     * @param   id          ID of the new candidate.
+     * @param   d           Squared distance of the new candidate.
+     * @return              The new number of candidates in the heap.
+     */
+    static int offer(int[] ids, double[] dists, int count, int k, int id, double d) {
+        if (count < k) {
+            // Sift up from the end.
+            int i = count++;
+            while (i > 0) {
+                final int p = (i - 1) >>> 1;
+                if (!worse(d, id, dists[p], ids[p]))
+                    break;
+                ids[i] = ids[p];
+                dists[i] = dists[p];
+                i = p;
+            }
+            ids[i] = id;
+            dists[i] = d;
+        } else if (worse(dists[0], ids[0], d, id)) {
+            siftDown(ids, dists, count, id, d);
+        }
+        return count;
+    }
+
+
+    /**
+     * Get the limit on the squared distance of useful candidates.
+     *
+     * @param   dists       Heap of candidate squared distances.
+     * @param   count       Number of candidates in the heap.
+     * @param   k           Maximum number of candidates to keep.
+     * @return              The squared distance of the worst candidate
+     *                      if the heap is full, else infinity.
+     */
+    static double limit(double[] dists, int count, int k) {
+        return count < k ? Double.POSITIVE_INFINITY : dists[0];
+    }
+
+
+    /**
+     * Sort the heap into ascending order, best first.
+     *
+     * @param   ids         Heap of candidate IDs.
+     * @param   dists       Heap of candidate squared distances.
+     * @param   count       Number of candidates in the heap.
+     */
+    static void sort(int[] ids, double[] dists, int count) {
+        for (int n = count - 1; n > 0; --n) {
+            final int id = ids[n];
+            final double d = dists[n];
+            ids[n] = ids[0];
+            dists[n] = dists[0];
+            siftDown(ids, dists, n, id, d);
+        }
+    }
+
+
+    /**
+     * Replace the root of the heap, and sift the new value down.
+     */
+    private static void siftDown(int[] ids, double[] dists, int count, int id, double d) {
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= count)
+                break;
+            if (c + 1 < count && worse(dists[c + 1], ids[c + 1], dists[c], ids[c]))
+                ++c;
+            if (!worse(dists[c], ids[c], d, id))
+                break;
+            ids[i] = ids[c];
+            dists[i] = dists[c];
+            i = c;
+        }
+        ids[i] = id;
+        dists[i] = d;
+    }
+
+}
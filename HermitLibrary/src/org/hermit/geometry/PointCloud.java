@@ -0,0 +1,479 @@
+/**
+ * geometry: basic geometric classes.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+
+/**
+ * A mutable set of points in the plane, stored as separate arrays of
+ * X and Y co-ordinates.
+ *
+ * <p>This is the bulk equivalent of an array of {@link Point}s.  A
+ * million Points take a million objects, each with a header and a
+ * pointer to follow; a PointCloud of the same size is just two arrays
+ * of doubles.  The geometry APIs which take Point[] have overloads
+ * which take a PointCloud, and work on the co-ordinates directly.
+ *
+ * <p>The co-ordinates are normally held in Java arrays, which can be
+ * accessed directly via {@link #getXs()} and {@link #getYs()}.  For
+ * data which is shared with native code, or is too big for the heap,
+ * {@link #allocateDirect(int)} creates a cloud backed by direct
+ * {@link DoubleBuffer}s instead.
+ *
+ * <p>Unlike Point, a PointCloud does no checking or rounding of the
+ * values stored in it.
+ */
+public class PointCloud {
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create an empty point cloud.
+     *
+     * @param   capacity    The initial capacity.  The cloud will grow
+     *                      as needed.
+     */
+    public PointCloud(int capacity) {
+        xs = new double[capacity];
+        ys = new double[capacity];
+        xBuf = yBuf = null;
+        numPoints = 0;
+    }
+
+
+    /**
+     * Create a point cloud which wraps the given co-ordinate arrays.
+     * The arrays are not copied; changes to the cloud show up in them,
+     * and vice versa, until the cloud grows beyond their size.
+     *
+     * @param   xs          The X co-ordinates of the points.
+     * @param   ys          The Y co-ordinates of the points.  Must be
+     *                      the same length as xs.
+     */
+    public PointCloud(double[] xs, double[] ys) {
+        if (ys.length != xs.length)
+            throw new IllegalArgumentException("PointCloud: array sizes do not match");
+        this.xs = xs;
+        this.ys = ys;
+        xBuf = yBuf = null;
+        numPoints = xs.length;
+    }
+
+
+    /**
+     * Create a point cloud which holds the given points.
+     *
+     * @param   points      The points to copy into the cloud.
+     */
+    public PointCloud(Point[] points) {
+        this(points.length);
+        for (Point p : points)
+            add(p.getX(), p.getY());
+    }
+
+
+    /**
+     * Create an empty point cloud backed by direct, native-order buffers
+     * rather than Java arrays.
+     *
+     * @param   capacity    The initial capacity.  The cloud will grow
+     *                      as needed.
+     * @return              The new point cloud.
+     */
+    public static PointCloud allocateDirect(int capacity) {
+        return new PointCloud(newBuffer(capacity), newBuffer(capacity));
+    }
+
+
+    /**
+     * Create a point cloud backed by direct buffers.
+     */
+    private PointCloud(DoubleBuffer xBuf, DoubleBuffer yBuf) {
+        xs = ys = null;
+        this.xBuf = xBuf;
+        this.yBuf = yBuf;
+        numPoints = 0;
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of points in this cloud.
+     *
+     * @return              The number of points.
+     */
+    public int size() {
+        return numPoints;
+    }
+
+
+    /**
+     * Get the number of points this cloud can hold without growing.
+     *
+     * @return              The capacity.
+     */
+    public int capacity() {
+        return xs != null ? xs.length : xBuf.capacity();
+    }
+
+
+    /**
+     * Determine whether this cloud is backed by Java arrays.
+     *
+     * @return              True if this cloud is backed by arrays; false
+     *                      if it is backed by direct buffers.
+     */
+    public boolean hasArray() {
+        return xs != null;
+    }
+
+
+    /**
+     * Get the X co-ordinate of a point.
+     *
+     * @param   i           The index of the point.
+     * @return              Its X co-ordinate.
+     */
+    public double getX(int i) {
+        return xs != null ? xs[i] : xBuf.get(i);
+    }
+
+
+    /**
+     * Get the Y co-ordinate of a point.
+     *
+     * @param   i           The index of the point.
+     * @return              Its Y co-ordinate.
+     */
+    public double getY(int i) {
+        return ys != null ? ys[i] : yBuf.get(i);
+    }
+
+
+    /**
+     * Get a point as a Point object.
+     *
+     * @param   i           The index of the point.
+     * @return              A new Point with its co-ordinates.
+     */
+    public Point getPoint(int i) {
+        return new Point(getX(i), getY(i));
+    }
+
+
+    /**
+     * Get the array which holds the X co-ordinates.  Only the first
+     * {@link #size()} elements are in use.  Note that the array is
+     * replaced if the cloud grows.
+     *
+     * @return              The backing array of X co-ordinates.
+     * @throws  UnsupportedOperationException  This cloud is backed by
+     *                      direct buffers.
+     */
+    public double[] getXs() {
+        if (xs == null)
+            throw new UnsupportedOperationException("PointCloud: not backed by an array");
+        return xs;
+    }
+
+
+    /**
+     * Get the array which holds the Y co-ordinates.  Only the first
+     * {@link #size()} elements are in use.  Note that the array is
+     * replaced if the cloud grows.
+     *
+     * @return              The backing array of Y co-ordinates.
+     * @throws  UnsupportedOperationException  This cloud is backed by
+     *                      direct buffers.
+     */
+    public double[] getYs() {
+        if (ys == null)
+            throw new UnsupportedOperationException("PointCloud: not backed by an array");
+        return ys;
+    }
+
+
+    /**
+     * Get the buffer which holds the X co-ordinates.  For an array-backed
+     * cloud, this wraps the array.  Only the first {@link #size()}
+     * elements are in use.
+     *
+     * @return              A buffer of the X co-ordinates.
+     */
+    public DoubleBuffer getXBuffer() {
+        return xs != null ? DoubleBuffer.wrap(xs) : xBuf.duplicate();
+    }
+
+
+    /**
+     * Get the buffer which holds the Y co-ordinates.  For an array-backed
+     * cloud, this wraps the array.  Only the first {@link #size()}
+     * elements are in use.
+     *
+     * @return              A buffer of the Y co-ordinates.
+     */
+    public DoubleBuffer getYBuffer() {
+        return ys != null ? DoubleBuffer.wrap(ys) : yBuf.duplicate();
+    }
+
+
+    /**
+     * Get the X co-ordinates in an array of exactly {@link #size()}
+     * elements.  If the backing array is that size, it is returned
+     * directly; else the co-ordinates are copied to a new array.
+     *
+     * @return              An array of the X co-ordinates.
+     */
+    public double[] xArray() {
+        if (xs != null && xs.length == numPoints)
+            return xs;
+        double[] a = new double[numPoints];
+        copyXs(0, a, 0, numPoints);
+        return a;
+    }
+
+
+    /**
+     * Get the Y co-ordinates in an array of exactly {@link #size()}
+     * elements.  If the backing array is that size, it is returned
+     * directly; else the co-ordinates are copied to a new array.
+     *
+     * @return              An array of the Y co-ordinates.
+     */
+    public double[] yArray() {
+        if (ys != null && ys.length == numPoints)
+            return ys;
+        double[] a = new double[numPoints];
+        copyYs(0, a, 0, numPoints);
+        return a;
+    }
+
+
+    /**
+     * Copy a range of X co-ordinates into an array.
+     *
+     * @param   start       Index of the first point to copy.
+     * @param   dst         Array to copy the co-ordinates into.
+     * @param   off         Offset in dst to copy to.
+     * @param   len         Number of co-ordinates to copy.
+     */
+    public void copyXs(int start, double[] dst, int off, int len) {
+        copy(xs, xBuf, start, dst, off, len);
+    }
+
+
+    /**
+     * Copy a range of Y co-ordinates into an array.
+     *
+     * @param   start       Index of the first point to copy.
+     * @param   dst         Array to copy the co-ordinates into.
+     * @param   off         Offset in dst to copy to.
+     * @param   len         Number of co-ordinates to copy.
+     */
+    public void copyYs(int start, double[] dst, int off, int len) {
+        copy(ys, yBuf, start, dst, off, len);
+    }
+
+
+    /**
+     * Get the points in this cloud as Point objects.
+     *
+     * @return              A new array of new Points.
+     */
+    public Point[] toPoints() {
+        Point[] points = new Point[numPoints];
+        for (int i = 0; i < numPoints; ++i)
+            points[i] = new Point(getX(i), getY(i));
+        return points;
+    }
+
+
+    /**
+     * Get the bounding box of the points in this cloud.
+     *
+     * @return              The smallest region which contains all the
+     *                      points; null if the cloud is empty.
+     */
+    public Region getBounds() {
+        if (numPoints == 0)
+            return null;
+        double x1 = Double.POSITIVE_INFINITY, x2 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.POSITIVE_INFINITY, y2 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numPoints; ++i) {
+            final double x = getX(i), y = getY(i);
+            if (x < x1) x1 = x;
+            if (x > x2) x2 = x;
+            if (y < y1) y1 = y;
+            if (y > y2) y2 = y;
+        }
+        return new Region(x1, y1, x2, y2);
+    }
+
+
+    // ******************************************************************** //
+    // Updates.
+    // ******************************************************************** //
+
+    /**
+     * Set the co-ordinates of a point.
+     *
+     * @param   i           The index of the point.
+     * @param   x           Its new X co-ordinate.
+     * @param   y           Its new Y co-ordinate.
+     */
+    public void set(int i, double x, double y) {
+        if (i < 0 || i >= numPoints)
+            throw new IndexOutOfBoundsException("PointCloud: no point " + i);
+        if (xs != null) {
+            xs[i] = x;
+            ys[i] = y;
+        } else {
+            xBuf.put(i, x);
+            yBuf.put(i, y);
+        }
+    }
+
+
+    /**
+     * Add a point to the end of this cloud.
+     *
+     * @param   x           The X co-ordinate of the point.
+     * @param   y           The Y co-ordinate of the point.
+     */
+    public void add(double x, double y) {
+        if (numPoints == capacity())
+            ensureCapacity(numPoints + 1);
+        if (xs != null) {
+            xs[numPoints] = x;
+            ys[numPoints] = y;
+        } else {
+            xBuf.put(numPoints, x);
+            yBuf.put(numPoints, y);
+        }
+        ++numPoints;
+    }
+
+
+    /**
+     * Set the number of points in this cloud.  If it grows, the new
+     * points are zero, unless the storage previously held other values.
+     *
+     * @param   size        The new number of points.
+     */
+    public void setSize(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("PointCloud: negative size");
+        ensureCapacity(size);
+        numPoints = size;
+    }
+
+
+    /**
+     * Remove all the points from this cloud.  The storage is kept.
+     */
+    public void clear() {
+        numPoints = 0;
+    }
+
+
+    /**
+     * Make sure this cloud can hold a given number of points without
+     * growing again.
+     *
+     * @param   min         The desired minimum capacity.
+     */
+    public void ensureCapacity(int min) {
+        final int cap = capacity();
+        if (min <= cap)
+            return;
+        final int n = Math.max(min, cap + (cap >> 1) + 16);
+        if (xs != null) {
+            xs = Arrays.copyOf(xs, n);
+            ys = Arrays.copyOf(ys, n);
+        } else {
+            xBuf = grow(xBuf, n);
+            yBuf = grow(yBuf, n);
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    private static DoubleBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 8)
+                         .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+
+    private DoubleBuffer grow(DoubleBuffer buf, int capacity) {
+        DoubleBuffer b = newBuffer(capacity);
+        DoubleBuffer src = buf.duplicate();
+        src.position(0).limit(numPoints);
+        b.put(src);
+        b.clear();
+        return b;
+    }
+
+
+    private void copy(double[] a, DoubleBuffer buf,
+                      int start, double[] dst, int off, int len)
+    {
+        if (start < 0 || len < 0 || start + len > numPoints)
+            throw new IndexOutOfBoundsException("PointCloud: bad range");
+        if (a != null)
+            System.arraycopy(a, start, dst, off, len);
+        else {
+            DoubleBuffer src = buf.duplicate();
+            src.position(start);
+            src.get(dst, off, len);
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The co-ordinate arrays, if we're backed by arrays; else null.
+    private double[] xs;
+    private double[] ys;
+
+    // The co-ordinate buffers, if we're backed by direct buffers; else
+    // null.  We always use absolute get / put, so the buffer positions
+    // are not used.
+    private DoubleBuffer xBuf;
+    private DoubleBuffer yBuf;
+
+    // The number of points in use.
+    private int numPoints;
+
+}
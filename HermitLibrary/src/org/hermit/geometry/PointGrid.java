@@ -0,0 +1,628 @@
+/**
+ * geometry: basic geometric classes.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry;
+
+
+import java.util.Arrays;
+
+
+/**
+ * A uniform hash grid over a changing set of points, for
+ * nearest-neighbour, radius and rectangle queries.
+ *
+ * <p>This is the dynamic counterpart of {@link KdTree}.  The plane is
+ * divided into square cells of a fixed size, and each point is chained
+ * into a hash bucket for its cell; only occupied cells take any space.
+ * Points can be added, moved and removed in constant time.  Queries
+ * work best when the cell size is about the typical distance between
+ * neighbouring points.
+ *
+ * <p>Points are referred to by the IDs returned by {@link #add}; the
+ * IDs of removed points are re-used.  All the data is held in flat
+ * arrays, and queries allocate nothing.  Nearest-neighbour ties are
+ * broken in favour of the lower ID.  This class is not thread-safe,
+ * though concurrent queries with no updates are fine.
+ */
+public class PointGrid {
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Create an empty grid.
+     *
+     * @param   cellSize    The width and height of the grid cells.
+     */
+    public PointGrid(double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize))
+            throw new IllegalArgumentException("PointGrid: bad cell size " + cellSize);
+
+        this.cellSize = cellSize;
+        invCellSize = 1.0 / cellSize;
+        buckets = new int[INIT_BUCKETS];
+        Arrays.fill(buckets, -1);
+        xs = new double[INIT_BUCKETS];
+        ys = new double[INIT_BUCKETS];
+        cellXs = new int[INIT_BUCKETS];
+        cellYs = new int[INIT_BUCKETS];
+        nexts = new int[INIT_BUCKETS];
+        live = new boolean[INIT_BUCKETS];
+    }
+
+
+    // ******************************************************************** //
+    // Updates.
+    // ******************************************************************** //
+
+    /**
+     * Add a point to the grid.
+     *
+     * @param   x           The X co-ordinate of the point.
+     * @param   y           The Y co-ordinate of the point.
+     * @return              The ID of the new point.
+     */
+    public int add(double x, double y) {
+        int id;
+        if (freeHead >= 0) {
+            id = freeHead;
+            freeHead = nexts[id];
+        } else {
+            if (highWater == xs.length)
+                growPoints();
+            id = highWater++;
+        }
+        if (numPoints >= buckets.length)
+            rehash(buckets.length * 2);
+
+        live[id] = true;
+        ++numPoints;
+        place(id, x, y);
+        return id;
+    }
+
+
+    /**
+     * Move a point.
+     *
+     * @param   id          The ID of the point to move.
+     * @param   x           The new X co-ordinate of the point.
+     * @param   y           The new Y co-ordinate of the point.
+     */
+    public void move(int id, double x, double y) {
+        if (!isPoint(id))
+            throw new IllegalArgumentException("PointGrid: no point " + id);
+
+        final int cx = cell(x), cy = cell(y);
+        if (cx == cellXs[id] && cy == cellYs[id]) {
+            xs[id] = x;
+            ys[id] = y;
+        } else {
+            unlink(id);
+            place(id, x, y);
+        }
+    }
+
+
+    /**
+     * Remove a point from the grid.
+     *
+     * @param   id          The ID of the point to remove.
+     * @return              True if the point was removed; false if
+     *                      there was no such point.
+     */
+    public boolean remove(int id) {
+        if (!isPoint(id))
+            return false;
+
+        unlink(id);
+        live[id] = false;
+        nexts[id] = freeHead;
+        freeHead = id;
+        if (--numPoints == 0)
+            minCellX = maxCellX = minCellY = maxCellY = 0;
+        return true;
+    }
+
+
+    /**
+     * Remove all the points from the grid.
+     */
+    public void clear() {
+        Arrays.fill(buckets, -1);
+        Arrays.fill(live, 0, highWater, false);
+        numPoints = 0;
+        highWater = 0;
+        freeHead = -1;
+        minCellX = maxCellX = minCellY = maxCellY = 0;
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of points in the grid.
+     *
+     * @return              The number of points.
+     */
+    public int size() {
+        return numPoints;
+    }
+
+
+    /**
+     * Determine whether an ID refers to a point in the grid.
+     *
+     * @param   id          The ID to check.
+     * @return              True if id is the ID of a current point.
+     */
+    public boolean isPoint(int id) {
+        return id >= 0 && id < highWater && live[id];
+    }
+
+
+    /**
+     * Get the X co-ordinate of a point.
+     *
+     * @param   id          The ID of the point.
+     * @return              The X co-ordinate of the point.
+     */
+    public double getX(int id) {
+        return xs[id];
+    }
+
+
+    /**
+     * Get the Y co-ordinate of a point.
+     *
+     * @param   id          The ID of the point.
+     * @return              The Y co-ordinate of the point.
+     */
+    public double getY(int id) {
+        return ys[id];
+    }
+
+
+    // ******************************************************************** //
+    // Nearest-Neighbour Queries.
+    // ******************************************************************** //
+
+    /**
+     * Find the point closest to a given position.
+     *
+     * @param   x           The X co-ordinate of the query position.
+     * @param   y           The Y co-ordinate of the query position.
+     * @return              The ID of the closest point; the lowest such
+     *                      ID if several are equally close.  -1 if the
+     *                      grid is empty.
+     */
+    public int nearest(double x, double y) {
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        final int qx = cell(x), qy = cell(y);
+        final int rMin = ringDistance(qx, qy, false);
+        final int rMax = ringDistance(qx, qy, true);
+        long visited = 0;
+        for (int r = rMin; r <= rMax && numPoints > 0; ++r) {
+            // If the search is getting too wide, just scan everything.
+            visited += ringSize(r);
+            if (visited > numPoints) {
+                for (int id = 0; id < highWater; ++id) {
+                    if (!live[id])
+                        continue;
+                    final double d = dist(id, x, y);
+                    if (best < 0 || NearestHeap.worse(bestDist, best, d, id)) {
+                        best = id;
+                        bestDist = d;
+                    }
+                }
+                break;
+            }
+
+            for (int i = 0, n = (int) ringSize(r); i < n; ++i) {
+                final int cx = ringX(qx, r, i), cy = ringY(qy, r, i);
+                if (cx < minCellX || cx > maxCellX || cy < minCellY || cy > maxCellY)
+                    continue;
+                for (int id = buckets[hash(cx, cy)]; id >= 0; id = nexts[id]) {
+                    if (cellXs[id] != cx || cellYs[id] != cy)
+                        continue;
+                    final double d = dist(id, x, y);
+                    if (best < 0 || NearestHeap.worse(bestDist, best, d, id)) {
+                        best = id;
+                        bestDist = d;
+                    }
+                }
+            }
+
+            // Everything in the further rings is at least r cells away.
+            final double reach = r * cellSize;
+            if (best >= 0 && bestDist < reach * reach)
+                break;
+        }
+        return best;
+    }
+
+
+    /**
+     * Find the k points closest to a given position.
+     *
+     * @param   x           The X co-ordinate of the query position.
+     * @param   y           The Y co-ordinate of the query position.
+     * @param   k           The number of points to find.
+     * @param   ids         Array in which to place the IDs of the
+     *                      points found, closest first.  Must have room
+     *                      for k entries.
+     * @param   dists       Array in which to place the squared distances
+     *                      of the points found.  Must have room for k
+     *                      entries.
+     * @return              The number of points found; this is k, or
+     *                      the size of the grid if smaller.
+     */
+    public int nearest(double x, double y, int k, int[] ids, double[] dists) {
+        if (ids.length < k || dists.length < k)
+            throw new IllegalArgumentException("PointGrid: result arrays too small");
+        if (k <= 0)
+            return 0;
+
+        int count = 0;
+        final int qx = cell(x), qy = cell(y);
+        final int rMin = ringDistance(qx, qy, false);
+        final int rMax = ringDistance(qx, qy, true);
+        long visited = 0;
+        for (int r = rMin; r <= rMax && numPoints > 0; ++r) {
+            visited += ringSize(r);
+            if (visited > numPoints) {
+                count = 0;
+                for (int id = 0; id < highWater; ++id)
+                    if (live[id])
+                        count = NearestHeap.offer(ids, dists, count, k, id, dist(id, x, y));
+                break;
+            }
+
+            for (int i = 0, n = (int) ringSize(r); i < n; ++i) {
+                final int cx = ringX(qx, r, i), cy = ringY(qy, r, i);
+                if (cx < minCellX || cx > maxCellX || cy < minCellY || cy > maxCellY)
+                    continue;
+                for (int id = buckets[hash(cx, cy)]; id >= 0; id = nexts[id])
+                    if (cellXs[id] == cx && cellYs[id] == cy)
+                        count = NearestHeap.offer(ids, dists, count, k, id, dist(id, x, y));
+            }
+
+            final double reach = r * cellSize;
+            if (NearestHeap.limit(dists, count, k) < reach * reach)
+                break;
+        }
+
+        NearestHeap.sort(ids, dists, count);
+        return count;
+    }
+
+
+    // ******************************************************************** //
+    // Range Queries.
+    // ******************************************************************** //
+
+    /**
+     * Find all the points within a given distance of a position.
+     *
+     * @param   x           The X co-ordinate of the query position.
+     * @param   y           The Y co-ordinate of the query position.
+     * @param   r           The search radius.  Points at exactly this
+     *                      distance are included.
+     * @param   ids         Array in which to place the IDs of the points
+     *                      found, in no particular order.  If there are
+     *                      more than will fit, the extra ones are
+     *                      counted but not stored.
+     * @return              The number of points found.
+     */
+    public int withinRadius(double x, double y, double r, int[] ids) {
+        return search(x - r, y - r, x + r, y + r, x, y, r * r, ids);
+    }
+
+
+    /**
+     * Find all the points within a given rectangle.
+     *
+     * @param   region      The rectangle to search.  Points on its
+     *                      edges are included.
+     * @param   ids         Array in which to place the IDs of the points
+     *                      found, in no particular order.  If there are
+     *                      more than will fit, the extra ones are
+     *                      counted but not stored.
+     * @return              The number of points found.
+     */
+    public int inRegion(Region region, int[] ids) {
+        return search(region.getX1(), region.getY1(),
+                      region.getX2(), region.getY2(),
+                      0, 0, Double.POSITIVE_INFINITY, ids);
+    }
+
+
+    /**
+     * Find all the points within a rectangle, and optionally within a
+     * given distance of a position.
+     *
+     * @return              The number of points found.
+     */
+    private int search(double x1, double y1, double x2, double y2,
+                       double x, double y, double r2, int[] ids)
+    {
+        if (numPoints == 0)
+            return 0;
+
+        final int cx1 = Math.max(cell(x1), minCellX);
+        final int cy1 = Math.max(cell(y1), minCellY);
+        final int cx2 = Math.min(cell(x2), maxCellX);
+        final int cy2 = Math.min(cell(y2), maxCellY);
+        if (cx1 > cx2 || cy1 > cy2)
+            return 0;
+
+        int count = 0;
+        if ((double) (cx2 - cx1 + 1) * (cy2 - cy1 + 1) > numPoints) {
+            // More cells than points; just scan everything.
+            for (int id = 0; id < highWater; ++id)
+                if (live[id])
+                    count = test(id, x1, y1, x2, y2, x, y, r2, ids, count);
+        } else {
+            for (int cy = cy1; cy <= cy2; ++cy) {
+                for (int cx = cx1; cx <= cx2; ++cx) {
+                    for (int id = buckets[hash(cx, cy)]; id >= 0; id = nexts[id])
+                        if (cellXs[id] == cx && cellYs[id] == cy)
+                            count = test(id, x1, y1, x2, y2, x, y, r2, ids, count);
+                }
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Test a point for a range query, and add it to the results if
+     * it matches.
+     *
+     * @return              The new number of points found.
+     */
+    private int test(int id, double x1, double y1, double x2, double y2,
+                     double x, double y, double r2, int[] ids, int count)
+    {
+        final double px = xs[id], py = ys[id];
+        if (px < x1 || px > x2 || py < y1 || py > y2)
+            return count;
+        if (r2 != Double.POSITIVE_INFINITY && dist(id, x, y) > r2)
+            return count;
+        if (count < ids.length)
+            ids[count] = id;
+        return count + 1;
+    }
+
+
+    // ******************************************************************** //
+    // Rings.
+    // ******************************************************************** //
+
+    /*
+     * The nearest-neighbour searches work outwards from the query cell
+     * in square rings.  Ring r is the cells at Chebyshev distance r from
+     * the query cell: the top and bottom rows in full, then the left and
+     * right columns without their ends.
+     */
+
+    /**
+     * Get the Chebyshev distance in cells from a cell to the nearest or
+     * furthest corner of the box of occupied cells.
+     */
+    private int ringDistance(int qx, int qy, boolean furthest) {
+        final long dx, dy;
+        if (furthest) {
+            dx = Math.max(Math.abs((long) qx - minCellX), Math.abs((long) qx - maxCellX));
+            dy = Math.max(Math.abs((long) qy - minCellY), Math.abs((long) qy - maxCellY));
+        } else {
+            dx = Math.max(0, Math.max((long) minCellX - qx, (long) qx - maxCellX));
+            dy = Math.max(0, Math.max((long) minCellY - qy, (long) qy - maxCellY));
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 1, Math.max(dx, dy));
+    }
+
+
+    private static long ringSize(int r) {
+        return r == 0 ? 1 : 8L * r;
+    }
+
+
+    private static int ringX(int qx, int r, int i) {
+        final int side = 2 * r + 1;
+        if (i < side)
+            return qx - r + i;
+        i -= side;
+        if (i < side)
+            return qx - r + i;
+        i -= side;
+        return (i & 1) == 0 ? qx - r : qx + r;
+    }
+
+
+    private static int ringY(int qy, int r, int i) {
+        final int side = 2 * r + 1;
+        if (i < side)
+            return qy - r;
+        i -= side;
+        if (i < side)
+            return qy + r;
+        i -= side;
+        return qy - r + 1 + (i >> 1);
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Get the cell index for a co-ordinate.
+     */
+    private int cell(double v) {
+        final double c = Math.floor(v * invCellSize);
+        if (c < Integer.MIN_VALUE / 2)
+            return Integer.MIN_VALUE / 2;
+        if (c > Integer.MAX_VALUE / 2)
+            return Integer.MAX_VALUE / 2;
+        return (int) c;
+    }
+
+
+    /**
+     * Get the hash bucket for a cell.
+     */
+    private int hash(int cx, int cy) {
+        int h = cx * 0x9E3779B1 + cy * 0x85EBCA6B;
+        h ^= h >>> 15;
+        return h & (buckets.length - 1);
+    }
+
+
+    /**
+     * Get the squared distance from a point to a position.
+     */
+    private double dist(int id, double x, double y) {
+        final double dx = x - xs[id];
+        final double dy = y - ys[id];
+        return dx * dx + dy * dy;
+    }
+
+
+    /**
+     * Set a point's co-ordinates, and link it into its cell's bucket.
+     */
+    private void place(int id, double x, double y) {
+        final int cx = cell(x), cy = cell(y);
+        xs[id] = x;
+        ys[id] = y;
+        cellXs[id] = cx;
+        cellYs[id] = cy;
+        final int b = hash(cx, cy);
+        nexts[id] = buckets[b];
+        buckets[b] = id;
+
+        // Grow the box of occupied cells.  It doesn't shrink as points
+        // are removed, except when the grid empties.
+        if (numPoints == 1) {
+            minCellX = maxCellX = cx;
+            minCellY = maxCellY = cy;
+        } else {
+            if (cx < minCellX) minCellX = cx;
+            if (cx > maxCellX) maxCellX = cx;
+            if (cy < minCellY) minCellY = cy;
+            if (cy > maxCellY) maxCellY = cy;
+        }
+    }
+
+
+    /**
+     * Unlink a point from its cell's bucket.
+     */
+    private void unlink(int id) {
+        final int b = hash(cellXs[id], cellYs[id]);
+        if (buckets[b] == id) {
+            buckets[b] = nexts[id];
+            return;
+        }
+        int p = buckets[b];
+        while (nexts[p] != id)
+            p = nexts[p];
+        nexts[p] = nexts[id];
+    }
+
+
+    /**
+     * Grow the point arrays.
+     */
+    private void growPoints() {
+        final int n = xs.length * 2;
+        xs = Arrays.copyOf(xs, n);
+        ys = Arrays.copyOf(ys, n);
+        cellXs = Arrays.copyOf(cellXs, n);
+        cellYs = Arrays.copyOf(cellYs, n);
+        nexts = Arrays.copyOf(nexts, n);
+        live = Arrays.copyOf(live, n);
+    }
+
+
+    /**
+     * Re-build the hash table with a new number of buckets.
+     */
+    private void rehash(int size) {
+        buckets = new int[size];
+        Arrays.fill(buckets, -1);
+        for (int id = 0; id < highWater; ++id) {
+            if (!live[id])
+                continue;
+            final int b = hash(cellXs[id], cellYs[id]);
+            nexts[id] = buckets[b];
+            buckets[b] = id;
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // Initial number of hash buckets and point slots.  Must be a power
+    // of two.
+    private static final int INIT_BUCKETS = 64;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The size of the grid cells, and its inverse.
+    private final double cellSize;
+    private final double invCellSize;
+
+    // The hash table: for each bucket, the ID of the first point in its
+    // chain, or -1.
+    private int[] buckets;
+
+    // For each point ID: its co-ordinates, its cell, the next point
+    // in its chain (or in the free list), and whether it is in use.
+    private double[] xs;
+    private double[] ys;
+    private int[] cellXs;
+    private int[] cellYs;
+    private int[] nexts;
+    private boolean[] live;
+
+    // The number of points; one past the highest ID ever used; and the
+    // head of the list of free IDs.
+    private int numPoints = 0;
+    private int highWater = 0;
+    private int freeHead = -1;
+
+    // The box of cells which contains all the points.
+    private int minCellX = 0;
+    private int maxCellX = 0;
+    private int minCellY = 0;
+    private int maxCellY = 0;
+
+}
@@ -21,6 +21,7 @@
 package org.hermit.geometry.cluster;
 
 import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
 import org.hermit.geometry.Region;
 
 
@@ -46,6 +47,29 @@ public abstract class Clusterer {
 	 */
     public void prepare(Point[] points, int[] ids, double[][] means, Region region) {
     }
+
+
+	/**
+	 * Prepare a clustering pass on data held in a point cloud.
+	 * 
+	 * <p>This implementation converts the cloud to Points and calls
+	 * {@link #prepare(Point[], int[], double[][], Region)}.  Subclasses
+	 * which work on flat co-ordinate arrays should override it to use
+	 * the cloud's data directly.
+	 * 
+	 * @param  cloud       The points to be clustered.  The caller must
+	 *                     leave the data here intact between iterations.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+	 * @param  means       Array of x,y values in which to place centroids
+	 *                     of the clusters.
+	 * @param  region      The region of the plane in which the points lie.
+	 */
+    public void prepare(PointCloud cloud, int[] ids, double[][] means, Region region) {
+        prepare(cloud.toPoints(), ids, means, region);
+    }
     
 
 	/**
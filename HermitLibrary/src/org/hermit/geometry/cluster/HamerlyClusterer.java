@@ -0,0 +1,415 @@
+
+/**
+ * cluster: routines for cluster analysis.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry.cluster;
+
+
+import org.hermit.geometry.MathTools;
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+
+
+/**
+ * An implementation of Lloyd's k-means clustering algorithm, accelerated
+ * using the triangle inequality as described by Greg Hamerly in
+ * "Making k-means even faster" (SIAM Data Mining, 2010).
+ *
+ * <p>This gives the same solution as a plain implementation of Lloyd's
+ * algorithm, such as {@link KMeansClusterer}, started from the same
+ * centroids, up to rounding; but it avoids most of the distance
+ * calculations.
+ * For each point we keep an upper bound on the distance to its assigned
+ * centroid, and a lower bound on the distance to every other centroid.
+ * When the centroids move, the bounds are adjusted by the distances
+ * moved; a point only needs to be looked at again if its upper bound
+ * exceeds its lower bound, or half the distance from its centroid to
+ * the nearest other centroid.  In the later iterations, when few points
+ * are changing clusters, almost all points are skipped.
+ *
+ * <p>The centroids are computed from the point assignments on each
+ * iteration, summing the points in order just as KMeansClusterer does.
+ * Only a point which is equidistant from two centroids to within
+ * rounding error may be assigned differently, as its bounds may not
+ * show the tie.
+ */
+public class HamerlyClusterer
+    extends Clusterer
+{
+
+    /**
+     * Prepare a clustering pass on the indicated data.
+     *
+     * @param  points      The array of dataPoints to be clustered.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    @Override
+    public void prepare(Point[] points, int[] ids, double[][] means, Region region) {
+        super.prepare(points, ids, means, region);
+
+        // Copy the points into flat arrays.
+        int n = points.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        prepare(xs, ys, ids, means, region);
+    }
+
+
+    /**
+     * Prepare a clustering pass on data held in a point cloud.  If the
+     * cloud is backed by arrays of exactly its size, they are used
+     * directly, with no copying.
+     *
+     * @param  cloud       The points to be clustered.  The caller must
+     *                     leave the data here intact between iterations.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    @Override
+    public void prepare(PointCloud cloud, int[] ids, double[][] means, Region region) {
+        prepare(cloud.xArray(), cloud.yArray(), ids, means, region);
+    }
+
+
+    /**
+     * Set up a clustering pass on data given as flat co-ordinate arrays.
+     *
+     * @param  xs          The X co-ordinates of the points to be clustered.
+     * @param  ys          The Y co-ordinates of the points to be clustered.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    private void prepare(double[] xs, double[] ys, int[] ids, double[][] means,
+                         Region region)
+    {
+        // Save the data arrays.
+        dataRegion = region;
+        pointClusters = ids;
+        clusterMeans = means;
+        numPoints = xs.length;
+        numClusters = means.length;
+        pointXs = xs;
+        pointYs = ys;
+
+        // Make the working data arrays.
+        upperBounds = new double[numPoints];
+        lowerBounds = new double[numPoints];
+        meanXs = new double[numClusters];
+        meanYs = new double[numClusters];
+        meanMoves = new double[numClusters];
+        halfSeparations = new double[numClusters];
+        sumXs = new double[numClusters];
+        sumYs = new double[numClusters];
+        clusterSizes = new int[numClusters];
+
+        // Set the initial cluster centroids to be random values
+        // within the data region.
+        for (int c = 0; c < numClusters; ++c) {
+            Point p = dataRegion.randomPoint();
+            meanXs[c] = means[c][0] = p.getX();
+            meanYs[c] = means[c][1] = p.getY();
+        }
+
+        // Make an initial assignment of points to clusters, so on the first
+        // iteration we have a basis for computing centroids.  This sets
+        // the bounds to their exact values.
+        for (int i = 0; i < numPoints; ++i)
+            assignPoint(i);
+        metricValid = false;
+    }
+
+
+    /**
+     * Runs a single iteration of the clustering algorithm on the stored data.
+     * The results are stored in the arrays that were passed into
+     * {@link #prepare(Point[], int[], double[][], Region)}.
+     *
+     * <p>After each iteration, the cluster IDs and cluster means should
+     * be consistent with each other.
+     *
+     * @return             true if the algorithm has converged.
+     */
+    @Override
+    public boolean iterate() {
+        // Compute the new centroids of the clusters, based on the existing
+        // point assignments.
+        boolean converged = computeCentroids();
+
+        // Assign data points to clusters based on the new centroids.
+        if (!converged)
+            assignPoints();
+
+        // Our convergence criterion is no change in the means.
+        return converged;
+    }
+
+
+    /**
+     * Compute the centroids of all the clusters, and record how far each
+     * one has moved.
+     *
+     * @return              true iff none of the means moved by a significant
+     *                      amount.
+     */
+    private boolean computeCentroids() {
+        // Calculate the sums of the points in each cluster.  We could keep
+        // these up to date as points change clusters, but then rounding
+        // errors would build up in them.
+        for (int c = 0; c < numClusters; ++c) {
+            sumXs[c] = sumYs[c] = 0.0;
+            clusterSizes[c] = 0;
+        }
+        for (int i = 0; i < numPoints; ++i) {
+            final int c = pointClusters[i];
+            sumXs[c] += pointXs[i];
+            sumYs[c] += pointYs[i];
+            ++clusterSizes[c];
+        }
+
+        boolean dirty = false;
+        for (int c = 0; c < numClusters; ++c) {
+            int s = clusterSizes[c];
+
+            // If the cluster is empty, assign a random mean.  Else calculate
+            // the average of the points in the cluster.
+            double nx, ny;
+            if (s == 0) {
+                Point p = dataRegion.randomPoint();
+                nx = p.getX();
+                ny = p.getY();
+            } else {
+                nx = sumXs[c] / s;
+                ny = sumYs[c] / s;
+            }
+
+            if (!MathTools.eq(meanXs[c], nx) || !MathTools.eq(meanYs[c], ny)) {
+                meanMoves[c] = distance(meanXs[c], meanYs[c], nx, ny);
+                meanXs[c] = clusterMeans[c][0] = nx;
+                meanYs[c] = clusterMeans[c][1] = ny;
+                dirty = true;
+            } else
+                meanMoves[c] = 0;
+        }
+
+        return !dirty;
+    }
+
+
+    /**
+     * Update the bounds to account for the movement of the centroids,
+     * and re-assign each point whose bounds show that it may now be
+     * closer to a different cluster.
+     */
+    private void assignPoints() {
+        // Find the largest and second-largest centroid moves.
+        int far = 0;
+        double move1 = 0, move2 = 0;
+        for (int c = 0; c < numClusters; ++c) {
+            double m = meanMoves[c];
+            if (m > move1) {
+                move2 = move1;
+                move1 = m;
+                far = c;
+            } else if (m > move2)
+                move2 = m;
+        }
+
+        // Work out half the distance from each centroid to the nearest
+        // other centroid.  A point closer than this to its centroid
+        // can't be closer to any other.
+        for (int c = 0; c < numClusters; ++c) {
+            double min = Double.MAX_VALUE;
+            for (int o = 0; o < numClusters; ++o) {
+                if (o == c)
+                    continue;
+                double d = distance(meanXs[c], meanYs[c], meanXs[o], meanYs[o]);
+                if (d < min)
+                    min = d;
+            }
+            halfSeparations[c] = min / 2;
+        }
+
+        for (int i = 0; i < numPoints; ++i) {
+            // Adjust the bounds for the movement of the centroids.  The
+            // lower bound applies to all the other centroids, so it must
+            // allow for the largest move among them.
+            int a = pointClusters[i];
+            upperBounds[i] += meanMoves[a];
+            lowerBounds[i] -= a == far ? move2 : move1;
+
+            // See if the bounds show that the point can't have moved.
+            double limit = Math.max(halfSeparations[a], lowerBounds[i]);
+            if (upperBounds[i] <= limit)
+                continue;
+
+            // Tighten the upper bound, and try again.
+            upperBounds[i] = distance(pointXs[i], pointYs[i], meanXs[a], meanYs[a]);
+            if (upperBounds[i] <= limit)
+                continue;
+
+            // No luck -- we have to check all the clusters.
+            assignPoint(i);
+        }
+
+        metricValid = false;
+    }
+
+
+    /**
+     * Assign a point to the cluster whose centroid it is closest to,
+     * setting its bounds exactly.
+     *
+     * @param  i            The index of the point to assign.
+     */
+    private void assignPoint(int i) {
+        final double x = pointXs[i];
+        final double y = pointYs[i];
+
+        // Find the closest and second-closest centroids.  As in
+        // KMeansClusterer, ties go to the lowest-numbered cluster.
+        int closest = -1;
+        double min1 = Double.MAX_VALUE, min2 = Double.MAX_VALUE;
+        for (int c = 0; c < numClusters; ++c) {
+            final double dx = x - meanXs[c];
+            final double dy = y - meanYs[c];
+            final double d = dx * dx + dy * dy;
+            if (d < min1) {
+                min2 = min1;
+                min1 = d;
+                closest = c;
+            } else if (d < min2)
+                min2 = d;
+        }
+        upperBounds[i] = Math.sqrt(min1);
+        lowerBounds[i] = Math.sqrt(min2);
+        pointClusters[i] = closest;
+    }
+
+
+    /**
+     * Computes the Cartesian distance between two points.
+     */
+    private static final double distance(double ax, double ay, double bx, double by) {
+        final double dx = ax - bx;
+        final double dy = ay - by;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+
+    /**
+     * Calculate a quality metric for the current clustering solution.
+     * This number is available after each call to {@link #iterate()}.
+     *
+     * <p>Since most points are skipped on each iteration, this is
+     * calculated when asked for, which takes one distance calculation
+     * per point.
+     *
+     * @return             Quality metric for this solution; small is better.
+     */
+    @Override
+    public double metric() {
+        if (!metricValid) {
+            double sum = 0.0;
+            for (int i = 0; i < numPoints; ++i) {
+                int c = pointClusters[i];
+                final double dx = pointXs[i] - meanXs[c];
+                final double dy = pointYs[i] - meanYs[c];
+                sum += dx * dx + dy * dy;
+            }
+            sumDistSquared = sum;
+            metricValid = true;
+        }
+        return sumDistSquared;
+    }
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The region of the plane in which we're working.
+    private Region dataRegion;
+
+    // The number of points in the data set on a given pass.
+    private int numPoints;
+
+    // The desired number of clusters.
+    private int numClusters;
+
+    // During a pass -- multiple iterations -- the co-ordinates of the
+    // data points.
+    private double[] pointXs;
+    private double[] pointYs;
+
+    // Cluster IDs to which the points have been assigned by the most
+    // recent iteration.  This will be null if prepare() hasn't been called,
+    // and is filled in by each call to iterate().
+    private int[] pointClusters = null;
+
+    // Calculated centroid positions of the clusters.  This will be null
+    // if prepare() hasn't been called, and is filled in by each call
+    // to iterate().
+    private double[][] clusterMeans = null;
+
+    // For each point, an upper bound on the distance to its assigned
+    // centroid, and a lower bound on the distance to any other centroid.
+    private double[] upperBounds;
+    private double[] lowerBounds;
+
+    // Working copy of the centroids, and the distance each one moved
+    // in the latest iteration.
+    private double[] meanXs;
+    private double[] meanYs;
+    private double[] meanMoves;
+
+    // Half the distance from each centroid to the nearest other centroid.
+    private double[] halfSeparations;
+
+    // The sum of the squares of the distances from each point to the mean
+    // of its assigned cluster in the current solution, and whether it
+    // is up to date.
+    private double sumDistSquared = 0.0;
+    private boolean metricValid = false;
+
+    // Working data: sums and counts of the points in each cluster, used
+    // to average the clusters.
+    private double[] sumXs;
+    private double[] sumYs;
+    private int[] clusterSizes;
+
+}
@@ -21,6 +21,7 @@
 package org.hermit.geometry.cluster;
 
 
+import org.hermit.geometry.KdTree;
 import org.hermit.geometry.MathTools;
 import org.hermit.geometry.Point;
 import org.hermit.geometry.Region;
@@ -58,8 +59,8 @@ public class KMeansClusterer
 		numClusters = means.length;
 
         // Make the working data arrays.
-        sumXs = new int[numClusters];
-        sumYs = new int[numClusters];
+        sumXs = new double[numClusters];
+        sumYs = new double[numClusters];
         clusterSizes = new int[numClusters];
 
 		// Set the initial cluster centroids to be random values
@@ -117,8 +118,10 @@ public class KMeansClusterer
 	 */
 	private boolean computeCentroids(int[] ids, double[][] means) {
 	    // Clear the working data.
-        for (int i = 0; i < numClusters; ++i)
-            sumXs[i] = sumYs[i] = clusterSizes[i] = 0;
+        for (int i = 0; i < numClusters; ++i) {
+            sumXs[i] = sumYs[i] = 0.0;
+            clusterSizes[i] = 0;
+        }
         
         // Calculate the sums of the points in each cluster.
         for (int i = 0; i < numPoints; ++i) {
@@ -179,17 +182,23 @@ public class KMeansClusterer
         // centroid it is closest to.  Set dirty to true if any point
         // changes to a different cluster.
         boolean dirty = false;
+        KdTree index = buildIndex(means);
         for (int i = 0; i < numPoints; ++i) {
             // Find the closest mean to the current data point.  Also
             // accumulate the sum of the distances squared.
             Point point = dataPoints[i];
             int closest = -1;
             double minDistance = Double.MAX_VALUE;
-            for (int c = 0; c < means.length; ++c) {
-                double distance = computeDistanceSquared(point, means[c]);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    closest = c;
+            if (index != null) {
+                closest = index.nearest(point.getX(), point.getY());
+                minDistance = computeDistanceSquared(point, means[closest]);
+            } else {
+                for (int c = 0; c < means.length; ++c) {
+                    double distance = computeDistanceSquared(point, means[c]);
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        closest = c;
+                    }
                 }
             }
             sumDistSquared += minDistance;
@@ -204,6 +213,30 @@ public class KMeansClusterer
 	}
 
 
+	/**
+	 * Build a spatial index over the cluster means, if there are enough
+	 * of them for it to be faster than scanning them all for each point.
+	 * The index breaks ties the same way as a scan.
+	 * 
+     * @param  means        Array of x,y values of the cluster means.
+     * @return              A KdTree over the means, or null if there
+     *                      are only a few.
+	 */
+	private static KdTree buildIndex(double[][] means) {
+	    final int k = means.length;
+	    if (k < INDEX_THRESHOLD)
+	        return null;
+	    
+	    double[] xs = new double[k];
+	    double[] ys = new double[k];
+	    for (int c = 0; c < k; ++c) {
+	        xs[c] = means[c][0];
+	        ys[c] = means[c][1];
+	    }
+	    return new KdTree(xs, ys);
+	}
+
+
 	/**
 	 * Computes the absolute squared Cartesian distance between two points.
 	 */
@@ -226,6 +259,15 @@ public class KMeansClusterer
     }
 
 
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The number of clusters at which we start using a spatial index
+    // to find the closest mean to each point.
+    private static final int INDEX_THRESHOLD = 32;
+
+
     // ******************************************************************** //
     // Private Data.
     // ******************************************************************** //
@@ -258,8 +300,8 @@ public class KMeansClusterer
     private double sumDistSquared = 0.0;
 
     // Working data -- sums and counts, used to average the clusters.
-    private int[] sumXs;
-    private int[] sumYs;
+    private double[] sumXs;
+    private double[] sumYs;
     private int[] clusterSizes;
 
 }
@@ -0,0 +1,289 @@
+
+/**
+ * cluster: routines for cluster analysis.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry.cluster;
+
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.hermit.geometry.MathTools;
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.voronoi.Fortune;
+import org.hermit.geometry.voronoi.VoronoiCells;
+import org.hermit.geometry.voronoi.VoronoiDiagram;
+import org.hermit.utils.SharedPool;
+
+
+/**
+ * Lloyd's relaxation algorithm for computing a centroidal Voronoi
+ * tessellation: one in which each site is at the centroid of its own
+ * Voronoi cell.
+ *
+ * <p>This is the continuous form of k-means clustering: each site acts
+ * as a cluster mean, and the "points" are the whole of a region of the
+ * plane.  On each round, we compute the Voronoi diagram of the sites
+ * with {@link Fortune}, clip the cells to the region, and move each site
+ * to the centroid of its cell.  The clipping and the centroids are
+ * computed in parallel across a fork / join pool.  The sites spread out
+ * into an even, roughly hexagonal pattern, which is useful for meshing
+ * and stippling.
+ *
+ * <p>The interface follows {@link Clusterer}: call
+ * {@link #prepare(Point[], Region)}, then {@link #iterate()} once for
+ * each round, or {@link #relax(int)} to run several.  The metric for
+ * each round is the RMS distance the sites moved.
+ *
+ * <p>The fork / join pool needs Android API level 21 or later.
+ */
+public class LloydRelaxer {
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a relaxer which runs in the library's
+     * {@link SharedPool shared fork / join pool}.
+     */
+    public LloydRelaxer() {
+        this(SharedPool.get());
+    }
+
+
+    /**
+     * Create a relaxer which runs in a given fork / join pool.
+     *
+     * @param  pool        The pool to run the centroid stage in; if
+     *                     null, everything runs in the calling thread.
+     */
+    public LloydRelaxer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+
+    // ******************************************************************** //
+    // Relaxation.
+    // ******************************************************************** //
+
+    /**
+     * Prepare to relax the given sites.
+     *
+     * @param  sites       The initial sites.  These are copied; they
+     *                     should lie within the region.
+     * @param  region      The region of the plane to tessellate.
+     */
+    public void prepare(Point[] sites, Region region) {
+        dataRegion = region;
+        numSites = sites.length;
+        siteXs = new double[numSites];
+        siteYs = new double[numSites];
+        for (int i = 0; i < numSites; ++i) {
+            siteXs[i] = sites[i].getX();
+            siteYs[i] = sites[i].getY();
+        }
+        allocate();
+    }
+
+
+    /**
+     * Prepare to relax the sites held in a point cloud.
+     *
+     * @param  sites       The initial sites.  These are copied; they
+     *                     should lie within the region.
+     * @param  region      The region of the plane to tessellate.
+     */
+    public void prepare(PointCloud sites, Region region) {
+        dataRegion = region;
+        numSites = sites.size();
+        siteXs = new double[numSites];
+        siteYs = new double[numSites];
+        sites.copyXs(0, siteXs, 0, numSites);
+        sites.copyYs(0, siteYs, 0, numSites);
+        allocate();
+    }
+
+
+    /**
+     * Set up the storage which is re-used on each round, once the
+     * site co-ordinates have been copied in.
+     */
+    private void allocate() {
+        siteCloud = new PointCloud(siteXs, siteYs);
+        moved = new boolean[numSites];
+        cells = null;
+        rmsMove = 0;
+    }
+
+
+    /**
+     * Run one round of relaxation, moving each site to the centroid of
+     * its cell.  Where two sites are equal, only the first is moved.
+     *
+     * @return             true if no site moved significantly.
+     */
+    public boolean iterate() {
+        // The cloud wraps our site arrays, so it always has the
+        // current sites.
+        final VoronoiDiagram diagram = Fortune.ComputeVoronoiDiagram(siteCloud);
+        cells = new VoronoiCells(diagram, dataRegion, pool);
+
+        Arrays.fill(moved, 0, diagram.getNumSites(), false);
+        boolean dirty = false;
+        double sum = 0;
+        for (int i = 0; i < numSites; ++i) {
+            final int s = diagram.getInputSite(i);
+            if (moved[s])
+                continue;
+            moved[s] = true;
+
+            final double nx = cells.getCentroidX(s);
+            final double ny = cells.getCentroidY(s);
+            final double dx = nx - siteXs[i];
+            final double dy = ny - siteYs[i];
+            sum += dx * dx + dy * dy;
+            if (!MathTools.eq(siteXs[i], nx) || !MathTools.eq(siteYs[i], ny))
+                dirty = true;
+            siteXs[i] = nx;
+            siteYs[i] = ny;
+        }
+        rmsMove = numSites > 0 ? Math.sqrt(sum / numSites) : 0;
+
+        return !dirty;
+    }
+
+
+    /**
+     * Run a number of rounds of relaxation, stopping early if the
+     * sites stop moving.
+     *
+     * @param  rounds      The maximum number of rounds to run.
+     * @return             The metric for each round that was run.
+     */
+    public double[] relax(int rounds) {
+        final double[] metrics = new double[rounds];
+        int r = 0;
+        while (r < rounds) {
+            final boolean converged = iterate();
+            metrics[r++] = rmsMove;
+            if (converged)
+                break;
+        }
+        if (r == rounds)
+            return metrics;
+        final double[] done = new double[r];
+        System.arraycopy(metrics, 0, done, 0, r);
+        return done;
+    }
+
+
+    /**
+     * Get the convergence metric for the latest round.
+     *
+     * @return             The RMS distance the sites moved in the last
+     *                     call to {@link #iterate()}; small is better.
+     */
+    public double metric() {
+        return rmsMove;
+    }
+
+
+    // ******************************************************************** //
+    // Results.
+    // ******************************************************************** //
+
+    /**
+     * Get the current X co-ordinate of a site.
+     *
+     * @param  i           The index of the site, as passed to prepare().
+     * @return             Its X co-ordinate.
+     */
+    public double getSiteX(int i) {
+        return siteXs[i];
+    }
+
+
+    /**
+     * Get the current Y co-ordinate of a site.
+     *
+     * @param  i           The index of the site, as passed to prepare().
+     * @return             Its Y co-ordinate.
+     */
+    public double getSiteY(int i) {
+        return siteYs[i];
+    }
+
+
+    /**
+     * Get the current sites.
+     *
+     * @return             A new array of the sites, in the order they
+     *                     were passed to prepare().
+     */
+    public Point[] getSites() {
+        final Point[] sites = new Point[numSites];
+        for (int i = 0; i < numSites; ++i)
+            sites[i] = new Point(siteXs[i], siteYs[i]);
+        return sites;
+    }
+
+
+    /**
+     * Get the cells computed in the latest round.  Note that the sites
+     * have since been moved to the centroids of these cells.
+     *
+     * @return             The clipped cells, or null if no round has
+     *                     been run yet.
+     */
+    public VoronoiCells getCells() {
+        return cells;
+    }
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The pool we run the centroid stage in.
+    private final ForkJoinPool pool;
+
+    // The region of the plane we're tessellating.
+    private Region dataRegion;
+
+    // The number of sites, and their current co-ordinates.
+    private int numSites;
+    private double[] siteXs;
+    private double[] siteYs;
+
+    // Point cloud which wraps siteXs and siteYs.
+    private PointCloud siteCloud;
+
+    // Flag for each site, set once it has been moved in this round.
+    private boolean[] moved;
+
+    // The cells from the latest round.
+    private VoronoiCells cells = null;
+
+    // RMS distance the sites moved in the latest round.
+    private double rmsMove = 0;
+
+}
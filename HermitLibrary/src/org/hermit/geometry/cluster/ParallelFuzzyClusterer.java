@@ -0,0 +1,491 @@
+
+/**
+ * cluster: routines for cluster analysis.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry.cluster;
+
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hermit.geometry.MathTools;
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+import org.hermit.utils.SharedPool;
+
+
+/**
+ * An implementation of the fuzzy c-means clustering algorithm for large
+ * data sets.
+ *
+ * <p>This produces the same kind of solution as {@link FuzzyClusterer},
+ * but is built to scale to millions of points:
+ * <ul>
+ * <li>The points are held as flat arrays of X and Y co-ordinates, and
+ *     the memberships as a single flat array, with the memberships of
+ *     point p at index p * numClusters.</li>
+ * <li>The membership of each point in each cluster is worked out from
+ *     its distances to all the centroids in one pass, rather than one
+ *     pass per cluster; and for the usual fuzziness of 2, without any
+ *     calls to Math.pow().</li>
+ * <li>The points are split into blocks across a fork / join pool.  As
+ *     each task computes the memberships for its points, it accumulates
+ *     the weighted sums for the new centroids in its own arrays; these
+ *     are merged as the tasks complete, so no separate pass is needed
+ *     to compute the centroids.</li>
+ * </ul>
+ *
+ * <p>On Android, the fork / join pool needs API level 21 or later.
+ */
+public class ParallelFuzzyClusterer
+    extends Clusterer
+{
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a fuzzy clusterer with a fuzziness of 2, which runs in the
+     * library's {@link SharedPool shared fork / join pool}.
+     */
+    public ParallelFuzzyClusterer() {
+        this(SharedPool.get(), 2.0, new Random());
+    }
+
+
+    /**
+     * Create a fuzzy clusterer.
+     *
+     * @param  pool        The pool to run the clustering in.
+     * @param  m           The fuzziness exponent.  Must be > 1; 2 is
+     *                     usual, and is the fastest.
+     * @param  rnd         The random number generator to use for the
+     *                     initial centroids.
+     */
+    public ParallelFuzzyClusterer(ForkJoinPool pool, double m, Random rnd) {
+        if (!(m > 1.0))
+            throw new IllegalArgumentException("ParallelFuzzyClusterer: " +
+                                               "fuzziness must be > 1");
+        this.pool = pool;
+        this.rnd = rnd;
+        fuzziness = m;
+    }
+
+
+    // ******************************************************************** //
+    // Clustering.
+    // ******************************************************************** //
+
+    /**
+     * Prepare a clustering pass on the indicated data.
+     *
+     * @param  points      The array of dataPoints to be clustered.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    @Override
+    public void prepare(Point[] points, int[] ids, double[][] means, Region region) {
+        super.prepare(points, ids, means, region);
+
+        int n = points.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        prepare(xs, ys, ids, means, region);
+    }
+
+
+    /**
+     * Prepare a clustering pass on data held in a point cloud.  If the
+     * cloud is backed by arrays of exactly its size, they are used
+     * directly, with no copying.
+     *
+     * @param  cloud       The points to be clustered.  The caller must
+     *                     leave the data here intact between iterations.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    @Override
+    public void prepare(PointCloud cloud, int[] ids, double[][] means, Region region) {
+        prepare(cloud.xArray(), cloud.yArray(), ids, means, region);
+    }
+
+
+    /**
+     * Prepare a clustering pass on data given as flat co-ordinate arrays.
+     *
+     * @param  xs          The X co-ordinates of the points to be clustered.
+     *                     The caller must leave the data here intact
+     *                     between iterations.
+     * @param  ys          The Y co-ordinates of the points to be clustered.
+     *                     The caller must leave the data here intact
+     *                     between iterations.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to most strongly.  The caller must leave
+     *                     the data here intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    public void prepare(double[] xs, double[] ys, int[] ids, double[][] means,
+                        Region region)
+    {
+        if (ys.length != xs.length || ids.length < xs.length)
+            throw new IllegalArgumentException("ParallelFuzzyClusterer: " +
+                                               "array sizes do not match");
+        if ((long) xs.length * means.length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("ParallelFuzzyClusterer: " +
+                                               xs.length + " points in " +
+                                               means.length + " clusters" +
+                                               " is too many memberships");
+
+        // Save the data arrays.
+        pointXs = xs;
+        pointYs = ys;
+        pointClusters = ids;
+        clusterMeans = means;
+        numPoints = xs.length;
+        numClusters = means.length;
+
+        // Set up the working arrays.
+        memberships = new double[numPoints * numClusters];
+        meanXs = new double[numClusters];
+        meanYs = new double[numClusters];
+
+        // Set the initial cluster centroids to be random values
+        // within the data region.
+        double x = region.getX1();
+        double y = region.getY1();
+        double w = region.getWidth();
+        double h = region.getHeight();
+        for (int c = 0; c < numClusters; ++c) {
+            meanXs[c] = means[c][0] = rnd.nextDouble() * w + x;
+            meanYs[c] = means[c][1] = rnd.nextDouble() * h + y;
+        }
+
+        // Make an initial assignment of points to clusters, so on the first
+        // iteration we have a basis for computing centroids.
+        assignPoints();
+    }
+
+
+    /**
+     * Runs a single iteration of the clustering algorithm on the stored data.
+     * The results are stored in the arrays that were passed into
+     * {@link #prepare(Point[], int[], double[][], Region)}.
+     *
+     * <p>After each iteration, the cluster IDs and cluster means should
+     * be consistent with each other.
+     *
+     * @return             true if the algorithm has converged.
+     */
+    @Override
+    public boolean iterate() {
+        // Compute the new centroids of the clusters, based on the sums
+        // gathered by the last assignment.
+        boolean converged = computeCentroids();
+
+        // Assign data points to clusters based on the new centroids.
+        if (!converged)
+            assignPoints();
+
+        // Our convergence criterion is no change in the means.
+        return converged;
+    }
+
+
+    /**
+     * Calculate a quality metric for the current clustering solution.
+     * This number is available after each call to {@link #iterate()}.
+     *
+     * @return             Quality metric for this solution; small is better.
+     */
+    @Override
+    public double metric() {
+        return sumDistSquared;
+    }
+
+
+    /**
+     * Get the membership matrix for the current solution.
+     *
+     * @return             The degree to which each point belongs to each
+     *                     cluster.  The membership of point p in cluster
+     *                     c is at index p * numClusters + c.  This is the
+     *                     clusterer's working array, and is overwritten on
+     *                     each iteration.
+     */
+    public double[] getMemberships() {
+        return memberships;
+    }
+
+
+    // ******************************************************************** //
+    // Iteration.
+    // ******************************************************************** //
+
+    /**
+     * Compute the centroids of all the clusters from the weighted sums
+     * gathered by the last call to {@link #assignPoints()}.
+     *
+     * @return              true iff none of the means moved by a significant
+     *                      amount.
+     */
+    private boolean computeCentroids() {
+        boolean dirty = false;
+        for (int c = 0; c < numClusters; ++c) {
+            // If no point has any weight in this cluster, leave it where
+            // it is.
+            if (!(sumWeights[c] > 0))
+                continue;
+
+            final double nx = sumXs[c] / sumWeights[c];
+            final double ny = sumYs[c] / sumWeights[c];
+            if (!MathTools.eq(meanXs[c], nx) || !MathTools.eq(meanYs[c], ny)) {
+                meanXs[c] = clusterMeans[c][0] = nx;
+                meanYs[c] = clusterMeans[c][1] = ny;
+                dirty = true;
+            }
+        }
+
+        return !dirty;
+    }
+
+
+    /**
+     * Calculate the membership of each point in each cluster, and gather
+     * the sums needed to compute the new centroids.
+     */
+    private void assignPoints() {
+        Assign task = new Assign(0, numPoints);
+        if (numPoints <= LEAF_SIZE)
+            task.invoke();
+        else
+            pool.invoke(task);
+        sumXs = task.sumX;
+        sumYs = task.sumY;
+        sumWeights = task.sumW;
+        sumDistSquared = task.dist;
+    }
+
+
+    /**
+     * A task which calculates the memberships of the points in a range.
+     * Each leaf task gathers its own weighted sums of the points in each
+     * cluster; these are merged up the tree of tasks.
+     */
+    private final class Assign extends RecursiveAction {
+        Assign(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_SIZE) {
+                computeDirect();
+                return;
+            }
+
+            int mid = (start + end) >>> 1;
+            Assign left = new Assign(start, mid);
+            Assign right = new Assign(mid, end);
+            invokeAll(left, right);
+
+            // Merge the results.  We take over the left task's arrays.
+            sumX = left.sumX;
+            sumY = left.sumY;
+            sumW = left.sumW;
+            for (int c = 0; c < numClusters; ++c) {
+                sumX[c] += right.sumX[c];
+                sumY[c] += right.sumY[c];
+                sumW[c] += right.sumW[c];
+            }
+            dist = left.dist + right.dist;
+        }
+
+        /**
+         * Calculate the memberships for this task's points.
+         *
+         * <p>The membership of point p in cluster c is
+         * 1 / sum over j of (d[c] / d[j])^(2 / (m - 1)), where d[j] is the
+         * distance from p to centroid j.  That is the same as
+         * w[c] / sum over j of w[j], where w[j] = (d[j]^2)^(-1 / (m - 1));
+         * so we only need one power per cluster, not one per pair of
+         * clusters.  For m = 2, w[j] is just 1 / d[j]^2.
+         */
+        private void computeDirect() {
+            final double[] xs = pointXs;
+            final double[] ys = pointYs;
+            final double[] mxs = meanXs;
+            final double[] mys = meanYs;
+            final double[] u = memberships;
+            final int[] ids = pointClusters;
+            final int k = numClusters;
+            final boolean m2 = fuzziness == 2.0;
+            final double m = fuzziness;
+            final double exp = -1.0 / (m - 1.0);
+
+            sumX = new double[k];
+            sumY = new double[k];
+            sumW = new double[k];
+            double d2sum = 0;
+            for (int p = start; p < end; ++p) {
+                final double x = xs[p];
+                final double y = ys[p];
+                final int row = p * k;
+
+                // Put the inverse-distance weights in the membership row,
+                // and find the closest centroid.
+                int closest = 0;
+                double minDistance = Double.MAX_VALUE;
+                double total = 0;
+                for (int c = 0; c < k; ++c) {
+                    final double dx = x - mxs[c];
+                    final double dy = y - mys[c];
+                    final double d = dx * dx + dy * dy;
+                    if (d < minDistance) {
+                        minDistance = d;
+                        closest = c;
+                    }
+                    final double w = m2 ? 1.0 / d : Math.pow(d, exp);
+                    u[row + c] = w;
+                    total += w;
+                }
+                ids[p] = closest;
+                d2sum += minDistance;
+
+                // Normalize the weights to get the memberships.  If the
+                // point is right on a centroid, it belongs only to that
+                // cluster.
+                if (minDistance == 0 || Double.isInfinite(total)) {
+                    for (int c = 0; c < k; ++c)
+                        u[row + c] = 0.0;
+                    u[row + closest] = 1.0;
+                } else {
+                    final double scale = 1.0 / total;
+                    for (int c = 0; c < k; ++c)
+                        u[row + c] *= scale;
+                }
+
+                // Accumulate the weighted sums for the centroids; each
+                // point is weighted by its membership to the power m.
+                for (int c = 0; c < k; ++c) {
+                    final double uc = u[row + c];
+                    final double w = m2 ? uc * uc : Math.pow(uc, m);
+                    sumX[c] += w * x;
+                    sumY[c] += w * y;
+                    sumW[c] += w;
+                }
+            }
+            dist = d2sum;
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start, end;
+
+        // Results: the weighted sums of the co-ordinates of the points in
+        // each cluster, the sums of the weights, and the sum of the
+        // squared distances from each point to its closest mean.
+        double[] sumX;
+        double[] sumY;
+        double[] sumW;
+        double dist;
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The number of points below which we don't split up the work.
+    private static final int LEAF_SIZE = 4096;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The pool we run the calculations in.
+    private final ForkJoinPool pool;
+
+    // RNG used to set initial mean values.
+    private final Random rnd;
+
+    // M (power factor) used for calculating weights.  Must be > 1.0.
+    private final double fuzziness;
+
+    // The number of points in the data set on a given pass.
+    private int numPoints;
+
+    // The desired number of clusters.
+    private int numClusters;
+
+    // During a pass -- multiple iterations -- these point to the
+    // co-ordinates of the data points.
+    private double[] pointXs;
+    private double[] pointYs;
+
+    // Cluster IDs to which the points most strongly belong in the most
+    // recent iteration.  This will be null if prepare() hasn't been called,
+    // and is filled in by each call to iterate().
+    private int[] pointClusters = null;
+
+    // Calculated centroid positions of the clusters.  This will be null
+    // if prepare() hasn't been called, and is filled in by each call
+    // to iterate().
+    private double[][] clusterMeans = null;
+
+    // Working copy of the centroids, as flat arrays.
+    private double[] meanXs;
+    private double[] meanYs;
+
+    // For each point p, memberships[p * numClusters + c] is its degree of
+    // belonging to each cluster c.
+    private double[] memberships;
+
+    // The sum of the squares of the distances from each point to the mean
+    // of its closest cluster in the current solution.
+    private double sumDistSquared = 0.0;
+
+    // Weighted sums gathered by the most recent assignment, used to
+    // compute the centroids.
+    private double[] sumXs;
+    private double[] sumYs;
+    private double[] sumWeights;
+
+}
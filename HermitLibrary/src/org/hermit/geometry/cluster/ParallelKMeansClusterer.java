@@ -0,0 +1,590 @@
+
+/**
+ * cluster: routines for cluster analysis.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry.cluster;
+
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hermit.geometry.KdTree;
+import org.hermit.geometry.MathTools;
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+import org.hermit.utils.SharedPool;
+
+
+/**
+ * An implementation of Lloyd's k-means clustering algorithm for large
+ * data sets.
+ *
+ * <p>This produces the same kind of solution as {@link KMeansClusterer},
+ * but is built to scale to millions of points:
+ * <ul>
+ * <li>The points are held as two flat arrays of X and Y co-ordinates,
+ *     rather than as Point objects.  Data which is already in that form
+ *     can be passed straight to
+ *     {@link #prepare(double[], double[], int[], double[][])}.</li>
+ * <li>The assignment of points to clusters is split across a fork / join
+ *     pool.  Each task accumulates the sums for the new centroids as it
+ *     goes, in its own arrays; these are merged as the tasks complete,
+ *     so no separate pass is needed to compute the centroids.</li>
+ * <li>The initial centroids are chosen by k-means++ seeding: each one is
+ *     a data point, picked with probability proportional to its squared
+ *     distance from the centroids already chosen.  This gives a much
+ *     better start than random points in the region, and so fewer
+ *     iterations.</li>
+ * </ul>
+ *
+ * <p>The work is split up the same way regardless of the number of
+ * threads, so for a given random seed the results are repeatable.
+ * On Android, this needs API level 21, for ForkJoinPool.
+ */
+public class ParallelKMeansClusterer
+    extends Clusterer
+{
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a clusterer which runs in the library's
+     * {@link SharedPool shared fork / join pool}.
+     */
+    public ParallelKMeansClusterer() {
+        this(SharedPool.get(), new Random());
+    }
+
+
+    /**
+     * Create a clusterer which runs in a given fork / join pool.
+     *
+     * @param  pool        The pool to run the clustering in.
+     * @param  rnd         The random number generator to use for seeding.
+     */
+    public ParallelKMeansClusterer(ForkJoinPool pool, Random rnd) {
+        this.pool = pool;
+        this.rnd = rnd;
+    }
+
+
+    // ******************************************************************** //
+    // Clustering.
+    // ******************************************************************** //
+
+    /**
+     * Prepare a clustering pass on the indicated data.
+     *
+     * @param  points      The array of dataPoints to be clustered.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    @Override
+    public void prepare(Point[] points, int[] ids, double[][] means, Region region) {
+        super.prepare(points, ids, means, region);
+
+        int n = points.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        prepare(xs, ys, ids, means);
+    }
+
+
+    /**
+     * Prepare a clustering pass on data held in a point cloud.  If the
+     * cloud is backed by arrays of exactly its size, they are used
+     * directly, with no copying.
+     *
+     * @param  cloud       The points to be clustered.  The caller must
+     *                     leave the data here intact between iterations.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     * @param  region      The region of the plane in which the points lie.
+     */
+    @Override
+    public void prepare(PointCloud cloud, int[] ids, double[][] means, Region region) {
+        prepare(cloud.xArray(), cloud.yArray(), ids, means);
+    }
+
+
+    /**
+     * Prepare a clustering pass on data given as flat co-ordinate arrays.
+     *
+     * @param  xs          The X co-ordinates of the points to be clustered.
+     *                     The caller must leave the data here intact
+     *                     between iterations.
+     * @param  ys          The Y co-ordinates of the points to be clustered.
+     *                     The caller must leave the data here intact
+     *                     between iterations.
+     * @param  ids         Array of cluster numbers which this call will
+     *                     fill in, defining which cluster each point
+     *                     belongs to.  The caller must leave the data here
+     *                     intact between iterations.
+     * @param  means       Array of x,y values in which to place centroids
+     *                     of the clusters.
+     */
+    public void prepare(double[] xs, double[] ys, int[] ids, double[][] means) {
+        if (ys.length != xs.length || ids.length < xs.length)
+            throw new IllegalArgumentException("ParallelKMeansClusterer: " +
+                                               "array sizes do not match");
+        if (xs.length < means.length)
+            throw new IllegalArgumentException("ParallelKMeansClusterer: " +
+                                               "fewer points than clusters");
+
+        // Save the data arrays.
+        pointXs = xs;
+        pointYs = ys;
+        pointClusters = ids;
+        clusterMeans = means;
+        numPoints = xs.length;
+        numClusters = means.length;
+
+        // Make the working data arrays.
+        meanXs = new double[numClusters];
+        meanYs = new double[numClusters];
+
+        // Choose the initial centroids.
+        seedMeans();
+
+        // Make an initial assignment of points to clusters, so on the first
+        // iteration we have a basis for computing centroids.
+        assignPoints();
+    }
+
+
+    /**
+     * Runs a single iteration of the clustering algorithm on the stored data.
+     * The results are stored in the arrays that were passed into
+     * {@link #prepare(Point[], int[], double[][], Region)}.
+     *
+     * <p>After each iteration, the cluster IDs and cluster means should
+     * be consistent with each other.
+     *
+     * @return             true if the algorithm has converged.
+     */
+    @Override
+    public boolean iterate() {
+        // Compute the new centroids of the clusters, based on the sums
+        // gathered by the last assignment.
+        boolean converged = computeCentroids();
+
+        // Assign data points to clusters based on the new centroids.
+        if (!converged)
+            assignPoints();
+
+        // Our convergence criterion is no change in the means.
+        return converged;
+    }
+
+
+    /**
+     * Calculate a quality metric for the current clustering solution.
+     * This number is available after each call to {@link #iterate()}.
+     *
+     * @return             Quality metric for this solution; small is better.
+     */
+    @Override
+    public double metric() {
+        return sumDistSquared;
+    }
+
+
+    // ******************************************************************** //
+    // Seeding.
+    // ******************************************************************** //
+
+    /**
+     * Choose the initial cluster centroids using k-means++ seeding.
+     *
+     * <p>We use the "greedy" form of k-means++: at each step several
+     * candidates are drawn, and the one which most reduces the total
+     * squared distance is kept.  This makes it much less likely that
+     * two seeds land in the same cluster.
+     */
+    private void seedMeans() {
+        // Working array: the squared distance from each point to the
+        // closest centroid chosen so far.
+        double[] nearest = new double[numPoints];
+        Arrays.fill(nearest, Double.MAX_VALUE);
+
+        // The number of candidates to try for each centroid.
+        int trials = 2 + (int) Math.log(numClusters);
+
+        // The first centroid is just a random point.
+        int p = rnd.nextInt(numPoints);
+        double total = 0;
+        for (int c = 0; c < numClusters; ++c) {
+            if (c > 0) {
+                // Draw candidates with probability proportional to the
+                // squared distance, and keep the best.  If every point is
+                // on a centroid already, just pick one at random.
+                if (total > 0) {
+                    double bestSum = Double.MAX_VALUE;
+                    for (int t = 0; t < trials; ++t) {
+                        int cand = pickWeighted(nearest, total);
+                        Seed trial = new Seed(nearest, pointXs[cand], pointYs[cand],
+                                              false, 0, numPoints);
+                        run(trial);
+                        if (trial.sum < bestSum) {
+                            bestSum = trial.sum;
+                            p = cand;
+                        }
+                    }
+                } else
+                    p = rnd.nextInt(numPoints);
+            }
+
+            meanXs[c] = pointXs[p];
+            meanYs[c] = pointYs[p];
+
+            // Update the distances to take account of the new centroid.
+            if (c < numClusters - 1) {
+                Seed task = new Seed(nearest, pointXs[p], pointYs[p],
+                                     true, 0, numPoints);
+                run(task);
+                total = task.sum;
+            }
+        }
+
+        for (int c = 0; c < numClusters; ++c) {
+            clusterMeans[c][0] = meanXs[c];
+            clusterMeans[c][1] = meanYs[c];
+        }
+    }
+
+
+    /**
+     * Pick a point at random, with probability proportional to its
+     * weight.
+     *
+     * @param  weights     The weight of each point.
+     * @param  total       The sum of the weights; must be positive.
+     * @return             The index of the chosen point.
+     */
+    private int pickWeighted(double[] weights, double total) {
+        double r = rnd.nextDouble() * total;
+        double acc = 0;
+        for (int i = 0; i < numPoints; ++i) {
+            acc += weights[i];
+            if (acc > r)
+                return i;
+        }
+        return numPoints - 1;
+    }
+
+
+    /**
+     * A task which works out the squared distance from each point in a
+     * range to its nearest centroid, taking into account a new candidate
+     * centroid, and sums the distances.  The working distances are
+     * updated only if the candidate is being accepted.
+     */
+    private final class Seed extends RecursiveAction {
+        Seed(double[] nearest, double cx, double cy, boolean update,
+             int start, int end)
+        {
+            this.nearest = nearest;
+            this.cx = cx;
+            this.cy = cy;
+            this.update = update;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_SIZE) {
+                double s = 0;
+                for (int i = start; i < end; ++i) {
+                    final double dx = pointXs[i] - cx;
+                    final double dy = pointYs[i] - cy;
+                    final double d = Math.min(dx * dx + dy * dy, nearest[i]);
+                    if (update)
+                        nearest[i] = d;
+                    s += d;
+                }
+                sum = s;
+                return;
+            }
+
+            int mid = (start + end) >>> 1;
+            Seed left = new Seed(nearest, cx, cy, update, start, mid);
+            Seed right = new Seed(nearest, cx, cy, update, mid, end);
+            invokeAll(left, right);
+            sum = left.sum + right.sum;
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] nearest;
+        private final double cx, cy;
+        private final boolean update;
+        private final int start, end;
+
+        // Result: the sum of the squared distances in this range.
+        double sum = 0;
+    }
+
+
+    // ******************************************************************** //
+    // Iteration.
+    // ******************************************************************** //
+
+    /**
+     * Compute the centroids of all the clusters from the sums gathered
+     * by the last call to {@link #assignPoints()}.
+     *
+     * @return              true iff none of the means moved by a significant
+     *                      amount.
+     */
+    private boolean computeCentroids() {
+        boolean dirty = false;
+        for (int c = 0; c < numClusters; ++c) {
+            int s = clusterSizes[c];
+
+            // If the cluster is empty, move it to a random data point.
+            // Else calculate the average of the points in the cluster.
+            double nx, ny;
+            if (s == 0) {
+                int p = rnd.nextInt(numPoints);
+                nx = pointXs[p];
+                ny = pointYs[p];
+            } else {
+                nx = sumXs[c] / s;
+                ny = sumYs[c] / s;
+            }
+            if (!MathTools.eq(meanXs[c], nx) || !MathTools.eq(meanYs[c], ny)) {
+                meanXs[c] = nx;
+                meanYs[c] = ny;
+                clusterMeans[c][0] = nx;
+                clusterMeans[c][1] = ny;
+                dirty = true;
+            }
+        }
+
+        return !dirty;
+    }
+
+
+    /**
+     * Assign each point in the data array to the cluster whose centroid
+     * it is closest to, and gather the sums needed to compute the new
+     * centroids.
+     */
+    private void assignPoints() {
+        // With many clusters, find the closest means through a spatial
+        // index.  It is immutable, so the tasks can share it.
+        meanIndex = numClusters >= INDEX_THRESHOLD ? new KdTree(meanXs, meanYs) : null;
+
+        Assign task = new Assign(0, numPoints);
+        run(task);
+        sumXs = task.sumX;
+        sumYs = task.sumY;
+        clusterSizes = task.count;
+        sumDistSquared = task.dist;
+    }
+
+
+    /**
+     * A task which assigns the points in a range to their closest
+     * clusters.  Each leaf task gathers its own sums of the points
+     * in each cluster; these are merged up the tree of tasks.
+     */
+    private final class Assign extends RecursiveAction {
+        Assign(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_SIZE) {
+                computeDirect();
+                return;
+            }
+
+            int mid = (start + end) >>> 1;
+            Assign left = new Assign(start, mid);
+            Assign right = new Assign(mid, end);
+            invokeAll(left, right);
+
+            // Merge the results.  We take over the left task's arrays.
+            sumX = left.sumX;
+            sumY = left.sumY;
+            count = left.count;
+            for (int c = 0; c < numClusters; ++c) {
+                sumX[c] += right.sumX[c];
+                sumY[c] += right.sumY[c];
+                count[c] += right.count[c];
+            }
+            dist = left.dist + right.dist;
+        }
+
+        private void computeDirect() {
+            final double[] xs = pointXs;
+            final double[] ys = pointYs;
+            final double[] mxs = meanXs;
+            final double[] mys = meanYs;
+            final int[] ids = pointClusters;
+            final int k = numClusters;
+            final KdTree index = meanIndex;
+
+            sumX = new double[k];
+            sumY = new double[k];
+            count = new int[k];
+            double d2 = 0;
+            for (int i = start; i < end; ++i) {
+                // Find the closest mean to the current data point.
+                final double x = xs[i];
+                final double y = ys[i];
+                int closest = 0;
+                double minDistance = Double.MAX_VALUE;
+                if (index != null) {
+                    closest = index.nearest(x, y);
+                    final double dx = x - mxs[closest];
+                    final double dy = y - mys[closest];
+                    minDistance = dx * dx + dy * dy;
+                } else {
+                    for (int c = 0; c < k; ++c) {
+                        final double dx = x - mxs[c];
+                        final double dy = y - mys[c];
+                        final double d = dx * dx + dy * dy;
+                        if (d < minDistance) {
+                            minDistance = d;
+                            closest = c;
+                        }
+                    }
+                }
+
+                ids[i] = closest;
+                sumX[closest] += x;
+                sumY[closest] += y;
+                ++count[closest];
+                d2 += minDistance;
+            }
+            dist = d2;
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start, end;
+
+        // Results: the sums of the co-ordinates of the points in each
+        // cluster, the number of points in each cluster, and the sum of
+        // the squared distances from each point to its mean.
+        double[] sumX;
+        double[] sumY;
+        int[] count;
+        double dist;
+    }
+
+
+    /**
+     * Run a task.  Small jobs are run directly in the caller's thread.
+     *
+     * @param  task        The task to run.
+     */
+    private void run(RecursiveAction task) {
+        if (numPoints <= LEAF_SIZE)
+            task.invoke();
+        else
+            pool.invoke(task);
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The number of points below which we don't split up the work.
+    private static final int LEAF_SIZE = 8192;
+
+    // The number of clusters at which we start using a spatial index
+    // to find the closest mean to each point.
+    private static final int INDEX_THRESHOLD = 32;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The pool we run the calculations in.
+    private final ForkJoinPool pool;
+
+    // RNG used for seeding.
+    private final Random rnd;
+
+    // The number of points in the data set on a given pass.
+    private int numPoints;
+
+    // The desired number of clusters.
+    private int numClusters;
+
+    // During a pass -- multiple iterations -- these point to the
+    // co-ordinates of the data points.
+    private double[] pointXs;
+    private double[] pointYs;
+
+    // Cluster IDs to which the points have been assigned by the most
+    // recent iteration.  This will be null if prepare() hasn't been called,
+    // and is filled in by each call to iterate().
+    private int[] pointClusters = null;
+
+    // Calculated centroid positions of the clusters.  This will be null
+    // if prepare() hasn't been called, and is filled in by each call
+    // to iterate().
+    private double[][] clusterMeans = null;
+
+    // Working copy of the centroids, as flat arrays.
+    private double[] meanXs;
+    private double[] meanYs;
+
+    // Spatial index over the centroids for the current assignment, or
+    // null if there are too few clusters to need one.
+    private KdTree meanIndex = null;
+
+    // The sum of the squares of the distances from each point to the mean
+    // of its assigned cluster in the current solution.
+    private double sumDistSquared = 0.0;
+
+    // Sums and counts gathered by the most recent assignment, used to
+    // average the clusters.
+    private double[] sumXs;
+    private double[] sumYs;
+    private int[] clusterSizes;
+
+}
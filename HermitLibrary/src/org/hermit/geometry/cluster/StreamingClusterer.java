@@ -0,0 +1,466 @@
+
+/**
+ * cluster: routines for cluster analysis.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry.cluster;
+
+
+import java.util.Random;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+
+
+/**
+ * A k-means clusterer for an unbounded stream of points, using the
+ * mini-batch algorithm described by D. Sculley in "Web-Scale K-Means
+ * Clustering" (WWW 2010).
+ *
+ * <p>Unlike the {@link Clusterer} implementations, this doesn't need the
+ * whole data set up front.  Points are fed in one at a time with
+ * {@link #add(double, double)}, or in batches with
+ * {@link #add(double[], double[], int, int)}.  Each point in a batch is
+ * assigned to its closest centroid, and then each centroid is moved
+ * towards its new points, with a learning rate of 1 over the number of
+ * points it has taken so far; so each centroid is the running mean of
+ * its points.  Adding points one at a time gives MacQueen's online
+ * k-means.
+ *
+ * <p>The initial centroids are chosen by k-means++ seeding on the first
+ * few points of the stream, which are buffered for the purpose.  Apart
+ * from that buffer, and the working space for the largest batch, the
+ * memory used is proportional to the number of clusters, not to the
+ * number of points.
+ *
+ * <p>If the stream changes over time, a decay factor can be set, which
+ * makes older points count for less; this stops the learning rates
+ * dropping to zero, so the centroids can follow the data.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class StreamingClusterer
+{
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a streaming clusterer, which weights all points equally.
+     *
+     * @param  nclusters   The desired number of clusters.
+     */
+    public StreamingClusterer(int nclusters) {
+        this(nclusters, 1.0, new Random());
+    }
+
+
+    /**
+     * Create a streaming clusterer.
+     *
+     * @param  nclusters   The desired number of clusters.
+     * @param  decay       The factor by which the weight of the existing
+     *                     data is reduced for each new point; 1 to weight
+     *                     all points equally.  Must be in the range 0 .. 1,
+     *                     and is normally very close to 1.
+     * @param  rnd         The random number generator to use for seeding.
+     */
+    public StreamingClusterer(int nclusters, double decay, Random rnd) {
+        if (nclusters < 1)
+            throw new IllegalArgumentException("StreamingClusterer: " +
+                                               "need at least one cluster");
+        if (!(decay > 0 && decay <= 1))
+            throw new IllegalArgumentException("StreamingClusterer: " +
+                                               "decay must be in 0 .. 1");
+
+        numClusters = nclusters;
+        decayFactor = decay;
+        this.rnd = rnd;
+
+        meanXs = new double[numClusters];
+        meanYs = new double[numClusters];
+        weights = new double[numClusters];
+
+        int nseed = numClusters * SEED_POINTS_PER_CLUSTER;
+        seedXs = new double[nseed];
+        seedYs = new double[nseed];
+        numSeedPoints = 0;
+        seeded = false;
+    }
+
+
+    // ******************************************************************** //
+    // Data Input.
+    // ******************************************************************** //
+
+    /**
+     * Add a single point to the stream.
+     *
+     * @param  x           The X co-ordinate of the point.
+     * @param  y           The Y co-ordinate of the point.
+     */
+    public void add(double x, double y) {
+        if (!seeded) {
+            buffer(x, y);
+            return;
+        }
+
+        int c = closest(x, y);
+        assignTo(c, x, y);
+        update(c, x, y);
+    }
+
+
+    /**
+     * Add a single point to the stream.
+     *
+     * @param  p           The point.
+     */
+    public void add(Point p) {
+        add(p.getX(), p.getY());
+    }
+
+
+    /**
+     * Add a batch of points to the stream.  All the points in the batch
+     * are assigned to clusters before any of the centroids are moved.
+     *
+     * @param  xs          Array containing the X co-ordinates of the points.
+     * @param  ys          Array containing the Y co-ordinates of the points.
+     * @param  off         Offset in xs and ys of the first point.
+     * @param  len         Number of points to add.
+     */
+    public void add(double[] xs, double[] ys, int off, int len) {
+        // Feed the seeding buffer first.
+        while (!seeded && len > 0) {
+            buffer(xs[off], ys[off]);
+            ++off;
+            --len;
+        }
+        if (len == 0)
+            return;
+
+        // Assign all the points in the batch to clusters.
+        if (batchIds == null || batchIds.length < len)
+            batchIds = new int[len];
+        for (int i = 0; i < len; ++i) {
+            double x = xs[off + i];
+            double y = ys[off + i];
+            int c = closest(x, y);
+            batchIds[i] = c;
+            assignTo(c, x, y);
+        }
+
+        // Now move the centroids.
+        for (int i = 0; i < len; ++i)
+            update(batchIds[i], xs[off + i], ys[off + i]);
+    }
+
+
+    /**
+     * Add a batch of points to the stream.  All the points in the batch
+     * are assigned to clusters before any of the centroids are moved.
+     *
+     * @param  points      The points to add.
+     */
+    public void add(Point[] points) {
+        int n = points.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        add(xs, ys, 0, n);
+    }
+
+
+    /**
+     * Add a batch of points to the stream.  All the points in the batch
+     * are assigned to clusters before any of the centroids are moved.
+     * If the cloud is backed by arrays, they are used directly.
+     *
+     * @param  cloud       The points to add.
+     */
+    public void add(PointCloud cloud) {
+        int n = cloud.size();
+        if (cloud.hasArray())
+            add(cloud.getXs(), cloud.getYs(), 0, n);
+        else
+            add(cloud.xArray(), cloud.yArray(), 0, n);
+    }
+
+
+    // ******************************************************************** //
+    // Results.
+    // ******************************************************************** //
+
+    /**
+     * Get the current cluster centroids.  If the initial centroids
+     * haven't been chosen yet, but we have enough points, this chooses
+     * them now.
+     *
+     * @param  means       Array of x,y values in which to place the
+     *                     centroids of the clusters.
+     * @return             The number of centroids placed in means.  This
+     *                     is less than the number of clusters only if
+     *                     fewer points than that have been added; in that
+     *                     case, the points themselves are returned.
+     */
+    public int getMeans(double[][] means) {
+        if (!seeded) {
+            if (numSeedPoints < numClusters) {
+                for (int i = 0; i < numSeedPoints; ++i) {
+                    means[i][0] = seedXs[i];
+                    means[i][1] = seedYs[i];
+                }
+                return numSeedPoints;
+            }
+            seed();
+        }
+
+        for (int c = 0; c < numClusters; ++c) {
+            means[c][0] = meanXs[c];
+            means[c][1] = meanYs[c];
+        }
+        return numClusters;
+    }
+
+
+    /**
+     * Get the number of points added so far.
+     *
+     * @return             The number of points added to the stream.
+     */
+    public long getNumPoints() {
+        return numPoints;
+    }
+
+
+    /**
+     * Calculate a quality metric for the current clustering solution.
+     * This is the mean of the squared distances from each point to
+     * the centroid it was assigned to when it was added, weighted by
+     * the decay factor if set.  Points in the seeding buffer are
+     * counted once the centroids have been chosen.
+     *
+     * @return             Quality metric for this solution; small is better.
+     */
+    public double metric() {
+        if (!seeded && numSeedPoints >= numClusters)
+            seed();
+        return metricWeight > 0 ? metricSum / metricWeight : 0.0;
+    }
+
+
+    // ******************************************************************** //
+    // Clustering.
+    // ******************************************************************** //
+
+    /**
+     * Add a point to the seeding buffer, and choose the initial
+     * centroids if it is full.
+     */
+    private void buffer(double x, double y) {
+        seedXs[numSeedPoints] = x;
+        seedYs[numSeedPoints] = y;
+        ++numSeedPoints;
+        ++numPoints;
+        if (numSeedPoints == seedXs.length)
+            seed();
+    }
+
+
+    /**
+     * Choose the initial centroids from the points in the seeding buffer,
+     * using greedy k-means++ seeding, and then feed the buffered points
+     * in as the first batch.
+     */
+    private void seed() {
+        final int n = numSeedPoints;
+        double[] nearest = new double[n];
+        for (int i = 0; i < n; ++i)
+            nearest[i] = Double.MAX_VALUE;
+        int trials = 2 + (int) Math.log(numClusters);
+
+        int p = rnd.nextInt(n);
+        double total = 0;
+        for (int c = 0; c < numClusters; ++c) {
+            if (c > 0) {
+                // Draw candidates with probability proportional to the
+                // squared distance, and keep the best.
+                if (total > 0) {
+                    double bestSum = Double.MAX_VALUE;
+                    for (int t = 0; t < trials; ++t) {
+                        int cand = pickWeighted(nearest, n, total);
+                        double sum = 0;
+                        for (int i = 0; i < n; ++i)
+                            sum += Math.min(nearest[i],
+                                            distSq(seedXs[i], seedYs[i],
+                                                   seedXs[cand], seedYs[cand]));
+                        if (sum < bestSum) {
+                            bestSum = sum;
+                            p = cand;
+                        }
+                    }
+                } else
+                    p = rnd.nextInt(n);
+            }
+
+            meanXs[c] = seedXs[p];
+            meanYs[c] = seedYs[p];
+            total = 0;
+            for (int i = 0; i < n; ++i) {
+                nearest[i] = Math.min(nearest[i],
+                                      distSq(seedXs[i], seedYs[i],
+                                             meanXs[c], meanYs[c]));
+                total += nearest[i];
+            }
+        }
+
+        // The buffered points go in as the first batch.  The buffer is
+        // no longer needed after that.
+        double[] xs = seedXs;
+        double[] ys = seedYs;
+        seedXs = seedYs = null;
+        seeded = true;
+        numPoints -= n;
+        add(xs, ys, 0, n);
+    }
+
+
+    /**
+     * Pick a buffered point at random, with probability proportional
+     * to its weight.
+     */
+    private int pickWeighted(double[] weights, int n, double total) {
+        double r = rnd.nextDouble() * total;
+        double acc = 0;
+        for (int i = 0; i < n; ++i) {
+            acc += weights[i];
+            if (acc > r)
+                return i;
+        }
+        return n - 1;
+    }
+
+
+    /**
+     * Find the centroid closest to a given point.
+     */
+    private int closest(double x, double y) {
+        int closest = 0;
+        double min = Double.MAX_VALUE;
+        for (int c = 0; c < numClusters; ++c) {
+            final double dx = x - meanXs[c];
+            final double dy = y - meanYs[c];
+            final double d = dx * dx + dy * dy;
+            if (d < min) {
+                min = d;
+                closest = c;
+            }
+        }
+        return closest;
+    }
+
+
+    /**
+     * Record the assignment of a point to a cluster in the metric.
+     */
+    private void assignTo(int c, double x, double y) {
+        metricSum = metricSum * decayFactor + distSq(x, y, meanXs[c], meanYs[c]);
+        metricWeight = metricWeight * decayFactor + 1.0;
+        ++numPoints;
+    }
+
+
+    /**
+     * Move a centroid towards a point assigned to it.  The learning rate
+     * is 1 over the (decayed) number of points the cluster has taken.
+     */
+    private void update(int c, double x, double y) {
+        if (decayFactor != 1.0) {
+            for (int o = 0; o < numClusters; ++o)
+                weights[o] *= decayFactor;
+        }
+        weights[c] += 1.0;
+        double η = 1.0 / weights[c];
+        meanXs[c] += η * (x - meanXs[c]);
+        meanYs[c] += η * (y - meanYs[c]);
+    }
+
+
+    /**
+     * Computes the squared Cartesian distance between two points.
+     */
+    private static final double distSq(double ax, double ay, double bx, double by) {
+        final double dx = ax - bx;
+        final double dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The number of points per cluster to buffer for seeding.
+    private static final int SEED_POINTS_PER_CLUSTER = 64;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The desired number of clusters.
+    private final int numClusters;
+
+    // Factor by which old data is down-weighted for each new point.
+    private final double decayFactor;
+
+    // RNG used for seeding.
+    private final Random rnd;
+
+    // The current centroids.
+    private final double[] meanXs;
+    private final double[] meanYs;
+
+    // The (decayed) number of points each cluster has taken.
+    private final double[] weights;
+
+    // Buffer of points used to choose the initial centroids, and the
+    // number of points in it.  The buffer is released once we have
+    // seeded the centroids.
+    private double[] seedXs;
+    private double[] seedYs;
+    private int numSeedPoints;
+    private boolean seeded;
+
+    // Working space for the cluster assignments of a batch.
+    private int[] batchIds = null;
+
+    // The number of points added.
+    private long numPoints = 0;
+
+    // Decayed sum of the squared distances from each point to its
+    // assigned centroid, and the decayed number of points.
+    private double metricSum = 0.0;
+    private double metricWeight = 0.0;
+
+}
@@ -21,6 +21,7 @@
 package org.hermit.geometry.generator;
 
 import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
 import org.hermit.geometry.Region;
 
 
@@ -39,6 +40,18 @@ public interface Generator {
 	 */
     public Point[] createPoints(Region region, int num);
 
+
+    /**
+     * Create a set of data points within the given region, adding them
+     * to a point cloud.  This creates no Point objects.
+     * 
+     * @param  region      The region of the plane in which the points
+     *                     must lie.
+     * @param  num         The desired number of points.
+     * @param  cloud       The point cloud to add the points to.
+     */
+    public void createPoints(Region region, int num, PointCloud cloud);
+
     
     /**
      * Get reference points, if any, associated with the most recently
@@ -24,6 +24,7 @@ package org.hermit.geometry.generator;
 import java.util.Random;
 
 import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
 import org.hermit.geometry.Region;
 
 
@@ -62,17 +63,7 @@ public class NuclearGenerator
      * @return             The generated data points.
      */
     public Point[] createPoints(Region region, int npoints) {
-        // First, create the randomly-placed nuclear plants within the region.
-        // Don't put two close together.
-        refPoints = new Point[numClusters];
-        makeCentres:
-        for (int i = 0; i < numClusters; ) {
-            Point p = region.randomPoint();
-            for (int c = 0; c < i; ++c)
-                if (p.dist(refPoints[c]) < 80)
-                    continue makeCentres;
-            refPoints[i++] = p;
-        }
+        makeCentres(region);
 
         // Now, create random points,
         Point[] points = new Point[npoints];
@@ -96,6 +87,71 @@ public class NuclearGenerator
 
         return points;
     }
+
+
+    /**
+     * Create a set of data points within the given region, adding them
+     * to a point cloud.  This creates no Point objects, except for the
+     * reference points.
+     * 
+     * @param  region      The region of the plane in which the points
+     *                     must lie.
+     * @param  npoints     The desired number of points.
+     * @param  cloud       The point cloud to add the points to.
+     */
+    public void createPoints(Region region, int npoints, PointCloud cloud) {
+        makeCentres(region);
+        final double[] refXs = new double[numClusters];
+        final double[] refYs = new double[numClusters];
+        for (int c = 0; c < numClusters; ++c) {
+            refXs[c] = refPoints[c].getX();
+            refYs[c] = refPoints[c].getY();
+        }
+
+        // Now, create random points, as for createPoints(Region, int).
+        final double x1 = region.getX1();
+        final double y1 = region.getY1();
+        final double w = region.getWidth();
+        final double h = region.getHeight();
+        cloud.ensureCapacity(cloud.size() + npoints);
+        for (int i = 0; i < npoints; ) {
+            final double x = rnd.nextDouble() * w + x1;
+            final double y = rnd.nextDouble() * h + y1;
+            boolean exists = false;
+            for (int c = 0; c < numClusters; ++c) {
+                final double dx = x - refXs[c];
+                final double dy = y - refYs[c];
+                final double dist = Math.sqrt(dx * dx + dy * dy);
+                final double r = Math.abs(rnd.nextGaussian()) * 2.0;
+                exists |= dist < 20 * r;
+            }
+
+            if (exists) {
+                cloud.add(x, y);
+                ++i;
+            }
+        }
+    }
+
+
+    /**
+     * Create the randomly-placed nuclear plants within the region.
+     * Don't put two close together.
+     * 
+     * @param  region      The region of the plane in which the plants
+     *                     must lie.
+     */
+    private void makeCentres(Region region) {
+        refPoints = new Point[numClusters];
+        makeCentres:
+        for (int i = 0; i < numClusters; ) {
+            Point p = region.randomPoint();
+            for (int c = 0; c < i; ++c)
+                if (p.dist(refPoints[c]) < 80)
+                    continue makeCentres;
+            refPoints[i++] = p;
+        }
+    }
     
 
     /**
@@ -0,0 +1,246 @@
+
+/**
+ * cluster: routines for cluster analysis.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.geometry.generator;
+
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+import org.hermit.utils.SharedPool;
+import org.hermit.utils.SplitRandom;
+
+
+/**
+ * A data generator which generates evenly-distributed random points,
+ * in parallel, for large data sets.
+ *
+ * <p>Unlike {@link RandomGenerator}, this class does not share a
+ * synchronized java.util.Random.  The points of each data set are
+ * divided into fixed-size blocks, and each block is generated by its
+ * own {@link SplitRandom}, seeded from the generator's seed, the number
+ * of the data set, and the number of the block.  So the points depend
+ * only on the seed, and not on the number of threads in the pool, or
+ * how the blocks are shared out.
+ *
+ * <p>A generator may be used by one thread at a time.  Separate
+ * generators may be used concurrently.
+ *
+ * <p>This uses ForkJoinPool, so on Android it needs API level 21.
+ */
+public class ParallelRandomGenerator
+    implements Generator
+{
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a generator which uses the library's
+     * {@link SharedPool shared fork-join pool}.
+     *
+     * @param  seed         The seed for the generated data sets.
+     */
+    public ParallelRandomGenerator(long seed) {
+        this(SharedPool.get(), seed);
+    }
+
+
+    /**
+     * Create a generator which uses a given fork-join pool.
+     *
+     * @param  pool         The pool to run the generation in.
+     * @param  seed         The seed for the generated data sets.
+     */
+    public ParallelRandomGenerator(ForkJoinPool pool, long seed) {
+        this.pool = pool;
+        this.seed = seed;
+        numSets = 0;
+    }
+
+
+    // ******************************************************************** //
+    // Data Generator.
+    // ******************************************************************** //
+
+    /**
+     * Create a set of data points within the given region.
+     *
+     * @param  region      The region of the plane in which the points
+     *                     must lie.
+     * @param  num         The desired number of points.
+     * @return             The generated data points.
+     */
+    public Point[] createPoints(Region region, int num) {
+        final double[] xs = new double[num];
+        final double[] ys = new double[num];
+        createPoints(region, xs, ys, 0, num);
+
+        Point[] points = new Point[num];
+        for (int i = 0; i < num; ++i)
+            points[i] = new Point(xs[i], ys[i]);
+        return points;
+    }
+
+
+    /**
+     * Create a set of data points within the given region, adding them
+     * to a point cloud.  This creates no Point objects.  If the cloud
+     * is backed by arrays, the points are generated directly into them.
+     *
+     * @param  region      The region of the plane in which the points
+     *                     must lie.
+     * @param  num         The desired number of points.
+     * @param  cloud       The point cloud to add the points to.
+     */
+    public void createPoints(Region region, int num, PointCloud cloud) {
+        final int start = cloud.size();
+        cloud.setSize(start + num);
+        if (cloud.hasArray()) {
+            createPoints(region, cloud.getXs(), cloud.getYs(), start, num);
+        } else {
+            final double[] xs = new double[num];
+            final double[] ys = new double[num];
+            createPoints(region, xs, ys, 0, num);
+            for (int i = 0; i < num; ++i)
+                cloud.set(start + i, xs[i], ys[i]);
+        }
+    }
+
+
+    /**
+     * Create a set of data points within the given region, placing
+     * their co-ordinates in the given arrays.
+     *
+     * @param  region      The region of the plane in which the points
+     *                     must lie.
+     * @param  xs          Array in which to place the X co-ordinates.
+     * @param  ys          Array in which to place the Y co-ordinates.
+     * @param  off         Offset in xs and ys at which to start.
+     * @param  num         The desired number of points.
+     */
+    public void createPoints(Region region, double[] xs, double[] ys, int off, int num) {
+        if (off < 0 || num < 0 || off + num > xs.length || off + num > ys.length)
+            throw new IndexOutOfBoundsException("ParallelRandomGenerator: bad offset or count");
+
+        final long setSeed = SplitRandom.forStream(seed, numSets++).nextLong();
+        final int nblocks = (num + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        Fill task = new Fill(region, setSeed, xs, ys, off, num, 0, nblocks);
+        if (nblocks <= 1)
+            task.invoke();
+        else
+            pool.invoke(task);
+    }
+
+
+    /**
+     * Get reference points, if any, associated with the most recently
+     * generated data set.
+     *
+     * @return              The reference points, if any, used to generate
+     *                      the most recent data set.  null if none.
+     */
+    public Point[] getReferencePoints() {
+        return null;
+    }
+
+
+    // ******************************************************************** //
+    // Generation.
+    // ******************************************************************** //
+
+    /**
+     * A task which generates the points in a range of blocks.
+     */
+    private static final class Fill extends RecursiveAction {
+        Fill(Region region, long setSeed, double[] xs, double[] ys,
+             int off, int num, int startBlock, int endBlock)
+        {
+            this.region = region;
+            this.setSeed = setSeed;
+            this.xs = xs;
+            this.ys = ys;
+            this.off = off;
+            this.num = num;
+            this.startBlock = startBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock - startBlock <= 1) {
+                if (endBlock > startBlock)
+                    fillBlock(startBlock);
+                return;
+            }
+
+            int mid = (startBlock + endBlock) >>> 1;
+            invokeAll(new Fill(region, setSeed, xs, ys, off, num, startBlock, mid),
+                      new Fill(region, setSeed, xs, ys, off, num, mid, endBlock));
+        }
+
+        private void fillBlock(int block) {
+            final SplitRandom rnd = SplitRandom.forStream(setSeed, block);
+            final int start = off + block * BLOCK_SIZE;
+            final int len = Math.min(BLOCK_SIZE, off + num - start);
+            rnd.nextDoubles(xs, start, len, region.getX1(), region.getWidth());
+            rnd.nextDoubles(ys, start, len, region.getY1(), region.getHeight());
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final Region region;
+        private final long setSeed;
+        private final double[] xs, ys;
+        private final int off, num;
+        private final int startBlock, endBlock;
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The number of points generated by each random stream.  This
+    // fixes the division of the work, and so the results; changing it
+    // changes the points generated for a given seed.
+    private static final int BLOCK_SIZE = 8192;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The pool we run the generation in.
+    private final ForkJoinPool pool;
+
+    // The seed for the generated data sets.
+    private final long seed;
+
+    // The number of data sets generated so far.  Each set is generated
+    // from its own seed, so successive sets are different.
+    private long numSets;
+
+}
+
@@ -21,7 +21,10 @@
 package org.hermit.geometry.generator;
 
 
+import java.util.Random;
+
 import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
 import org.hermit.geometry.Region;
 
 
@@ -52,6 +55,26 @@ public class RandomGenerator
         return points;
     }
 
+
+    /**
+     * Create a set of data points within the given region, adding them
+     * to a point cloud.  This creates no Point objects.
+     * 
+     * @param  region      The region of the plane in which the points
+     *                     must lie.
+     * @param  num         The desired number of points.
+     * @param  cloud       The point cloud to add the points to.
+     */
+    public void createPoints(Region region, int num, PointCloud cloud) {
+        final double x = region.getX1();
+        final double y = region.getY1();
+        final double w = region.getWidth();
+        final double h = region.getHeight();
+        cloud.ensureCapacity(cloud.size() + num);
+        for (int i = 0; i < num; ++i)
+            cloud.add(rnd.nextDouble() * w + x, rnd.nextDouble() * h + y);
+    }
+
     
     /**
      * Get reference points, if any, associated with the most recently
@@ -64,5 +87,13 @@ public class RandomGenerator
         return null;
     }
 
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // RNG used for random points.
+    private static Random rnd = new Random();
+
 }
 
@@ -22,6 +22,7 @@ package org.hermit.geometry.spline;
 
 
 import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
 
 
 /**
@@ -44,18 +45,47 @@ public class CubicSpline
         if (len < 2)
             throw new IllegalArgumentException("A ControlCurve needs" + 
                                                " at least 2 control points");
-        controlPoints = points;
         
         // Flatten out the control points array.
         controlsX = new double[len];
         controlsY = new double[len];
         for (int i = 0; i < len; ++i) {
-            controlsX[i] = controlPoints[i].getX();
-            controlsY[i] = controlPoints[i].getY();
-       }
+            controlsX[i] = points[i].getX();
+            controlsY[i] = points[i].getY();
+        }
+        
+        calcSegments();
+    }
+
+
+    /**
+     * Create a cubic spline curve with the control points held in a
+     * point cloud.
+     * 
+     * @param   cloud   The control points for this curve.  These
+     *                  are copied.
+     */
+    public CubicSpline(PointCloud cloud) {
+        final int len = cloud.size();
+        if (len < 2)
+            throw new IllegalArgumentException("A ControlCurve needs" + 
+                                               " at least 2 control points");
+        
+        controlsX = new double[len];
+        controlsY = new double[len];
+        cloud.copyXs(0, controlsX, 0, len);
+        cloud.copyYs(0, controlsY, 0, len);
         
+        calcSegments();
+    }
+
+
+    /**
+     * Calculate the cubic segments from the control points.
+     */
+    private void calcSegments() {
         // Calculate the gamma values just once.
-        final int n = controlPoints.length - 1;
+        final int n = controlsX.length - 1;
         double[] gamma = new double[n + 1];
         gamma[0] = 1.0 / 2.0;
         for (int i = 1; i < n; ++i)
@@ -63,8 +93,19 @@ public class CubicSpline
         gamma[n] = 1 / (2 - gamma[n - 1]);
 
         // Calculate the cubic segments.
-        cubicX = calcNaturalCubic(n, controlsX, gamma);
-        cubicY = calcNaturalCubic(n, controlsY, gamma);
+        numSegments = n;
+        coeffs = new double[n * 8];
+        calcNaturalCubic(n, controlsX, gamma, coeffs, 0);
+        calcNaturalCubic(n, controlsY, gamma, coeffs, 4);
+
+        // Calculate the distance along the control polygon to each
+        // control point.
+        knots = new double[n + 1];
+        for (int i = 0; i < n; ++i) {
+            final double dx = controlsX[i + 1] - controlsX[i];
+            final double dy = controlsY[i + 1] - controlsY[i];
+            knots[i + 1] = knots[i] + Math.sqrt(dx * dx + dy * dy);
+        }
     }
 
     
@@ -74,11 +115,20 @@ public class CubicSpline
 
     /**
      * Calculate the natural cubic spline that interpolates x[0-n].
-     *     
-     * @return          The spline as a set of cubic segments, each over the
-     *                  range x = [0-1[.
+     * 
+     * @param   n       The number of segments.
+     * @param   x       The values to interpolate.
+     * @param   gamma   The gamma values for the solution.
+     * @param   C       Array in which to place the coefficients a, b,
+     *                  c and d of each segment, as a polynomial over the
+     *                  range x = [0-1[.  Segment i's coefficients start
+     *                  at i * 8 + off.
+     * @param   off     Offset of the coefficients within each segment's
+     *                  block of 8.
      */
-    private Cubic[] calcNaturalCubic(int n, double[] x, double[] gamma) {
+    private static void calcNaturalCubic(int n, double[] x, double[] gamma,
+                                         double[] C, int off)
+    {
         double[] delta = new double[n + 1];
         delta[0] = 3 * (x[1] - x[0]) * gamma[0];
         for (int i = 1; i < n; ++i)
@@ -92,18 +142,64 @@ public class CubicSpline
         }
 
         // Calculate the cubic segments.
-        Cubic[] C = new Cubic[n];
-        for (int i = 0; i < n; i++) {
-            final double a = x[i];
-            final double b = D[i];
-            final double c = 3 * (x[i + 1] - x[i]) - 2 * D[i] - D[i + 1];
-            final double d = 2 * (x[i] - x[i + 1]) + D[i] + D[i + 1];
-            C[i] = new Cubic(a, b, c, d);
-        }
-        return C;
+        for (int i = 0; i < n; i++)
+            setCubic(C, i * 8 + off, x[i], x[i + 1], D[i], D[i + 1]);
+    }
+
+
+    /**
+     * Set the coefficients of the cubic over [0-1] which runs from one
+     * value to another with the given derivatives.
+     * 
+     * @param   C       Array in which to place the coefficients a, b,
+     *                  c and d.
+     * @param   at      Index in C of a.
+     * @param   x0      The value at 0.
+     * @param   x1      The value at 1.
+     * @param   d0      The derivative at 0.
+     * @param   d1      The derivative at 1.
+     */
+    static void setCubic(double[] C, int at,
+                         double x0, double x1, double d0, double d1)
+    {
+        C[at] = x0;
+        C[at + 1] = d0;
+        C[at + 2] = 3 * (x1 - x0) - 2 * d0 - d1;
+        C[at + 3] = 2 * (x0 - x1) + d0 + d1;
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of segments in this spline, which is one less
+     * than the number of control points.
+     * 
+     * @return          The number of segments.
+     */
+    public int getNumSegments() {
+        return numSegments;
+    }
+
+
+    /**
+     * Get the length of the control polygon; that is, the sum of the
+     * distances between successive control points.  This is the range
+     * of positions for {@link #evaluateAtDistance}.
+     * 
+     * @return          The length of the control polygon.
+     */
+    public double getPolygonLength() {
+        return knots[numSegments];
     }
 
 
+    // ******************************************************************** //
+    // Interpolation.
+    // ******************************************************************** //
+
     /**
      * Interpolate the spline.
      * 
@@ -111,18 +207,191 @@ public class CubicSpline
      * @return          The interpolated values.
      */
     public Point[] interpolate(int steps) {
-        Point[] p = new Point[cubicX.length * steps + 1];
-        int np = 0;
-        
-        /* very crude technique - just break each segment up into steps lines */
-        p[np++] = new Point(cubicX[0].eval(0), cubicY[0].eval(0));
-        for (int i = 0; i < cubicX.length; i++) {
+        final int count = numSegments * steps + 1;
+        final double[] xs = new double[count];
+        final double[] ys = new double[count];
+        interpolate(steps, xs, ys, 0);
+        Point[] p = new Point[count];
+        for (int i = 0; i < count; ++i)
+            p[i] = new Point(xs[i], ys[i]);
+        return p;
+    }
+
+
+    /**
+     * Interpolate the spline into a point cloud.  This creates no
+     * Point objects.
+     * 
+     * @param   steps   The number of steps to interpolate in each segment.
+     * @param   out     Point cloud to add the interpolated values to.
+     */
+    public void interpolate(int steps, PointCloud out) {
+        final int base = out.size();
+        final int count = numSegments * steps + 1;
+        out.setSize(base + count);
+        if (out.hasArray()) {
+            interpolate(steps, out.getXs(), out.getYs(), base);
+        } else {
+            final double[] xs = new double[count];
+            final double[] ys = new double[count];
+            interpolate(steps, xs, ys, 0);
+            for (int i = 0; i < count; ++i)
+                out.set(base + i, xs[i], ys[i]);
+        }
+    }
+
+
+    /**
+     * Interpolate the spline into caller-supplied arrays.  Each segment
+     * is broken up into the given number of steps.  This allocates
+     * nothing.
+     * 
+     * @param   steps   The number of steps to interpolate in each segment.
+     * @param   outX    Array in which to place the X values.  Must have
+     *                  room for getNumSegments() * steps + 1 values.
+     * @param   outY    Array in which to place the Y values.  Must have
+     *                  room for getNumSegments() * steps + 1 values.
+     * @param   off     Offset in outX and outY at which to start.
+     * @return          The number of values written.
+     */
+    public int interpolate(int steps, double[] outX, double[] outY, int off) {
+        final double[] C = coeffs;
+        int o = off;
+        outX[o] = C[0];
+        outY[o++] = C[4];
+        for (int i = 0; i < numSegments; i++) {
+            final int s = i * 8;
+            final double ax = C[s], bx = C[s + 1], cx = C[s + 2], dx = C[s + 3];
+            final double ay = C[s + 4], by = C[s + 5], cy = C[s + 6], dy = C[s + 7];
             for (int j = 1; j <= steps; j++) {
-                double x = (double) j / (double) steps;
-                p[np++] = new Point(cubicX[i].eval(x), cubicY[i].eval(x));
+                final double u = (double) j / (double) steps;
+                outX[o] = ((dx * u + cx) * u + bx) * u + ax;
+                outY[o++] = ((dy * u + cy) * u + by) * u + ay;
             }
         }
-        return p;
+        return o - off;
+    }
+
+
+    // ******************************************************************** //
+    // Evaluation.
+    // ******************************************************************** //
+
+    /**
+     * Evaluate the spline at a set of parameter values.  The spline
+     * passes through control point i at parameter value i; values
+     * outside the range [0, getNumSegments()] are clamped to it.  This
+     * allocates nothing.
+     * 
+     * @param   ts      Array of parameter values.
+     * @param   tOff    Offset in ts of the first value.
+     * @param   len     Number of values to evaluate.
+     * @param   outX    Array in which to place the X values.
+     * @param   outY    Array in which to place the Y values.
+     * @param   off     Offset in outX and outY at which to start.
+     */
+    public void evaluate(double[] ts, int tOff, int len,
+                         double[] outX, double[] outY, int off)
+    {
+        final int last = numSegments - 1;
+        for (int k = 0; k < len; ++k) {
+            double t = ts[tOff + k];
+            if (!(t > 0))
+                t = 0;
+            else if (t > numSegments)
+                t = numSegments;
+            final int seg = Math.min((int) t, last);
+            evalSegment(seg, t - seg, outX, outY, off + k);
+        }
+    }
+
+
+    /**
+     * Evaluate the spline at a set of positions, given as distances
+     * along the control polygon.  The position of each control point is
+     * the total distance to it from the first along straight lines; so
+     * evenly spaced positions give points roughly evenly spaced along
+     * the curve, however the control points are spaced.  Positions
+     * outside the range [0, getPolygonLength()] are clamped to it.  This
+     * allocates nothing.
+     * 
+     * <p>The segment for each position is found by a binary search.
+     * If the positions are in ascending order, each search starts from
+     * the previous segment, so a whole pass over the curve takes time
+     * proportional to the number of samples plus segments.
+     * 
+     * @param   ds      Array of positions.
+     * @param   dOff    Offset in ds of the first position.
+     * @param   len     Number of positions to evaluate.
+     * @param   outX    Array in which to place the X values.
+     * @param   outY    Array in which to place the Y values.
+     * @param   off     Offset in outX and outY at which to start.
+     */
+    public void evaluateAtDistance(double[] ds, int dOff, int len,
+                                   double[] outX, double[] outY, int off)
+    {
+        final double[] K = knots;
+        final double total = K[numSegments];
+        int seg = 0;
+        for (int k = 0; k < len; ++k) {
+            double d = ds[dOff + k];
+            if (!(d > 0))
+                d = 0;
+            else if (d > total)
+                d = total;
+
+            // Check the last segment and the one after it first, then
+            // do a binary search.
+            if (d < K[seg] || d > K[seg + 1]) {
+                if (seg + 2 <= numSegments && d >= K[seg + 1] && d <= K[seg + 2])
+                    ++seg;
+                else
+                    seg = findKnot(d);
+            }
+
+            final double span = K[seg + 1] - K[seg];
+            final double u = span > 0 ? (d - K[seg]) / span : 0;
+            evalSegment(seg, u, outX, outY, off + k);
+        }
+    }
+
+
+    /**
+     * Find the segment containing a position along the control polygon.
+     * 
+     * @param   d       The position, in [0, getPolygonLength()].
+     * @return          The index of the last segment which starts at
+     *                  or before d.
+     */
+    private int findKnot(double d) {
+        int lo = 0, hi = numSegments - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (knots[mid] <= d)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+
+    /**
+     * Evaluate one segment.
+     * 
+     * @param   seg     The segment index.
+     * @param   u       The parameter within the segment, in [0-1].
+     * @param   outX    Array in which to place the X value.
+     * @param   outY    Array in which to place the Y value.
+     * @param   o       Index in outX and outY to write.
+     */
+    private void evalSegment(int seg, double u,
+                             double[] outX, double[] outY, int o)
+    {
+        final double[] C = coeffs;
+        final int s = seg * 8;
+        outX[o] = ((C[s + 3] * u + C[s + 2]) * u + C[s + 1]) * u + C[s];
+        outY[o] = ((C[s + 7] * u + C[s + 6]) * u + C[s + 5]) * u + C[s + 4];
     }
 
 
@@ -130,17 +399,20 @@ public class CubicSpline
     // Private Data.
     // ******************************************************************** //
     
-    // The control points for this curve.
-    private final Point[] controlPoints;
-    
     // The X and Y co-ordinates of the control points.
     private final double[] controlsX;
     private final double[] controlsY;
 
-    // Cubic spline segments.  Each segment is a polynomial over the
-    // range x = [0-1[.
-    private Cubic[] cubicX;
-    private Cubic[] cubicY;
+    // The number of cubic segments.
+    private int numSegments;
+
+    // Cubic spline segments, packed into one array.  Each segment is a
+    // pair of polynomials over the range x = [0-1[, for X and Y; its
+    // coefficients are stored as 8 consecutive values, ax, bx, cx, dx,
+    // ay, by, cy, dy.
+    private double[] coeffs;
+
+    // The distance along the control polygon to each control point.
+    private double[] knots;
  
 }
-
@@ -17,7 +17,6 @@
 package org.hermit.geometry.voronoi;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 
 import org.hermit.geometry.MathTools;
 import org.hermit.geometry.Point;
@@ -35,6 +34,12 @@ class CircleEvent extends Event {
         NodeR = r;
         Center = c;
         Valid = true;
+
+        // The event happens when the sweep line reaches the bottom of
+        // the circle.  This is used for every comparison in the event
+        // queue, so work it out once.
+        double dist = NodeN.DataPoint.dist(Center);
+        EventY = MathTools.round(Center.getY() + dist);
     }
     
     
@@ -46,15 +51,13 @@ class CircleEvent extends Event {
 
     @Override
     public double getY() {
-        double dist = NodeN.DataPoint.dist(Center);
-        return MathTools.round(Center.getY() + dist);
+        return EventY;
     }
 
 
     @Override
     Node process(Node Root, double ys,
-                  HashSet<Point> vertList,
-                  HashSet<VoronoiEdge> edgeList,
+                  ArrayList<VoronoiEdge> edgeList,
                   ArrayList<DataNode> CircleCheckList)
     {
         final DataNode b = NodeN;
@@ -77,7 +80,6 @@ class CircleEvent extends Event {
         // Fortune.ParabolicCut(a.DataPoint[0],a.DataPoint[1],c.DataPoint[0],c.DataPoint[1],ys);
         // VNew[1] = (ys + a.DataPoint[1])/2 -
         // 1/(2*(ys-a.DataPoint[1]))*(VNew[0]-a.DataPoint[0])*(VNew[0]-a.DataPoint[0]);
-        vertList.add(VNew);
 
         // 2. Find out if a or c are in a distand part of the tree (the other
         // is then b's sibling) and assign the new vertex
@@ -126,7 +128,7 @@ class CircleEvent extends Event {
         edgeList.add(VE);
 
         final EdgeNode VEN = new EdgeNode(VE, false, eo.getLeft(), eo
-                .getRight());
+                .getRight(), eo.Priority);
         final Node parent = eo.getParent();
         if (parent == null)
             return VEN;
@@ -141,6 +143,9 @@ class CircleEvent extends Event {
 
     public boolean Valid = true;
 
+    // The Y co-ordinate of this event.
+    private final double EventY;
+
     
     // ******************************************************************** //
     // Utilities.
@@ -17,7 +17,6 @@
 package org.hermit.geometry.voronoi;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 
 import org.hermit.geometry.MathTools;
 import org.hermit.geometry.Point;
@@ -56,8 +55,7 @@ class DataEvent extends Event {
      */
     @Override
     Node process(Node Root, double ys,
-                  HashSet<Point> vertList,
-                  HashSet<VoronoiEdge> edgeList,
+                  ArrayList<VoronoiEdge> edgeList,
                   ArrayList<DataNode> CircleCheckList)
     {
         if (Root == null) {
@@ -68,6 +66,7 @@ class DataEvent extends Event {
 
         // 1. Find the node to be replaced
         final Node C = Node.FindDataNode(Root, ys, DataPoint.getX());
+        SplitNode = (DataNode) C;
 
         // 2. Create the subtree (ONE Edge, but two VEdgeNodes)
         final VoronoiEdge VE = new VoronoiEdge();
@@ -77,17 +76,28 @@ class DataEvent extends Event {
         VE.VVertexB = Point.UNKNOWN;
         edgeList.add(VE);
 
-        Node SubRoot;
+        // Pick priorities for the new edge nodes.  The sub-root must
+        // not have a higher priority than its child.
+        int p1 = EdgeNode.HashPriority(VE, 0);
+        int p2 = EdgeNode.HashPriority(VE, 1);
+        if (p1 > p2) {
+            int t = p1;
+            p1 = p2;
+            p2 = t;
+        }
+
+        EdgeNode SubRoot;
+        EdgeNode SubChild = null;
         if (MathTools.eq(VE.LeftData.getY(), VE.RightData.getY())) {
             DataNode l, r;
             if (VE.LeftData.getX() < VE.RightData.getX()) {
                 l = new DataNode(VE.LeftData);
                 r = new DataNode(VE.RightData);
-                SubRoot = new EdgeNode(VE, false, l, r);
+                SubRoot = new EdgeNode(VE, false, l, r, p1);
             } else {
                 l = new DataNode(VE.RightData);
                 r = new DataNode(VE.LeftData);
-                SubRoot = new EdgeNode(VE, true, l, r);
+                SubRoot = new EdgeNode(VE, true, l, r, p1);
             }
             CircleCheckList.add(l);
             CircleCheckList.add(r);
@@ -95,21 +105,36 @@ class DataEvent extends Event {
             DataNode l = new DataNode(VE.LeftData);
             DataNode rl = new DataNode(VE.RightData);
             DataNode rr = new DataNode(VE.LeftData);
-            EdgeNode r = new EdgeNode(VE, true, rl, rr);
-            SubRoot = new EdgeNode(VE, false, l, r);
+            SubChild = new EdgeNode(VE, true, rl, rr, p2);
+            SubRoot = new EdgeNode(VE, false, l, SubChild, p1);
             CircleCheckList.add(l);
             CircleCheckList.add(rl);
             CircleCheckList.add(rr);
         }
 
-        // 3. Apply subtree
+        // 3. Apply subtree, and re-balance the tree.
         Node parent = C.getParent();
         if (parent == null)
             return SubRoot;
         parent.Replace(C, SubRoot);
+        Root = Node.Balance(SubRoot, Root);
+        if (SubChild != null)
+            Root = Node.Balance(SubChild, Root);
         return Root;
     }
 
+
+    /**
+     * Get the data node which was split by the last call to process().
+     * 
+     * @return              The data node which this event's arc split,
+     *                      which is no longer in the tree; null if this
+     *                      was the first event.
+     */
+    DataNode getSplitNode() {
+        return SplitNode;
+    }
+
     
     // ******************************************************************** //
     // Sorting Support.
@@ -159,6 +184,9 @@ class DataEvent extends Event {
 
     private Point DataPoint;
 
+    // The data node which was replaced when this event was processed.
+    private DataNode SplitNode = null;
+
 
 }
 
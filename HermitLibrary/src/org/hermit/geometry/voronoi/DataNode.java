@@ -17,6 +17,7 @@
 package org.hermit.geometry.voronoi;
 
 
+import org.hermit.geometry.MathTools;
 import org.hermit.geometry.Point;
 
 
@@ -38,6 +39,10 @@ class DataNode extends Node {
 
     public Point DataPoint;
     
+    // The pending circle event in which this node's arc disappears,
+    // if any.
+    CircleEvent Circle = null;
+
 
     CircleEvent CircleCheckDataNode(double ys) {
         final DataNode l = Node.LeftDataNode(this);
@@ -50,8 +55,15 @@ class DataNode extends Node {
 
         final Point Center = CircumCircleCenter(l.DataPoint,
                 DataPoint, r.DataPoint);
+        if (Center == null)
+            return null;
         final CircleEvent VC = new CircleEvent(this, l, r, Center);
-        if (VC.getY() >= ys)
+        
+        // When a new point lands right on a breakpoint, the arc it cuts
+        // off has zero length, and vanishes straight away.  The event
+        // is then at the sweep line, but may be rounded to just behind
+        // it; it still has to happen.
+        if (!MathTools.lt(VC.getY(), ys))
             return VC;
         
         return null;
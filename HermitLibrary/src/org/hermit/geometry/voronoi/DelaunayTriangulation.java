@@ -0,0 +1,1063 @@
+/**
+ * bentools: Voronoi diagram generator.  This is Benjamin Dittes'
+ * C# implementation of Fortune's algorithm, translated to Java
+ * by Ian Cameron Smith.
+ *
+ * <p>The only license info I can see: "If you ever need a voronoi
+ * clustering in C#, feel free to use my solution here."  See
+ * http://bdittes.googlepages.com/
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.geometry.voronoi;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.hermit.geometry.Edge;
+import org.hermit.geometry.Graph;
+import org.hermit.geometry.MathTools;
+import org.hermit.geometry.Point;
+
+
+/**
+ * An incremental Delaunay triangulation, which is the dual of the
+ * Voronoi diagram.  Unlike {@link Fortune}, which builds a diagram
+ * from scratch, this allows points to be added and removed one at a
+ * time, with each update only touching the triangles around the point.
+ *
+ * <p>Points are inserted using the Bowyer-Watson algorithm: the
+ * triangles whose circumcircles contain the new point are removed,
+ * and the hole is filled with a fan of triangles around the new point.
+ * A point is removed by taking out its triangles, and re-triangulating
+ * the hole by cutting off Delaunay ears.  The triangle containing a
+ * new point is found by walking across the triangulation from the
+ * closest of a small random sample of vertices.
+ *
+ * <p>The convex hull is closed off by "ghost" triangles, each of which
+ * joins a hull edge to a single vertex at infinity; this means that
+ * points outside the hull need no special handling, and there is no
+ * bounding triangle to get in the way of the Voronoi diagram.
+ *
+ * <p>Triangles are stored in a pool of flat int arrays, and
+ * re-used when freed, so updates don't create garbage.  Each vertex
+ * is identified by an int ID, which stays valid until it is removed.
+ *
+ * <p>While there are fewer than three points, or all the points are
+ * collinear, there are no triangles; the points are just kept in a
+ * list until a non-collinear one arrives.
+ */
+public class DelaunayTriangulation {
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Create an empty triangulation.
+     */
+    public DelaunayTriangulation() {
+        vertexXs = new double[INIT_VERTICES];
+        vertexYs = new double[INIT_VERTICES];
+        vertexTris = new int[INIT_VERTICES];
+        vertexMarks = new int[INIT_VERTICES];
+        triVerts = new int[INIT_VERTICES * 6];
+        triNeighbours = new int[INIT_VERTICES * 6];
+        triStamps = new int[INIT_VERTICES * 2];
+    }
+
+
+    // ******************************************************************** //
+    // Updates.
+    // ******************************************************************** //
+
+    /**
+     * Add a point to the triangulation.
+     *
+     * @param   p           The point to add.
+     * @return              The ID of the new vertex.  If the point is
+     *                      equal to an existing vertex, it is not added,
+     *                      and the existing vertex's ID is returned.
+     */
+    public int insert(Point p) {
+        return insert(p.getX(), p.getY());
+    }
+
+
+    /**
+     * Add a point to the triangulation.
+     *
+     * @param   x           The X co-ordinate of the point to add.
+     * @param   y           The Y co-ordinate of the point to add.
+     * @return              The ID of the new vertex.  If the point is
+     *                      equal to an existing vertex, it is not added,
+     *                      and the existing vertex's ID is returned.
+     */
+    public int insert(double x, double y) {
+        if (degenerate) {
+            // Just keep the point in the index, unless it gives us
+            // something to triangulate.
+            final Point p = new Point(x, y);
+            final Integer old = lineIndex.get(p);
+            if (old != null)
+                return old;
+            final int v = newVertex(x, y);
+            if (numLine >= 2 && orient(lineVerts[0], lineVerts[1], x, y) != 0)
+                rebuild();
+            else
+                addLineVertex(p, v);
+            return v;
+        }
+
+        // Find the triangle containing the point, and check it's not
+        // one of its vertices.
+        final int t = locate(x, y);
+        for (int i = 0; i < 3; ++i) {
+            final int v = triVerts[t * 3 + i];
+            if (v != GHOST && MathTools.eq(vertexXs[v], x) && MathTools.eq(vertexYs[v], y))
+                return v;
+        }
+
+        final int v = newVertex(x, y);
+        insertVertex(v, t);
+        return v;
+    }
+
+
+    /**
+     * Remove a vertex from the triangulation.
+     *
+     * @param   v           The ID of the vertex to remove.
+     * @return              true if the vertex was removed; false if
+     *                      there is no such vertex.
+     */
+    public boolean remove(int v) {
+        if (!isVertex(v))
+            return false;
+
+        if (degenerate) {
+            // Take it out of the list by moving the last one into
+            // its place.
+            lineIndex.remove(new Point(vertexXs[v], vertexYs[v]));
+            final int pos = vertexMarks[v];
+            final int last = lineVerts[--numLine];
+            lineVerts[pos] = last;
+            vertexMarks[last] = pos;
+            freeVertex(v);
+            return true;
+        }
+
+        // Gather the triangles around the vertex, anticlockwise, and
+        // the link: the vertices on the far edges of those triangles.
+        // Triangle j of the star spans link vertices j and j + 1.
+        int numStar = 0;
+        int solidInStar = 0;
+        int t = vertexTris[v];
+        do {
+            final int i = slotOf(t, v);
+            if (numStar == starTris.length)
+                growStar();
+            starTris[numStar] = t;
+            starLink[numStar] = triVerts[t * 3 + next(i)];
+            final int o = triNeighbours[t * 3 + i];
+            starOuter[numStar] = o;
+            starOuterSlots[numStar] = slotOfNeighbour(o, t);
+            ++numStar;
+            if (!isGhost(t))
+                ++solidInStar;
+            t = triNeighbours[t * 3 + next(i)];
+        } while (t != vertexTris[v]);
+
+        // If there won't be any triangles left, the points may now be
+        // collinear; just start again.
+        if (numVertices <= 3 || solidInStar == numSolid) {
+            freeVertex(v);
+            rebuild();
+            return true;
+        }
+
+        // Remove the star, then re-triangulate the hole.
+        for (int j = 0; j < numStar; ++j)
+            freeTriangle(starTris[j]);
+        freeVertex(v);
+        fillHole(numStar);
+        return true;
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of vertices in the triangulation.
+     *
+     * @return              The number of vertices.
+     */
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+
+    /**
+     * Get the number of triangles in the triangulation.
+     *
+     * @return              The number of triangles, not counting the
+     *                      ghost triangles outside the hull.
+     */
+    public int getNumTriangles() {
+        return numSolid;
+    }
+
+
+    /**
+     * Determine whether an ID refers to a current vertex.
+     *
+     * @param   v           The vertex ID.
+     * @return              true iff v is a vertex in the triangulation.
+     */
+    public boolean isVertex(int v) {
+        return v >= 0 && v < vertexLimit && vertexTris[v] != DEAD;
+    }
+
+
+    /**
+     * Get the X co-ordinate of a vertex.
+     *
+     * @param   v           The vertex ID.
+     * @return              The vertex's X co-ordinate.
+     */
+    public double getX(int v) {
+        return vertexXs[v];
+    }
+
+
+    /**
+     * Get the Y co-ordinate of a vertex.
+     *
+     * @param   v           The vertex ID.
+     * @return              The vertex's Y co-ordinate.
+     */
+    public double getY(int v) {
+        return vertexYs[v];
+    }
+
+
+    /**
+     * Get the triangles of the triangulation.
+     *
+     * @return              Array containing three vertex IDs for each
+     *                      triangle, in anticlockwise order.
+     */
+    public int[] getTriangles() {
+        final int[] tris = new int[numSolid * 3];
+        int n = 0;
+        for (int t = 0; t < triLimit; ++t) {
+            if (triVerts[t * 3] == DEAD || isGhost(t))
+                continue;
+            tris[n++] = triVerts[t * 3];
+            tris[n++] = triVerts[t * 3 + 1];
+            tris[n++] = triVerts[t * 3 + 2];
+        }
+        return tris;
+    }
+
+
+    // ******************************************************************** //
+    // Conversion.
+    // ******************************************************************** //
+
+    /**
+     * Build the Voronoi diagram of the current vertices, as a Graph.
+     * The vertices of the diagram are the circumcentres of the
+     * triangles, and there is an edge across each triangle edge; hull
+     * edges give rise to rays.  As in {@link Fortune}, edges of zero
+     * length are left out.
+     *
+     * @return              A Graph representing the Voronoi diagram.
+     */
+    public Graph toGraph() {
+        final Point[] sites = new Point[vertexLimit];
+        for (int v = 0; v < vertexLimit; ++v)
+            if (vertexTris[v] != DEAD)
+                sites[v] = new Point(vertexXs[v], vertexYs[v]);
+
+        // Without triangles, the points are collinear, or there are
+        // too few for us to be any help.
+        if (degenerate) {
+            final ArrayList<Point> points = new ArrayList<Point>();
+            for (final Point p : sites)
+                if (p != null)
+                    points.add(p);
+            return Fortune.ComputeVoronoiGraph(points);
+        }
+
+        final Point[] centres = new Point[triLimit];
+        for (int t = 0; t < triLimit; ++t)
+            if (triVerts[t * 3] != DEAD && !isGhost(t))
+                centres[t] = circumcentre(t);
+
+        final HashSet<Edge> edges = new HashSet<Edge>();
+        for (int t = 0; t < triLimit; ++t) {
+            if (centres[t] == null)
+                continue;
+            for (int i = 0; i < 3; ++i) {
+                final int n = triNeighbours[t * 3 + i];
+                final int a = triVerts[t * 3 + next(i)];
+                final int b = triVerts[t * 3 + prev(i)];
+                if (centres[n] == null) {
+                    // A ray, heading out from the hull edge.
+                    edges.add(new Edge(centres[t], Point.INFINITE, sites[b], sites[a]));
+                } else if (n > t && !centres[t].equals(centres[n]))
+                    edges.add(new Edge(centres[t], centres[n], sites[a], sites[b]));
+            }
+        }
+        return new Graph(edges);
+    }
+
+
+    /**
+     * Calculate the circumcentre of a triangle.
+     *
+     * @param   t           The triangle index; must not be a ghost.
+     * @return              The circumcentre.
+     */
+    private Point circumcentre(int t) {
+        final int a = triVerts[t * 3];
+        final int b = triVerts[t * 3 + 1];
+        final int c = triVerts[t * 3 + 2];
+        final double ax = vertexXs[a], ay = vertexYs[a];
+        final double bx = vertexXs[b] - ax, by = vertexYs[b] - ay;
+        final double cx = vertexXs[c] - ax, cy = vertexYs[c] - ay;
+        final double d = 2 * (bx * cy - by * cx);
+        final double b2 = bx * bx + by * by;
+        final double c2 = cx * cx + cy * cy;
+        return new Point(ax + (cy * b2 - by * c2) / d, ay + (bx * c2 - cx * b2) / d);
+    }
+
+
+    // ******************************************************************** //
+    // Insertion.
+    // ******************************************************************** //
+
+    /**
+     * Insert a vertex into the triangulation.
+     *
+     * @param   v           The ID of the vertex.
+     * @param   start       A triangle whose circumcircle contains it.
+     */
+    private void insertVertex(int v, int start) {
+        final double x = vertexXs[v];
+        final double y = vertexYs[v];
+
+        // Start the stamps again before they overflow, clearing the
+        // old ones so that none of them can match.
+        if (stamp == MAX_STAMP) {
+            for (int t = 0; t < triLimit; ++t)
+                triStamps[t] = 0;
+            stamp = 0;
+        }
+
+        // Find the cavity: all the triangles whose circumcircles contain
+        // the point.  This is connected, so search out from the start.
+        // Every edge between the cavity and the rest is a boundary edge.
+        final int in = ++stamp * 2;
+        final int out = in + 1;
+        int numCavity = 0;
+        int numBoundary = 0;
+        triStamps[start] = in;
+        cavity[numCavity++] = start;
+        for (int c = 0; c < numCavity; ++c) {
+            final int t = cavity[c];
+            for (int i = 0; i < 3; ++i) {
+                final int n = triNeighbours[t * 3 + i];
+                if (triStamps[n] == in)
+                    continue;
+                if (triStamps[n] != out) {
+                    if (conflicts(n, x, y)) {
+                        triStamps[n] = in;
+                        if (numCavity == cavity.length)
+                            cavity = grow(cavity);
+                        cavity[numCavity++] = n;
+                        continue;
+                    }
+                    triStamps[n] = out;
+                }
+                if (numBoundary == boundaryTris.length)
+                    growBoundary();
+                boundaryTris[numBoundary] = t;
+                boundarySlots[numBoundary] = i;
+                ++numBoundary;
+            }
+        }
+
+        // Record the boundary edges before we free the cavity.
+        for (int j = 0; j < numBoundary; ++j) {
+            final int t = boundaryTris[j];
+            final int i = boundarySlots[j];
+            final int n = triNeighbours[t * 3 + i];
+            boundaryFrom[j] = triVerts[t * 3 + next(i)];
+            boundaryTo[j] = triVerts[t * 3 + prev(i)];
+            boundaryTris[j] = n;
+            boundarySlots[j] = slotOfNeighbour(n, t);
+        }
+        for (int c = 0; c < numCavity; ++c)
+            freeTriangle(cavity[c]);
+
+        // Fill it with a fan of triangles (v, from, to).  The triangle
+        // across the edge (to, v) is the one starting at "to"; note the
+        // triangle starting at each vertex, which may be the ghost.
+        for (int j = 0; j < numBoundary; ++j) {
+            final int a = boundaryFrom[j];
+            final int b = boundaryTo[j];
+            final int t = newTriangle(v, a, b);
+            link(t, 0, boundaryTris[j], boundarySlots[j]);
+            boundaryNew[j] = t;
+            if (a == GHOST)
+                ghostFan = t;
+            else {
+                vertexMarks[a] = t;
+                vertexTris[a] = t;
+            }
+        }
+        for (int j = 0; j < numBoundary; ++j) {
+            final int b = boundaryTo[j];
+            final int t = boundaryNew[j];
+            link(t, 1, b == GHOST ? ghostFan : vertexMarks[b], 2);
+        }
+        vertexTris[v] = boundaryNew[0];
+        lastTri = boundaryNew[0];
+    }
+
+
+    /**
+     * Find a triangle whose circumcircle contains the given point.
+     * This is the triangle containing it, or a ghost triangle if the
+     * point is outside the hull.
+     *
+     * @param   x           The X co-ordinate of the point.
+     * @param   y           The Y co-ordinate of the point.
+     * @return              The index of the triangle.
+     */
+    private int locate(double x, double y) {
+        // Start from the closest of a few random vertices, or the
+        // last triangle we made.
+        int t = lastTri;
+        if (triVerts[t * 3] == DEAD)
+            t = vertexTris[firstVertex()];
+        double best = distanceSquared(t, x, y);
+        final int samples = (int) Math.cbrt(numVertices);
+        for (int s = 0; s < samples; ++s) {
+            final int v = nextRandom(vertexLimit);
+            if (vertexTris[v] == DEAD)
+                continue;
+            final double dx = vertexXs[v] - x;
+            final double dy = vertexYs[v] - y;
+            final double d = dx * dx + dy * dy;
+            if (d < best) {
+                best = d;
+                t = vertexTris[v];
+            }
+        }
+        if (isGhost(t))
+            t = triNeighbours[t * 3 + slotOf(t, GHOST)];
+
+        // Walk towards the point, crossing any edge which has the point
+        // on its far side.  Start with a random edge each time, which
+        // guarantees we can't go round in circles.
+        int steps = 0;
+        walk:
+        while (true) {
+            if (++steps > numSolid * 4 + 16)
+                return scan(x, y);
+            final int r = nextRandom(3);
+            for (int k = 0; k < 3; ++k) {
+                final int i = (r + k) % 3;
+                final int a = triVerts[t * 3 + next(i)];
+                final int b = triVerts[t * 3 + prev(i)];
+                if (orient(a, b, x, y) < 0) {
+                    t = triNeighbours[t * 3 + i];
+                    if (isGhost(t))
+                        return t;
+                    continue walk;
+                }
+            }
+            return t;
+        }
+    }
+
+
+    /**
+     * Find a triangle whose circumcircle contains the given point, by
+     * looking at all of them.  This is a fall-back in case rounding
+     * errors upset the walk.
+     */
+    private int scan(double x, double y) {
+        for (int t = 0; t < triLimit; ++t)
+            if (triVerts[t * 3] != DEAD && conflicts(t, x, y))
+                return t;
+        throw new IllegalStateException("no triangle contains point");
+    }
+
+
+    /**
+     * Get the squared distance from a point to the first real vertex
+     * of a triangle.
+     */
+    private double distanceSquared(int t, double x, double y) {
+        int v = triVerts[t * 3];
+        if (v == GHOST)
+            v = triVerts[t * 3 + 1];
+        final double dx = vertexXs[v] - x;
+        final double dy = vertexYs[v] - y;
+        return dx * dx + dy * dy;
+    }
+
+
+    /**
+     * Determine whether a point is within the circumcircle of a
+     * triangle.  For a ghost triangle, the "circle" is the open half-plane
+     * outside its hull edge, plus the interior of the edge itself.
+     *
+     * @param   t           The triangle index.
+     * @param   x           The X co-ordinate of the point.
+     * @param   y           The Y co-ordinate of the point.
+     * @return              true if the point is strictly inside.
+     */
+    private boolean conflicts(int t, double x, double y) {
+        final int g = slotOf(t, GHOST);
+        if (g < 0)
+            return inCircle(triVerts[t * 3], triVerts[t * 3 + 1], triVerts[t * 3 + 2], x, y) > 0;
+
+        final int a = triVerts[t * 3 + next(g)];
+        final int b = triVerts[t * 3 + prev(g)];
+        final double o = orient(a, b, x, y);
+        if (o != 0)
+            return o > 0;
+        final double ex = vertexXs[b] - vertexXs[a];
+        final double ey = vertexYs[b] - vertexYs[a];
+        return (x - vertexXs[a]) * ex + (y - vertexYs[a]) * ey > 0 &&
+               (x - vertexXs[b]) * ex + (y - vertexYs[b]) * ey < 0;
+    }
+
+
+    // ******************************************************************** //
+    // Removal.
+    // ******************************************************************** //
+
+    /**
+     * Fill the hole left by removing a vertex.  The hole is bounded by
+     * the link of the vertex, in starLink, with the triangles outside
+     * each link edge in starOuter.
+     *
+     * <p>We repeatedly cut off an ear whose circumcircle contains none
+     * of the link vertices; these are the Delaunay triangles of the hole.
+     * If the vertex was on the hull, the link includes the ghost vertex;
+     * once the rest of the link is convex, the ghost triangles are cut
+     * off in a fan.
+     *
+     * @param   n           The number of vertices in the link.
+     */
+    private void fillHole(int n) {
+        // Put the ghost, if any, last.
+        int g = -1;
+        for (int j = 0; j < n; ++j)
+            if (starLink[j] == GHOST)
+                g = j;
+        if (g >= 0 && g != n - 1) {
+            rotate(starLink, n, g + 1);
+            rotate(starOuter, n, g + 1);
+            rotate(starOuterSlots, n, g + 1);
+        }
+        final boolean hull = g >= 0;
+        final int numReal = hull ? n - 1 : n;
+
+        // Work on a copy of the link as the polygon; entry j has the
+        // triangle outside the edge from polygon vertex j to j + 1.
+        for (int j = 0; j < n; ++j) {
+            polyVerts[j] = starLink[j];
+            polyOuter[j] = starOuter[j];
+            polyOuterSlots[j] = starOuterSlots[j];
+        }
+        int size = n;
+        while (size > 3) {
+            // Look for a solid ear at polygon vertex i, not next to the
+            // ghost.  Failing that we either have a convex chain next to
+            // the ghost, or rounding problems; cut the first convex ear.
+            int ear = -1;
+            int convex = -1;
+            final int last = hull ? size - 2 : size;
+            for (int i = hull ? 1 : 0; i < last && ear < 0; ++i) {
+                final int a = polyVerts[(i + size - 1) % size];
+                final int b = polyVerts[i];
+                final int c = polyVerts[(i + 1) % size];
+                if (orient(a, b, vertexXs[c], vertexYs[c]) <= 0)
+                    continue;
+                if (convex < 0)
+                    convex = i;
+                boolean empty = true;
+                for (int j = 0; j < numReal && empty; ++j) {
+                    final int w = starLink[j];
+                    if (w != a && w != b && w != c && inCircle(a, b, c, vertexXs[w], vertexYs[w]) > 0)
+                        empty = false;
+                }
+                if (empty)
+                    ear = i;
+            }
+            if (ear < 0)
+                ear = hull ? 0 : convex;
+            if (ear < 0)
+                throw new IllegalStateException("no ear in hole");
+
+            // Cut the ear (a, b, c): its edges ab and bc are polygon
+            // edges, and ca becomes one.
+            final int pi = (ear + size - 1) % size;
+            final int t = newTriangle(polyVerts[pi], polyVerts[ear], polyVerts[(ear + 1) % size]);
+            link(t, 2, polyOuter[pi], polyOuterSlots[pi]);
+            link(t, 0, polyOuter[ear], polyOuterSlots[ear]);
+            polyOuter[pi] = t;
+            polyOuterSlots[pi] = 1;
+            for (int j = ear; j < size - 1; ++j) {
+                polyVerts[j] = polyVerts[j + 1];
+                polyOuter[j] = polyOuter[j + 1];
+                polyOuterSlots[j] = polyOuterSlots[j + 1];
+            }
+            --size;
+            touch(t);
+        }
+
+        final int t = newTriangle(polyVerts[0], polyVerts[1], polyVerts[2]);
+        link(t, 2, polyOuter[0], polyOuterSlots[0]);
+        link(t, 0, polyOuter[1], polyOuterSlots[1]);
+        link(t, 1, polyOuter[2], polyOuterSlots[2]);
+        touch(t);
+        lastTri = t;
+    }
+
+
+    /**
+     * Point the vertices of a new triangle at it.
+     */
+    private void touch(int t) {
+        for (int i = 0; i < 3; ++i) {
+            final int v = triVerts[t * 3 + i];
+            if (v != GHOST)
+                vertexTris[v] = t;
+        }
+    }
+
+
+    /**
+     * Add a vertex to the list we keep while there are no triangles.
+     * Its mark is its position in the list.
+     */
+    private void addLineVertex(Point p, int v) {
+        lineIndex.put(p, v);
+        if (numLine == lineVerts.length)
+            lineVerts = grow(lineVerts);
+        lineVerts[numLine] = v;
+        vertexMarks[v] = numLine++;
+    }
+
+
+    /**
+     * Rotate the first n entries of an array left by k places.
+     */
+    private static void rotate(int[] a, int n, int k) {
+        final int[] t = new int[n];
+        for (int i = 0; i < n; ++i)
+            t[i] = a[(i + k) % n];
+        System.arraycopy(t, 0, a, 0, n);
+    }
+
+
+    // ******************************************************************** //
+    // Rebuilding.
+    // ******************************************************************** //
+
+    /**
+     * Throw away all the triangles, and re-triangulate the vertices
+     * from scratch.  This is used when the triangulation may change
+     * between having triangles and not.
+     */
+    private void rebuild() {
+        triLimit = 0;
+        freeTris = -1;
+        numSolid = 0;
+        degenerate = true;
+        lineIndex.clear();
+        numLine = 0;
+
+        // Find three points which aren't collinear.
+        int a = -1, b = -1, c = -1;
+        for (int v = 0; v < vertexLimit && c < 0; ++v) {
+            if (vertexTris[v] == DEAD)
+                continue;
+            if (a < 0)
+                a = v;
+            else if (b < 0)
+                b = v;
+            else if (orient(a, b, vertexXs[v], vertexYs[v]) != 0)
+                c = v;
+        }
+        for (int v = 0; v < vertexLimit; ++v)
+            if (vertexTris[v] != DEAD)
+                vertexTris[v] = UNPLACED;
+        if (c < 0) {
+            // Still degenerate; index the vertices, so that we don't
+            // have to search them on every update.
+            for (int v = 0; v < vertexLimit; ++v)
+                if (vertexTris[v] != DEAD)
+                    addLineVertex(new Point(vertexXs[v], vertexYs[v]), v);
+            return;
+        }
+        if (orient(a, b, vertexXs[c], vertexYs[c]) < 0) {
+            final int s = b;
+            b = c;
+            c = s;
+        }
+
+        // Make the first triangle, and the three ghosts around it.
+        final int t = newTriangle(a, b, c);
+        final int g0 = newTriangle(c, b, GHOST);
+        final int g1 = newTriangle(a, c, GHOST);
+        final int g2 = newTriangle(b, a, GHOST);
+        link(t, 0, g0, 2);
+        link(t, 1, g1, 2);
+        link(t, 2, g2, 2);
+        link(g0, 0, g2, 1);
+        link(g0, 1, g1, 0);
+        link(g1, 1, g2, 0);
+        vertexTris[a] = vertexTris[b] = vertexTris[c] = t;
+        lastTri = t;
+        degenerate = false;
+
+        for (int v = 0; v < vertexLimit; ++v)
+            if (vertexTris[v] == UNPLACED)
+                insertVertex(v, locate(vertexXs[v], vertexYs[v]));
+    }
+
+
+    // ******************************************************************** //
+    // Geometric Predicates.
+    // ******************************************************************** //
+
+    /**
+     * Determine which side of the line from vertex a to vertex b a
+     * point lies on.
+     *
+     * @return              Positive if the point is to the left, negative
+     *                      if it's to the right, zero if it's on the line.
+     */
+    private double orient(int a, int b, double x, double y) {
+        final double ax = vertexXs[a], ay = vertexYs[a];
+        return (vertexXs[b] - ax) * (y - ay) - (vertexYs[b] - ay) * (x - ax);
+    }
+
+
+    /**
+     * Determine whether a point is inside the circumcircle of the
+     * anticlockwise triangle of vertices a, b, c.
+     *
+     * @return              Positive if the point is inside, negative
+     *                      if it's outside, zero if it's on the circle.
+     */
+    private double inCircle(int a, int b, int c, double x, double y) {
+        final double adx = vertexXs[a] - x, ady = vertexYs[a] - y;
+        final double bdx = vertexXs[b] - x, bdy = vertexYs[b] - y;
+        final double cdx = vertexXs[c] - x, cdy = vertexYs[c] - y;
+        return (adx * adx + ady * ady) * (bdx * cdy - cdx * bdy) +
+               (bdx * bdx + bdy * bdy) * (cdx * ady - adx * cdy) +
+               (cdx * cdx + cdy * cdy) * (adx * bdy - bdx * ady);
+    }
+
+
+    // ******************************************************************** //
+    // Triangle Store.
+    // ******************************************************************** //
+
+    // Slot i of a triangle holds a vertex, and the neighbour across the
+    // edge opposite it: the edge from vertex next(i) to vertex prev(i).
+
+    private static int next(int i) {
+        return i == 2 ? 0 : i + 1;
+    }
+
+
+    private static int prev(int i) {
+        return i == 0 ? 2 : i - 1;
+    }
+
+
+    private boolean isGhost(int t) {
+        final int b = t * 3;
+        return triVerts[b] == GHOST || triVerts[b + 1] == GHOST || triVerts[b + 2] == GHOST;
+    }
+
+
+    /**
+     * Find the slot of a vertex in a triangle.
+     *
+     * @return              The slot, or -1 if v isn't in the triangle.
+     */
+    private int slotOf(int t, int v) {
+        final int b = t * 3;
+        return triVerts[b] == v ? 0 : triVerts[b + 1] == v ? 1 : triVerts[b + 2] == v ? 2 : -1;
+    }
+
+
+    /**
+     * Find the slot of a triangle which refers to a given neighbour.
+     */
+    private int slotOfNeighbour(int t, int n) {
+        final int b = t * 3;
+        return triNeighbours[b] == n ? 0 : triNeighbours[b + 1] == n ? 1 : 2;
+    }
+
+
+    /**
+     * Make two triangles neighbours across the given slots.
+     */
+    private void link(int t, int i, int n, int j) {
+        triNeighbours[t * 3 + i] = n;
+        triNeighbours[n * 3 + j] = t;
+    }
+
+
+    /**
+     * Get a triangle from the pool.
+     *
+     * @return              The index of the new triangle.
+     */
+    private int newTriangle(int a, int b, int c) {
+        int t;
+        if (freeTris >= 0) {
+            t = freeTris;
+            freeTris = triNeighbours[t * 3];
+        } else {
+            t = triLimit++;
+            if (t * 3 + 3 > triVerts.length) {
+                final int len = triVerts.length * 2;
+                triVerts = copyOf(triVerts, len);
+                triNeighbours = copyOf(triNeighbours, len);
+                triStamps = copyOf(triStamps, len / 3);
+            }
+        }
+        triVerts[t * 3] = a;
+        triVerts[t * 3 + 1] = b;
+        triVerts[t * 3 + 2] = c;
+        triStamps[t] = 0;
+        if (a != GHOST && b != GHOST && c != GHOST)
+            ++numSolid;
+        return t;
+    }
+
+
+    /**
+     * Return a triangle to the pool.
+     */
+    private void freeTriangle(int t) {
+        if (!isGhost(t))
+            --numSolid;
+        triVerts[t * 3] = DEAD;
+        triNeighbours[t * 3] = freeTris;
+        freeTris = t;
+    }
+
+
+    // ******************************************************************** //
+    // Vertex Store.
+    // ******************************************************************** //
+
+    /**
+     * Allocate a vertex ID, re-using a free one if possible.
+     *
+     * @return              The new vertex ID.
+     */
+    private int newVertex(double x, double y) {
+        int v;
+        if (freeVertices >= 0) {
+            v = freeVertices;
+            freeVertices = vertexMarks[v];
+        } else {
+            v = vertexLimit++;
+            if (v == vertexXs.length) {
+                final int len = v * 2;
+                vertexXs = copyOf(vertexXs, len);
+                vertexYs = copyOf(vertexYs, len);
+                vertexTris = copyOf(vertexTris, len);
+                vertexMarks = copyOf(vertexMarks, len);
+            }
+        }
+        vertexXs[v] = x;
+        vertexYs[v] = y;
+        vertexTris[v] = UNPLACED;
+        ++numVertices;
+        return v;
+    }
+
+
+    private void freeVertex(int v) {
+        vertexTris[v] = DEAD;
+        vertexMarks[v] = freeVertices;
+        freeVertices = v;
+        --numVertices;
+    }
+
+
+    private int firstVertex() {
+        for (int v = 0; v < vertexLimit; ++v)
+            if (vertexTris[v] != DEAD)
+                return v;
+        return -1;
+    }
+
+
+    /**
+     * Get a pseudo-random number in [0, n) for the walk; we don't
+     * need anything better than xorshift here.
+     */
+    private int nextRandom(int n) {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 17;
+        randomState ^= randomState << 5;
+        return (int) ((randomState & 0xffffffffL) % n);
+    }
+
+
+    private void growStar() {
+        final int len = starTris.length * 2;
+        starTris = copyOf(starTris, len);
+        starLink = copyOf(starLink, len);
+        starOuter = copyOf(starOuter, len);
+        starOuterSlots = copyOf(starOuterSlots, len);
+        polyVerts = copyOf(polyVerts, len);
+        polyOuter = copyOf(polyOuter, len);
+        polyOuterSlots = copyOf(polyOuterSlots, len);
+    }
+
+
+    private void growBoundary() {
+        final int len = boundaryTris.length * 2;
+        boundaryTris = copyOf(boundaryTris, len);
+        boundarySlots = copyOf(boundarySlots, len);
+        boundaryFrom = copyOf(boundaryFrom, len);
+        boundaryTo = copyOf(boundaryTo, len);
+        boundaryNew = copyOf(boundaryNew, len);
+    }
+
+
+    private static int[] grow(int[] a) {
+        return copyOf(a, a.length * 2);
+    }
+
+
+    private static int[] copyOf(int[] a, int len) {
+        final int[] b = new int[len];
+        System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+        return b;
+    }
+
+
+    private static double[] copyOf(double[] a, int len) {
+        final double[] b = new double[len];
+        System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+        return b;
+    }
+
+
+    // ******************************************************************** //
+    // Private Constants.
+    // ******************************************************************** //
+
+    // Initial number of vertices to allocate space for.
+    private static final int INIT_VERTICES = 64;
+
+    // Vertex ID of the vertex at infinity.
+    private static final int GHOST = -1;
+
+    // Marker for a free vertex or triangle.
+    private static final int DEAD = -2;
+
+    // Vertex triangle marker for a vertex not yet in the triangulation.
+    private static final int UNPLACED = -3;
+
+    // The largest search stamp; each search uses two triangle stamps,
+    // 2 * stamp and 2 * stamp + 1, which must not overflow.
+    private static final int MAX_STAMP = Integer.MAX_VALUE / 2;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // Vertex co-ordinates, a triangle containing each vertex (or DEAD
+    // or UNPLACED), and scratch space; for a free vertex, the mark is
+    // the next free vertex, and while we have no triangles, it is the
+    // vertex's position in lineVerts.  vertexLimit is the number of IDs used.
+    private double[] vertexXs;
+    private double[] vertexYs;
+    private int[] vertexTris;
+    private int[] vertexMarks;
+    private int vertexLimit = 0;
+    private int numVertices = 0;
+    private int freeVertices = -1;
+
+    // Vertices and neighbours of each triangle, three slots each, and a
+    // stamp used to mark triangles during a search.  For a free triangle,
+    // the first vertex is DEAD and the first neighbour is the next free
+    // triangle.  triLimit is the number of triangles used.
+    private int[] triVerts;
+    private int[] triNeighbours;
+    private int[] triStamps;
+    private int triLimit = 0;
+    private int freeTris = -1;
+    private int numSolid = 0;
+    private int stamp = 0;
+
+    // True if we have no triangles.
+    private boolean degenerate = true;
+
+    // While we have no triangles, the vertices indexed by position, and
+    // listed; the first two in the list define the line they lie on.
+    private final HashMap<Point, Integer> lineIndex = new HashMap<Point, Integer>();
+    private int[] lineVerts = new int[16];
+    private int numLine = 0;
+
+    // The most recently created triangle; a good place to start a walk.
+    private int lastTri = 0;
+
+    // The new triangle starting from the ghost vertex, while inserting.
+    private int ghostFan;
+
+    // State of the random number generator for walks.
+    private long randomState = 0x9e3779b97f4a7c15L;
+
+    // Working space for insertion: the triangles in the cavity, and for
+    // each boundary edge, its vertices, the triangle and slot outside it,
+    // and the new triangle inside it.
+    private int[] cavity = new int[16];
+    private int[] boundaryTris = new int[16];
+    private int[] boundarySlots = new int[16];
+    private int[] boundaryFrom = new int[16];
+    private int[] boundaryTo = new int[16];
+    private int[] boundaryNew = new int[16];
+
+    // Working space for removal: the triangles around the vertex, its
+    // link, the triangle and slot outside each link edge, and the
+    // polygon being triangulated.
+    private int[] starTris = new int[16];
+    private int[] starLink = new int[16];
+    private int[] starOuter = new int[16];
+    private int[] starOuterSlots = new int[16];
+    private int[] polyVerts = new int[16];
+    private int[] polyOuter = new int[16];
+    private int[] polyOuterSlots = new int[16];
+
+}
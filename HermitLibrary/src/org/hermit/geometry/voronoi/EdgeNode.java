@@ -25,10 +25,38 @@ import org.hermit.geometry.Point;
  */
 class EdgeNode extends Node {
 
-    EdgeNode(VoronoiEdge E, boolean Flipped, Node left, Node right) {
+    EdgeNode(VoronoiEdge E, boolean Flipped, Node left, Node right, int priority) {
         super(left, right);
         Edge = E;
         this.Flipped = Flipped;
+        Priority = priority;
+    }
+
+
+    /**
+     * Get a pseudo-random priority for a new edge node, for balancing
+     * the tree.  This is a hash of the edge's data points, so the shape
+     * of the tree -- and hence the handling of near-ties in the beach
+     * line search -- is repeatable, and we don't need any shared state.
+     * 
+     * @param   E           The edge the node is for.
+     * @param   salt        A value to distinguish the nodes of an edge.
+     * @return              A pseudo-random priority.
+     */
+    static int HashPriority(VoronoiEdge E, int salt) {
+        long h = Double.doubleToLongBits(E.LeftData.getX());
+        h = h * 31 + Double.doubleToLongBits(E.LeftData.getY());
+        h = h * 31 + Double.doubleToLongBits(E.RightData.getX());
+        h = h * 31 + Double.doubleToLongBits(E.RightData.getY());
+        h = h * 31 + salt;
+
+        // Mix the bits, as per the MurmurHash3 finalizer.
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
     }
 
 
@@ -116,6 +144,9 @@ class EdgeNode extends Node {
 
     private boolean Flipped;
 
+    // Priority of this node in the beach line treap.
+    final int Priority;
+
 
     // ******************************************************************** //
     // Utilities.
@@ -16,7 +16,6 @@
 package org.hermit.geometry.voronoi;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 
 import org.hermit.geometry.MathTools;
 import org.hermit.geometry.Point;
@@ -45,8 +44,7 @@ abstract class Event implements Comparable<Event> {
 
 
     abstract Node process(Node Root, double ys,
-                           HashSet<Point> vertList,
-                           HashSet<VoronoiEdge> edgeList,
+                           ArrayList<VoronoiEdge> edgeList,
                            ArrayList<DataNode> CircleCheckList);
 
     public int compareTo(Event ev) {
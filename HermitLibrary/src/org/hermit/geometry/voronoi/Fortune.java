@@ -18,6 +18,7 @@ package org.hermit.geometry.voronoi;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,8 +26,10 @@ import java.util.PriorityQueue;
 
 import org.hermit.geometry.MathTools;
 import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
 import org.hermit.geometry.Edge;
 import org.hermit.geometry.Graph;
+import org.hermit.geometry.Region;
 
 
 /**
@@ -48,17 +51,11 @@ public abstract class Fortune {
      * @return              A Graph representing the generated diagram.
      */
     public static Graph ComputeVoronoiGraph(Iterable<Point> points) {
-        // Create a priority queue of data events for each point,
+        // Create a sorted list of data events for each point,
         // and pass that to the main algorithm.  Ignore dupes in the
         // input points.
-        final PriorityQueue<Event> queue = new PriorityQueue<Event>();
-        for (final Point v : points) {
-            DataEvent ev = new DataEvent(v);
-            if (!queue.contains(ev))
-                queue.add(ev);
-        }
-        
-        return ComputeVoronoiGraph(queue);
+        final HashMap<Point, Integer> sites = new HashMap<Point, Integer>();
+        return makeGraph(ComputeEdges(makeDataEvents(points, sites)));
     }
     
     
@@ -69,17 +66,94 @@ public abstract class Fortune {
      * @return              A Graph representing the generated diagram.
      */
     public static Graph ComputeVoronoiGraph(Point[] points) {
-        // Create a priority queue of data events for each point,
-        // and pass that to the main algorithm.  Ignore dupes in the
-        // input points.
-        final PriorityQueue<Event> queue = new PriorityQueue<Event>();
-        for (final Point v : points) {
-            DataEvent ev = new DataEvent(v);
-            if (!queue.contains(ev))
-                queue.add(ev);
-        }
-        
-        return ComputeVoronoiGraph(queue);
+        return ComputeVoronoiGraph(Arrays.asList(points));
+    }
+    
+
+    /**
+     * Compute the Voronoi diagram for the points in a point cloud.
+     * 
+     * <p>Note that the sweep works on Point objects, so one is created
+     * for each point in the cloud.
+     * 
+     * @param   cloud       The data points.
+     * @return              A Graph representing the generated diagram.
+     */
+    public static Graph ComputeVoronoiGraph(PointCloud cloud) {
+        return ComputeVoronoiGraph(cloud.toPoints());
+    }
+    
+
+    /**
+     * Compute the Voronoi diagram for the given set of points, in
+     * compact doubly-connected edge list form.
+     * 
+     * @param   points      The data points.  Duplicates are ignored;
+     *                      {@link VoronoiDiagram#getInputSite(int)}
+     *                      gives the site for each point.
+     * @return              A VoronoiDiagram representing the generated
+     *                      diagram.
+     */
+    public static VoronoiDiagram ComputeVoronoiDiagram(Point[] points) {
+        final HashMap<Point, Integer> siteIndex = new HashMap<Point, Integer>();
+        final ArrayList<Event> events = new ArrayList<Event>();
+        final int[] inputSites = new int[points.length];
+        for (int i = 0; i < points.length; ++i)
+            inputSites[i] = addDataEvent(points[i], siteIndex, events);
+        return makeDiagram(events, inputSites, siteIndex);
+    }
+    
+
+    /**
+     * Compute the Voronoi diagram for the points in a point cloud, in
+     * compact doubly-connected edge list form.
+     * 
+     * <p>Note that the sweep works on Point objects, so one is created
+     * for each point in the cloud; but the points are read straight
+     * from the cloud, without building an array of them.
+     * 
+     * @param   cloud       The data points.  Duplicates are ignored;
+     *                      {@link VoronoiDiagram#getInputSite(int)}
+     *                      gives the site for each point.
+     * @return              A VoronoiDiagram representing the generated
+     *                      diagram.
+     */
+    public static VoronoiDiagram ComputeVoronoiDiagram(PointCloud cloud) {
+        final int n = cloud.size();
+        final HashMap<Point, Integer> siteIndex = new HashMap<Point, Integer>();
+        final ArrayList<Event> events = new ArrayList<Event>();
+        final int[] inputSites = new int[n];
+        for (int i = 0; i < n; ++i)
+            inputSites[i] = addDataEvent(cloud.getPoint(i), siteIndex, events);
+        return makeDiagram(events, inputSites, siteIndex);
+    }
+    
+
+    /**
+     * Compute the Voronoi diagram for the given set of points, with
+     * the cells clipped to a region.
+     * 
+     * @param   points      The data points.  Duplicates are ignored.
+     * @param   region      The region to clip the cells to.
+     * @return              The clipped cells, with their areas and
+     *                      centroids.
+     */
+    public static VoronoiCells ComputeVoronoiCells(Point[] points, Region region) {
+        return new VoronoiCells(ComputeVoronoiDiagram(points), region);
+    }
+    
+
+    /**
+     * Compute the Voronoi diagram for the points in a point cloud, with
+     * the cells clipped to a region.
+     * 
+     * @param   cloud       The data points.  Duplicates are ignored.
+     * @param   region      The region to clip the cells to.
+     * @return              The clipped cells, with their areas and
+     *                      centroids.
+     */
+    public static VoronoiCells ComputeVoronoiCells(PointCloud cloud, Region region) {
+        return new VoronoiCells(ComputeVoronoiDiagram(cloud), region);
     }
     
 
@@ -115,46 +189,155 @@ public abstract class Fortune {
     // Private Methods.
     // ******************************************************************** //
 
+    /**
+     * Make the sorted list of data events for the given points,
+     * ignoring duplicates.
+     * 
+     * @param   points      The data points.
+     * @param   sites       Empty map which this call will fill in with
+     *                      the site index of each distinct point, in
+     *                      order of first appearance.
+     * @return              The data events, sorted into event order.
+     */
+    private static Event[] makeDataEvents(Iterable<Point> points,
+                                          HashMap<Point, Integer> sites)
+    {
+        final ArrayList<Event> events = new ArrayList<Event>();
+        for (final Point v : points)
+            addDataEvent(v, sites, events);
+        return sortEvents(events);
+    }
+    
+
+    /**
+     * Add a data event for the given point, unless it is a duplicate.
+     * 
+     * @param   v           The data point.
+     * @param   sites       Map of the site index of each distinct
+     *                      point seen so far.
+     * @param   events      The data events so far, in site order.
+     * @return              The site index of the point.
+     */
+    private static int addDataEvent(Point v, HashMap<Point, Integer> sites,
+                                    ArrayList<Event> events)
+    {
+        final Integer s = sites.get(v);
+        if (s != null)
+            return s;
+        sites.put(v, events.size());
+        events.add(new DataEvent(v));
+        return events.size() - 1;
+    }
+    
+
+    private static Event[] sortEvents(ArrayList<Event> events) {
+        Event[] sorted = new Event[events.size()];
+        events.toArray(sorted);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+    
+
+    /**
+     * Run the sweep and build a VoronoiDiagram.
+     * 
+     * @param   events      The data events, in site order.
+     * @param   inputSites  The site index of each input point.
+     * @param   siteIndex   Map from each site to its index.
+     * @return              The generated diagram.
+     */
+    private static VoronoiDiagram makeDiagram(ArrayList<Event> events, int[] inputSites,
+                                              HashMap<Point, Integer> siteIndex)
+    {
+        final Point[] sites = new Point[events.size()];
+        for (int i = 0; i < sites.length; ++i)
+            sites[i] = ((DataEvent) events.get(i)).getDatum();
+        return new VoronoiDiagram(sites, inputSites, siteIndex,
+                                  ComputeEdges(sortEvents(events)));
+    }
+    
+
     /**
      * This routine implements the Fortune algorithm.
      * 
-     * @param   queue       A priority queue of data events for each
-     *                      input point.
-     * @return              A Graph representing the generated diagram.
+     * <p>The data events are all known up front, so they are simply
+     * sorted; only the circle events go in a priority queue.  The queue
+     * then only ever holds events for the current beach line, rather
+     * than for all the points.
+     * 
+     * @param   dataEvents  The data events for each input point, sorted
+     *                      into event order.
+     * @return              The edges of the generated diagram.  Edges
+     *                      of zero length are flagged as minute.
      */
-    private static Graph ComputeVoronoiGraph(PriorityQueue<Event> queue) {
-        final HashMap<DataNode, CircleEvent> CurrentCircles = new HashMap<DataNode, CircleEvent>();
-        final HashSet<Point> vertexList = new HashSet<Point>();
-        final HashSet<VoronoiEdge> edgeList = new HashSet<VoronoiEdge>();
+    private static ArrayList<VoronoiEdge> ComputeEdges(Event[] dataEvents) {
+        final PriorityQueue<CircleEvent> circleQueue = new PriorityQueue<CircleEvent>();
+        final ArrayList<VoronoiEdge> edgeList = new ArrayList<VoronoiEdge>();
+        final ArrayList<DataNode> CircleCheckList = new ArrayList<DataNode>();
+        final DataNode[] SplitList = new DataNode[2];
 
         Node RootNode = null;
-        while (queue.size() > 0) {
-            final Event VE = queue.poll();
-            final ArrayList<DataNode> CircleCheckList = new ArrayList<DataNode>();
+        int nextData = 0;
+        while (nextData < dataEvents.length || circleQueue.size() > 0) {
+            // Take the next event from whichever source is first.
+            final Event VE;
+            if (circleQueue.size() == 0 ||
+                    (nextData < dataEvents.length &&
+                            dataEvents[nextData].compareTo(circleQueue.peek()) <= 0))
+                VE = dataEvents[nextData++];
+            else
+                VE = circleQueue.poll();
+
+            CircleCheckList.clear();
             if (VE instanceof CircleEvent) {
                 CircleEvent cev = (CircleEvent) VE;
-                CurrentCircles.remove(cev.NodeN);
                 if (!cev.Valid)
                     continue;
+                cev.NodeN.Circle = null;
             }
-            RootNode = VE.process(RootNode, VE.getY(), vertexList, edgeList, CircleCheckList);
+            RootNode = VE.process(RootNode, VE.getY(), edgeList, CircleCheckList);
             
+            // A new data point can only cancel the circle events of the
+            // arc it splits, and of that arc's neighbours.  The split arc
+            // is gone from the beach line, so its event always goes; the
+            // neighbours' events go if the point is inside their circles,
+            // which can happen when it lands on a breakpoint.  Note that
+            // the new nodes are first and last in the check list.
+            int numSplit = 0;
+            if (VE instanceof DataEvent) {
+                final DataNode split = ((DataEvent) VE).getSplitNode();
+                if (split != null) {
+                    if (split.Circle != null) {
+                        split.Circle.Valid = false;
+                        split.Circle = null;
+                    }
+                    final DataNode first = CircleCheckList.get(0);
+                    final DataNode last = CircleCheckList.get(CircleCheckList.size() - 1);
+                    SplitList[numSplit++] = Node.LeftDataNode(first);
+                    SplitList[numSplit++] = Node.RightDataNode(last);
+                }
+            }
+
             for (final DataNode VD : CircleCheckList) {
-                if (CurrentCircles.containsKey(VD)) {
-                    final CircleEvent cev = CurrentCircles.remove(VD);
-                    cev.Valid = false;
+                if (VD.Circle != null) {
+                    VD.Circle.Valid = false;
+                    VD.Circle = null;
                 }
                 
                 final CircleEvent VCE = VD.CircleCheckDataNode(VE.getY());
                 if (VCE != null) {
-                    queue.add(VCE);
-                    CurrentCircles.put(VD, VCE);
+                    circleQueue.add(VCE);
+                    VD.Circle = VCE;
                 }
             }
             
-            if (VE instanceof DataEvent) {
+            if (numSplit > 0) {
                 final Point DP = ((DataEvent) VE).getDatum();
-                for (final CircleEvent VCE : CurrentCircles.values()) {
+                for (int i = 0; i < numSplit; ++i) {
+                    final DataNode VD = SplitList[i];
+                    final CircleEvent VCE = VD == null ? null : VD.Circle;
+                    if (VCE == null)
+                        continue;
                     double dist = DP.dist(VCE.Center);
                     double offs = VCE.getY() - VCE.Center.getY();
                     if (MathTools.lt(dist, offs))
@@ -163,7 +346,8 @@ public abstract class Fortune {
             }
         }
         
-        RootNode.CleanUpTree();
+        if (RootNode != null)
+            RootNode.CleanUpTree();
         for (final VoronoiEdge VE : edgeList) {
             if (VE.Done)
                 continue;
@@ -178,26 +362,44 @@ public abstract class Fortune {
             }
         }
         
-        final ArrayList<VoronoiEdge> MinuteEdges = new ArrayList<VoronoiEdge>();
+        // Find edges of zero length.  To prevent rounding errors from
+        // expanding to holes, every vertex equal to the vertex of a
+        // zero-length edge is replaced by that vertex; we look these up
+        // in a hash table, rather than searching all the edges for each.
+        final HashMap<Point, Point> merged = new HashMap<Point, Point>();
         for (final VoronoiEdge VE : edgeList) {
             if (!VE.isPartlyInfinite() && VE.VVertexA.equals(VE.VVertexB)) {
-                MinuteEdges.add(VE);
-                // prevent rounding errors from expanding to holes
-                for (final VoronoiEdge VE2 : edgeList) {
-                    if (VE2.VVertexA.equals(VE.VVertexA))
-                        VE2.VVertexA = VE.VVertexA;
-                    if (VE2.VVertexB.equals(VE.VVertexA))
-                        VE2.VVertexB = VE.VVertexA;
-                }
+                VE.Minute = true;
+                merged.put(VE.VVertexA, VE.VVertexA);
+            }
+        }
+        if (!merged.isEmpty()) {
+            for (final VoronoiEdge VE : edgeList) {
+                final Point a = merged.get(VE.VVertexA);
+                if (a != null)
+                    VE.VVertexA = a;
+                final Point b = merged.get(VE.VVertexB);
+                if (b != null)
+                    VE.VVertexB = b;
             }
         }
-        for (final VoronoiEdge VE : MinuteEdges)
-            edgeList.remove(VE);
         
-        // Now build the Graph to pass back to the caller.
+        return edgeList;
+    }
+    
+    
+    /**
+     * Build a Graph from the generated edges.
+     * 
+     * @param   edgeList    The edges of the diagram.
+     * @return              A Graph representing the diagram.
+     */
+    private static Graph makeGraph(ArrayList<VoronoiEdge> edgeList) {
+        // Leave out the zero-length edges.
         final HashSet<Edge> finalEdges = new HashSet<Edge>();
         for (final VoronoiEdge VE : edgeList)
-            finalEdges.add(VE.toEdge());
+            if (!VE.Minute)
+                finalEdges.add(VE.toEdge());
         return new Graph(finalEdges);
     }
 
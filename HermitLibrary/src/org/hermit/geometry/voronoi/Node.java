@@ -169,6 +169,72 @@ abstract class Node {
     }
 
 
+    // ******************************************************************** //
+    // Balancing.
+    // ******************************************************************** //
+
+    /**
+     * Restore the balance of the beach line tree after an edge node has
+     * been inserted.  The tree is kept as a treap: each edge node has a
+     * random priority, and no edge node has a lower priority than its
+     * parent.  We rotate the given node up until that is true again,
+     * which keeps the expected depth of the tree logarithmic.
+     * 
+     * <p>Rotations don't change the left-to-right order of the nodes,
+     * and each edge node only depends on the data nodes either side of
+     * it, so the beach line is unchanged.
+     * 
+     * @param   x           The newly-inserted node.
+     * @param   root        The current root of the tree.
+     * @return              The new root of the tree.
+     */
+    static Node Balance(EdgeNode x, Node root) {
+        while (x.getParent() != null && ((EdgeNode) x.getParent()).Priority > x.Priority)
+            root = RotateUp(x, root);
+        return root;
+    }
+
+
+    /**
+     * Rotate an edge node up above its parent.
+     * 
+     * @param   x           The node to rotate up.  Must have a parent.
+     * @param   root        The current root of the tree.
+     * @return              The new root of the tree.
+     */
+    private static Node RotateUp(Node x, Node root) {
+        final Node p = x._Parent;
+        final Node g = p._Parent;
+        if (p._Left == x) {
+            p.setLeft(x._Right);
+            x.setRight(p);
+        } else {
+            p.setRight(x._Left);
+            x.setLeft(p);
+        }
+
+        if (g == null) {
+            x._Parent = null;
+            return x;
+        }
+        if (g._Left == p)
+            g.setLeft(x);
+        else
+            g.setRight(x);
+        return root;
+    }
+
+
+    /**
+     * Find the centre of the circle through three points.
+     * 
+     * @param   A           The first point.
+     * @param   B           The second point.
+     * @param   C           The third point.
+     * @return              The centre of the circle; null if the points
+     *                      are collinear as far as the arithmetic can
+     *                      tell, so the centre is at infinity.
+     */
     static Point CircumCircleCenter(Point A, Point B, Point C) {
         if (A == B || B == C || A == C)
             throw new IllegalArgumentException("Need three different points!");
@@ -199,7 +265,12 @@ abstract class Node {
         final double alpha = (wy * (vx - tx) - wx * (vy - ty))
                 / (ux * wy - wx * uy);
 
-        return new Point(tx + alpha * ux, ty + alpha * uy);
+        final double x = tx + alpha * ux;
+        final double y = ty + alpha * uy;
+        if (Double.isNaN(x) || Double.isInfinite(x)
+                || Double.isNaN(y) || Double.isInfinite(y))
+            return null;
+        return new Point(x, y);
     }
 
 
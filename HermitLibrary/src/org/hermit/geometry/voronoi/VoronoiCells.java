@@ -0,0 +1,368 @@
+/**
+ * bentools: Voronoi diagram generator.  This is Benjamin Dittes'
+ * C# implementation of Fortune's algorithm, translated to Java
+ * by Ian Cameron Smith.
+ *
+ * <p>The only license info I can see: "If you ever need a voronoi
+ * clustering in C#, feel free to use my solution here."  See
+ * http://bdittes.googlepages.com/
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.geometry.voronoi;
+
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hermit.geometry.Region;
+
+
+/**
+ * The cells of a Voronoi diagram, clipped to a rectangular region.
+ *
+ * <p>Each cell is a closed convex polygon, with its vertices stored
+ * anticlockwise in flat co-ordinate arrays; the area and centroid of
+ * each cell are calculated along with the polygon.  A cell which lies
+ * entirely outside the region is empty, with an area of zero.
+ *
+ * <p>A cell is clipped by starting with the region, and cutting it
+ * by the perpendicular bisector between the cell's site and each of
+ * its neighbours in the {@link VoronoiDiagram}.  This handles the
+ * unbounded cells, and those which straddle the region boundary,
+ * without any special cases.  Clipping a rectangle by d lines leaves
+ * at most 4 + d vertices, so each cell has a fixed slot in the vertex
+ * arrays, and cells can be clipped independently of each other.
+ *
+ * <p>Since the cells can be clipped in a fork / join pool, this class
+ * needs Android API level 21 or later.
+ */
+public class VoronoiCells {
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Clip the cells of a Voronoi diagram to a region.
+     *
+     * @param   diagram     The Voronoi diagram.
+     * @param   region      The region to clip the cells to.
+     */
+    public VoronoiCells(VoronoiDiagram diagram, Region region) {
+        this(diagram, region, null);
+    }
+
+
+    /**
+     * Clip the cells of a Voronoi diagram to a region, splitting the
+     * work across a fork / join pool.  The results are the same as
+     * for a sequential run.
+     *
+     * @param   diagram     The Voronoi diagram.
+     * @param   region      The region to clip the cells to.
+     * @param   pool        The pool to run the clipping in; if null,
+     *                      it is done in the calling thread.
+     */
+    public VoronoiCells(VoronoiDiagram diagram, Region region, ForkJoinPool pool) {
+        this.diagram = diagram;
+        this.region = region;
+        numSites = diagram.numSites;
+
+        // Allocate each cell 4 + d vertices, where d is the number of
+        // its neighbours.
+        polygonStarts = new int[numSites + 1];
+        for (int s = 0; s <= numSites; ++s)
+            polygonStarts[s] = diagram.cellStarts[s] + 4 * s;
+        polygonSizes = new int[numSites];
+        polygonXs = new double[polygonStarts[numSites]];
+        polygonYs = new double[polygonStarts[numSites]];
+        areas = new double[numSites];
+        centroidXs = new double[numSites];
+        centroidYs = new double[numSites];
+
+        if (pool == null || numSites <= LEAF_SIZE)
+            clipCells(0, numSites);
+        else
+            pool.invoke(new Clip(0, numSites));
+    }
+
+
+    /**
+     * Task which clips a range of cells, splitting it in half until
+     * the pieces are small enough.
+     */
+    private final class Clip extends RecursiveAction {
+        Clip(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_SIZE) {
+                clipCells(start, end);
+                return;
+            }
+
+            int mid = (start + end) >>> 1;
+            invokeAll(new Clip(start, mid), new Clip(mid, end));
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start, end;
+    }
+
+
+    // ******************************************************************** //
+    // Clipping.
+    // ******************************************************************** //
+
+    /**
+     * Clip a range of the cells, and calculate their areas and
+     * centroids.  Different ranges may be clipped concurrently.
+     *
+     * @param   start       Index of the first site to process.
+     * @param   end         Index after the last site to process.
+     */
+    private void clipCells(int start, int end) {
+        final VoronoiDiagram D = diagram;
+        final double x1 = region.getX1(), y1 = region.getY1();
+        final double x2 = region.getX2(), y2 = region.getY2();
+
+        // Scratch polygons, big enough for any cell in the range.
+        int max = 0;
+        for (int s = start; s < end; ++s)
+            max = Math.max(max, polygonStarts[s + 1] - polygonStarts[s]);
+        double[] ax = new double[max], ay = new double[max];
+        double[] bx = new double[max], by = new double[max];
+
+        for (int s = start; s < end; ++s) {
+            // Work relative to the site, for accuracy.
+            final double sx = D.siteXs[s];
+            final double sy = D.siteYs[s];
+
+            // Start with the region, anticlockwise.
+            ax[0] = x1 - sx;  ay[0] = y1 - sy;
+            ax[1] = x2 - sx;  ay[1] = y1 - sy;
+            ax[2] = x2 - sx;  ay[2] = y2 - sy;
+            ax[3] = x1 - sx;  ay[3] = y2 - sy;
+            int n = 4;
+
+            // Keep the side of each bisector closer to our site.
+            for (int h = D.cellStarts[s]; h < D.cellStarts[s + 1] && n > 0; ++h) {
+                final int t = D.cells[D.twins[h]];
+                final double nx = D.siteXs[t] - sx;
+                final double ny = D.siteYs[t] - sy;
+                final double c = (nx * nx + ny * ny) / 2;
+
+                int m = 0;
+                double px = ax[n - 1], py = ay[n - 1];
+                double pd = px * nx + py * ny - c;
+                for (int i = 0; i < n; ++i) {
+                    final double qx = ax[i], qy = ay[i];
+                    final double qd = qx * nx + qy * ny - c;
+                    if ((pd <= 0) != (qd <= 0)) {
+                        final double f = pd / (pd - qd);
+                        bx[m] = px + f * (qx - px);
+                        by[m] = py + f * (qy - py);
+                        ++m;
+                    }
+                    if (qd <= 0) {
+                        bx[m] = qx;
+                        by[m] = qy;
+                        ++m;
+                    }
+                    px = qx;
+                    py = qy;
+                    pd = qd;
+                }
+
+                double[] tx = ax;  ax = bx;  bx = tx;
+                double[] ty = ay;  ay = by;  by = ty;
+                n = m;
+            }
+
+            // Store the polygon, and work out its area and centroid.
+            final int base = polygonStarts[s];
+            double a2 = 0, cx = 0, cy = 0;
+            for (int i = 0; i < n; ++i) {
+                final int j = i + 1 < n ? i + 1 : 0;
+                final double cross = ax[i] * ay[j] - ax[j] * ay[i];
+                a2 += cross;
+                cx += (ax[i] + ax[j]) * cross;
+                cy += (ay[i] + ay[j]) * cross;
+                polygonXs[base + i] = ax[i] + sx;
+                polygonYs[base + i] = ay[i] + sy;
+            }
+            polygonSizes[s] = n;
+            if (a2 > 0) {
+                areas[s] = a2 / 2;
+                centroidXs[s] = cx / (3 * a2) + sx;
+                centroidYs[s] = cy / (3 * a2) + sy;
+            } else {
+                areas[s] = 0;
+                centroidXs[s] = sx;
+                centroidYs[s] = sy;
+            }
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Accessors.
+    // ******************************************************************** //
+
+    /**
+     * Get the diagram these cells were clipped from.
+     *
+     * @return              The Voronoi diagram.
+     */
+    public VoronoiDiagram getDiagram() {
+        return diagram;
+    }
+
+
+    /**
+     * Get the region the cells were clipped to.
+     *
+     * @return              The clipping region.
+     */
+    public Region getRegion() {
+        return region;
+    }
+
+
+    /**
+     * Get the number of cells.  This is the number of sites in the
+     * diagram.
+     *
+     * @return              The number of cells.
+     */
+    public int getNumCells() {
+        return numSites;
+    }
+
+
+    /**
+     * Get the index of the first vertex of a cell's polygon.
+     *
+     * @param   s           The site index.
+     * @return              The index of the first vertex in the
+     *                      polygon co-ordinate arrays.
+     */
+    public int getPolygonStart(int s) {
+        return polygonStarts[s];
+    }
+
+
+    /**
+     * Get the number of vertices in a cell's polygon.
+     *
+     * @param   s           The site index.
+     * @return              The number of vertices; zero if the cell
+     *                      is outside the region.
+     */
+    public int getPolygonSize(int s) {
+        return polygonSizes[s];
+    }
+
+
+    /**
+     * Get the X co-ordinate of a polygon vertex.
+     *
+     * @param   i           The index of the vertex, counting from
+     *                      getPolygonStart() of its cell.
+     * @return              The X co-ordinate.
+     */
+    public double getPolygonX(int i) {
+        return polygonXs[i];
+    }
+
+
+    /**
+     * Get the Y co-ordinate of a polygon vertex.
+     *
+     * @param   i           The index of the vertex, counting from
+     *                      getPolygonStart() of its cell.
+     * @return              The Y co-ordinate.
+     */
+    public double getPolygonY(int i) {
+        return polygonYs[i];
+    }
+
+
+    /**
+     * Get the area of a cell.
+     *
+     * @param   s           The site index.
+     * @return              The area of the clipped cell.
+     */
+    public double getArea(int s) {
+        return areas[s];
+    }
+
+
+    /**
+     * Get the X co-ordinate of the centroid of a cell.
+     *
+     * @param   s           The site index.
+     * @return              The X co-ordinate of the centroid.  If the
+     *                      cell is empty, this is the site's.
+     */
+    public double getCentroidX(int s) {
+        return centroidXs[s];
+    }
+
+
+    /**
+     * Get the Y co-ordinate of the centroid of a cell.
+     *
+     * @param   s           The site index.
+     * @return              The Y co-ordinate of the centroid.  If the
+     *                      cell is empty, this is the site's.
+     */
+    public double getCentroidY(int s) {
+        return centroidYs[s];
+    }
+
+
+    // ******************************************************************** //
+    // Private Constants.
+    // ******************************************************************** //
+
+    // Number of cells below which we don't split the clipping task.
+    private static final int LEAF_SIZE = 4096;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The diagram, and the region we're clipping to.
+    private final VoronoiDiagram diagram;
+    private final Region region;
+
+    // Number of sites, and hence cells.
+    private final int numSites;
+
+    // For each cell, the index of its slot in the polygon arrays (the
+    // last entry is the total size), and the number of vertices used.
+    private final int[] polygonStarts;
+    private final int[] polygonSizes;
+
+    // Co-ordinates of the polygon vertices.
+    private final double[] polygonXs;
+    private final double[] polygonYs;
+
+    // Area and centroid of each cell.
+    private final double[] areas;
+    private final double[] centroidXs;
+    private final double[] centroidYs;
+
+}
@@ -0,0 +1,641 @@
+/**
+ * bentools: Voronoi diagram generator.  This is Benjamin Dittes'
+ * C# implementation of Fortune's algorithm, translated to Java
+ * by Ian Cameron Smith.
+ *
+ * <p>The only license info I can see: "If you ever need a voronoi
+ * clustering in C#, feel free to use my solution here."  See
+ * http://bdittes.googlepages.com/
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.geometry.voronoi;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.hermit.geometry.Edge;
+import org.hermit.geometry.Graph;
+import org.hermit.geometry.KdTree;
+import org.hermit.geometry.Point;
+
+
+/**
+ * A Voronoi diagram in compact doubly-connected edge list form.
+ *
+ * <p>This is an alternative to {@link Graph} as the output of
+ * {@link Fortune}.  Everything is held in primitive arrays, and
+ * sites, vertices and half-edges are referred to by index, so the
+ * diagram can be walked cell by cell, or from a cell to its neighbours,
+ * without any hashing or object allocation.
+ *
+ * <p>Each Voronoi edge is represented by two half-edges, one in each
+ * of the two cells it separates.  A half-edge runs from its origin
+ * vertex to its twin's origin, with its own cell on its left; so the
+ * half-edges of a cell run anticlockwise around it.  A vertex index
+ * of -1 denotes a point at infinity.
+ *
+ * <p>The half-edges of each cell are stored contiguously, in
+ * anticlockwise order, from {@link #getCellStart(int)} up to
+ * {@link #getCellEnd(int)}.  If the cell is unbounded, the first
+ * half-edge is the one which comes in from infinity, and the last is
+ * the one which goes out to infinity.  {@link #getNext(int)} gives the
+ * following half-edge around the cell, or -1 after a half-edge which
+ * goes out to infinity.
+ *
+ * <p>In the degenerate case where all the sites are collinear, the
+ * edges are parallel lines which are infinite at both ends; then each
+ * half-edge is a chain on its own.
+ */
+public class VoronoiDiagram {
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * Create a diagram from the edges generated by Fortune's algorithm.
+     *
+     * @param   sites       The distinct input points, in site order.
+     * @param   inputSites  For each point originally passed in, the
+     *                      index of its site in sites.
+     * @param   siteIndex   Map from each site to its index in sites.
+     * @param   edges       The Voronoi edges.  Edges flagged as minute
+     *                      are left out.
+     * @throws  IllegalStateException  The edges do not make up a
+     *                      consistent diagram.
+     */
+    VoronoiDiagram(Point[] sites, int[] inputSites,
+                   HashMap<Point, Integer> siteIndex,
+                   ArrayList<VoronoiEdge> edges)
+    {
+        numSites = sites.length;
+        siteXs = new double[numSites];
+        siteYs = new double[numSites];
+        for (int s = 0; s < numSites; ++s) {
+            siteXs[s] = sites[s].getX();
+            siteYs[s] = sites[s].getY();
+        }
+        this.inputSites = inputSites;
+
+        // Number the vertices, and create the half-edges in pairs: in
+        // the working arrays, the twin of half-edge h is h ^ 1.
+        int numEdges = 0;
+        for (final VoronoiEdge VE : edges)
+            if (!VE.Minute)
+                ++numEdges;
+        numHalfEdges = numEdges * 2;
+        final int[] pairOrigin = new int[numHalfEdges];
+        final int[] pairCell = new int[numHalfEdges];
+        final HashMap<Point, Integer> vertexIndex = new HashMap<Point, Integer>();
+        final ArrayList<Point> vertices = new ArrayList<Point>();
+
+        int h = 0;
+        for (final VoronoiEdge VE : edges) {
+            if (VE.Minute)
+                continue;
+            final Integer l = siteIndex.get(VE.LeftData);
+            final Integer r = siteIndex.get(VE.RightData);
+            if (l == null || r == null || l.equals(r))
+                throw new IllegalStateException("VoronoiDiagram: edge " + h / 2 +
+                                                " does not separate two sites");
+            final int a = indexVertex(VE.VVertexA, vertexIndex, vertices);
+            final int b = indexVertex(VE.VVertexB, vertexIndex, vertices);
+
+            // The half-edge in the left cell runs perpendicular to the
+            // line from its site to the right site, anticlockwise.  For
+            // a ray, Fortune leaves the sites set so that this is the
+            // direction out to infinity.
+            boolean forward;
+            if (a >= 0 && b >= 0) {
+                final double wx = -(siteYs[r] - siteYs[l]);
+                final double wy = siteXs[r] - siteXs[l];
+                final double ex = VE.VVertexB.getX() - VE.VVertexA.getX();
+                final double ey = VE.VVertexB.getY() - VE.VVertexA.getY();
+                forward = ex * wx + ey * wy >= 0;
+            } else
+                forward = b < 0;
+
+            pairOrigin[h] = forward ? a : b;
+            pairCell[h] = l;
+            pairOrigin[h + 1] = forward ? b : a;
+            pairCell[h + 1] = r;
+            h += 2;
+        }
+
+        numVertices = vertices.size();
+        vertexXs = new double[numVertices];
+        vertexYs = new double[numVertices];
+        for (int v = 0; v < numVertices; ++v) {
+            vertexXs[v] = vertices.get(v).getX();
+            vertexYs[v] = vertices.get(v).getY();
+        }
+
+        // Group the half-edges by cell, using a counting sort.
+        cellStarts = new int[numSites + 1];
+        for (int i = 0; i < numHalfEdges; ++i)
+            ++cellStarts[pairCell[i] + 1];
+        for (int s = 0; s < numSites; ++s)
+            cellStarts[s + 1] += cellStarts[s];
+        final int[] order = new int[numHalfEdges];
+        final int[] fill = new int[numSites];
+        for (int i = 0; i < numHalfEdges; ++i) {
+            final int s = pairCell[i];
+            order[cellStarts[s] + fill[s]++] = i;
+        }
+
+        // Sort each cell's half-edges anticlockwise.  A Voronoi cell is
+        // convex, so this is the order of the directions to the
+        // neighbouring sites.  Then rotate an unbounded cell to start
+        // at the half-edge which comes in from infinity.
+        final double[] angles = new double[numHalfEdges];
+        for (int i = 0; i < numHalfEdges; ++i) {
+            final int s = pairCell[i];
+            final int t = pairCell[i ^ 1];
+            angles[i] = pseudoAngle(siteXs[t] - siteXs[s], siteYs[t] - siteYs[s]);
+        }
+        for (int s = 0; s < numSites; ++s) {
+            final int start = cellStarts[s];
+            final int end = cellStarts[s + 1];
+            for (int i = start + 1; i < end; ++i) {
+                final int e = order[i];
+                int j = i - 1;
+                while (j >= start && angles[order[j]] > angles[e]) {
+                    order[j + 1] = order[j];
+                    --j;
+                }
+                order[j + 1] = e;
+            }
+
+            int first = start;
+            while (first < end && pairOrigin[order[first]] >= 0)
+                ++first;
+            if (first > start && first < end)
+                rotate(order, start, first, end);
+        }
+
+        // Build the final arrays in the sorted order.
+        final int[] position = new int[numHalfEdges];
+        for (int i = 0; i < numHalfEdges; ++i)
+            position[order[i]] = i;
+        origins = new int[numHalfEdges];
+        twins = new int[numHalfEdges];
+        cells = new int[numHalfEdges];
+        nexts = new int[numHalfEdges];
+        for (int i = 0; i < numHalfEdges; ++i) {
+            final int e = order[i];
+            origins[i] = pairOrigin[e];
+            twins[i] = position[e ^ 1];
+            cells[i] = pairCell[e];
+        }
+        for (int s = 0; s < numSites; ++s) {
+            final int start = cellStarts[s];
+            final int end = cellStarts[s + 1];
+            for (int i = start; i < end; ++i) {
+                if (origins[twins[i]] < 0)
+                    nexts[i] = -1;
+                else
+                    nexts[i] = i + 1 < end ? i + 1 : start;
+            }
+        }
+
+        checkCells();
+    }
+
+
+    /**
+     * Check that each cell's half-edges join up.  Each half-edge must
+     * end where the next one starts; and a cell can have at most one
+     * gap at infinity, unless it is bounded by full lines, as in the
+     * collinear case.  If not, the edges we were given are not a
+     * Voronoi diagram; better to fail here than to hand out a
+     * diagram which can't be walked.
+     *
+     * @throws  IllegalStateException  The topology is inconsistent.
+     */
+    private void checkCells() {
+        for (int s = 0; s < numSites; ++s) {
+            int in = 0;
+            int out = 0;
+            for (int i = cellStarts[s]; i < cellStarts[s + 1]; ++i) {
+                final int a = origins[i];
+                final int b = origins[twins[i]];
+                if (a < 0 && b >= 0)
+                    ++in;
+                else if (a >= 0 && b < 0)
+                    ++out;
+                if (nexts[i] >= 0 && origins[nexts[i]] != b)
+                    throw new IllegalStateException("VoronoiDiagram: half-edges of cell " +
+                                                    s + " do not join at vertex " + b);
+            }
+            if (in != out || in > 1)
+                throw new IllegalStateException("VoronoiDiagram: cell " + s + " has " +
+                                                in + " rays in and " + out + " out");
+        }
+    }
+
+
+    /**
+     * Get the index of the given vertex, adding it to the vertex list
+     * if it's new.
+     *
+     * @param   p           The vertex.
+     * @param   index       Map from the vertices seen so far to their
+     *                      indices.
+     * @param   list        List of the vertices seen so far.
+     * @return              The vertex index; -1 if p is infinite.
+     */
+    private static int indexVertex(Point p, HashMap<Point, Integer> index,
+                                   ArrayList<Point> list)
+    {
+        if (p == Point.INFINITE)
+            return -1;
+        final Integer i = index.get(p);
+        if (i != null)
+            return i;
+        index.put(p, list.size());
+        list.add(p);
+        return list.size() - 1;
+    }
+
+
+    /**
+     * Calculate a value which increases monotonically with the angle
+     * of a vector, anticlockwise from the positive X axis; this is
+     * cheaper than atan2().
+     *
+     * @param   dx          X component of the vector.
+     * @param   dy          Y component of the vector.
+     * @return              The pseudo-angle, in the range [0, 4).
+     */
+    private static double pseudoAngle(double dx, double dy) {
+        final double p = dx / (Math.abs(dx) + Math.abs(dy));
+        return dy < 0 ? 3 + p : 1 - p;
+    }
+
+
+    /**
+     * Rotate a range of an array left, so that the element at mid
+     * moves to start.
+     */
+    private static void rotate(int[] a, int start, int mid, int end) {
+        reverse(a, start, mid);
+        reverse(a, mid, end);
+        reverse(a, start, end);
+    }
+
+
+    private static void reverse(int[] a, int start, int end) {
+        for (int i = start, j = end - 1; i < j; ++i, --j) {
+            final int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Sites and Cells.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of sites, which is the number of distinct input
+     * points, and hence the number of cells.
+     *
+     * @return              The number of sites.
+     */
+    public int getNumSites() {
+        return numSites;
+    }
+
+
+    /**
+     * Get the X co-ordinate of a site.
+     *
+     * @param   s           The site index.
+     * @return              The X co-ordinate of the site.
+     */
+    public double getSiteX(int s) {
+        return siteXs[s];
+    }
+
+
+    /**
+     * Get the Y co-ordinate of a site.
+     *
+     * @param   s           The site index.
+     * @return              The Y co-ordinate of the site.
+     */
+    public double getSiteY(int s) {
+        return siteYs[s];
+    }
+
+
+    /**
+     * Get the site corresponding to a point in the input to Fortune.
+     * Duplicate input points map to the same site.
+     *
+     * @param   i           The index of the point in the input.
+     * @return              The index of its site, and cell.
+     */
+    public int getInputSite(int i) {
+        return inputSites[i];
+    }
+
+
+    /**
+     * Find the cell which contains a given point; that is, the site
+     * closest to it.  The first call builds a {@link KdTree} over the
+     * sites, so each query takes logarithmic time.
+     *
+     * @param   x           The X co-ordinate of the point.
+     * @param   y           The Y co-ordinate of the point.
+     * @return              The index of the cell containing the point.
+     *                      If it is on the boundary between cells, the
+     *                      lowest such index.  -1 if there are no sites.
+     */
+    public int findCell(double x, double y) {
+        return getSiteIndex().nearest(x, y);
+    }
+
+
+    /**
+     * Get a spatial index over the sites of this diagram, for radius
+     * or nearest-neighbour queries.  The index is built on first use.
+     *
+     * @return              A KdTree whose point indices are site indices.
+     */
+    public KdTree getSiteIndex() {
+        KdTree index = siteTree;
+        if (index == null)
+            siteTree = index = new KdTree(siteXs, siteYs, numSites);
+        return index;
+    }
+
+
+    /**
+     * Get the first half-edge of a cell.
+     *
+     * @param   s           The site index.
+     * @return              The index of the first half-edge of the
+     *                      cell; if the cell has no edges, this is
+     *                      equal to getCellEnd(s).
+     */
+    public int getCellStart(int s) {
+        return cellStarts[s];
+    }
+
+
+    /**
+     * Get the end of the half-edges of a cell.
+     *
+     * @param   s           The site index.
+     * @return              One past the index of the last half-edge of
+     *                      the cell.
+     */
+    public int getCellEnd(int s) {
+        return cellStarts[s + 1];
+    }
+
+
+    /**
+     * Determine whether a cell is bounded.
+     *
+     * @param   s           The site index.
+     * @return              True if the cell is a closed polygon.
+     */
+    public boolean isBounded(int s) {
+        final int start = cellStarts[s];
+        return start < cellStarts[s + 1] && origins[start] >= 0;
+    }
+
+
+    // ******************************************************************** //
+    // Vertices.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of Voronoi vertices, not counting infinity.
+     *
+     * @return              The number of vertices.
+     */
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+
+    /**
+     * Get the X co-ordinate of a vertex.
+     *
+     * @param   v           The vertex index.
+     * @return              The X co-ordinate of the vertex.
+     */
+    public double getVertexX(int v) {
+        return vertexXs[v];
+    }
+
+
+    /**
+     * Get the Y co-ordinate of a vertex.
+     *
+     * @param   v           The vertex index.
+     * @return              The Y co-ordinate of the vertex.
+     */
+    public double getVertexY(int v) {
+        return vertexYs[v];
+    }
+
+
+    // ******************************************************************** //
+    // Half-Edges.
+    // ******************************************************************** //
+
+    /**
+     * Get the number of half-edges.  This is twice the number of edges.
+     *
+     * @return              The number of half-edges.
+     */
+    public int getNumHalfEdges() {
+        return numHalfEdges;
+    }
+
+
+    /**
+     * Get the vertex a half-edge starts from.
+     *
+     * @param   h           The half-edge index.
+     * @return              The index of its origin vertex; -1 if it
+     *                      comes in from infinity.
+     */
+    public int getOrigin(int h) {
+        return origins[h];
+    }
+
+
+    /**
+     * Get the vertex a half-edge ends at.
+     *
+     * @param   h           The half-edge index.
+     * @return              The index of its destination vertex; -1 if
+     *                      it goes out to infinity.
+     */
+    public int getTarget(int h) {
+        return origins[twins[h]];
+    }
+
+
+    /**
+     * Get the twin of a half-edge; this is the other side of the
+     * same edge, running in the opposite direction.
+     *
+     * @param   h           The half-edge index.
+     * @return              The index of its twin.
+     */
+    public int getTwin(int h) {
+        return twins[h];
+    }
+
+
+    /**
+     * Get the half-edge which follows this one, anticlockwise around
+     * its cell.
+     *
+     * @param   h           The half-edge index.
+     * @return              The index of the next half-edge; -1 if h
+     *                      goes out to infinity.
+     */
+    public int getNext(int h) {
+        return nexts[h];
+    }
+
+
+    /**
+     * Get the cell which a half-edge bounds.  The cell lies to the
+     * left of the half-edge.
+     *
+     * @param   h           The half-edge index.
+     * @return              The index of the cell's site.
+     */
+    public int getCell(int h) {
+        return cells[h];
+    }
+
+
+    /**
+     * Get the neighbouring cell across a half-edge.
+     *
+     * @param   h           The half-edge index.
+     * @return              The index of the site of the cell on the
+     *                      right of the half-edge.
+     */
+    public int getNeighbour(int h) {
+        return cells[twins[h]];
+    }
+
+
+    /**
+     * Get the X component of the direction of a half-edge.  Together
+     * with {@link #getDirectionY(int)}, this gives a vector along the
+     * half-edge, which is not normalised; this is how to draw a
+     * half-edge to or from infinity.
+     *
+     * @param   h           The half-edge index.
+     * @return              The X component of its direction.
+     */
+    public double getDirectionX(int h) {
+        return siteYs[cells[h]] - siteYs[cells[twins[h]]];
+    }
+
+
+    /**
+     * Get the Y component of the direction of a half-edge.
+     *
+     * @param   h           The half-edge index.
+     * @return              The Y component of its direction.
+     * @see     #getDirectionX(int)
+     */
+    public double getDirectionY(int h) {
+        return siteXs[cells[twins[h]]] - siteXs[cells[h]];
+    }
+
+
+    // ******************************************************************** //
+    // Conversion.
+    // ******************************************************************** //
+
+    /**
+     * Build a Graph equivalent to this diagram.
+     *
+     * @return              A Graph with one Edge for each pair of
+     *                      half-edges.
+     */
+    public Graph toGraph() {
+        final Point[] sites = new Point[numSites];
+        for (int s = 0; s < numSites; ++s)
+            sites[s] = new Point(siteXs[s], siteYs[s]);
+        final Point[] vertices = new Point[numVertices];
+        for (int v = 0; v < numVertices; ++v)
+            vertices[v] = new Point(vertexXs[v], vertexYs[v]);
+
+        final HashSet<Edge> edges = new HashSet<Edge>();
+        for (int h = 0; h < numHalfEdges; ++h) {
+            final int t = twins[h];
+            if (t < h)
+                continue;
+
+            // For a ray, use the half-edge which goes out to infinity,
+            // so that the Edge's direction vector points outwards.
+            final int e = origins[h] < 0 && origins[t] >= 0 ? t : h;
+            final int a = origins[e];
+            final int b = origins[twins[e]];
+            edges.add(new Edge(a < 0 ? Point.INFINITE : vertices[a],
+                               b < 0 ? Point.INFINITE : vertices[b],
+                               sites[cells[e]], sites[cells[twins[e]]]));
+        }
+        return new Graph(edges);
+    }
+
+
+    // ******************************************************************** //
+    // Package-Visible Data.
+    // ******************************************************************** //
+
+    // Site co-ordinates, and the site index for each input point.
+    final int numSites;
+    final double[] siteXs;
+    final double[] siteYs;
+    final int[] inputSites;
+
+    // For each site, the index of the first half-edge of its cell; the
+    // last entry is numHalfEdges.
+    final int[] cellStarts;
+
+    // Vertex co-ordinates.
+    final int numVertices;
+    final double[] vertexXs;
+    final double[] vertexYs;
+
+    // For each half-edge, its origin vertex (-1 for infinity), its twin,
+    // the next half-edge around its cell (-1 at infinity), and its cell.
+    final int numHalfEdges;
+    final int[] origins;
+    final int[] twins;
+    final int[] nexts;
+    final int[] cells;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // Spatial index over the sites, built on demand.  The KdTree is
+    // immutable, so a racing build just makes a spare copy.
+    private volatile KdTree siteTree = null;
+
+}
@@ -85,6 +85,9 @@ class VoronoiEdge
 
     boolean Done = false;
 
+    // True if this edge has zero length, and is to be discarded.
+    boolean Minute = false;
+
     Point RightData = Point.UNKNOWN, LeftData = Point.UNKNOWN;
 
     Point VVertexA = Point.UNKNOWN, VVertexB = Point.UNKNOWN;
@@ -0,0 +1,421 @@
+
+/**
+ * utils: general utility functions.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.utils;
+
+
+import java.util.Random;
+
+
+/**
+ * An implementation of SFMT19937, the SIMD-oriented Fast Mersenne
+ * Twister of Saito and Matsumoto.  This is a variant of MT19937 whose
+ * state is 156 128-bit words, each updated by shifts and masks which
+ * work on four 32-bit lanes at once.  Its output needs no tempering,
+ * and it has the same period as MT19937, 2^19937 - 1; but its sequence
+ * is different.
+ *
+ * <p>Java has no 128-bit vector types, so the lanes are simply unrolled.
+ * As there is no tempering, the bulk methods
+ * {@link #nextInts(int[], int, int)} and
+ * {@link #nextDoubles(double[], int, int)} work straight from the
+ * state block.  The sequence from {@link #setSeed32(int)} matches that
+ * of init_gen_rand() in the reference C code, and the sequence from
+ * {@link #setSeed(int[])} matches init_by_array().
+ *
+ * <p>As a subclass of java.util.Random, this class can be used in
+ * place of it, or of {@link net.goui.util.MTRandom}.  It is not
+ * cryptographically strong.
+ */
+public class SFMTRandom
+    extends Random
+{
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a generator seeded from the current time.
+     */
+    public SFMTRandom() {
+        this(System.nanoTime());
+    }
+
+
+    /**
+     * Create a generator with the given 64-bit seed.
+     *
+     * @param   seed        The seed; see {@link #setSeed(long)}.
+     */
+    public SFMTRandom(long seed) {
+        super(seed);
+    }
+
+
+    /**
+     * Create a generator with the given seed array.
+     *
+     * @param   key         The seed; see {@link #setSeed(int[])}.
+     */
+    public SFMTRandom(int[] key) {
+        super(0L);
+        setSeed(key);
+    }
+
+
+    // ******************************************************************** //
+    // Seeding.
+    // ******************************************************************** //
+
+    /**
+     * Reset the state of this generator from a 64-bit seed.  This is
+     * the same as calling {@link #setSeed(int[])} with the low and high
+     * halves of the seed.
+     *
+     * @param   seed        The seed.
+     */
+    @Override
+    public synchronized void setSeed(long seed) {
+        setSeed(new int[] { (int) seed, (int) (seed >>> 32) });
+    }
+
+
+    /**
+     * Reset the state of this generator from a 32-bit seed, in the
+     * same way as init_gen_rand() in the reference code.
+     *
+     * @param   seed        The seed.
+     */
+    public synchronized void setSeed32(int seed) {
+        final int[] s = state();
+        s[0] = seed;
+        for (int i = 1; i < N32; ++i)
+            s[i] = 1812433253 * (s[i - 1] ^ (s[i - 1] >>> 30)) + i;
+        index = N32;
+        certifyPeriod();
+    }
+
+
+    /**
+     * Reset the state of this generator from an array of seed data, in
+     * the same way as init_by_array() in the reference code.
+     *
+     * @param   key         The non-empty seed data.
+     * @throws  IllegalArgumentException  The key is empty.
+     */
+    public synchronized void setSeed(int[] key) {
+        if (key.length == 0)
+            throw new IllegalArgumentException("SFMTRandom: seed key may not be empty");
+
+        final int[] s = state();
+        final int size = N32;
+        final int lag = 11;
+        final int mid = (size - lag) / 2;
+        for (int i = 0; i < size; ++i)
+            s[i] = 0x8b8b8b8b;
+
+        int count = Math.max(key.length + 1, size);
+        int r = func1(s[0] ^ s[mid] ^ s[size - 1]);
+        s[mid] += r;
+        r += key.length;
+        s[mid + lag] += r;
+        s[0] = r;
+        --count;
+
+        int i = 1, j = 0;
+        for (; j < count && j < key.length; ++j) {
+            r = func1(s[i] ^ s[(i + mid) % size] ^ s[(i + size - 1) % size]);
+            s[(i + mid) % size] += r;
+            r += key[j] + i;
+            s[(i + mid + lag) % size] += r;
+            s[i] = r;
+            i = (i + 1) % size;
+        }
+        for (; j < count; ++j) {
+            r = func1(s[i] ^ s[(i + mid) % size] ^ s[(i + size - 1) % size]);
+            s[(i + mid) % size] += r;
+            r += i;
+            s[(i + mid + lag) % size] += r;
+            s[i] = r;
+            i = (i + 1) % size;
+        }
+        for (j = 0; j < size; ++j) {
+            r = func2(s[i] + s[(i + mid) % size] + s[(i + size - 1) % size]);
+            s[(i + mid) % size] ^= r;
+            r -= i;
+            s[(i + mid + lag) % size] ^= r;
+            s[i] = r;
+            i = (i + 1) % size;
+        }
+
+        index = N32;
+        certifyPeriod();
+    }
+
+
+    // ******************************************************************** //
+    // Random Values.
+    // ******************************************************************** //
+
+    /**
+     * Generate the next value in the sequence.  As in
+     * {@link net.goui.util.MTRandom}, each call uses one 32-bit word,
+     * of which the top bits are returned.
+     *
+     * @param   bits        The number of random bits wanted.
+     * @return              The next value, in the low bits.
+     */
+    @Override
+    protected synchronized int next(int bits) {
+        if (index >= N32)
+            generate();
+        return sfmt[index++] >>> (32 - bits);
+    }
+
+
+    /**
+     * Fill part of an int array with the next values in the sequence.
+     * The values, and the state afterwards, are exactly the same as if
+     * nextInt() had been called len times.
+     *
+     * @param   dst         The array to fill.
+     * @param   off         Offset in dst at which to start.
+     * @param   len         The number of values to generate.
+     * @throws  IndexOutOfBoundsException  off and len are not a valid
+     *                      range in dst.
+     */
+    public synchronized void nextInts(int[] dst, int off, int len) {
+        if (off < 0 || len < 0 || off + len > dst.length)
+            throw new IndexOutOfBoundsException("SFMTRandom: bad range");
+
+        int i = off;
+        final int end = off + len;
+        while (i < end) {
+            if (index >= N32)
+                generate();
+            final int n = Math.min(N32 - index, end - i);
+            System.arraycopy(sfmt, index, dst, i, n);
+            index += n;
+            i += n;
+        }
+    }
+
+
+    /**
+     * Fill part of a double array with the next values in the sequence,
+     * uniformly distributed in [0, 1).  The values, and the state
+     * afterwards, are exactly the same as if nextDouble() had been
+     * called len times.
+     *
+     * @param   dst         The array to fill.
+     * @param   off         Offset in dst at which to start.
+     * @param   len         The number of values to generate.
+     * @throws  IndexOutOfBoundsException  off and len are not a valid
+     *                      range in dst.
+     */
+    public synchronized void nextDoubles(double[] dst, int off, int len) {
+        if (off < 0 || len < 0 || off + len > dst.length)
+            throw new IndexOutOfBoundsException("SFMTRandom: bad range");
+
+        final int[] s = sfmt;
+        int i = off;
+        final int end = off + len;
+        while (i < end) {
+            if (index >= N32)
+                generate();
+
+            // Take as many whole pairs of words as are left in the block.
+            int k = index;
+            final int n = Math.min((N32 - k) >>> 1, end - i);
+            for (final int stop = k + 2 * n; k < stop; k += 2) {
+                final long a = s[k] >>> 6;
+                final long b = s[k + 1] >>> 5;
+                dst[i++] = ((a << 27) + b) * DOUBLE_UNIT;
+            }
+            index = k;
+
+            // A double may straddle the end of the block.
+            if (i < end && index == N32 - 1) {
+                final long a = s[index] >>> 6;
+                generate();
+                final long b = s[index++] >>> 5;
+                dst[i++] = ((a << 27) + b) * DOUBLE_UNIT;
+            }
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * Get the state array, creating it if need be.  This is needed
+     * because java.util.Random calls setSeed() before our fields are
+     * initialised.
+     *
+     * @return              The state array.
+     */
+    private int[] state() {
+        if (sfmt == null)
+            sfmt = new int[N32];
+        return sfmt;
+    }
+
+
+    /**
+     * Regenerate the whole state block, and reset the index to its
+     * start.  This is gen_rand_all() in the reference code.  Word w of
+     * the state is lanes 4w .. 4w+3 of the array, least significant
+     * first.
+     */
+    private void generate() {
+        final int[] s = sfmt;
+
+        // r1 and r2 are the last two words generated.
+        int r1 = (N - 2) * 4, r2 = (N - 1) * 4;
+        int i;
+        for (i = 0; i < N - POS1; ++i) {
+            recurse(s, i * 4, (i + POS1) * 4, r1, r2);
+            r1 = r2;
+            r2 = i * 4;
+        }
+        for (; i < N; ++i) {
+            recurse(s, i * 4, (i + POS1 - N) * 4, r1, r2);
+            r1 = r2;
+            r2 = i * 4;
+        }
+
+        index = 0;
+    }
+
+
+    /**
+     * The SFMT recursion: word a becomes
+     * a ^ (a << SL2 bytes) ^ ((b >> SR1) & MSK) ^ (c >> SR2 bytes) ^ (d << SL1),
+     * where the byte shifts are of the whole 128-bit word and the bit
+     * shifts are of each 32-bit lane.
+     *
+     * @param   s           The state array.
+     * @param   a           Index of word a, which is replaced.
+     * @param   b           Index of word b.
+     * @param   c           Index of word c.
+     * @param   d           Index of word d.
+     */
+    private static void recurse(int[] s, int a, int b, int c, int d) {
+        final int a0 = s[a], a1 = s[a + 1], a2 = s[a + 2], a3 = s[a + 3];
+        final int c0 = s[c], c1 = s[c + 1], c2 = s[c + 2], c3 = s[c + 3];
+
+        // The 128-bit byte shifts, done lane by lane: x is a shifted
+        // left by SL2 bytes, y is c shifted right by SR2 bytes.
+        final int x0 = a0 << LS;
+        final int x1 = (a1 << LS) | (a0 >>> (32 - LS));
+        final int x2 = (a2 << LS) | (a1 >>> (32 - LS));
+        final int x3 = (a3 << LS) | (a2 >>> (32 - LS));
+        final int y0 = (c0 >>> RS) | (c1 << (32 - RS));
+        final int y1 = (c1 >>> RS) | (c2 << (32 - RS));
+        final int y2 = (c2 >>> RS) | (c3 << (32 - RS));
+        final int y3 = c3 >>> RS;
+
+        s[a] = a0 ^ x0 ^ ((s[b] >>> SR1) & MSK1) ^ y0 ^ (s[d] << SL1);
+        s[a + 1] = a1 ^ x1 ^ ((s[b + 1] >>> SR1) & MSK2) ^ y1 ^ (s[d + 1] << SL1);
+        s[a + 2] = a2 ^ x2 ^ ((s[b + 2] >>> SR1) & MSK3) ^ y2 ^ (s[d + 2] << SL1);
+        s[a + 3] = a3 ^ x3 ^ ((s[b + 3] >>> SR1) & MSK4) ^ y3 ^ (s[d + 3] << SL1);
+    }
+
+
+    /**
+     * Make sure the state is not one which gives a short period, by
+     * flipping a bit if need be.  This is period_certification() in
+     * the reference code.
+     */
+    private void certifyPeriod() {
+        final int[] s = sfmt;
+        int inner = 0;
+        for (int i = 0; i < 4; ++i)
+            inner ^= s[i] & PARITY[i];
+        for (int i = 16; i > 0; i >>= 1)
+            inner ^= inner >>> i;
+        if ((inner & 1) == 1)
+            return;
+
+        for (int i = 0; i < 4; ++i) {
+            int work = 1;
+            for (int j = 0; j < 32; ++j) {
+                if ((work & PARITY[i]) != 0) {
+                    s[i] ^= work;
+                    return;
+                }
+                work <<= 1;
+            }
+        }
+    }
+
+
+    private static int func1(int x) {
+        return (x ^ (x >>> 27)) * 1664525;
+    }
+
+
+    private static int func2(int x) {
+        return (x ^ (x >>> 27)) * 1566083941;
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    private static final long serialVersionUID = 4383270733211283347L;
+
+    // The SFMT19937 parameters: the number of 128-bit words, and of
+    // 32-bit lanes, in the state; the pick-up position; the shifts;
+    // the masks; and the period certification vector.
+    private static final int N = 156;
+    private static final int N32 = N * 4;
+    private static final int POS1 = 122;
+    private static final int SL1 = 18;
+    private static final int SL2 = 1;
+    private static final int SR1 = 11;
+    private static final int SR2 = 1;
+    private static final int LS = SL2 * 8;
+    private static final int RS = SR2 * 8;
+    private static final int MSK1 = 0xdfffffef;
+    private static final int MSK2 = 0xddfecb7f;
+    private static final int MSK3 = 0xbffaffff;
+    private static final int MSK4 = 0xbffffff6;
+    private static final int[] PARITY = { 0x00000001, 0x00000000, 0x00000000, 0x13c9e684 };
+
+    // Scale factor from 53 random bits to a double in [0, 1).
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The generator state, as 32-bit lanes.  Not serialised.
+    private transient int[] sfmt;
+
+    // Index in sfmt of the next value to return.
+    private transient int index;
+
+}
+
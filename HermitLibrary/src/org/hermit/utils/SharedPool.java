@@ -0,0 +1,79 @@
+/**
+ * utils: general utility functions.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.utils;
+
+
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * The fork / join pool shared by the parallel algorithms in this
+ * library, for callers which don't supply a pool of their own.
+ *
+ * <p>Creating a pool per object would leave a set of threads behind
+ * for every object created, since nothing ever shuts them down.
+ * Instead there is one pool, with one thread per processor, created
+ * when it is first needed.  Its threads are daemon threads, so they
+ * don't keep the process alive.  (ForkJoinPool.commonPool() would do
+ * the same job, but it is new in Java 8, which is Android API level 24.)
+ *
+ * <p>ForkJoinPool itself is new in Java 7, so on Android this class,
+ * and every class which runs in a fork / join pool, needs API level
+ * 21 (Android 5.0) or later.  That is newer than the android-8 target
+ * of the Android projects in this tree, so those projects can't use
+ * these classes.
+ */
+public final class SharedPool {
+
+    // ******************************************************************** //
+    // Constructor.
+    // ******************************************************************** //
+
+    /**
+     * No instances.
+     */
+    private SharedPool() {
+    }
+
+
+    // ******************************************************************** //
+    // Public Methods.
+    // ******************************************************************** //
+
+    /**
+     * Get the shared pool, creating it if need be.
+     *
+     * @return              The shared fork / join pool.
+     */
+    public static synchronized ForkJoinPool get() {
+        if (pool == null)
+            pool = new ForkJoinPool();
+        return pool;
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The shared pool; null until first asked for.
+    private static ForkJoinPool pool = null;
+
+}
+
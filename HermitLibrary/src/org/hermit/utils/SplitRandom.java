@@ -0,0 +1,253 @@
+
+/**
+ * utils: general utility functions.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.utils;
+
+
+/**
+ * A fast, splittable pseudo-random number generator.  The generator is
+ * xoroshiro128+, by Blackman and Vigna, with its state seeded from a
+ * 64-bit seed by SplitMix64.
+ *
+ * <p>Unlike java.util.Random, this class has no locks or atomic
+ * updates: an instance must only be used by one thread at a time.  To
+ * generate in parallel, give each thread or each block of work its
+ * own generator, from {@link #split()} or {@link #forStream(long, long)}.
+ * The latter gives a generator which depends only on a seed and a
+ * stream number, so work divided into numbered blocks produces the same
+ * values however the blocks are shared out among threads.
+ *
+ * <p>This is <b>not</b> a cryptographically strong source of randomness.
+ */
+public final class SplitRandom
+{
+
+    // ******************************************************************** //
+    // Constructors.
+    // ******************************************************************** //
+
+    /**
+     * Create a generator with the given seed.
+     *
+     * @param   seed        The seed.  Any value is fine, including zero.
+     */
+    public SplitRandom(long seed) {
+        setSeed(seed);
+    }
+
+
+    /**
+     * Create the generator for a numbered stream of a given seed.  The
+     * streams of a seed are statistically independent, and each one
+     * depends only on the seed and its number.
+     *
+     * @param   seed        The base seed.
+     * @param   stream      The stream number.
+     * @return              The generator for the given stream.
+     */
+    public static SplitRandom forStream(long seed, long stream) {
+        return new SplitRandom(seed ^ mix64((stream + 1) * GOLDEN_GAMMA));
+    }
+
+
+    /**
+     * Create a new generator, seeded from this one.  This generator
+     * is advanced by one step.
+     *
+     * @return              A new generator, statistically independent
+     *                      of this one.
+     */
+    public SplitRandom split() {
+        return new SplitRandom(mix64(nextLong()));
+    }
+
+
+    /**
+     * Reset this generator's state from the given seed.
+     *
+     * @param   seed        The seed.  Any value is fine, including zero.
+     */
+    public void setSeed(long seed) {
+        // Seed from two SplitMix64 outputs, which are never both zero.
+        long z = seed + GOLDEN_GAMMA;
+        s0 = mix64(z);
+        s1 = mix64(z + GOLDEN_GAMMA);
+        haveGaussian = false;
+    }
+
+
+    // ******************************************************************** //
+    // Random Values.
+    // ******************************************************************** //
+
+    /**
+     * Get the next 64 random bits.
+     *
+     * @return              A uniformly-distributed long.
+     */
+    public long nextLong() {
+        final long a = s0;
+        long b = s1;
+        final long r = a + b;
+        b ^= a;
+        s0 = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+        s1 = Long.rotateLeft(b, 37);
+        return r;
+    }
+
+
+    /**
+     * Get the next 32 random bits.
+     *
+     * @return              A uniformly-distributed int.
+     */
+    public int nextInt() {
+        // The high bits are the best.
+        return (int) (nextLong() >>> 32);
+    }
+
+
+    /**
+     * Get a random int in a given range.
+     *
+     * @param   bound       The upper bound, exclusive.  Must be positive.
+     * @return              A random int in 0 .. bound-1.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("SplitRandom: bound must be positive");
+
+        // Multiply a 32-bit value up to the range, rejecting the values
+        // which would make the low results more likely.
+        long m = (nextLong() >>> 32) * bound;
+        if ((m & 0xffffffffL) < bound) {
+            final long limit = (1L << 32) % bound;
+            while ((m & 0xffffffffL) < limit)
+                m = (nextLong() >>> 32) * bound;
+        }
+        return (int) (m >>> 32);
+    }
+
+
+    /**
+     * Get a random double.
+     *
+     * @return              A uniformly-distributed double in [0, 1).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+
+    /**
+     * Get a normally-distributed random double, by Marsaglia's polar
+     * method.
+     *
+     * @return              A random double with mean 0 and standard
+     *                      deviation 1.
+     */
+    public double nextGaussian() {
+        if (haveGaussian) {
+            haveGaussian = false;
+            return nextGaussian;
+        }
+
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        final double mul = Math.sqrt(-2 * Math.log(s) / s);
+        nextGaussian = v2 * mul;
+        haveGaussian = true;
+        return v1 * mul;
+    }
+
+
+    /**
+     * Fill part of an array with uniformly-distributed random doubles
+     * in a given range.
+     *
+     * @param   dst         The array to fill.
+     * @param   off         Offset in dst at which to start.
+     * @param   len         The number of values to generate.
+     * @param   base        The lowest value to generate.
+     * @param   scale       The width of the range to generate; the
+     *                      values are in [base, base + scale).
+     */
+    public void nextDoubles(double[] dst, int off, int len, double base, double scale) {
+        // Work on locals, so the state stays in registers.
+        long a = s0, b = s1;
+        final double mul = scale * DOUBLE_UNIT;
+        for (int i = off; i < off + len; ++i) {
+            final long r = a + b;
+            b ^= a;
+            a = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+            b = Long.rotateLeft(b, 37);
+            dst[i] = (r >>> 11) * mul + base;
+        }
+        s0 = a;
+        s1 = b;
+    }
+
+
+    // ******************************************************************** //
+    // Private Methods.
+    // ******************************************************************** //
+
+    /**
+     * The SplitMix64 output function: a strong 64-bit bit mixer.
+     *
+     * @param   z           The value to mix.
+     * @return              The mixed value.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The SplitMix64 increment: 2^64 divided by the golden ratio, odd.
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // Scale factor from 53 random bits to a double in [0, 1).
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The generator state.
+    private long s0;
+    private long s1;
+
+    // The second value from the last polar-method Gaussian, if we have
+    // one saved.
+    private boolean haveGaussian;
+    private double nextGaussian;
+
+}
+
@@ -0,0 +1,112 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * 
+ * This package was created by Ian Cameron Smith in February 2009, based
+ * on the formulae in "Practical Astronomy with your Calculator" by
+ * Peter Duffett-Smith, ISBN-10: 0521356997.
+ * 
+ * Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License version 2
+ *   as published by the Free Software Foundation (see COPYING).
+ * 
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ */
+
+
+package org.hermit.test.astro;
+
+
+import org.hermit.astro.AstroError;
+import org.hermit.astro.Body;
+import org.hermit.astro.Instant;
+import org.hermit.astro.Observation;
+import org.hermit.astro.Planet;
+import org.hermit.astro.Body.Field;
+
+
+/**
+ * Benchmark of batch vs. one-at-a-time heliocentric position calculation.
+ * This is a stand-alone program, not a unit test.
+ */
+public class BatchPositionBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    private static double runScalar(Body.Name which, double[] td) throws AstroError {
+        Observation o = new Observation();
+        Body b = o.getBody(which);
+        double sum = 0;
+        for (int i = 0; i < td.length; ++i) {
+            o.setTime(Instant.fromTd(td[i]));
+            sum += b.get(Field.HE_LONGITUDE) + b.get(Field.HE_LATITUDE) +
+                   b.get(Field.HE_RADIUS);
+        }
+        return sum;
+    }
+
+
+    private static double runBatch(Body.Name which, double[] td,
+                                   double[] L, double[] B, double[] R)
+        throws AstroError
+    {
+        Planet.calculateHePositions(which, td, L, B, R);
+        double sum = 0;
+        for (int i = 0; i < td.length; ++i)
+            sum += L[i] + B[i] + R[i];
+        return sum;
+    }
+
+
+    private static void runBench(Body.Name which, int n, int reps) throws AstroError {
+        double[] td = new double[n];
+        for (int i = 0; i < n; ++i)
+            td[i] = 2451545.0 + i * 0.5;
+        double[] L = new double[n];
+        double[] B = new double[n];
+        double[] R = new double[n];
+
+        // Warm up.
+        double check = 0;
+        for (int r = 0; r < 3; ++r)
+            check += runScalar(which, td) - runBatch(which, td, L, B, R);
+
+        long t0 = System.nanoTime();
+        for (int r = 0; r < reps; ++r)
+            check += runScalar(which, td);
+        long t1 = System.nanoTime();
+        for (int r = 0; r < reps; ++r)
+            check -= runBatch(which, td, L, B, R);
+        long t2 = System.nanoTime();
+
+        double scalarNs = (double) (t1 - t0) / reps / n;
+        double batchNs = (double) (t2 - t1) / reps / n;
+        System.out.format("%-8s n=%6d: scalar %9.1f ns/pt  batch %9.1f ns/pt  x%5.2f  (%g)\n",
+                          which.name, n, scalarNs, batchNs, scalarNs / batchNs, check);
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args
+     * @throws AstroError 
+     */
+    public static void main(String[] args) throws AstroError {
+        runBench(Body.Name.EARTH, 1000, 20);
+        runBench(Body.Name.MARS, 1000, 20);
+        runBench(Body.Name.JUPITER, 10000, 5);
+        runBench(Body.Name.NEPTUNE, 10000, 5);
+    }
+
+}
@@ -0,0 +1,98 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * 
+ * This package was created by Ian Cameron Smith in February 2009, based
+ * on the formulae in "Practical Astronomy with your Calculator" by
+ * Peter Duffett-Smith, ISBN-10: 0521356997.
+ * 
+ * Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License version 2
+ *   as published by the Free Software Foundation (see COPYING).
+ * 
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ */
+
+
+package org.hermit.test.astro;
+
+
+import junit.framework.TestCase;
+
+import org.hermit.astro.AstroError;
+import org.hermit.astro.Body;
+import org.hermit.astro.Instant;
+import org.hermit.astro.Observation;
+import org.hermit.astro.Planet;
+import org.hermit.astro.Body.Field;
+
+
+/**
+ * Test code.
+ */
+public class TestBatchPosition
+	extends TestCase
+{
+ 
+	// ******************************************************************** //
+	// Batch Heliocentric Co-Ordinates.
+	// ******************************************************************** //
+	
+	private static void testBatch(Body.Name which, double start, double step, int n)
+		throws AstroError
+	{
+		// Note that an Instant stores UT, so take the TD back from the
+		// Instant to get exactly the time the Observation will use.
+		Instant[] when = new Instant[n];
+		double[] td = new double[n];
+		for (int i = 0; i < n; ++i) {
+			when[i] = Instant.fromTd(start + i * step);
+			td[i] = when[i].getTd();
+		}
+		
+		double[] L = new double[n];
+		double[] B = new double[n];
+		double[] R = new double[n];
+		Planet.calculateHePositions(which, td, L, B, R);
+		
+		// The batch results must be bit-for-bit identical to the
+		// scalar path.
+		Observation o = new Observation();
+		Body b = o.getBody(which);
+		for (int i = 0; i < n; ++i) {
+			o.setTime(when[i]);
+			String lab = which.name + " @" + td[i];
+			assertEquals(lab + " Lon", b.get(Field.HE_LONGITUDE), L[i], 0.0);
+			assertEquals(lab + " Lat", b.get(Field.HE_LATITUDE), B[i], 0.0);
+			assertEquals(lab + " Rad", b.get(Field.HE_RADIUS), R[i], 0.0);
+		}
+	}
+	
+	
+	public void testBatchPlanets() throws AstroError {
+		for (Body.Name which : Body.ALL_BODIES) {
+			if (which.terms == null)
+				continue;
+			testBatch(which, 2448976.5, 7.25, 40);
+		}
+	}
+
+	
+	public void testBatchNotPlanet() {
+		double[] td = { 2448976.5 };
+		double[] out = new double[1];
+		try {
+			Planet.calculateHePositions(Body.Name.MOON, td, out, out, out);
+			fail("Moon batch should have thrown AstroError");
+		} catch (AstroError e) {
+			// Expected.
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * 
+ * This package was created by Ian Cameron Smith in February 2009, based
+ * on the formulae in "Practical Astronomy with your Calculator" by
+ * Peter Duffett-Smith, ISBN-10: 0521356997.
+ * 
+ * Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License version 2
+ *   as published by the Free Software Foundation (see COPYING).
+ * 
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ */
+
+
+package org.hermit.test.astro;
+
+
+import static java.lang.Math.PI;
+import static java.lang.Math.abs;
+import static java.lang.Math.toDegrees;
+import static org.hermit.test.NumericAsserts.assertTolerance;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.hermit.astro.AstroError;
+import org.hermit.astro.Body;
+import org.hermit.astro.Ephemeris;
+import org.hermit.astro.Instant;
+import org.hermit.astro.Observation;
+import org.hermit.astro.Body.Field;
+
+
+/**
+ * Test code.
+ */
+public class TestEphemeris
+	extends TestCase
+{
+
+	// ******************************************************************** //
+	// Accuracy.
+	// ******************************************************************** //
+
+	// Range of the test ephemeris: 1992 Jan 1 to 1992 Apr 1.
+	private static final double START = 2448622.5;
+	private static final double END = 2448713.5;
+
+	// Maximum allowed errors in angles (degrees) and distances (AU).
+	// 1e-6 degrees is 0.0036 arcseconds.
+	private static final double MAX_ANGLE = 1e-6;
+	private static final double MAX_DIST = 1e-9;
+
+	
+	private static double angleDiff(double a, double b) {
+		double d = abs(a - b) % (2 * PI);
+		return toDegrees(d > PI ? 2 * PI - d : d);
+	}
+	
+	
+	/**
+	 * Compare the positions from an ephemeris with the full theory at
+	 * times spread through the ephemeris' range, and check the
+	 * worst errors.
+	 */
+	private static void testAccuracy(Ephemeris eph) throws AstroError {
+		Observation direct = new Observation();
+		Observation cached = new Observation();
+		cached.setEphemeris(eph);
+		
+		for (Body.Name which : Body.ALL_BODIES) {
+			double maxHeA = 0, maxHeR = 0, maxEcA = 0, maxEcR = 0;
+			for (double td = START; td <= END; td += 0.37) {
+				Instant when = Instant.fromTd(td);
+				direct.setTime(when);
+				cached.setTime(when);
+				Body d = direct.getBody(which);
+				Body c = cached.getBody(which);
+				
+				if (which.terms != null) {
+					maxHeA = Math.max(maxHeA, angleDiff(d.get(Field.HE_LONGITUDE),
+														c.get(Field.HE_LONGITUDE)));
+					maxHeA = Math.max(maxHeA, angleDiff(d.get(Field.HE_LATITUDE),
+														c.get(Field.HE_LATITUDE)));
+					maxHeR = Math.max(maxHeR, abs(d.get(Field.HE_RADIUS) -
+												  c.get(Field.HE_RADIUS)));
+				}
+				if (which != Body.Name.EARTH) {
+					maxEcA = Math.max(maxEcA, angleDiff(d.get(Field.EC_LONGITUDE),
+														c.get(Field.EC_LONGITUDE)));
+					maxEcA = Math.max(maxEcA, angleDiff(d.get(Field.EC_LATITUDE),
+														c.get(Field.EC_LATITUDE)));
+					maxEcR = Math.max(maxEcR, abs(d.get(Field.EARTH_DISTANCE) -
+												  c.get(Field.EARTH_DISTANCE)));
+				}
+			}
+			
+			assertTolerance(which.name + " he angle", maxHeA, 0, MAX_ANGLE);
+			assertTolerance(which.name + " he radius", maxHeR, 0, MAX_DIST);
+			assertTolerance(which.name + " ec angle", maxEcA, 0, MAX_ANGLE);
+			assertTolerance(which.name + " ec distance", maxEcR, 0, MAX_DIST);
+		}
+	}
+	
+	
+	public void testAccuracy() throws AstroError {
+		testAccuracy(Ephemeris.build(START, END));
+	}
+
+	
+	// ******************************************************************** //
+	// File I/O.
+	// ******************************************************************** //
+
+	public void testWriteMap() throws AstroError, IOException {
+		Ephemeris eph = Ephemeris.build(START, END);
+		File file = File.createTempFile("ephem", ".bin");
+		try {
+			eph.write(file);
+			Ephemeris mapped = Ephemeris.map(file);
+			assertEquals("start", START, mapped.getStartTd(), 0.0);
+			assertEquals("end", END, mapped.getEndTd(), 0.0);
+			
+			double[] p1 = new double[3];
+			double[] p2 = new double[3];
+			for (double td = START; td <= END; td += 1.3) {
+				eph.getGeocentric(Body.Name.MOON, td, p1);
+				mapped.getGeocentric(Body.Name.MOON, td, p2);
+				for (int i = 0; i < 3; ++i)
+					assertEquals("Moon " + td, p1[i], p2[i], 0.0);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+	
+
+	public void testRange() throws AstroError {
+		Ephemeris eph = Ephemeris.build(START, END);
+		assertTrue(eph.coversGeocentric(Body.Name.SUN, START));
+		assertTrue(eph.coversGeocentric(Body.Name.SUN, END));
+		assertFalse(eph.coversGeocentric(Body.Name.SUN, END + 1));
+		assertFalse(eph.coversHeliocentric(Body.Name.MOON, START));
+		assertFalse(eph.coversGeocentric(Body.Name.EARTH, START));
+		
+		// Outside the range, an Observation falls back to the full theory.
+		Observation direct = new Observation(Instant.fromTd(END + 10));
+		Observation cached = new Observation(Instant.fromTd(END + 10));
+		cached.setEphemeris(eph);
+		assertEquals("fallback",
+					 direct.getSun().get(Field.EC_LONGITUDE),
+					 cached.getSun().get(Field.EC_LONGITUDE), 0.0);
+	}
+
+}
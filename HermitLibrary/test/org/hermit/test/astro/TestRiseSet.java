@@ -28,7 +28,9 @@ import junit.framework.TestCase;
 
 import org.hermit.astro.AstroError;
 import org.hermit.astro.Body;
+import org.hermit.astro.Instant;
 import org.hermit.astro.Observation;
+import org.hermit.astro.RiseSetCalculator;
 import org.hermit.geo.Position;
 
 
@@ -96,5 +98,68 @@ public class TestRiseSet
 		testTwilight("PAC 50", sun, 3.283, 20.616667);
 	}
 
-}
 
+
+	// ******************************************************************** //
+	// Rise and Set Over a Range.
+	// ******************************************************************** //
+
+	private static void testRange(Body.Name which, Position pos, double start, int days)
+		throws AstroError
+	{
+		double[] rise = new double[days];
+		double[] transit = new double[days];
+		double[] set = new double[days];
+		int[] status = new int[days];
+		RiseSetCalculator calc = new RiseSetCalculator();
+		calc.computeRange(which, pos, start, days, rise, transit, set, status);
+		
+		// The results should be identical to an Observation at 0h UT
+		// on each day.
+		Observation o = new Observation();
+		o.setObserverPosition(pos);
+		Body b = o.getBody(which);
+		for (int d = 0; d < days; ++d) {
+			o.setTime(new Instant(start + d));
+			String lab = which.name + " day " + d;
+			assertEquals(lab + " rise", b.get(Body.Field.RISE_TIME), rise[d], 0.0);
+			assertEquals(lab + " tran", b.get(Body.Field.TRANSIT_TIME), transit[d], 0.0);
+			assertEquals(lab + " set", b.get(Body.Field.SET_TIME), set[d], 0.0);
+			assertEquals(lab + " status", RiseSetCalculator.RISES_AND_SETS, status[d]);
+		}
+	}
+
+	
+	public void testRangeMatches() throws AstroError {
+		Position boston = Position.fromDegrees(42.3333, -71.0833);
+		double start = Instant.ymdToJulian(1988, 3, 20.0);
+		testRange(Body.Name.SUN, boston, start, 20);
+		testRange(Body.Name.MOON, boston, start, 20);
+		testRange(Body.Name.VENUS, boston, start, 20);
+	}
+	
+
+	public void testRangePolar() throws AstroError {
+		Position north = Position.fromDegrees(80, 15);
+		RiseSetCalculator calc = new RiseSetCalculator();
+		double[] rise = new double[1];
+		double[] transit = new double[1];
+		double[] set = new double[1];
+		int[] status = new int[1];
+		
+		// Midsummer: the Sun never sets.
+		calc.computeRange(Body.Name.SUN, north, Instant.ymdToJulian(2009, 6, 21.0), 1,
+						  rise, transit, set, status);
+		assertEquals("summer status", RiseSetCalculator.CIRCUMPOLAR, status[0]);
+		assertTrue("summer rise", Double.isNaN(rise[0]));
+		assertTrue("summer set", Double.isNaN(set[0]));
+		assertFalse("summer transit", Double.isNaN(transit[0]));
+		
+		// Midwinter: the Sun never rises.
+		calc.computeRange(Body.Name.SUN, north, Instant.ymdToJulian(2009, 12, 21.0), 1,
+						  rise, transit, set, status);
+		assertEquals("winter status", RiseSetCalculator.NEVER_RISES, status[0]);
+		assertTrue("winter rise", Double.isNaN(rise[0]));
+	}
+
+}
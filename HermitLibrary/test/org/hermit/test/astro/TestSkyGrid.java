@@ -0,0 +1,126 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * 
+ * This package was created by Ian Cameron Smith in February 2009, based
+ * on the formulae in "Practical Astronomy with your Calculator" by
+ * Peter Duffett-Smith, ISBN-10: 0521356997.
+ * 
+ * Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License version 2
+ *   as published by the Free Software Foundation (see COPYING).
+ * 
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ */
+
+
+package org.hermit.test.astro;
+
+
+import junit.framework.TestCase;
+
+import org.hermit.astro.AstroError;
+import org.hermit.astro.Body;
+import org.hermit.astro.Instant;
+import org.hermit.astro.Observation;
+import org.hermit.astro.SkyGrid;
+import org.hermit.astro.Body.Field;
+import org.hermit.astro.Body.Name;
+import org.hermit.geo.Position;
+
+
+/**
+ * Test code.
+ */
+public class TestSkyGrid
+	extends TestCase
+{
+
+	// ******************************************************************** //
+	// Grid Tests.
+	// ******************************************************************** //
+
+	/**
+	 * Make a grid of positions, with the given number of rows and
+	 * columns.  The co-ordinates are taken from Positions, so they
+	 * are normalized just as an Observation would see them.
+	 */
+	private static Position[] makeGrid(int rows, int cols) {
+		Position[] grid = new Position[rows * cols];
+		for (int r = 0; r < rows; ++r) {
+			double lat = -89.5 + 179.0 * r / (rows - 1);
+			for (int c = 0; c < cols; ++c) {
+				double lon = -180.0 + 360.0 * c / cols;
+				grid[r * cols + c] = Position.fromDegrees(lat, lon);
+			}
+		}
+		return grid;
+	}
+
+
+	private static void checkGrid(Name which, Instant when, Position[] grid)
+		throws AstroError
+	{
+		int n = grid.length;
+		double[] lat = new double[n];
+		double[] lon = new double[n];
+		for (int i = 0; i < n; ++i) {
+			lat[i] = grid[i].getLatRads();
+			lon[i] = grid[i].getLonRads();
+		}
+
+		double[] alt = new double[n];
+		double[] az = new double[n];
+		double[] ha = new double[n];
+		SkyGrid sky = new SkyGrid();
+		sky.compute(which, when, lat, lon, alt, az, ha);
+
+		// Check a sample of the cells against a per-observer calculation.
+		for (int i = 0; i < n; i += 7) {
+			Observation o = new Observation(when, grid[i]);
+			Body b = o.getBody(which);
+			String msg = which.name + " at " + grid[i];
+			assertEquals(msg + " alt", b.get(Field.LOCAL_ALTITUDE), alt[i]);
+			assertEquals(msg + " az", b.get(Field.LOCAL_AZIMUTH), az[i]);
+			assertEquals(msg + " ha", b.get(Field.LOCAL_HOUR_ANGLE), ha[i]);
+		}
+	}
+
+
+	public void testSmallGrid() throws AstroError {
+		// Small enough to be done without splitting.
+		Instant when = new Instant(1992, 4, 12.0);
+		Position[] grid = makeGrid(9, 12);
+		checkGrid(Name.SUN, when, grid);
+		checkGrid(Name.MOON, when, grid);
+		checkGrid(Name.MARS, when, grid);
+	}
+
+
+	public void testLargeGrid() throws AstroError {
+		// Big enough to be split across the pool.
+		Instant when = new Instant(2009, 6, 1, 17, 30, 0);
+		Position[] grid = makeGrid(91, 180);
+		checkGrid(Name.SUN, when, grid);
+		checkGrid(Name.MOON, when, grid);
+	}
+
+
+	public void testEarth() {
+		double[] v = new double[1];
+		try {
+			new SkyGrid().compute(Name.EARTH, new Instant(2009, 6, 1.0),
+								  v, v, v, v, null);
+			fail("Expected AstroError for the Earth");
+		} catch (AstroError e) {
+			// OK.
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * 
+ * This package was created by Ian Cameron Smith in February 2009, based
+ * on the formulae in "Practical Astronomy with your Calculator" by
+ * Peter Duffett-Smith, ISBN-10: 0521356997.
+ * 
+ * Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License version 2
+ *   as published by the Free Software Foundation (see COPYING).
+ * 
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ */
+
+
+package org.hermit.test.astro;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Test code.
+ */
+public class TestVsop87Store
+	extends TestCase
+{
+
+	// ******************************************************************** //
+	// Resource File.
+	// ******************************************************************** //
+
+	/**
+	 * Check that the packed VSOP87 resource is exactly what the master
+	 * tables in {@link Vsop87Tables} pack to; if this fails, the resource
+	 * needs to be regenerated by running Vsop87Tables.
+	 */
+	public void testResource() throws IOException {
+		InputStream in = getClass().getResourceAsStream("/org/hermit/astro/vsop87.dat");
+		assertNotNull("vsop87.dat resource", in);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			byte[] chunk = new byte[8192];
+			int n;
+			while ((n = in.read(chunk)) > 0)
+				out.write(chunk, 0, n);
+		} finally {
+			in.close();
+		}
+		
+		byte[] actual = out.toByteArray();
+		byte[] expect = Vsop87Tables.pack();
+		assertEquals("resource size", expect.length, actual.length);
+		for (int i = 0; i < expect.length; ++i)
+			if (actual[i] != expect[i])
+				fail("resource differs from tables at byte " + i);
+	}
+
+}
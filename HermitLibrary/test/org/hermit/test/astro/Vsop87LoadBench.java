@@ -0,0 +1,83 @@
+
+/**
+ * astro: astronomical functions, utilities and data
+ * 
+ * This package was created by Ian Cameron Smith in February 2009, based
+ * on the formulae in "Practical Astronomy with your Calculator" by
+ * Peter Duffett-Smith, ISBN-10: 0521356997.
+ * 
+ * Note that the formulae have been converted to work in radians, to
+ * make it easier to work with java.lang.Math.
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License version 2
+ *   as published by the Free Software Foundation (see COPYING).
+ * 
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ */
+
+
+package org.hermit.test.astro;
+
+
+/**
+ * Benchmark of the start-up cost of the VSOP87 tables: loading the
+ * packed resource, as org.hermit.astro.Vsop87 does, versus initializing
+ * the tables as compiled-in literals, as in {@link Vsop87Tables}.
+ * This is a stand-alone program, not a unit test.
+ * 
+ * <p>Class initialization only happens once per JVM, so each loader is
+ * only timed once; run the program with "store" or "literal" as the
+ * argument to time just one of them in a fresh JVM.
+ */
+public class Vsop87LoadBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; ++i)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+
+    private static void timeInit(String label, String className)
+        throws ClassNotFoundException
+    {
+        long heap0 = usedHeap();
+        long t0 = System.nanoTime();
+        Class<?> c = Class.forName(className, true,
+                                   Vsop87LoadBench.class.getClassLoader());
+        long t1 = System.nanoTime();
+        long heap1 = usedHeap();
+
+        System.out.format("%-8s %-32s init %8.2f ms  heap %+8d KB\n",
+                          label, c.getSimpleName(), (t1 - t0) / 1e6,
+                          (heap1 - heap0) / 1024);
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args          "store" or "literal" to time one loader
+     *                      only; default is both.
+     * @throws ClassNotFoundException 
+     */
+    public static void main(String[] args) throws ClassNotFoundException {
+        String which = args.length > 0 ? args[0] : "both";
+        if (!which.equals("literal"))
+            timeInit("store", "org.hermit.astro.Vsop87");
+        if (!which.equals("store"))
+            timeInit("literal", "org.hermit.test.astro.Vsop87Tables");
+    }
+
+}
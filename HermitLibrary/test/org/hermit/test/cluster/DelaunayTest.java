@@ -0,0 +1,186 @@
+
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.voronoi.DelaunayTriangulation;
+import org.hermit.geometry.voronoi.Fortune;
+
+
+/**
+ * Tests of the incremental Delaunay triangulation.  The Voronoi
+ * diagram derived from the triangulation is checked against the one
+ * generated by Fortune's algorithm from the same points.
+ */
+public class DelaunayTest
+    extends VoronoiTest
+{
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testInsert() {
+        Random rand = new Random(11);
+        DelaunayTriangulation tri = new DelaunayTriangulation();
+        for (int i = 0; i < 400; ++i) {
+            tri.insert(rand.nextDouble() * 1000, rand.nextDouble() * 1000);
+            if (i % 50 == 0)
+                checkTriangulation(tri);
+        }
+        assertEquals("vertices", 400, tri.getNumVertices());
+        checkTriangulation(tri);
+    }
+
+
+    public void testRemove() {
+        Random rand = new Random(12);
+        DelaunayTriangulation tri = new DelaunayTriangulation();
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < 300; ++i)
+            ids.add(tri.insert(rand.nextDouble() * 1000, rand.nextDouble() * 1000));
+
+        // Remove and add points at random, including hull points.
+        for (int k = 0; k < 600; ++k) {
+            if (rand.nextBoolean() && ids.size() > 0) {
+                int v = ids.remove(rand.nextInt(ids.size()));
+                assertTrue("remove", tri.remove(v));
+                assertFalse("removed", tri.isVertex(v));
+            } else
+                ids.add(tri.insert(rand.nextDouble() * 1000, rand.nextDouble() * 1000));
+            if (k % 40 == 0)
+                checkTriangulation(tri);
+        }
+        assertEquals("vertices", ids.size(), tri.getNumVertices());
+        checkTriangulation(tri);
+
+        // Remove everything.
+        while (ids.size() > 0)
+            tri.remove(ids.remove(ids.size() - 1));
+        assertEquals("empty", 0, tri.getNumVertices());
+        assertEquals("no triangles", 0, tri.getNumTriangles());
+    }
+
+
+    public void testLattice() {
+        // Lots of co-circular points and duplicates.
+        Random rand = new Random(13);
+        DelaunayTriangulation tri = new DelaunayTriangulation();
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        for (int k = 0; k < 800; ++k) {
+            if (k % 3 == 0 && ids.size() > 0) {
+                int v = ids.remove(rand.nextInt(ids.size()));
+                if (!ids.contains(v))
+                    tri.remove(v);
+            } else
+                ids.add(tri.insert(rand.nextInt(12) * 10, rand.nextInt(12) * 10));
+            if (k % 50 == 0)
+                checkTriangulation(tri);
+        }
+        checkTriangulation(tri);
+    }
+
+
+    public void testCollinear() {
+        DelaunayTriangulation tri = new DelaunayTriangulation();
+        int a = tri.insert(0, 0);
+        int b = tri.insert(10, 10);
+        assertEquals("duplicate", a, tri.insert(0, 0));
+        tri.insert(20, 20);
+        assertEquals("no triangles", 0, tri.getNumTriangles());
+        checkTriangulation(tri);
+
+        // Adding a point off the line starts triangulating.
+        int c = tri.insert(0, 20);
+        assertEquals("triangles", 2, tri.getNumTriangles());
+        checkTriangulation(tri);
+
+        // Removing it goes back to a line.
+        tri.remove(c);
+        assertEquals("no triangles", 0, tri.getNumTriangles());
+        checkTriangulation(tri);
+        tri.remove(b);
+        checkTriangulation(tri);
+    }
+
+
+    public void testLongLine() {
+        // While there are no triangles, each update has to be quick, or
+        // this takes forever.
+        final int n = 100000;
+        DelaunayTriangulation tri = new DelaunayTriangulation();
+        int[] ids = new int[n];
+        for (int i = 0; i < n; ++i)
+            ids[i] = tri.insert(i, 2 * i);
+        for (int i = 0; i < n; i += 1000)
+            assertEquals("duplicate", ids[i], tri.insert(i, 2 * i));
+
+        // Remove most of them, including the ones which first defined
+        // the line.
+        for (int i = 0; i < n - 10; ++i)
+            assertTrue("remove", tri.remove(ids[i]));
+        assertEquals("vertices", 10, tri.getNumVertices());
+        assertEquals("no triangles", 0, tri.getNumTriangles());
+        assertEquals("duplicate", ids[n - 1], tri.insert(n - 1, 2 * (n - 1)));
+        tri.insert(n, 2 * n);
+        assertEquals("no triangles", 0, tri.getNumTriangles());
+        checkTriangulation(tri);
+
+        // A point off the line is joined to all of them.
+        tri.insert(0, n);
+        assertEquals("triangles", 10, tri.getNumTriangles());
+        checkTriangulation(tri);
+    }
+
+
+    /**
+     * Check that a triangulation is Delaunay, and that its Voronoi
+     * graph matches the one generated by Fortune's algorithm.
+     */
+    private static void checkTriangulation(DelaunayTriangulation tri) {
+        ArrayList<Point> points = new ArrayList<Point>();
+        for (int v = 0; points.size() < tri.getNumVertices(); ++v)
+            if (tri.isVertex(v))
+                points.add(new Point(tri.getX(v), tri.getY(v)));
+
+        int[] tris = tri.getTriangles();
+        assertEquals("triangles", tri.getNumTriangles() * 3, tris.length);
+        for (int i = 0; i < tris.length; i += 3) {
+            double ax = tri.getX(tris[i]), ay = tri.getY(tris[i]);
+            double bx = tri.getX(tris[i + 1]) - ax, by = tri.getY(tris[i + 1]) - ay;
+            double cx = tri.getX(tris[i + 2]) - ax, cy = tri.getY(tris[i + 2]) - ay;
+            double area = bx * cy - by * cx;
+            assertTrue("anticlockwise", area > 0);
+
+            // No vertex may be strictly inside the circumcircle.
+            double d = 2 * area;
+            double b2 = bx * bx + by * by;
+            double c2 = cx * cx + cy * cy;
+            double ox = (cy * b2 - by * c2) / d;
+            double oy = (bx * c2 - cx * b2) / d;
+            double r2 = ox * ox + oy * oy;
+            for (Point p : points) {
+                double dx = p.getX() - ax - ox, dy = p.getY() - ay - oy;
+                assertTrue("empty circle", dx * dx + dy * dy >= r2 * (1 - 1e-9));
+            }
+        }
+
+        Point[] array = points.toArray(new Point[points.size()]);
+        if (array.length > 0)
+            assertEquals("voronoi", edgeKeys(Fortune.ComputeVoronoiGraph(array)),
+                         edgeKeys(tri.toGraph()));
+    }
+
+}
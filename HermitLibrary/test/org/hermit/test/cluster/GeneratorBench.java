@@ -0,0 +1,165 @@
+
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import net.goui.util.MTRandom;
+
+import org.hermit.geometry.Region;
+import org.hermit.geometry.generator.ParallelRandomGenerator;
+import org.hermit.utils.SplitRandom;
+
+
+/**
+ * Benchmark of random point generation: java.util.Random and MTRandom,
+ * alone and shared between threads, against SplitRandom and the
+ * ParallelRandomGenerator.  This is a stand-alone program, not a unit
+ * test.
+ *
+ * <p>The arguments are the data set sizes to run; the default is
+ * 10^6 and 10^7 points.
+ */
+public class GeneratorBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    /**
+     * Fill the arrays from a single java.util.Random.
+     */
+    private static void fillRandom(Random rnd, double[] xs, double[] ys,
+                                   int start, int end)
+    {
+        final double w = REGION.getWidth(), h = REGION.getHeight();
+        final double x1 = REGION.getX1(), y1 = REGION.getY1();
+        for (int i = start; i < end; ++i) {
+            xs[i] = rnd.nextDouble() * w + x1;
+            ys[i] = rnd.nextDouble() * h + y1;
+        }
+    }
+
+
+    /**
+     * Fill the arrays from one shared java.util.Random, in the given
+     * number of threads, to show the contention.
+     */
+    private static void fillShared(final Random rnd, final double[] xs,
+                                   final double[] ys, int nthreads)
+        throws InterruptedException
+    {
+        Thread[] threads = new Thread[nthreads];
+        final int n = xs.length;
+        for (int t = 0; t < nthreads; ++t) {
+            final int start = (int) ((long) n * t / nthreads);
+            final int end = (int) ((long) n * (t + 1) / nthreads);
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    fillRandom(rnd, xs, ys, start, end);
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+    }
+
+
+    private static void report(String name, int n, long t0, long t1) {
+        double ms = (t1 - t0) / 1e6;
+        System.out.format("%-26s n=%9d: %9.1f ms  %8.1f Mpoints/s\n",
+                          name, n, ms, n / ms / 1000);
+    }
+
+
+    private static void runBench(int n) throws InterruptedException {
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        long t0, t1;
+
+        t0 = System.nanoTime();
+        fillRandom(new Random(1), xs, ys, 0, n);
+        t1 = System.nanoTime();
+        report("Random", n, t0, t1);
+
+        t0 = System.nanoTime();
+        fillRandom(new MTRandom(1), xs, ys, 0, n);
+        t1 = System.nanoTime();
+        report("MTRandom", n, t0, t1);
+
+        t0 = System.nanoTime();
+        fillShared(new Random(1), xs, ys, NUM_CPUS);
+        t1 = System.nanoTime();
+        report("Random, shared x " + NUM_CPUS, n, t0, t1);
+
+        t0 = System.nanoTime();
+        fillShared(new MTRandom(1), xs, ys, NUM_CPUS);
+        t1 = System.nanoTime();
+        report("MTRandom, shared x " + NUM_CPUS, n, t0, t1);
+
+        t0 = System.nanoTime();
+        SplitRandom split = new SplitRandom(1);
+        split.nextDoubles(xs, 0, n, REGION.getX1(), REGION.getWidth());
+        split.nextDoubles(ys, 0, n, REGION.getY1(), REGION.getHeight());
+        t1 = System.nanoTime();
+        report("SplitRandom", n, t0, t1);
+
+        for (int threads = 1; threads <= NUM_CPUS; threads *= 2) {
+            ParallelRandomGenerator gen =
+                        new ParallelRandomGenerator(new ForkJoinPool(threads), 1);
+            gen.createPoints(REGION, xs, ys, 0, Math.min(n, 100000));
+            t0 = System.nanoTime();
+            gen.createPoints(REGION, xs, ys, 0, n);
+            t1 = System.nanoTime();
+            report("Parallel x " + threads, n, t0, t1);
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args          Data set sizes to run.
+     * @throws InterruptedException  Interrupted while waiting for a thread.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        // Warm up.
+        runBench(200000);
+        System.out.println();
+
+        if (args.length == 0) {
+            runBench(1000000);
+            runBench(10000000);
+        } else {
+            for (String a : args)
+                runBench(Integer.parseInt(a));
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The region to generate points in.
+    private static final Region REGION = new Region(0, 0, 1000, 1000);
+
+    // The number of processors available.
+    private static final int NUM_CPUS = Runtime.getRuntime().availableProcessors();
+
+}
+
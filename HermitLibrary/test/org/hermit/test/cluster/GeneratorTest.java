@@ -0,0 +1,165 @@
+
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.generator.ParallelRandomGenerator;
+import org.hermit.utils.SplitRandom;
+
+
+/**
+ * Tests of the splittable random number generator, and the parallel
+ * data generator built on it.
+ */
+public class GeneratorTest
+    extends TestCase
+{
+
+    private static final Region REGION = new Region(-100, 50, 900, 850);
+
+
+    @Override
+    protected void tearDown() {
+        for (ForkJoinPool pool : pools)
+            pool.shutdown();
+        pools.clear();
+    }
+
+
+    /**
+     * Note a pool created by a test, so that it is shut down after it.
+     */
+    private ForkJoinPool track(ForkJoinPool pool) {
+        pools.add(pool);
+        return pool;
+    }
+
+
+    public void testSplitRandom() {
+        // Seeding is SplitMix64, so the first output is the sum of the
+        // first two SplitMix64 outputs for the seed.
+        assertEquals("known value", 0x509946a41cd733a3L, new SplitRandom(0).nextLong());
+
+        SplitRandom a = new SplitRandom(42);
+        SplitRandom b = new SplitRandom(42);
+        for (int i = 0; i < 1000; ++i)
+            assertEquals("repeatable", a.nextLong(), b.nextLong());
+        assertTrue("streams", SplitRandom.forStream(42, 0).nextLong() !=
+                              SplitRandom.forStream(42, 1).nextLong());
+
+        // Rough checks of the distributions.
+        SplitRandom r = new SplitRandom(7);
+        final int n = 200000;
+        double sum = 0, sumsq = 0, gsum = 0, gsumsq = 0;
+        int[] counts = new int[10];
+        for (int i = 0; i < n; ++i) {
+            double d = r.nextDouble();
+            assertTrue("range", d >= 0 && d < 1);
+            sum += d;
+            sumsq += d * d;
+            double g = r.nextGaussian();
+            gsum += g;
+            gsumsq += g * g;
+            ++counts[r.nextInt(10)];
+        }
+        assertEquals("uniform mean", 0.5, sum / n, 0.005);
+        assertEquals("uniform var", 1.0 / 12.0, sumsq / n - 0.25, 0.005);
+        assertEquals("gaussian mean", 0.0, gsum / n, 0.01);
+        assertEquals("gaussian var", 1.0, gsumsq / n, 0.02);
+        for (int c : counts)
+            assertEquals("nextInt", n / 10, c, n / 100);
+
+        // Bulk generation matches the scalar form.
+        SplitRandom s1 = new SplitRandom(9);
+        SplitRandom s2 = new SplitRandom(9);
+        double[] bulk = new double[1000];
+        s1.nextDoubles(bulk, 3, 990, 10, 5);
+        for (int i = 3; i < 993; ++i)
+            assertEquals("bulk", s2.nextDouble() * 5 + 10, bulk[i]);
+        assertEquals("state", s1.nextLong(), s2.nextLong());
+    }
+
+
+    public void testReproducible() {
+        // The same seed must give the same points whatever the number
+        // of threads.
+        final int n = 100003;
+        double[] refX = new double[n];
+        double[] refY = new double[n];
+        new ParallelRandomGenerator(track(new ForkJoinPool(1)), 1234)
+                .createPoints(REGION, refX, refY, 0, n);
+        for (int threads : new int[] { 2, 3, 8 }) {
+            double[] xs = new double[n + 5];
+            double[] ys = new double[n + 5];
+            new ParallelRandomGenerator(track(new ForkJoinPool(threads)), 1234)
+                    .createPoints(REGION, xs, ys, 5, n);
+            for (int i = 0; i < n; ++i) {
+                assertEquals("x", refX[i], xs[i + 5]);
+                assertEquals("y", refY[i], ys[i + 5]);
+            }
+        }
+
+        for (int i = 0; i < n; ++i) {
+            assertTrue("x in region", refX[i] >= -100 && refX[i] < 900);
+            assertTrue("y in region", refY[i] >= 50 && refY[i] < 850);
+        }
+
+        // Successive data sets differ, but repeat for the same seed.
+        ParallelRandomGenerator g1 = new ParallelRandomGenerator(track(new ForkJoinPool(2)), 99);
+        ParallelRandomGenerator g2 = new ParallelRandomGenerator(track(new ForkJoinPool(4)), 99);
+        Point[] a1 = g1.createPoints(REGION, 20000);
+        Point[] a2 = g1.createPoints(REGION, 20000);
+        Point[] b1 = g2.createPoints(REGION, 20000);
+        assertFalse("new set", a1[0].equals(a2[0]));
+        assertEquals("same set", a1[19999], b1[19999]);
+        assertEquals("differs", 0, countEqual(a1, a2));
+    }
+
+
+    public void testClouds() {
+        PointCloud array = new PointCloud(0);
+        PointCloud direct = PointCloud.allocateDirect(0);
+        array.add(1, 1);
+        direct.add(1, 1);
+        new ParallelRandomGenerator(track(new ForkJoinPool(2)), 5)
+                .createPoints(REGION, 30000, array);
+        new ParallelRandomGenerator(track(new ForkJoinPool(3)), 5)
+                .createPoints(REGION, 30000, direct);
+        assertEquals("size", 30001, array.size());
+        assertEquals("size", 30001, direct.size());
+        for (int i = 0; i < array.size(); ++i) {
+            assertEquals("x", array.getX(i), direct.getX(i));
+            assertEquals("y", array.getY(i), direct.getY(i));
+        }
+    }
+
+
+    private static int countEqual(Point[] a, Point[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; ++i)
+            if (a[i].equals(b[i]))
+                ++count;
+        return count;
+    }
+
+
+    // The pools created by the current test.
+    private final ArrayList<ForkJoinPool> pools = new ArrayList<ForkJoinPool>();
+
+}
@@ -0,0 +1,103 @@
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.cluster.Clusterer;
+import org.hermit.geometry.cluster.HamerlyClusterer;
+import org.hermit.geometry.cluster.KMeansClusterer;
+import org.hermit.geometry.cluster.ParallelKMeansClusterer;
+import org.hermit.geometry.generator.NuclearGenerator;
+
+
+/**
+ * Benchmark of the k-means clusterers on NuclearGenerator data.  This
+ * is a stand-alone program, not a unit test.
+ *
+ * <p>The arguments are the data set sizes to run; the default is
+ * 10^5, 10^6 and 10^7 points.  The largest needs a heap of 2 GB or so.
+ */
+public class KMeansBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    private static void runClusterer(String name, Clusterer clusterer,
+                                     Point[] points, Region region, int k)
+    {
+        int[] ids = new int[points.length];
+        double[][] means = new double[k][2];
+
+        long t0 = System.nanoTime();
+        clusterer.prepare(points, ids, means, region);
+        long t1 = System.nanoTime();
+        int iters = 0;
+        while (!clusterer.iterate() && iters < MAX_ITERS)
+            ++iters;
+        long t2 = System.nanoTime();
+
+        double prepMs = (t1 - t0) / 1e6;
+        double iterMs = (t2 - t1) / 1e6;
+        System.out.format("%-10s n=%8d: prepare %8.1f ms  %4d iters %10.1f ms" +
+                          "  (%7.2f ms/iter)  metric %.6g\n",
+                          name, points.length, prepMs, iters, iterMs,
+                          iters == 0 ? 0.0 : iterMs / iters, clusterer.metric());
+    }
+
+
+    private static void runBench(int n) {
+        Region region = new Region(0, 0, 1000, 1000);
+        Point[] points = new NuclearGenerator(NUM_CLUSTERS).createPoints(region, n);
+
+        // Warm up on a small subset.
+        Point[] warm = new Point[Math.min(n, 20000)];
+        System.arraycopy(points, 0, warm, 0, warm.length);
+        new HamerlyClusterer().prepare(warm, new int[warm.length],
+                                       new double[NUM_CLUSTERS][2], region);
+
+        runClusterer("Lloyd", new KMeansClusterer(), points, region, NUM_CLUSTERS);
+        runClusterer("Hamerly", new HamerlyClusterer(), points, region, NUM_CLUSTERS);
+        runClusterer("Parallel", new ParallelKMeansClusterer(), points, region, NUM_CLUSTERS);
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args          Data set sizes to run.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            runBench(100000);
+            runBench(1000000);
+            runBench(10000000);
+        } else {
+            for (String a : args)
+                runBench(Integer.parseInt(a));
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // Number of clusters to generate and to look for.
+    private static final int NUM_CLUSTERS = 20;
+
+    // Give up after this many iterations.
+    private static final int MAX_ITERS = 1000;
+
+}
@@ -0,0 +1,350 @@
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.cluster.Clusterer;
+import org.hermit.geometry.cluster.HamerlyClusterer;
+import org.hermit.geometry.cluster.ParallelFuzzyClusterer;
+import org.hermit.geometry.cluster.ParallelKMeansClusterer;
+import org.hermit.geometry.cluster.StreamingClusterer;
+import org.hermit.utils.SharedPool;
+
+
+/**
+ * K-means test scenario.  This class clusters points scattered around
+ * a few well-separated centres, and checks that the clusterers find them.
+ */
+public class KMeansTest
+    extends TestCase
+{
+
+    /**
+     * The centres around which the test points are scattered.
+     */
+    private static final Point[] CENTRES = {
+        new Point(100, 100),
+        new Point(400, 120),
+        new Point(250, 300),
+        new Point(80, 420),
+        new Point(420, 450),
+    };
+
+    private static final Region REGION = new Region(0, 0, 500, 500);
+
+
+    @Override
+    protected void tearDown() {
+        for (ForkJoinPool pool : pools)
+            pool.shutdown();
+        pools.clear();
+    }
+
+
+    /**
+     * Note a pool created by a test, so that it is shut down after it.
+     */
+    private ForkJoinPool track(ForkJoinPool pool) {
+        pools.add(pool);
+        return pool;
+    }
+
+
+    /**
+     * Create the test points: a Gaussian blob around each centre.
+     */
+    private static Point[] makePoints(int perCentre, long seed) {
+        Random rnd = new Random(seed);
+        Point[] points = new Point[CENTRES.length * perCentre];
+        int i = 0;
+        for (Point c : CENTRES)
+            for (int j = 0; j < perCentre; ++j)
+                points[i++] = new Point(c.getX() + rnd.nextGaussian() * 15,
+                                        c.getY() + rnd.nextGaussian() * 15);
+        return points;
+    }
+
+
+    /**
+     * Run a clusterer to convergence, and check that it found the
+     * centres, and that the IDs and means are consistent.
+     */
+    private static void checkClusterer(Clusterer clusterer, Point[] points) {
+        int k = CENTRES.length;
+        int[] ids = new int[points.length];
+        double[][] means = new double[k][2];
+        clusterer.prepare(points, ids, means, REGION);
+        int iters = 0;
+        while (!clusterer.iterate())
+            assertTrue("Too many iterations", ++iters < 100);
+
+        // Every centre should have a mean close to it.
+        checkMeans(means, 5.0);
+
+        // The IDs should match the means, and the metric should be
+        // the sum of squared distances.
+        double sum = 0;
+        for (int i = 0; i < points.length; ++i) {
+            double[] m = means[ids[i]];
+            double dx = points[i].getX() - m[0];
+            double dy = points[i].getY() - m[1];
+            sum += dx * dx + dy * dy;
+        }
+        assertEquals(sum, clusterer.metric(), sum * 1e-9);
+    }
+
+
+    /**
+     * Run a clusterer to convergence, and check that the solution is a
+     * fixed point of Lloyd's algorithm: every point is assigned to its
+     * closest mean, and every mean is the centroid of its points.
+     */
+    private static void checkFixedPoint(Clusterer clusterer, Point[] points, int k) {
+        int[] ids = new int[points.length];
+        double[][] means = new double[k][2];
+        clusterer.prepare(points, ids, means, REGION);
+        int iters = 0;
+        while (!clusterer.iterate())
+            assertTrue("Too many iterations", ++iters < 500);
+
+        double[] sumX = new double[k];
+        double[] sumY = new double[k];
+        int[] count = new int[k];
+        for (int i = 0; i < points.length; ++i) {
+            Point p = points[i];
+            int best = -1;
+            double min = Double.MAX_VALUE;
+            for (int c = 0; c < k; ++c) {
+                double dx = p.getX() - means[c][0];
+                double dy = p.getY() - means[c][1];
+                double d = dx * dx + dy * dy;
+                if (d < min) {
+                    min = d;
+                    best = c;
+                }
+            }
+            assertEquals("Point " + i + " not in closest cluster", best, ids[i]);
+            sumX[best] += p.getX();
+            sumY[best] += p.getY();
+            ++count[best];
+        }
+        for (int c = 0; c < k; ++c) {
+            if (count[c] == 0)
+                continue;
+            assertEquals(sumX[c] / count[c], means[c][0], 1e-6);
+            assertEquals(sumY[c] / count[c], means[c][1], 1e-6);
+        }
+    }
+
+
+    /**
+     * Test the Hamerly clusterer on the blob data, and on uniformly
+     * scattered data, where many points sit near cluster boundaries.
+     */
+    public void testHamerly() {
+        checkFixedPoint(new HamerlyClusterer(), makePoints(2000, 4), CENTRES.length);
+
+        Random rnd = new Random(5);
+        Point[] points = new Point[20000];
+        for (int i = 0; i < points.length; ++i)
+            points[i] = new Point(rnd.nextDouble() * 500, rnd.nextDouble() * 500);
+        checkFixedPoint(new HamerlyClusterer(), points, 16);
+    }
+
+
+    /**
+     * Check that the given means include one close to each centre.
+     */
+    private static void checkMeans(double[][] means, double tol) {
+        for (Point c : CENTRES) {
+            double best = Double.MAX_VALUE;
+            for (double[] m : means)
+                best = Math.min(best, c.dist(new Point(m[0], m[1])));
+            assertTrue("No mean near " + c + ": " + best, best < tol);
+        }
+    }
+
+
+    /**
+     * Test the streaming clusterer, feeding it points in batches and
+     * one at a time.
+     */
+    public void testStreaming() {
+        Point[] points = makePoints(10000, 6);
+        Random rnd = new Random(6);
+        for (int i = points.length - 1; i > 0; --i) {
+            int j = rnd.nextInt(i + 1);
+            Point t = points[i];
+            points[i] = points[j];
+            points[j] = t;
+        }
+        int n = points.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        int k = CENTRES.length;
+
+        // Before we have k points, we just get the points back.
+        StreamingClusterer batched = new StreamingClusterer(k, 1.0, new Random(6));
+        double[][] means = new double[k][2];
+        batched.add(xs, ys, 0, 2);
+        assertEquals(2, batched.getMeans(means));
+        assertEquals(xs[1], means[1][0]);
+
+        // Feed the rest in batches.
+        for (int off = 2; off < n; off += 500)
+            batched.add(xs, ys, off, Math.min(500, n - off));
+        assertEquals(n, batched.getNumPoints());
+        assertEquals(k, batched.getMeans(means));
+        checkMeans(means, 2.0);
+
+        // The points are scattered with a standard deviation of 15 in
+        // each axis, so the mean squared distance should be about 450.
+        double metric = batched.metric();
+        assertTrue("Bad metric " + metric, metric > 400 && metric < 500);
+
+        // Now one at a time.
+        StreamingClusterer single = new StreamingClusterer(k, 1.0, new Random(7));
+        for (int i = 0; i < n; ++i)
+            single.add(points[i]);
+        assertEquals(k, single.getMeans(means));
+        checkMeans(means, 2.0);
+    }
+
+
+    /**
+     * Run the parallel fuzzy clusterer to convergence with a given
+     * fuzziness, and check the memberships against the textbook formula.
+     */
+    private static void checkFuzzy(double m, long seed) {
+        Point[] points = makePoints(4000, seed);
+        int k = CENTRES.length;
+        int[] ids = new int[points.length];
+        double[][] means = new double[k][2];
+        ParallelFuzzyClusterer fuzzy =
+                new ParallelFuzzyClusterer(SharedPool.get(), m, new Random(seed));
+        fuzzy.prepare(points, ids, means, REGION);
+        int iters = 0;
+        while (!fuzzy.iterate())
+            assertTrue("Too many iterations", ++iters < 500);
+        checkMeans(means, 5.0);
+
+        // Check the memberships of some of the points.
+        double[] u = fuzzy.getMemberships();
+        for (int p = 0; p < points.length; p += 97) {
+            double rowSum = 0;
+            for (int c = 0; c < k; ++c) {
+                double dc = points[p].dist(new Point(means[c][0], means[c][1]));
+                double sum = 0;
+                for (int j = 0; j < k; ++j) {
+                    double dj = points[p].dist(new Point(means[j][0], means[j][1]));
+                    sum += Math.pow(dc / dj, 2 / (m - 1));
+                }
+                assertEquals(1 / sum, u[p * k + c], 1e-9);
+                rowSum += u[p * k + c];
+            }
+            assertEquals(1.0, rowSum, 1e-12);
+        }
+    }
+
+
+    /**
+     * Test the parallel fuzzy clusterer, with the m = 2 fast path and
+     * the general path.
+     */
+    public void testFuzzy() {
+        checkFuzzy(2.0, 8);
+        checkFuzzy(2.5, 9);
+    }
+
+
+    /**
+     * Check that the fuzzy clusterer refuses a membership matrix too
+     * big to index.
+     */
+    public void testFuzzyTooBig() {
+        int n = 1 << 16;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        try {
+            new ParallelFuzzyClusterer().prepare(xs, ys, new int[n],
+                                                 new double[n][], REGION);
+            fail("Accepted " + n + " * " + n + " memberships");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+
+    /**
+     * Test the parallel clusterer on a data set small enough to be
+     * done in one task.
+     */
+    public void testParallelSmall() {
+        Point[] points = makePoints(200, 1);
+        checkClusterer(new ParallelKMeansClusterer(track(new ForkJoinPool()),
+                                                   new Random(1)), points);
+    }
+
+
+    /**
+     * Test the parallel clusterer on a data set big enough to be split
+     * across the pool.
+     */
+    public void testParallelLarge() {
+        Point[] points = makePoints(20000, 2);
+        checkClusterer(new ParallelKMeansClusterer(track(new ForkJoinPool()),
+                                                   new Random(2)), points);
+    }
+
+
+    /**
+     * Check that the results don't depend on the number of threads.
+     */
+    public void testRepeatable() {
+        Point[] points = makePoints(20000, 3);
+        int k = CENTRES.length;
+
+        double[][] means1 = new double[k][2];
+        Clusterer c1 = new ParallelKMeansClusterer(track(new ForkJoinPool(1)),
+                                                   new Random(3));
+        c1.prepare(points, new int[points.length], means1, REGION);
+        while (!c1.iterate())
+            ;
+
+        double[][] means4 = new double[k][2];
+        Clusterer c4 = new ParallelKMeansClusterer(track(new ForkJoinPool(4)),
+                                                   new Random(3));
+        c4.prepare(points, new int[points.length], means4, REGION);
+        while (!c4.iterate())
+            ;
+
+        assertEquals(c1.metric(), c4.metric());
+        for (int c = 0; c < k; ++c) {
+            assertEquals(means1[c][0], means4[c][0]);
+            assertEquals(means1[c][1], means4[c][1]);
+        }
+    }
+
+
+    // The pools created by the current test.
+    private final ArrayList<ForkJoinPool> pools = new ArrayList<ForkJoinPool>();
+
+}
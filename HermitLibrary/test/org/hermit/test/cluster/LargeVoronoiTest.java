@@ -0,0 +1,155 @@
+
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.voronoi.DelaunayTriangulation;
+import org.hermit.geometry.voronoi.Fortune;
+import org.hermit.geometry.voronoi.VoronoiCells;
+import org.hermit.geometry.voronoi.VoronoiDiagram;
+
+
+/**
+ * Tests of Fortune's algorithm on large numbers of random sites.
+ * Rounding problems which are too rare to show up in small tests
+ * appear here; we check every cell's neighbours against the Delaunay
+ * triangulation of the same sites, and check that the cells clipped
+ * to the sites' region exactly cover it.  {@link VoronoiBench} uses the
+ * same checks.
+ */
+public class LargeVoronoiTest
+    extends VoronoiTest
+{
+
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    static Point[] randomSites(int n, long seed) {
+        Random rand = new Random(seed);
+        Point[] sites = new Point[n];
+        for (int i = 0; i < n; ++i)
+            sites[i] = new Point(rand.nextDouble() * 1000, rand.nextDouble() * 1000);
+        return sites;
+    }
+
+
+    /**
+     * Check a Voronoi diagram against the Delaunay triangulation of
+     * its sites.  The sites must be in general position.
+     *
+     * @param   sites       The input sites.
+     * @param   diagram     The diagram of the sites.
+     * @return              The number of cells whose neighbours are
+     *                      not the same as in the triangulation.
+     */
+    static int countWrongCells(Point[] sites, VoronoiDiagram diagram) {
+        // Get each site's sorted neighbours from the triangulation.
+        final int n = diagram.getNumSites();
+        DelaunayTriangulation tri = new DelaunayTriangulation();
+        int[] vertexSite = new int[sites.length];
+        for (int i = 0; i < sites.length; ++i)
+            vertexSite[tri.insert(sites[i])] = diagram.getInputSite(i);
+        int[][] want = neighbours(n, tri.getTriangles(), vertexSite);
+
+        // Compare them with the diagram's.
+        int[] buf = new int[n];
+        int wrong = 0;
+        for (int s = 0; s < n; ++s) {
+            int k = 0;
+            for (int h = diagram.getCellStart(s); h < diagram.getCellEnd(s); ++h)
+                buf[k++] = diagram.getNeighbour(h);
+            Arrays.sort(buf, 0, k);
+            if (!Arrays.equals(want[s], Arrays.copyOf(buf, k)))
+                ++wrong;
+        }
+        return wrong;
+    }
+
+
+    /**
+     * Get the total area of a diagram's cells, clipped to the region
+     * 0 - 1000 in X and Y.  If the sites are in that region, this
+     * should be the region's area.
+     *
+     * @param   diagram     The diagram.
+     * @return              The total area of the clipped cells.
+     */
+    static double totalArea(VoronoiDiagram diagram) {
+        VoronoiCells cells = new VoronoiCells(diagram, new Region(0, 0, 1000, 1000));
+        double area = 0;
+        for (int s = 0; s < cells.getNumCells(); ++s)
+            area += cells.getArea(s);
+        return area;
+    }
+
+
+    /**
+     * Get each site's neighbours from a triangulation.
+     *
+     * @param   n           The number of sites.
+     * @param   tris        The triangles, as vertex IDs.
+     * @param   vertexSite  The site of each vertex ID.
+     * @return              The sorted neighbours of each site.
+     */
+    private static int[][] neighbours(int n, int[] tris, int[] vertexSite) {
+        // Each edge is in one or two triangles; collect both directions.
+        int[] counts = new int[n + 1];
+        for (int i = 0; i < tris.length; ++i)
+            counts[vertexSite[tris[i]] + 1] += 2;
+        for (int s = 0; s < n; ++s)
+            counts[s + 1] += counts[s];
+        int[] fill = new int[n];
+        int[] adj = new int[tris.length * 2];
+        for (int t = 0; t < tris.length; t += 3) {
+            for (int i = 0; i < 3; ++i) {
+                int a = vertexSite[tris[t + i]];
+                int b = vertexSite[tris[t + (i + 1) % 3]];
+                adj[counts[a] + fill[a]++] = b;
+                adj[counts[b] + fill[b]++] = a;
+            }
+        }
+
+        int[][] res = new int[n][];
+        for (int s = 0; s < n; ++s) {
+            int[] list = Arrays.copyOfRange(adj, counts[s], counts[s] + fill[s]);
+            Arrays.sort(list);
+            int k = 0;
+            for (int i = 0; i < list.length; ++i)
+                if (k == 0 || list[i] != list[k - 1])
+                    list[k++] = list[i];
+            res[s] = Arrays.copyOf(list, k);
+        }
+        return res;
+    }
+
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testRandom() {
+        for (long seed = 1; seed <= 2; ++seed) {
+            Point[] sites = randomSites(100000, seed);
+            VoronoiDiagram diagram = Fortune.ComputeVoronoiDiagram(sites);
+            assertEquals("sites", sites.length, diagram.getNumSites());
+            assertEquals("cells with wrong neighbours", 0, countWrongCells(sites, diagram));
+            assertEquals("total area", 1000000.0, totalArea(diagram), 1e-3);
+        }
+    }
+
+}
+
@@ -0,0 +1,147 @@
+
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.cluster.LloydRelaxer;
+import org.hermit.geometry.voronoi.VoronoiCells;
+
+
+/**
+ * Tests of Lloyd relaxation towards a centroidal Voronoi tessellation.
+ */
+public class LloydTest
+    extends VoronoiTest
+{
+
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    private static Point[] makeSites(int n, long seed) {
+        Random rand = new Random(seed);
+        Point[] sites = new Point[n];
+        for (int i = 0; i < n; ++i)
+            sites[i] = new Point(rand.nextDouble() * 300, rand.nextDouble() * 200);
+        return sites;
+    }
+
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testConverge() {
+        LloydRelaxer relaxer = new LloydRelaxer(null);
+        relaxer.prepare(makeSites(150, 1), REGION);
+        double[] metrics = relaxer.relax(100);
+        assertTrue("rounds", metrics.length > 10);
+        assertTrue("converging", metrics[metrics.length - 1] < metrics[0] / 10);
+        assertEquals("metric", metrics[metrics.length - 1], relaxer.metric());
+
+        // Run one more round, so the cells match the sites; each site
+        // should now be close to its centroid, and in the region.
+        relaxer.iterate();
+        VoronoiCells cells = relaxer.getCells();
+        double total = 0;
+        for (int s = 0; s < cells.getNumCells(); ++s) {
+            double dx = cells.getCentroidX(s) - cells.getDiagram().getSiteX(s);
+            double dy = cells.getCentroidY(s) - cells.getDiagram().getSiteY(s);
+            assertTrue("near centroid", Math.sqrt(dx * dx + dy * dy) < 1.0);
+            total += cells.getArea(s);
+        }
+        assertEquals("area", 300 * 200, total, 1e-6);
+
+        // The cells should now be fairly even in size.
+        double mean = total / cells.getNumCells();
+        for (int s = 0; s < cells.getNumCells(); ++s)
+            assertTrue("even", cells.getArea(s) > mean / 3 && cells.getArea(s) < mean * 3);
+    }
+
+
+    public void testConvergeLarge() {
+        // Each round must move the sites less than the one before.
+        final int n = 100000;
+        Random rand = new Random(4);
+        PointCloud sites = new PointCloud(n);
+        for (int i = 0; i < n; ++i)
+            sites.add(rand.nextDouble() * 300, rand.nextDouble() * 200);
+        LloydRelaxer relaxer = new LloydRelaxer();
+        relaxer.prepare(sites, REGION);
+        double[] metrics = relaxer.relax(4);
+        assertEquals("rounds", 4, metrics.length);
+        for (int r = 1; r < metrics.length; ++r)
+            assertTrue("round " + r + " converging: " + metrics[r - 1] + " -> " + metrics[r],
+                       metrics[r] < metrics[r - 1]);
+        assertTrue("converged", metrics[metrics.length - 1] < metrics[0] / 4);
+
+        // The cells still cover the region.
+        double total = 0;
+        VoronoiCells cells = relaxer.getCells();
+        for (int s = 0; s < cells.getNumCells(); ++s)
+            total += cells.getArea(s);
+        assertEquals("area", 300 * 200, total, 1e-4);
+    }
+
+
+    public void testDuplicates() {
+        Point[] sites = makeSites(50, 2);
+        sites[10] = sites[20];
+        LloydRelaxer relaxer = new LloydRelaxer(null);
+        relaxer.prepare(sites, REGION);
+        relaxer.iterate();
+
+        // The first copy moves; the second stays put, so the two
+        // separate.
+        assertEquals("stays", sites[20].getX(), relaxer.getSiteX(20));
+        assertFalse("moves", sites[10].getX() == relaxer.getSiteX(10));
+        relaxer.relax(5);
+    }
+
+
+    public void testParallel() {
+        // The parallel centroid stage must give the same results.
+        Point[] sites = makeSites(20000, 3);
+        LloydRelaxer serial = new LloydRelaxer(null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        LloydRelaxer parallel = new LloydRelaxer(pool);
+        serial.prepare(sites, REGION);
+        parallel.prepare(sites, REGION);
+        try {
+            for (int r = 0; r < 2; ++r) {
+                serial.iterate();
+                parallel.iterate();
+                assertEquals("metric", serial.metric(), parallel.metric());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < sites.length; ++i) {
+            assertEquals("x", serial.getSiteX(i), parallel.getSiteX(i));
+            assertEquals("y", serial.getSiteY(i), parallel.getSiteY(i));
+        }
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The region the sites are relaxed in.
+    private static final Region REGION = new Region(0, 0, 300, 200);
+
+}
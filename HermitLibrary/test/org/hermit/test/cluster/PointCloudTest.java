@@ -0,0 +1,205 @@
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointCloud;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.cluster.HamerlyClusterer;
+import org.hermit.geometry.cluster.KMeansClusterer;
+import org.hermit.geometry.cluster.ParallelKMeansClusterer;
+import org.hermit.geometry.generator.NuclearGenerator;
+import org.hermit.geometry.generator.RandomGenerator;
+import org.hermit.geometry.spline.CubicSpline;
+import org.hermit.geometry.voronoi.Fortune;
+import org.hermit.geometry.voronoi.VoronoiDiagram;
+
+
+/**
+ * Tests of the PointCloud type, and the overloads of the geometry APIs
+ * which take one.  Each overload is checked against the Point[] form.
+ */
+public class PointCloudTest
+    extends TestCase
+{
+
+    private static final Region REGION = new Region(0, 0, 1000, 800);
+
+
+    private static PointCloud makeCloud(int n, long seed, boolean direct) {
+        Random rand = new Random(seed);
+        PointCloud cloud = direct ? PointCloud.allocateDirect(4) : new PointCloud(4);
+        for (int i = 0; i < n; ++i)
+            cloud.add(rand.nextDouble() * 1000, rand.nextDouble() * 800);
+        return cloud;
+    }
+
+
+    public void testStorage() {
+        for (boolean direct : new boolean[] { false, true }) {
+            PointCloud cloud = makeCloud(1000, 1, direct);
+            assertEquals("size", 1000, cloud.size());
+            assertEquals("array", !direct, cloud.hasArray());
+            assertTrue("capacity", cloud.capacity() >= 1000);
+
+            Point[] points = cloud.toPoints();
+            PointCloud copy = new PointCloud(points);
+            double[] xs = cloud.xArray();
+            double[] ys = cloud.yArray();
+            assertEquals("xArray", 1000, xs.length);
+            for (int i = 0; i < 1000; ++i) {
+                assertEquals("x", points[i].getX(), cloud.getX(i));
+                assertEquals("y", points[i].getY(), cloud.getY(i));
+                assertEquals("copy", cloud.getX(i), copy.getX(i));
+                assertEquals("xs", cloud.getX(i), xs[i]);
+                assertEquals("ys", cloud.getY(i), ys[i]);
+                assertEquals("buffer", cloud.getY(i), cloud.getYBuffer().get(i));
+            }
+
+            cloud.set(5, 1, 2);
+            assertEquals("set", 1.0, cloud.getX(5));
+            assertEquals("set", 2.0, cloud.getY(5));
+            try {
+                cloud.set(1000, 0, 0);
+                fail("set past end");
+            } catch (IndexOutOfBoundsException e) {
+            }
+
+            Region bounds = cloud.getBounds();
+            assertTrue("bounds", bounds.getX1() >= 0 && bounds.getX2() <= 1000);
+            cloud.clear();
+            assertEquals("clear", 0, cloud.size());
+            assertNull("no bounds", cloud.getBounds());
+        }
+
+        // A wrapping cloud shares the arrays.
+        double[] xs = { 1, 2, 3 };
+        double[] ys = { 4, 5, 6 };
+        PointCloud wrap = new PointCloud(xs, ys);
+        assertSame("shared", xs, wrap.xArray());
+        wrap.set(1, 7, 8);
+        assertEquals("write through", 7.0, xs[1]);
+    }
+
+
+    public void testGenerators() {
+        PointCloud cloud = new PointCloud(0);
+        new RandomGenerator().createPoints(REGION, 5000, cloud);
+        assertEquals("random", 5000, cloud.size());
+        for (int i = 0; i < cloud.size(); ++i) {
+            assertTrue("in region", cloud.getX(i) >= 0 && cloud.getX(i) <= 1000);
+            assertTrue("in region", cloud.getY(i) >= 0 && cloud.getY(i) <= 800);
+        }
+
+        // Nuclear points cluster round the reference points.
+        NuclearGenerator gen = new NuclearGenerator(5);
+        PointCloud direct = PointCloud.allocateDirect(10);
+        gen.createPoints(REGION, 5000, direct);
+        assertEquals("nuclear", 5000, direct.size());
+        Point[] refs = gen.getReferencePoints();
+        int near = 0;
+        for (int i = 0; i < direct.size(); ++i) {
+            Point p = direct.getPoint(i);
+            for (Point r : refs) {
+                if (p.dist(r) < 100) {
+                    ++near;
+                    break;
+                }
+            }
+        }
+        assertTrue("clustered", near > 4000);
+    }
+
+
+    public void testClusterers() {
+        PointCloud cloud = new PointCloud(0);
+        new NuclearGenerator(6).createPoints(REGION, 20000, cloud);
+        Point[] points = cloud.toPoints();
+
+        // Seeded the same way, the cloud and Point[] forms must give
+        // the same results.
+        ForkJoinPool poolA = new ForkJoinPool(2);
+        ForkJoinPool poolB = new ForkJoinPool(2);
+        try {
+            for (int pass = 0; pass < 2; ++pass) {
+                int[] ids1 = new int[points.length];
+                int[] ids2 = new int[points.length];
+                double[][] means1 = new double[6][2];
+                double[][] means2 = new double[6][2];
+                ParallelKMeansClusterer a = new ParallelKMeansClusterer(poolA, new Random(3));
+                ParallelKMeansClusterer b = new ParallelKMeansClusterer(poolB, new Random(3));
+                a.prepare(points, ids1, means1, REGION);
+                b.prepare(pass == 0 ? cloud : copyDirect(cloud), ids2, means2, REGION);
+                for (int i = 0; i < 20; ++i) {
+                    a.iterate();
+                    b.iterate();
+                }
+                assertEquals("metric", a.metric(), b.metric());
+                for (int i = 0; i < points.length; ++i)
+                    assertEquals("ids", ids1[i], ids2[i]);
+            }
+        } finally {
+            poolA.shutdown();
+            poolB.shutdown();
+        }
+
+        // The other clusterers should converge on clustered data.
+        int[] ids = new int[points.length];
+        double[][] means = new double[6][2];
+        HamerlyClusterer h = new HamerlyClusterer();
+        h.prepare(cloud, ids, means, REGION);
+        for (int i = 0; i < 100 && !h.iterate(); ++i)
+            ;
+        KMeansClusterer k = new KMeansClusterer();
+        k.prepare(cloud, ids, means, REGION);
+        assertTrue("metric", k.metric() > 0);
+    }
+
+
+    public void testVoronoi() {
+        PointCloud cloud = makeCloud(500, 4, true);
+        VoronoiDiagram d1 = Fortune.ComputeVoronoiDiagram(cloud.toPoints());
+        VoronoiDiagram d2 = Fortune.ComputeVoronoiDiagram(cloud);
+        assertEquals("sites", d1.getNumSites(), d2.getNumSites());
+        assertEquals("edges", d1.getNumHalfEdges(), d2.getNumHalfEdges());
+        assertEquals("graph", Fortune.ComputeVoronoiGraph(cloud.toPoints()).getNumEdges(),
+                     Fortune.ComputeVoronoiGraph(cloud).getNumEdges());
+    }
+
+
+    public void testSpline() {
+        PointCloud controls = new PointCloud(0);
+        for (int i = 0; i < 50; ++i)
+            controls.add(i * 10, Math.sin(i * 0.3) * 100);
+        Point[] a = new CubicSpline(controls.toPoints()).interpolate(8);
+        PointCloud b = PointCloud.allocateDirect(1);
+        new CubicSpline(controls).interpolate(8, b);
+        assertEquals("size", a.length, b.size());
+        for (int i = 0; i < a.length; ++i) {
+            assertEquals("x", a[i].getX(), b.getX(i));
+            assertEquals("y", a[i].getY(), b.getY(i));
+        }
+    }
+
+
+    private static PointCloud copyDirect(PointCloud cloud) {
+        PointCloud direct = PointCloud.allocateDirect(cloud.size());
+        for (int i = 0; i < cloud.size(); ++i)
+            direct.add(cloud.getX(i), cloud.getY(i));
+        return direct;
+    }
+
+}
@@ -0,0 +1,266 @@
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hermit.geometry.KdTree;
+import org.hermit.geometry.Point;
+import org.hermit.geometry.PointGrid;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.voronoi.Fortune;
+import org.hermit.geometry.voronoi.VoronoiDiagram;
+
+
+/**
+ * Tests of the spatial indexes.  Every query is checked against a
+ * brute-force scan of the same points.
+ */
+public class SpatialIndexTest
+    extends TestCase
+{
+
+    private static final int MAX = 2000;
+
+
+    // Brute-force reference results.  Absent points have NaN co-ordinates.
+
+    private static int bruteNearest(double[] xs, double[] ys, double x, double y) {
+        int best = -1;
+        double bestDist = Double.MAX_VALUE;
+        for (int i = 0; i < xs.length; ++i) {
+            double dx = x - xs[i], dy = y - ys[i];
+            double d = dx * dx + dy * dy;
+            if (d < bestDist) {
+                bestDist = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+
+    private static int[] bruteRadius(double[] xs, double[] ys, double x, double y, double r) {
+        int[] ids = new int[xs.length];
+        int n = 0;
+        for (int i = 0; i < xs.length; ++i) {
+            double dx = x - xs[i], dy = y - ys[i];
+            if (dx * dx + dy * dy <= r * r)
+                ids[n++] = i;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+
+    private static int[] bruteRegion(double[] xs, double[] ys, Region reg) {
+        int[] ids = new int[xs.length];
+        int n = 0;
+        for (int i = 0; i < xs.length; ++i)
+            if (xs[i] >= reg.getX1() && xs[i] <= reg.getX2() &&
+                                ys[i] >= reg.getY1() && ys[i] <= reg.getY2())
+                ids[n++] = i;
+        return Arrays.copyOf(ids, n);
+    }
+
+
+    private static int[] sorted(int[] ids, int n) {
+        int[] s = Arrays.copyOf(ids, n);
+        Arrays.sort(s);
+        return s;
+    }
+
+
+    private static void makePoints(double[] xs, double[] ys, Random rand) {
+        for (int i = 0; i < xs.length; ++i) {
+            // Snap some to a lattice, so we get duplicates and ties.
+            if (i % 3 == 0) {
+                xs[i] = rand.nextInt(20) * 50;
+                ys[i] = rand.nextInt(20) * 50;
+            } else {
+                xs[i] = rand.nextDouble() * 1000;
+                ys[i] = rand.nextDouble() * 1000;
+            }
+        }
+    }
+
+
+    private static void checkKNearest(int k, int n, int[] ids, double[] dists,
+                                      double[] xs, double[] ys, double x, double y)
+    {
+        // Sort all the points by distance then index, and compare.
+        Integer[] all = new Integer[xs.length];
+        final double[] d = new double[xs.length];
+        int live = 0;
+        for (int i = 0; i < xs.length; ++i) {
+            double dx = x - xs[i], dy = y - ys[i];
+            d[i] = dx * dx + dy * dy;
+            if (!Double.isNaN(d[i]))
+                all[live++] = i;
+        }
+        all = Arrays.copyOf(all, live);
+        Arrays.sort(all, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return d[a] != d[b] ? Double.compare(d[a], d[b]) : a - b;
+            }
+        });
+        assertEquals("count", Math.min(k, live), n);
+        for (int i = 0; i < n; ++i) {
+            assertEquals("id " + i, (int) all[i], ids[i]);
+            assertEquals("dist " + i, d[all[i]], dists[i], 0);
+        }
+    }
+
+
+    public void testKdTree() {
+        Random rand = new Random(21);
+        double[] xs = new double[MAX];
+        double[] ys = new double[MAX];
+        makePoints(xs, ys, rand);
+        KdTree tree = new KdTree(xs, ys);
+        assertEquals("size", MAX, tree.size());
+
+        int[] ids = new int[MAX];
+        double[] dists = new double[MAX];
+        for (int q = 0; q < 500; ++q) {
+            double x = q % 5 == 0 ? rand.nextInt(21) * 50 : rand.nextDouble() * 1200 - 100;
+            double y = q % 5 == 0 ? rand.nextInt(21) * 50 : rand.nextDouble() * 1200 - 100;
+            assertEquals("nearest", bruteNearest(xs, ys, x, y), tree.nearest(x, y));
+
+            int k = 1 + rand.nextInt(20);
+            int n = tree.nearest(x, y, k, ids, dists);
+            checkKNearest(k, n, ids, dists, xs, ys, x, y);
+
+            double r = rand.nextDouble() * 100;
+            n = tree.withinRadius(x, y, r, ids);
+            assertTrue("radius", Arrays.equals(bruteRadius(xs, ys, x, y, r), sorted(ids, n)));
+
+            Region reg = new Region(x, y, x + rand.nextDouble() * 200, y + rand.nextDouble() * 200);
+            n = tree.inRegion(reg, ids);
+            assertTrue("region", Arrays.equals(bruteRegion(xs, ys, reg), sorted(ids, n)));
+        }
+
+        // Results which don't fit are counted but not stored.
+        int[] small = new int[3];
+        int n = tree.inRegion(new Region(0, 0, 1000, 1000), small);
+        assertEquals("overflow", MAX, n);
+    }
+
+
+    public void testKdTreeSmall() {
+        KdTree empty = new KdTree(new double[0], new double[0]);
+        assertEquals("empty", -1, empty.nearest(1, 1));
+        assertEquals("empty k", 0, empty.nearest(1, 1, 3, new int[3], new double[3]));
+
+        // All the points the same.
+        double[] xs = new double[50];
+        double[] ys = new double[50];
+        Arrays.fill(xs, 7);
+        Arrays.fill(ys, 3);
+        KdTree same = new KdTree(xs, ys);
+        assertEquals("same", 0, same.nearest(100, -100));
+        assertEquals("same radius", 50, same.withinRadius(7, 3, 0, new int[50]));
+    }
+
+
+    public void testGrid() {
+        Random rand = new Random(22);
+        double[] xs = new double[MAX];
+        double[] ys = new double[MAX];
+        Arrays.fill(xs, Double.NaN);
+        Arrays.fill(ys, Double.NaN);
+
+        PointGrid grid = new PointGrid(25);
+        int[] ids = new int[MAX];
+        double[] dists = new double[MAX];
+        int live = 0;
+        for (int step = 0; step < 6000; ++step) {
+            // Add, move or remove a point.
+            int op = rand.nextInt(4);
+            if (op < 2 || live == 0) {
+                double x = rand.nextDouble() * 1000, y = rand.nextDouble() * 1000;
+                if (step % 4 == 0) {
+                    x = rand.nextInt(20) * 50;
+                    y = rand.nextInt(20) * 50;
+                }
+                int id = grid.add(x, y);
+                assertTrue("new id", Double.isNaN(xs[id]));
+                xs[id] = x;
+                ys[id] = y;
+                ++live;
+            } else {
+                int id;
+                do {
+                    id = rand.nextInt(MAX);
+                } while (!grid.isPoint(id));
+                if (op == 2) {
+                    double x = xs[id] + rand.nextGaussian() * 40;
+                    double y = ys[id] + rand.nextGaussian() * 40;
+                    grid.move(id, x, y);
+                    xs[id] = x;
+                    ys[id] = y;
+                } else {
+                    assertTrue("remove", grid.remove(id));
+                    assertFalse("removed", grid.remove(id));
+                    xs[id] = ys[id] = Double.NaN;
+                    --live;
+                }
+            }
+            assertEquals("size", live, grid.size());
+
+            // Query.
+            double x = rand.nextDouble() * 1200 - 100;
+            double y = rand.nextDouble() * 1200 - 100;
+            assertEquals("nearest", bruteNearest(xs, ys, x, y), grid.nearest(x, y));
+
+            int k = 1 + rand.nextInt(10);
+            int n = grid.nearest(x, y, k, ids, dists);
+            checkKNearest(k, n, ids, dists, xs, ys, x, y);
+
+            double r = rand.nextDouble() * 80;
+            n = grid.withinRadius(x, y, r, ids);
+            assertTrue("radius", Arrays.equals(bruteRadius(xs, ys, x, y, r), sorted(ids, n)));
+
+            Region reg = new Region(x, y, x + rand.nextDouble() * 150, y + rand.nextDouble() * 150);
+            n = grid.inRegion(reg, ids);
+            assertTrue("region", Arrays.equals(bruteRegion(xs, ys, reg), sorted(ids, n)));
+        }
+
+        grid.clear();
+        assertEquals("cleared", 0, grid.size());
+        assertEquals("cleared nearest", -1, grid.nearest(0, 0));
+    }
+
+
+    public void testFindCell() {
+        Random rand = new Random(23);
+        Point[] sites = new Point[500];
+        for (int i = 0; i < sites.length; ++i)
+            sites[i] = new Point(rand.nextDouble() * 1000, rand.nextDouble() * 1000);
+        VoronoiDiagram diagram = Fortune.ComputeVoronoiDiagram(sites);
+
+        double[] xs = new double[diagram.getNumSites()];
+        double[] ys = new double[diagram.getNumSites()];
+        for (int s = 0; s < xs.length; ++s) {
+            xs[s] = diagram.getSiteX(s);
+            ys[s] = diagram.getSiteY(s);
+        }
+        for (int q = 0; q < 1000; ++q) {
+            double x = rand.nextDouble() * 1000, y = rand.nextDouble() * 1000;
+            assertEquals("cell", bruteNearest(xs, ys, x, y), diagram.findCell(x, y));
+        }
+    }
+
+}
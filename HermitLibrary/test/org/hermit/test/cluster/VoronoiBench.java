@@ -0,0 +1,100 @@
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Random;
+
+import org.hermit.geometry.Graph;
+import org.hermit.geometry.Point;
+import org.hermit.geometry.voronoi.Fortune;
+import org.hermit.geometry.voronoi.VoronoiDiagram;
+
+
+/**
+ * Scaling benchmark of Fortune's algorithm on random sites.  This is
+ * a stand-alone program, not a unit test.
+ *
+ * <p>The arguments are the numbers of sites to run; the default is
+ * 10^3 to 10^6 sites.  For an O(n log n) algorithm the time per site
+ * divided by log n should stay roughly constant.  The largest run
+ * needs a heap of 2 GB or so.
+ *
+ * <p>Each result is checked as in {@link LargeVoronoiTest}: the number
+ * of cells whose neighbours differ from the Delaunay triangulation
+ * should be zero, and the cells should cover the sites' region.
+ */
+public class VoronoiBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    private static Point[] makeSites(int n, long seed) {
+        Random rnd = new Random(seed);
+        Point[] sites = new Point[n];
+        for (int i = 0; i < n; ++i)
+            sites[i] = new Point(rnd.nextDouble() * 1000, rnd.nextDouble() * 1000);
+        return sites;
+    }
+
+
+    private static void runBench(int n, int reps) {
+        Point[] sites = makeSites(n, n);
+
+        long best = Long.MAX_VALUE;
+        int edges = 0;
+        for (int r = 0; r < reps; ++r) {
+            long t0 = System.nanoTime();
+            Graph graph = Fortune.ComputeVoronoiGraph(sites);
+            long t1 = System.nanoTime();
+            best = Math.min(best, t1 - t0);
+            edges = graph.getNumEdges();
+        }
+
+        // Check the output.
+        VoronoiDiagram diagram = Fortune.ComputeVoronoiDiagram(sites);
+        int wrong = LargeVoronoiTest.countWrongCells(sites, diagram);
+        double area = LargeVoronoiTest.totalArea(diagram);
+
+        double ms = best / 1e6;
+        double nsPerSite = (double) best / n;
+        System.out.format("n=%8d: %10.1f ms  %8.1f ns/site  %7.2f ns/site/log2(n)" +
+                          "  edges %d  wrong cells %d  area %.6f%s\n",
+                          n, ms, nsPerSite, nsPerSite / (Math.log(n) / Math.log(2)),
+                          edges, wrong, area / 1000000.0,
+                          wrong == 0 && Math.abs(area - 1000000.0) < 1e-3 ? "" : "  FAILED");
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args          Numbers of sites to run.
+     */
+    public static void main(String[] args) {
+        // Warm up.
+        for (int r = 0; r < 5; ++r)
+            Fortune.ComputeVoronoiGraph(makeSites(10000, r));
+
+        if (args.length == 0) {
+            runBench(1000, 20);
+            runBench(10000, 5);
+            runBench(100000, 3);
+            runBench(1000000, 1);
+        } else {
+            for (String a : args)
+                runBench(Integer.parseInt(a), 1);
+        }
+    }
+
+}
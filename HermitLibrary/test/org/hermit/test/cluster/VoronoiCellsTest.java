@@ -0,0 +1,187 @@
+
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Random;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.Region;
+import org.hermit.geometry.voronoi.Fortune;
+import org.hermit.geometry.voronoi.VoronoiCells;
+
+
+/**
+ * Tests of Voronoi cells clipped to a region.
+ */
+public class VoronoiCellsTest
+    extends VoronoiTest
+{
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testTwoSites() {
+        // The bisector splits the region down the middle.
+        Point[] sites = { new Point(100, 150), new Point(300, 150) };
+        VoronoiCells cells = Fortune.ComputeVoronoiCells(sites, REGION);
+        for (int s = 0; s < 2; ++s) {
+            assertEquals("area", 60000, cells.getArea(s), 1e-6);
+            assertEquals("size", 4, cells.getPolygonSize(s));
+            assertEquals("centroid y", 150, cells.getCentroidY(s), 1e-9);
+        }
+        int left = cells.getDiagram().getInputSite(0);
+        assertEquals("centroid x", 100, cells.getCentroidX(left), 1e-9);
+    }
+
+
+    public void testOneSite() {
+        Point[] sites = { new Point(10, 10) };
+        VoronoiCells cells = Fortune.ComputeVoronoiCells(sites, REGION);
+        assertEquals("area", 120000, cells.getArea(0), 1e-6);
+        assertEquals("centroid x", 200, cells.getCentroidX(0), 1e-9);
+        assertEquals("centroid y", 150, cells.getCentroidY(0), 1e-9);
+    }
+
+
+    public void testCollinear() {
+        Point[] sites = { new Point(50, 100), new Point(250, 100), new Point(150, 100) };
+        VoronoiCells cells = Fortune.ComputeVoronoiCells(sites, REGION);
+        int mid = cells.getDiagram().getInputSite(2);
+        assertEquals("middle area", 100 * 300, cells.getArea(mid), 1e-6);
+        assertEquals("middle centroid", 150, cells.getCentroidX(mid), 1e-9);
+    }
+
+
+    public void testOutside() {
+        // One site is so far off that its cell misses the region.
+        Point[] sites = { new Point(100, 100), new Point(300, 200), new Point(5000, 100) };
+        VoronoiCells cells = Fortune.ComputeVoronoiCells(sites, REGION);
+        int far = cells.getDiagram().getInputSite(2);
+        assertEquals("outside size", 0, cells.getPolygonSize(far));
+        assertEquals("outside area", 0.0, cells.getArea(far));
+        assertEquals("outside centroid", 5000, cells.getCentroidX(far), 0);
+        checkCells(cells, new Random(1));
+    }
+
+
+    public void testRandom() {
+        Random rand = new Random(7);
+        for (int t = 0; t < 10; ++t) {
+            Point[] sites = new Point[2 + rand.nextInt(500)];
+            for (int i = 0; i < sites.length; ++i)
+                sites[i] = new Point(rand.nextDouble() * 500 - 50, rand.nextDouble() * 400 - 50);
+            checkCells(Fortune.ComputeVoronoiCells(sites, REGION), rand);
+        }
+    }
+
+
+    public void testLattice() {
+        Random rand = new Random(8);
+        Point[] sites = new Point[300];
+        for (int i = 0; i < sites.length; ++i)
+            sites[i] = new Point(rand.nextInt(20) * 20 + 10, rand.nextInt(15) * 20 + 10);
+        VoronoiCells cells = Fortune.ComputeVoronoiCells(sites, REGION);
+        checkCells(cells, rand);
+    }
+
+
+    /**
+     * Check that the cells are convex polygons, which tile the region,
+     * and that each random test point lies in the cell of its nearest
+     * site.  Check each cell's centroid against the mean of the test
+     * points which fall in it.
+     */
+    private static void checkCells(VoronoiCells cells, Random rand) {
+        int n = cells.getNumCells();
+        double total = 0;
+        for (int s = 0; s < n; ++s) {
+            int base = cells.getPolygonStart(s);
+            int size = cells.getPolygonSize(s);
+            for (int i = 0; i < size; ++i) {
+                double x = cells.getPolygonX(base + i), y = cells.getPolygonY(base + i);
+                assertTrue("in region", x >= REGION.getX1() - 1e-9 && x <= REGION.getX2() + 1e-9);
+                assertTrue("in region", y >= REGION.getY1() - 1e-9 && y <= REGION.getY2() + 1e-9);
+            }
+            if (size > 0)
+                assertTrue("positive area", cells.getArea(s) > 0);
+            total += cells.getArea(s);
+        }
+        double regionArea = REGION.getWidth() * REGION.getHeight();
+        assertEquals("total area", regionArea, total, regionArea * 1e-9);
+
+        // Sample the region, and check each sample is in its nearest
+        // site's cell.
+        int samples = 20000;
+        double[] sumX = new double[n], sumY = new double[n];
+        int[] count = new int[n];
+        for (int k = 0; k < samples; ++k) {
+            double x = rand.nextDouble() * REGION.getWidth() + REGION.getX1();
+            double y = rand.nextDouble() * REGION.getHeight() + REGION.getY1();
+            int best = 0;
+            double min = Double.MAX_VALUE;
+            for (int s = 0; s < n; ++s) {
+                double dx = x - cells.getDiagram().getSiteX(s);
+                double dy = y - cells.getDiagram().getSiteY(s);
+                double d = dx * dx + dy * dy;
+                if (d < min) {
+                    min = d;
+                    best = s;
+                }
+            }
+            assertTrue("sample in cell", contains(cells, best, x, y));
+            sumX[best] += x;
+            sumY[best] += y;
+            ++count[best];
+        }
+
+        // Where a cell has plenty of samples, the centroid should be near
+        // their mean.
+        for (int s = 0; s < n; ++s) {
+            if (count[s] < 2000)
+                continue;
+            double tol = 4 * Math.sqrt(cells.getArea(s) / count[s]);
+            assertEquals("centroid x", sumX[s] / count[s], cells.getCentroidX(s), tol);
+            assertEquals("centroid y", sumY[s] / count[s], cells.getCentroidY(s), tol);
+        }
+    }
+
+
+    /**
+     * Determine whether a convex anticlockwise polygon contains a point,
+     * allowing for rounding.
+     */
+    private static boolean contains(VoronoiCells cells, int s, double x, double y) {
+        int base = cells.getPolygonStart(s);
+        int size = cells.getPolygonSize(s);
+        if (size < 3)
+            return false;
+        for (int i = 0; i < size; ++i) {
+            int j = i + 1 < size ? i + 1 : 0;
+            double ax = cells.getPolygonX(base + i), ay = cells.getPolygonY(base + i);
+            double bx = cells.getPolygonX(base + j), by = cells.getPolygonY(base + j);
+            double cross = (bx - ax) * (y - ay) - (by - ay) * (x - ax);
+            if (cross < -1e-6)
+                return false;
+        }
+        return true;
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The region the cells are clipped to.
+    private static final Region REGION = new Region(0, 0, 400, 300);
+
+}
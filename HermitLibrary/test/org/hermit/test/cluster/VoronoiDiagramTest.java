@@ -0,0 +1,102 @@
+
+/**
+ * cluster: Tests of cluster analysis algorithms.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.cluster;
+
+
+import java.util.Random;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.voronoi.VoronoiDiagram;
+
+
+/**
+ * Tests of the edge list form of Voronoi diagrams.  Each test
+ * builds a diagram, checks its consistency, and compares it to
+ * the Graph generated from the same sites.
+ */
+public class VoronoiDiagramTest
+    extends VoronoiTest
+{
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testRandom() {
+        Random rand = new Random(3);
+        for (int t = 0; t < 20; ++t) {
+            Point[] sites = new Point[3 + rand.nextInt(300)];
+            for (int i = 0; i < sites.length; ++i)
+                sites[i] = new Point(rand.nextDouble() * 1000, rand.nextDouble() * 1000);
+            VoronoiDiagram diagram = checkDiagram(sites);
+
+            // In general position, every vertex joins three edges.
+            assertEquals("half-edges", 2 * (sites.length + diagram.getNumVertices() - 1),
+                         diagram.getNumHalfEdges());
+        }
+    }
+
+
+    public void testLattice() {
+        // Lots of co-circular sites and duplicates.
+        Random rand = new Random(5);
+        for (int t = 0; t < 20; ++t) {
+            Point[] sites = new Point[3 + rand.nextInt(200)];
+            for (int i = 0; i < sites.length; ++i)
+                sites[i] = new Point(rand.nextInt(15) * 10, rand.nextInt(15) * 10);
+            checkDiagram(sites);
+        }
+    }
+
+
+    public void testCircle() {
+        Point[] sites = new Point[24];
+        for (int i = 0; i < sites.length; ++i) {
+            double a = i * Math.PI * 2 / sites.length;
+            sites[i] = new Point(500 + 100 * Math.cos(a), 500 + 100 * Math.sin(a));
+        }
+        VoronoiDiagram diagram = checkDiagram(sites);
+        for (int s = 0; s < diagram.getNumSites(); ++s)
+            assertFalse("unbounded", diagram.isBounded(s));
+    }
+
+
+    public void testCollinear() {
+        Point[] sites = { new Point(10, 10), new Point(30, 10), new Point(20, 10) };
+        VoronoiDiagram diagram = checkDiagram(sites);
+        assertEquals("vertices", 0, diagram.getNumVertices());
+        assertEquals("half-edges", 4, diagram.getNumHalfEdges());
+
+        // The middle site has both lines.
+        int mid = diagram.getInputSite(2);
+        assertEquals("middle cell", 2, diagram.getCellEnd(mid) - diagram.getCellStart(mid));
+    }
+
+
+    public void testNeighbours() {
+        // A 3x3 grid, perturbed so no four sites are co-circular; the
+        // centre cell is bounded, with the four edge-adjacent sites
+        // among its neighbours.
+        Point[] sites = new Point[9];
+        for (int i = 0; i < 9; ++i)
+            sites[i] = new Point(i % 3 * 10 + i * 0.01, i / 3 * 10 + i * i * 0.003);
+        VoronoiDiagram diagram = checkDiagram(sites);
+
+        int centre = diagram.getInputSite(4);
+        assertTrue("bounded", diagram.isBounded(centre));
+        boolean[] adjacent = new boolean[diagram.getNumSites()];
+        for (int h = diagram.getCellStart(centre); h < diagram.getCellEnd(centre); ++h)
+            adjacent[diagram.getNeighbour(h)] = true;
+        for (int i : new int[] { 1, 3, 5, 7 })
+            assertTrue("neighbour " + i, adjacent[diagram.getInputSite(i)]);
+    }
+
+}
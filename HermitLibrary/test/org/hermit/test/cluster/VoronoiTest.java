@@ -12,23 +12,45 @@ package org.hermit.test.cluster;
 
 
 import java.util.Arrays;
+import java.util.HashSet;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
 import org.hermit.geometry.Edge;
+import org.hermit.geometry.MathTools;
 import org.hermit.geometry.Point;
 import org.hermit.geometry.Graph;
 import org.hermit.geometry.voronoi.Fortune;
+import org.hermit.geometry.voronoi.VoronoiDiagram;
 
 
 /**
- * Base class for tests of Voronoi diagram generation.
+ * Base class for tests of Voronoi diagram generation.  Each test runs
+ * at the default MathTools precision, whatever earlier tests have
+ * set it to; the old precision is restored afterwards.
  */
 public abstract class VoronoiTest
     extends TestCase
 {
 
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    @Override
+    protected void setUp() {
+        oldPrecision = MathTools.getPrecision();
+        MathTools.setPrecision(PRECISION);
+    }
+
+
+    @Override
+    protected void tearDown() {
+        MathTools.setPrecision(oldPrecision);
+    }
+
+
     /**
      * Run a Voronoi test.
      * 
@@ -94,7 +116,158 @@ public abstract class VoronoiTest
         for (int i = 0; i < refEdges.length; ++i)
             if (refEdges[i].compareTo(vEdges[i]) != 0)
                 Assert.fail("edge " + i + ": expected " + refEdges[i] + "; got " + vEdges[i]);
+        
+        checkDiagram(sites);
     }
 
-}
 
+    /**
+     * Compute the Voronoi diagram of the given sites in edge list form,
+     * and check that it is consistent, and is equivalent to the Graph
+     * generated from the same sites.
+     * 
+     * @param   sites       Array of input sites.
+     * @return              The generated diagram.
+     */
+    public static VoronoiDiagram checkDiagram(Point[] sites) {
+        VoronoiDiagram diagram = Fortune.ComputeVoronoiDiagram(sites);
+        Graph graph = Fortune.ComputeVoronoiGraph(sites);
+        assertEquals("graph", edgeKeys(graph), edgeKeys(diagram.toGraph()));
+        
+        int numSites = diagram.getNumSites();
+        for (int i = 0; i < sites.length; ++i) {
+            int s = diagram.getInputSite(i);
+            assertEquals("site x", sites[i].getX(), diagram.getSiteX(s), 1e-9);
+            assertEquals("site y", sites[i].getY(), diagram.getSiteY(s), 1e-9);
+        }
+        
+        // Check the links between half-edges.
+        int n = diagram.getNumHalfEdges();
+        for (int h = 0; h < n; ++h) {
+            int t = diagram.getTwin(h);
+            assertTrue("twin", t != h && diagram.getTwin(t) == h);
+            assertTrue("sides", diagram.getCell(h) != diagram.getCell(t));
+            int s = diagram.getCell(h);
+            assertTrue("cell range", h >= diagram.getCellStart(s) && h < diagram.getCellEnd(s));
+            int next = diagram.getNext(h);
+            if (next < 0)
+                assertEquals("end at infinity", -1, diagram.getTarget(h));
+            else {
+                assertEquals("next cell", s, diagram.getCell(next));
+                assertTrue("next origin", diagram.getTarget(h) >= 0);
+                assertEquals("next origin", diagram.getTarget(h), diagram.getOrigin(next));
+            }
+        }
+        
+        // Walk each cell.  A bounded cell must be anticlockwise and
+        // contain its site; an unbounded one must run from infinity
+        // to infinity.
+        for (int s = 0; s < numSites && numSites > 2; ++s) {
+            int start = diagram.getCellStart(s);
+            int end = diagram.getCellEnd(s);
+            if (start == end)
+                continue;
+            int count = 0;
+            int h = start;
+            double sx = diagram.getSiteX(s), sy = diagram.getSiteY(s);
+            do {
+                ++count;
+                int a = diagram.getOrigin(h);
+                int b = diagram.getTarget(h);
+                if (a >= 0 && b >= 0) {
+                    double ax = diagram.getVertexX(a), ay = diagram.getVertexY(a);
+                    double bx = diagram.getVertexX(b), by = diagram.getVertexY(b);
+                    double cross = (bx - ax) * (sy - ay) - (by - ay) * (sx - ax);
+                    assertTrue("site on left", cross > 0);
+                }
+                h = diagram.getNext(h);
+            } while (h >= 0 && h != start);
+            if (diagram.isBounded(s))
+                assertEquals("closed cell", start, h);
+            else if (!isCollinear(sites))
+                assertEquals("open cell", -1, h);
+            if (!isCollinear(sites))
+                assertEquals("cell edges", end - start, count);
+        }
+        
+        // Check that the rays head away from the other sites.
+        for (int h = 0; h < n; ++h) {
+            int v = diagram.getOrigin(h);
+            if (v < 0 || diagram.getTarget(h) >= 0)
+                continue;
+            double dx = diagram.getDirectionX(h);
+            double dy = diagram.getDirectionY(h);
+            double scale = 1e4 / Math.sqrt(dx * dx + dy * dy);
+            double px = diagram.getVertexX(v) + dx * scale;
+            double py = diagram.getVertexY(v) + dy * scale;
+            double near = distance(diagram, diagram.getCell(h), px, py);
+            for (int s = 0; s < numSites; ++s)
+                assertTrue("ray", distance(diagram, s, px, py) >= near - 1e-6 * near);
+        }
+        
+        return diagram;
+    }
+    
+
+    private static double distance(VoronoiDiagram diagram, int s, double x, double y) {
+        double dx = x - diagram.getSiteX(s);
+        double dy = y - diagram.getSiteY(s);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+    
+
+    private static boolean isCollinear(Point[] sites) {
+        for (int i = 2; i < sites.length; ++i) {
+            double cross = (sites[1].getX() - sites[0].getX()) * (sites[i].getY() - sites[0].getY()) -
+                           (sites[1].getY() - sites[0].getY()) * (sites[i].getX() - sites[0].getX());
+            if (Math.abs(cross) > 1e-9)
+                return false;
+        }
+        return true;
+    }
+    
+
+    /**
+     * Make a set of keys describing the edges of a graph, independent of
+     * the order of the vertices and data points in each edge.
+     */
+    protected static HashSet<String> edgeKeys(Graph graph) {
+        HashSet<String> keys = new HashSet<String>();
+        for (Edge e : graph.getEdgeArray()) {
+            String d1 = pointKey(e.getDatumA()), d2 = pointKey(e.getDatumB());
+            String v1 = pointKey(e.getVertexA()), v2 = pointKey(e.getVertexB());
+            if (d1.compareTo(d2) > 0) {
+                String t = d1; d1 = d2; d2 = t;
+            }
+            if (v1.compareTo(v2) > 0) {
+                String t = v1; v1 = v2; v2 = t;
+            }
+            keys.add(d1 + "|" + d2 + "|" + v1 + "|" + v2);
+        }
+        return keys;
+    }
+    
+
+    private static String pointKey(Point p) {
+        if (p.isInfinite())
+            return "inf";
+        return String.format("%.6f,%.6f", p.getX(), p.getY());
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The precision we run at; the default.
+    private static final double PRECISION = 10000000000.0;
+
+
+    // ******************************************************************** //
+    // Private Data.
+    // ******************************************************************** //
+
+    // The precision in effect before the test.
+    private double oldPrecision;
+
+}
@@ -0,0 +1,99 @@
+/**
+ * test: test code.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.test.dsp;
+
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.hermit.dsp.BatchSpectrum;
+import org.hermit.dsp.Window;
+
+
+/**
+ * Benchmark of multi-channel spectrum analysis, reporting channels per
+ * second for pools of 1 thread up to one per processor.  This is a
+ * stand-alone program, not a unit test.
+ *
+ * <p>The arguments are the number of channels (default 256) and the
+ * block size (default 1024).
+ */
+public class BatchSpectrumBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    private static double runBench(int threads, int channels, int size,
+                                   BatchSpectrum.Layout layout, short[] input)
+    {
+        BatchSpectrum batch = new BatchSpectrum(new ForkJoinPool(threads), size,
+                                                new Window(size, Window.Function.BLACKMAN_HARRIS));
+        float[] out = new float[channels * batch.getBins()];
+
+        // Warm up, then time enough batches to take about a second.
+        long t0 = System.nanoTime();
+        int reps = 0;
+        while (System.nanoTime() - t0 < 300000000L) {
+            batch.process(input, 0, channels, layout, out);
+            ++reps;
+        }
+        t0 = System.nanoTime();
+        for (int i = 0; i < reps * 3; ++i)
+            batch.process(input, 0, channels, layout, out);
+        long t1 = System.nanoTime();
+
+        double secs = (t1 - t0) / 1e9;
+        return (double) reps * 3 * channels / secs;
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args          The number of channels, and the block size.
+     */
+    public static void main(String[] args) {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        short[] input = new short[channels * size];
+        Random r = new Random(1);
+        for (int i = 0; i < input.length; ++i)
+            input[i] = (short) (r.nextGaussian() * 4000);
+
+        System.out.format("%d channels of %d samples, %d processors\n",
+                          channels, size, cores);
+        for (BatchSpectrum.Layout layout : BatchSpectrum.Layout.values()) {
+            double base = 0;
+            for (int threads = 1; threads <= cores; ++threads) {
+                double rate = runBench(threads, channels, size, layout, input);
+                if (threads == 1)
+                    base = rate;
+                System.out.format("%-12s %2d threads: %10.0f channels/s  (%.2fx)\n",
+                                  layout, threads, rate, rate / base);
+            }
+        }
+    }
+
+}
+
@@ -0,0 +1,127 @@
+/**
+ * test: test code.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.test.dsp;
+
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.hermit.dsp.BatchSpectrum;
+import org.hermit.dsp.FFTTransformer;
+import org.hermit.dsp.Window;
+
+
+/**
+ * Test the multi-channel batch spectrum processor against
+ * channel-by-channel transforms.
+ */
+public class BatchSpectrumTest
+    extends TestCase
+{
+
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    // Make planar audio: each channel a different tone plus noise.
+    private static short[] planar(int channels, int size, long seed) {
+        Random r = new Random(seed);
+        short[] a = new short[channels * size];
+        for (int c = 0; c < channels; ++c)
+            for (int i = 0; i < size; ++i)
+                a[c * size + i] = (short) Math.round(8000 * Math.sin(i * 0.05 * (c + 1)) +
+                                                     500 * r.nextGaussian());
+        return a;
+    }
+
+
+    private static short[] interleave(short[] p, int channels, int size) {
+        short[] a = new short[p.length];
+        for (int c = 0; c < channels; ++c)
+            for (int i = 0; i < size; ++i)
+                a[i * channels + c] = p[c * size + i];
+        return a;
+    }
+
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testLayouts() {
+        final int size = 256;
+        final int bins = size / 2;
+        Window win = new Window(size, Window.Function.BLACKMAN_HARRIS);
+        FFTTransformer fft = new FFTTransformer(size, win, true);
+
+        for (int threads = 1; threads <= 3; ++threads) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            BatchSpectrum batch = new BatchSpectrum(pool, size, win);
+            try {
+                assertEquals(threads, batch.getWorkers());
+                assertEquals(bins, batch.getBins());
+
+                for (int channels : new int[] { 1, 2, 5, 17 }) {
+                    short[] p = planar(channels, size, channels);
+                    short[] il = interleave(p, channels, size);
+
+                    // Put the blocks at an offset, to check that's handled.
+                    short[] pOff = new short[p.length + 7];
+                    System.arraycopy(p, 0, pOff, 7, p.length);
+
+                    float[] want = new float[channels * bins];
+                    for (int c = 0; c < channels; ++c) {
+                        fft.setInput(p, c * size, size);
+                        fft.transform();
+                        fft.getResults(want, c * bins);
+                    }
+
+                    float[] gotP = new float[channels * bins];
+                    float[] gotI = new float[channels * bins];
+                    batch.process(pOff, 7, channels, BatchSpectrum.Layout.PLANAR, gotP);
+                    batch.process(il, 0, channels, BatchSpectrum.Layout.INTERLEAVED, gotI);
+                    for (int i = 0; i < want.length; ++i) {
+                        String msg = threads + "/" + channels + " [" + i + "]";
+                        assertEquals("planar " + msg, want[i], gotP[i], 0f);
+                        assertEquals("interleaved " + msg, want[i], gotI[i], 0f);
+                    }
+                }
+
+                try {
+                    batch.process(new short[size * 3 - 1], 0, 3,
+                                  BatchSpectrum.Layout.PLANAR, new float[3 * bins]);
+                    fail("input too small");
+                } catch (IllegalArgumentException e) {
+                }
+                try {
+                    batch.process(new short[size * 3], 0, 3,
+                                  BatchSpectrum.Layout.PLANAR, new float[3 * bins - 1]);
+                    fail("output too small");
+                } catch (IllegalArgumentException e) {
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+}
+
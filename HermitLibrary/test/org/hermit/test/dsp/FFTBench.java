@@ -0,0 +1,104 @@
+/**
+ * test: test code.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.test.dsp;
+
+
+import java.util.Random;
+
+import ca.uol.aig.fftpack.RealDoubleFFTPlan;
+import ca.uol.aig.fftpack.RealFloatFFT;
+
+
+/**
+ * Benchmark of the single-precision FFT against the double-precision
+ * one, reporting the time per forward and backward transform.  This
+ * is a stand-alone program, not a unit test.
+ *
+ * <p>The arguments are the transform sizes to run; the default is
+ * 256, 1024, 4096 and 1000.
+ */
+public class FFTBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    private static void runBench(int n) {
+        RealDoubleFFTPlan dplan = new RealDoubleFFTPlan(n);
+        RealDoubleFFTPlan.Workspace dwork = dplan.newWorkspace();
+        RealFloatFFT fplan = new RealFloatFFT(n);
+        RealFloatFFT.Workspace fwork = fplan.newWorkspace();
+        Random r = new Random(3);
+        double[] d = new double[n];
+        float[] f = new float[n];
+        for (int i = 0; i < n; ++i) {
+            d[i] = r.nextGaussian();
+            f[i] = (float) d[i];
+        }
+
+        // Take the best of a few passes; the first one warms up.
+        final int reps = Math.max(1, 4000000 / n);
+        long dt = Long.MAX_VALUE, ft = Long.MAX_VALUE;
+        for (int pass = 0; pass < 3; ++pass) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < reps; ++i) {
+                dplan.ft(d, dwork);
+                dplan.bt(d, dwork);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < reps; ++i) {
+                fplan.ft(f, fwork);
+                fplan.bt(f, fwork);
+            }
+            long t2 = System.nanoTime();
+            dt = Math.min(dt, t1 - t0);
+            ft = Math.min(ft, t2 - t1);
+
+            // Keep the data from growing without bound.
+            for (int i = 0; i < n; ++i) {
+                d[i] /= n;
+                f[i] /= n;
+            }
+        }
+
+        System.out.format("FFT %5d: double %7.2f us, float %7.2f us (%.2fx)\n",
+                          n, dt / 2e3 / reps, ft / 2e3 / reps,
+                          (double) dt / ft);
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args          Transform sizes to run.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            for (int n : new int[] { 256, 1024, 4096, 1000 })
+                runBench(n);
+        } else {
+            for (String a : args)
+                runBench(Integer.parseInt(a));
+        }
+    }
+
+}
+
@@ -0,0 +1,223 @@
+/**
+ * test: test code.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.test.dsp;
+
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import ca.uol.aig.fftpack.Complex1D;
+import ca.uol.aig.fftpack.ComplexDoubleFFT;
+import ca.uol.aig.fftpack.ComplexDoubleFFTPlan;
+import ca.uol.aig.fftpack.RealDoubleFFT;
+import ca.uol.aig.fftpack.RealDoubleFFTPlan;
+
+
+/**
+ * Test the shareable FFT plans against the original FFT classes.
+ */
+public class FFTPlanTest
+    extends TestCase
+{
+
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    // Sizes to test: powers of the fast radices, mixtures, and primes
+    // which use the general-factor passes.
+    private static final int[] SIZES = {
+        1, 2, 3, 4, 5, 6, 7, 8, 12, 15, 16, 30, 49, 64, 97, 100,
+        120, 256, 360, 512, 1000, 1009, 1024, 2310,
+    };
+
+
+    private static double[] random(Random r, int n) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; ++i)
+            x[i] = r.nextGaussian();
+        return x;
+    }
+
+
+    private static void assertSame(String msg, double[] a, double[] b) {
+        assertEquals(msg + " length", a.length, b.length);
+        for (int i = 0; i < a.length; ++i)
+            assertEquals(msg + " [" + i + "]", a[i], b[i]);
+    }
+
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testReal() {
+        Random r = new Random(1);
+        for (int n : SIZES) {
+            RealDoubleFFT old = new RealDoubleFFT(n);
+            RealDoubleFFTPlan plan = new RealDoubleFFTPlan(n);
+            RealDoubleFFTPlan.Workspace work = plan.newWorkspace();
+
+            // Re-use the workspace, so it's dirty.
+            for (int pass = 0; pass < 3; ++pass) {
+                double[] a = random(r, n);
+                double[] b = a.clone();
+                double[] c = a.clone();
+                old.ft(a);
+                plan.ft(b, work);
+                plan.ft(c);
+                assertSame("ft " + n, a, b);
+                assertSame("ft thread " + n, a, c);
+
+                old.bt(a);
+                plan.bt(b, work);
+                assertSame("bt " + n, a, b);
+            }
+
+            // Complex results.
+            double[] a = random(r, n);
+            double[] b = a.clone();
+            Complex1D ca = new Complex1D();
+            Complex1D cb = new Complex1D();
+            old.ft(a, ca);
+            plan.ft(b, cb, work);
+            assertSame("cx " + n, ca.x, cb.x);
+            assertSame("cy " + n, ca.y, cb.y);
+            double[] ya = new double[n];
+            double[] yb = new double[n];
+            old.bt(ca, ya);
+            plan.bt(cb, yb, work);
+            assertSame("bt complex " + n, ya, yb);
+
+            double[] keep = cb.x;
+            plan.ft(yb, cb, work);
+            assertTrue("re-used", keep == cb.x);
+        }
+    }
+
+
+    public void testComplex() {
+        Random r = new Random(2);
+        for (int n : SIZES) {
+            ComplexDoubleFFT old = new ComplexDoubleFFT(n);
+            ComplexDoubleFFTPlan plan = new ComplexDoubleFFTPlan(n);
+            ComplexDoubleFFTPlan.Workspace work = plan.newWorkspace();
+            for (int pass = 0; pass < 3; ++pass) {
+                double[] a = random(r, 2 * n);
+                double[] b = a.clone();
+                old.ft(a);
+                plan.ft(b, work);
+                assertSame("ft " + n, a, b);
+                old.bt(a);
+                plan.bt(b);
+                assertSame("bt " + n, a, b);
+
+                Complex1D ca = new Complex1D();
+                ca.x = random(r, n);
+                ca.y = random(r, n);
+                Complex1D cb = new Complex1D();
+                cb.x = ca.x.clone();
+                cb.y = ca.y.clone();
+                old.ft(ca);
+                plan.ft(cb, work);
+                assertSame("cx " + n, ca.x, cb.x);
+                assertSame("cy " + n, ca.y, cb.y);
+                old.bt(ca);
+                plan.bt(cb, work);
+                assertSame("bt cx " + n, ca.x, cb.x);
+            }
+        }
+    }
+
+
+    public void testRoundTrip() {
+        // Check against the definition, to be sure the layout is right.
+        final int n = 12;
+        double[] x = random(new Random(3), n);
+        double[] f = x.clone();
+        RealDoubleFFTPlan plan = new RealDoubleFFTPlan(n);
+        plan.ft(f);
+        for (int k = 1; k < n / 2; ++k) {
+            double re = 0, im = 0;
+            for (int j = 0; j < n; ++j) {
+                re += x[j] * Math.cos(2 * Math.PI * j * k / n);
+                im -= x[j] * Math.sin(2 * Math.PI * j * k / n);
+            }
+            assertEquals("re " + k, re, f[2 * k - 1], 1e-12);
+            assertEquals("im " + k, im, f[2 * k], 1e-12);
+        }
+        plan.bt(f);
+        for (int j = 0; j < n; ++j)
+            assertEquals("round trip", x[j], f[j] / plan.norm_factor, 1e-12);
+    }
+
+
+    public void testShared() throws InterruptedException {
+        // One plan, used by several threads at once, must give the same
+        // results as it does in one thread.
+        final int n = 4800;
+        final RealDoubleFFTPlan plan = new RealDoubleFFTPlan(n);
+        final double[][] inputs = new double[8][];
+        final double[][] expect = new double[8][];
+        Random r = new Random(4);
+        for (int i = 0; i < inputs.length; ++i) {
+            inputs[i] = random(r, n);
+            expect[i] = inputs[i].clone();
+            plan.ft(expect[i]);
+        }
+
+        final boolean[] ok = new boolean[4];
+        Thread[] threads = new Thread[ok.length];
+        for (int t = 0; t < threads.length; ++t) {
+            final int id = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    RealDoubleFFTPlan.Workspace work = plan.newWorkspace();
+                    boolean good = true;
+                    for (int rep = 0; rep < 200; ++rep) {
+                        int i = (rep + id) % inputs.length;
+                        double[] x = inputs[i].clone();
+                        if (rep % 2 == 0)
+                            plan.ft(x, work);
+                        else
+                            plan.ft(x);
+                        for (int j = 0; j < n; ++j)
+                            good &= x[j] == expect[i][j];
+                    }
+                    ok[id] = good;
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        for (boolean b : ok)
+            assertTrue("thread results", b);
+
+        try {
+            plan.ft(new double[n], new RealDoubleFFTPlan(n + 1).newWorkspace());
+            fail("wrong workspace");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
+
@@ -0,0 +1,169 @@
+/**
+ * test: test code.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.test.dsp;
+
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hermit.dsp.FFTTransformer;
+import org.hermit.dsp.Window;
+
+import ca.uol.aig.fftpack.RealDoubleFFTPlan;
+import ca.uol.aig.fftpack.RealFloatFFT;
+
+
+/**
+ * Test the single-precision FFT against the double-precision one, for
+ * accuracy.  {@link FFTBench} compares their speed.
+ */
+public class FloatFFTTest
+    extends TestCase
+{
+
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    // Sizes to test: powers of the fast radices, mixtures, and primes
+    // which use the general-factor passes.
+    private static final int[] SIZES = {
+        1, 2, 3, 4, 5, 6, 7, 8, 12, 15, 16, 30, 49, 64, 97, 100,
+        120, 256, 360, 512, 1000, 1009, 1024, 2310, 4096,
+    };
+
+
+    private static double[] random(Random r, int n) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; ++i)
+            x[i] = r.nextGaussian();
+        return x;
+    }
+
+
+    private static float[] toFloat(double[] x) {
+        float[] f = new float[x.length];
+        for (int i = 0; i < x.length; ++i)
+            f[i] = (float) x[i];
+        return f;
+    }
+
+
+    /**
+     * Get the largest difference between the float and double results,
+     * relative to the largest double result.
+     */
+    private static double relError(float[] f, double[] d) {
+        double err = 0, max = 0;
+        for (int i = 0; i < d.length; ++i) {
+            err = Math.max(err, Math.abs(f[i] - d[i]));
+            max = Math.max(max, Math.abs(d[i]));
+        }
+        return max == 0 ? err : err / max;
+    }
+
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testAccuracy() {
+        Random r = new Random(1);
+        for (int n : SIZES) {
+            RealDoubleFFTPlan dplan = new RealDoubleFFTPlan(n);
+            RealFloatFFT fplan = new RealFloatFFT(n);
+            RealFloatFFT.Workspace work = fplan.newWorkspace();
+            assertEquals("size", n, fplan.size());
+
+            // Start from the same (float) values in both.
+            double[] d = random(r, n);
+            float[] f = toFloat(d);
+            for (int i = 0; i < n; ++i)
+                d[i] = f[i];
+
+            dplan.ft(d);
+            fplan.ft(f, work);
+            double fwd = relError(f, d);
+            assertTrue("ft " + n + ": " + fwd, fwd < 2e-6);
+
+            dplan.bt(d);
+            fplan.bt(f);
+            double back = relError(f, d);
+            assertTrue("bt " + n + ": " + back, back < 2e-6);
+            assertEquals("norm", (float) n, fplan.norm_factor);
+        }
+
+        try {
+            new RealFloatFFT(8).ft(new float[7]);
+            fail("wrong data size");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+
+    public void testTransformer() {
+        // Spectra of 16-bit audio, in both precisions.
+        final int n = 1024;
+        short[] audio = new short[n];
+        Random r = new Random(2);
+        for (int i = 0; i < n; ++i) {
+            double v = 12000 * Math.sin(2 * Math.PI * 37.3 * i / n) +
+                       3000 * Math.sin(2 * Math.PI * 201.7 * i / n) +
+                       200 * r.nextGaussian();
+            audio[i] = (short) Math.round(v);
+        }
+
+        for (Window.Function func : Window.Function.values()) {
+            FFTTransformer dfft = new FFTTransformer(n, new Window(n, func));
+            FFTTransformer ffft = new FFTTransformer(n, new Window(n, func), true);
+            assertFalse(dfft.isSinglePrecision());
+            assertTrue(ffft.isSinglePrecision());
+
+            dfft.setInput(audio, 0, n);
+            ffft.setInput(audio, 0, n);
+            dfft.transform();
+            ffft.transform();
+            float[] dres = dfft.getResults(new float[n / 2]);
+            float[] fres = ffft.getResults(new float[n / 2]);
+            for (int i = 0; i < n / 2; ++i)
+                assertEquals(func + " [" + i + "]", dres[i], fres[i], 1e-6);
+
+            // And the rolling average.
+            float[] davg = new float[n / 2];
+            float[] favg = new float[n / 2];
+            float[][] dhist = new float[n / 2][4];
+            float[][] fhist = new float[n / 2][4];
+            int di = 0, fi = 0;
+            for (int pass = 0; pass < 6; ++pass) {
+                dfft.setInput(audio, 0, n);
+                ffft.setInput(audio, 0, n);
+                dfft.transform();
+                ffft.transform();
+                di = dfft.getResults(davg, dhist, di);
+                fi = ffft.getResults(favg, fhist, fi);
+            }
+            assertEquals("index", di, fi);
+            for (int i = 0; i < n / 2; ++i)
+                assertEquals(func + " avg [" + i + "]", davg[i], favg[i], 1e-6);
+        }
+    }
+
+}
+
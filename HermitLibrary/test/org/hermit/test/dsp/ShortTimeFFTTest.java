@@ -0,0 +1,154 @@
+/**
+ * test: test code.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.test.dsp;
+
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hermit.dsp.FFTTransformer;
+import org.hermit.dsp.ShortTimeFFT;
+import org.hermit.dsp.Window;
+
+
+/**
+ * Test the streaming short-time FFT against block-by-block transforms.
+ */
+public class ShortTimeFFTTest
+    extends TestCase
+{
+
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    private static short[] audio(int n) {
+        short[] a = new short[n];
+        Random r = new Random(1);
+        for (int i = 0; i < n; ++i) {
+            double v = 9000 * Math.sin(i * 0.0731) +
+                       4000 * Math.sin(i * i * 1e-5) +
+                       300 * r.nextGaussian();
+            a[i] = (short) Math.round(v);
+        }
+        return a;
+    }
+
+
+    /**
+     * Get the expected spectra of the blocks starting at 0, hop,
+     * 2 * hop, ... in the given audio.
+     */
+    private static float[] expected(short[] a, int size, int hop, Window win) {
+        FFTTransformer fft = new FFTTransformer(size, win, true);
+        int frames = (a.length - size) / hop + 1;
+        float[] spec = new float[frames * size / 2];
+        for (int f = 0; f < frames; ++f) {
+            fft.setInput(a, f * hop, size);
+            fft.transform();
+            fft.getResults(spec, f * size / 2);
+        }
+        return spec;
+    }
+
+
+    /**
+     * Run the audio through an STFT in random-sized chunks.
+     */
+    private static float[] stream(ShortTimeFFT stft, short[] a, boolean asFloat, long seed) {
+        Random r = new Random(seed);
+        int bins = stft.getBins();
+        float[] spec = new float[(a.length / stft.getHop() + 1) * bins];
+        float[] fa = new float[a.length];
+        for (int i = 0; i < a.length; ++i)
+            fa[i] = a[i] / 32768f;
+
+        int frames = 0;
+        int pos = 0;
+        while (pos < a.length) {
+            int n = Math.min(a.length - pos, r.nextInt(3 * stft.getBlockSize()));
+            int want = stft.framesFor(n);
+            int got;
+            if (asFloat)
+                got = stft.process(fa, pos, n, spec, frames * bins);
+            else
+                got = stft.process(a, pos, n, spec, frames * bins);
+            assertEquals("frames", want, got);
+            frames += got;
+            pos += n;
+        }
+
+        float[] res = new float[frames * bins];
+        System.arraycopy(spec, 0, res, 0, res.length);
+        return res;
+    }
+
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testOverlap() {
+        short[] a = audio(20000);
+        final int[][] configs = { { 256, 64 }, { 512, 128 }, { 1024, 1024 },
+                                  { 256, 300 }, { 64, 1 } };
+        for (int[] c : configs) {
+            int size = c[0], hop = c[1];
+            Window win = new Window(size, Window.Function.BLACKMAN_HARRIS);
+            float[] want = expected(a, size, hop, win);
+            for (int pass = 0; pass < 2; ++pass) {
+                ShortTimeFFT stft = new ShortTimeFFT(size, hop, win);
+                float[] got = stream(stft, a, pass == 1, size + hop);
+                assertEquals("frames " + size + "/" + hop, want.length, got.length);
+                for (int i = 0; i < want.length; ++i)
+                    assertEquals(size + "/" + hop + " [" + i + "]", want[i], got[i], 0f);
+            }
+        }
+    }
+
+
+    public void testReset() {
+        short[] a = audio(3000);
+        ShortTimeFFT stft = new ShortTimeFFT(256, 64, Window.Function.GAUSS);
+        float[] out = new float[stft.getBins() * 50];
+        assertEquals(0, stft.framesFor(255));
+        assertEquals(1, stft.framesFor(256));
+        assertEquals(2, stft.framesFor(320));
+
+        int n1 = stft.process(a, 0, 1000, out, 0);
+        assertEquals(1 + (1000 - 256) / 64, n1);
+        float[] first = new float[stft.getBins()];
+        System.arraycopy(out, 0, first, 0, first.length);
+
+        stft.reset();
+        assertEquals(0, stft.framesFor(255));
+        assertEquals(1, stft.process(a, 0, 256, out, 0));
+        for (int i = 0; i < first.length; ++i)
+            assertEquals(first[i], out[i], 0f);
+
+        try {
+            stft.process(a, 0, 1000, new float[stft.getBins()], 0);
+            fail("output too small");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
+
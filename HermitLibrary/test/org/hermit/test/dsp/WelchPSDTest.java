@@ -0,0 +1,223 @@
+/**
+ * test: test code.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+package org.hermit.test.dsp;
+
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hermit.dsp.Window;
+import org.hermit.dsp.WelchPSD;
+
+
+/**
+ * Test the Welch power spectral density estimator: its scaling, and
+ * its averaging modes.
+ */
+public class WelchPSDTest
+    extends TestCase
+{
+
+    // ******************************************************************** //
+    // Test Framework.
+    // ******************************************************************** //
+
+    private static final float RATE = 8000f;
+
+
+    private static float[] noise(int n, double sd, long seed) {
+        Random r = new Random(seed);
+        float[] x = new float[n];
+        for (int i = 0; i < n; ++i)
+            x[i] = (float) (r.nextGaussian() * sd);
+        return x;
+    }
+
+
+    // Get the mean square of a signal from its PSD.
+    private static double power(WelchPSD psd, float[] p) {
+        double tot = 0;
+        for (float v : p)
+            tot += v;
+        return tot * (psd.getFrequency(1) - psd.getFrequency(0));
+    }
+
+
+    // ******************************************************************** //
+    // Tests.
+    // ******************************************************************** //
+
+    public void testScaling() {
+        // A sine wave of amplitude a has mean square a^2 / 2, whatever
+        // the window.  Use an even and an odd size.
+        for (int size : new int[] { 512, 375 }) {
+            for (Window.Function func : Window.Function.values()) {
+                WelchPSD psd = new WelchPSD(size, size / 2, func, RATE, 16);
+                assertEquals(size / 2 + 1, psd.getBins());
+                float[] x = new float[size * 20];
+                for (int i = 0; i < x.length; ++i)
+                    x[i] = (float) (0.5 * Math.sin(2 * Math.PI * 1000.0 * i / RATE));
+                psd.process(x, 0, x.length);
+                float[] p = psd.getPower(new float[psd.getBins()]);
+                assertEquals(func + " sine " + size, 0.125, power(psd, p), 0.125 * 0.02);
+
+                // The peak is at 1 kHz.
+                int peak = 0;
+                for (int i = 1; i < p.length; ++i)
+                    if (p[i] > p[peak])
+                        peak = i;
+                assertEquals(func + " peak", 1000f, psd.getFrequency(peak), RATE / size);
+            }
+        }
+
+        // White noise of variance v has a flat density of 2 * v / rate.
+        WelchPSD psd = new WelchPSD(256, 128, Window.Function.BLACKMAN_HARRIS, RATE, 1000);
+        float[] x = noise(128 * 1001, 0.1, 1);
+        assertEquals(1000, psd.process(x, 0, x.length));
+        float[] p = psd.getPower(new float[psd.getBins()]);
+        double mean = 0;
+        for (int i = 1; i < p.length - 1; ++i)
+            mean += p[i];
+        mean /= p.length - 2;
+        assertEquals("noise density", 2 * 0.01 / RATE, mean, 2 * 0.01 / RATE * 0.02);
+        assertEquals("noise power", 0.01, power(psd, p), 0.01 * 0.02);
+
+        // And in dB.
+        float[] db = psd.getPowerDb(new float[psd.getBins()]);
+        for (int i = 0; i < p.length; ++i)
+            assertEquals("dB", 10 * Math.log10(p[i]), db[i], 1e-4);
+        psd.reset();
+        psd.getPowerDb(db);
+        assertEquals("empty", WelchPSD.MIN_DB, db[3]);
+    }
+
+
+    public void testAveraging() {
+        // Overlapping segments, fed one hop at a time so that each call
+        // completes one segment, whose spectrum we record.
+        final int size = 64;
+        final int hop = 16;
+        final int count = 300;
+        float[] x = noise(size + hop * count, 0.3, 2);
+        WelchPSD one = new WelchPSD(size, hop, Window.Function.GAUSS, RATE, 1);
+        WelchPSD lin = new WelchPSD(size, hop, Window.Function.GAUSS, RATE, 20);
+        WelchPSD peak = new WelchPSD(size, hop, Window.Function.GAUSS, RATE, 20);
+        peak.setAveraging(WelchPSD.Averaging.PEAK_HOLD, 6);
+        final int bins = lin.getBins();
+
+        assertEquals(0, one.process(x, 0, size - hop));
+        lin.process(x, 0, size - hop);
+        peak.process(x, 0, size - hop);
+        float[][] frames = new float[count][];
+        float[] got = new float[bins];
+        for (int f = 0; f < count; ++f) {
+            int pos = size - hop + f * hop;
+            assertEquals(1, one.process(x, pos, hop));
+            lin.process(x, pos, hop);
+            peak.process(x, pos, hop);
+            frames[f] = one.getPower(new float[bins]);
+
+            // Check the running linear average against the record.
+            lin.getPower(got);
+            int m = Math.min(20, f + 1);
+            for (int i = 0; i < bins; ++i) {
+                double s = 0;
+                for (int g = f + 1 - m; g <= f; ++g)
+                    s += frames[g][i];
+                assertEquals("linear " + f, s / m, got[i], s / m * 1e-5);
+            }
+
+            peak.getPower(got);
+            m = Math.min(6, f + 1);
+            for (int i = 0; i < bins; ++i) {
+                float max = 0;
+                for (int g = f + 1 - m; g <= f; ++g)
+                    max = Math.max(max, frames[g][i]);
+                assertEquals("peak " + f, max, got[i], 0f);
+            }
+        }
+        assertEquals(count, lin.getSegments());
+
+        // Switching mode uses the history already collected.
+        lin.setAveraging(WelchPSD.Averaging.PEAK_HOLD, 6);
+        float[] want = peak.getPower(new float[bins]);
+        lin.getPower(got);
+        for (int i = 0; i < bins; ++i)
+            assertEquals("switched", want[i], got[i], 0f);
+
+        try {
+            lin.setAveraging(WelchPSD.Averaging.LINEAR, 21);
+            fail("too many frames");
+        } catch (IllegalArgumentException e) {
+        }
+        WelchPSD exp = new WelchPSD(size, hop, Window.Function.GAUSS, RATE, 0);
+        assertEquals(WelchPSD.Averaging.EXPONENTIAL, exp.getAveraging());
+        try {
+            exp.setAveraging(WelchPSD.Averaging.PEAK_HOLD, 1);
+            fail("no history");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+
+    public void testExact() {
+        // Feed whole segments, one at a time, so every segment's
+        // spectrum is known, and check the averages against them.
+        final int size = 128;
+        final int bins = size / 2 + 1;
+        final int count = 50;
+        float[] x = noise(size * count, 0.2, 4);
+        WelchPSD one = new WelchPSD(size, size, Window.Function.BLACKMAN_HARRIS, RATE, 1);
+        WelchPSD lin = new WelchPSD(size, size, Window.Function.BLACKMAN_HARRIS, RATE, 10);
+        WelchPSD exp = new WelchPSD(size, size, Window.Function.BLACKMAN_HARRIS, RATE, 10);
+        exp.setAveraging(WelchPSD.Averaging.EXPONENTIAL, 7);
+        final double alpha = 2.0 / 8.0;
+
+        float[][] frames = new float[count][];
+        double[] ema = new double[bins];
+        float[] got = new float[bins];
+        for (int f = 0; f < count; ++f) {
+            assertEquals(1, one.process(x, f * size, size));
+            lin.process(x, f * size, size);
+            exp.process(x, f * size, size);
+            frames[f] = one.getPower(new float[bins]);
+            for (int i = 0; i < bins; ++i)
+                ema[i] = f == 0 ? frames[f][i] : ema[i] + alpha * (frames[f][i] - ema[i]);
+
+            exp.getPower(got);
+            for (int i = 0; i < bins; ++i)
+                assertEquals("ema " + f, ema[i], got[i], ema[i] * 1e-5);
+
+            // Change the number of frames as we go; the history is kept.
+            int n = 1 + f % 10;
+            lin.setAveraging(WelchPSD.Averaging.LINEAR, n);
+            lin.getPower(got);
+            int m = Math.min(n, f + 1);
+            for (int i = 0; i < bins; ++i) {
+                double s = 0;
+                for (int g = f + 1 - m; g <= f; ++g)
+                    s += frames[g][i];
+                assertEquals("linear " + f + "/" + n, s / m, got[i], s / m * 1e-5);
+            }
+        }
+    }
+
+}
+
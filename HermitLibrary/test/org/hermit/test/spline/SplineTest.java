@@ -0,0 +1,171 @@
+/**
+ * spline: Tests of spline interpolation.
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.hermit.test.spline;
+
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hermit.geometry.Point;
+import org.hermit.geometry.spline.CubicSpline;
+import org.hermit.geometry.spline.StreamingSpline;
+
+
+/**
+ * Tests of the flat evaluation and streaming modes of the cubic spline.
+ */
+public class SplineTest
+    extends TestCase
+{
+
+    // A random walk, as a stand-in for a GPS track.
+    private static Point[] makeTrack(int n, long seed) {
+        Random rand = new Random(seed);
+        Point[] points = new Point[n];
+        double x = 0, y = 0;
+        for (int i = 0; i < n; ++i) {
+            x += rand.nextDouble() * 10;
+            y += rand.nextGaussian() * 10;
+            points[i] = new Point(x, y);
+        }
+        return points;
+    }
+
+
+    public void testInterpolate() {
+        Point[] track = makeTrack(200, 1);
+        CubicSpline spline = new CubicSpline(track);
+        assertEquals("segments", 199, spline.getNumSegments());
+
+        Point[] p = spline.interpolate(5);
+        double[] xs = new double[p.length + 2];
+        double[] ys = new double[p.length + 2];
+        assertEquals("count", p.length, spline.interpolate(5, xs, ys, 2));
+        for (int i = 0; i < p.length; ++i) {
+            assertEquals("x", p[i].getX(), xs[i + 2]);
+            assertEquals("y", p[i].getY(), ys[i + 2]);
+        }
+
+        // The curve passes through the control points.
+        for (int i = 0; i < track.length; ++i) {
+            assertEquals("control x", track[i].getX(), xs[2 + i * 5], 1e-9);
+            assertEquals("control y", track[i].getY(), ys[2 + i * 5], 1e-9);
+        }
+    }
+
+
+    public void testEvaluate() {
+        Point[] track = makeTrack(100, 2);
+        CubicSpline spline = new CubicSpline(track);
+        Point[] p = spline.interpolate(4);
+
+        // Parameter values on the steps must match interpolate().
+        double[] ts = new double[p.length];
+        for (int i = 0; i < ts.length; ++i)
+            ts[i] = (i / 4) + (i % 4) / 4.0;
+        double[] xs = new double[ts.length];
+        double[] ys = new double[ts.length];
+        spline.evaluate(ts, 0, ts.length, xs, ys, 0);
+        for (int i = 0; i < p.length; ++i) {
+            assertEquals("x", p[i].getX(), xs[i], 1e-9);
+            assertEquals("y", p[i].getY(), ys[i], 1e-9);
+        }
+
+        // Clamping.
+        spline.evaluate(new double[] { -5, 1000 }, 0, 2, xs, ys, 0);
+        assertEquals("start", track[0].getX(), xs[0], 1e-9);
+        assertEquals("end", track[99].getY(), ys[1], 1e-9);
+    }
+
+
+    public void testDistance() {
+        Point[] track = makeTrack(300, 3);
+        CubicSpline spline = new CubicSpline(track);
+
+        // The control points are at the cumulative chord lengths.
+        double[] ds = new double[track.length];
+        for (int i = 1; i < track.length; ++i)
+            ds[i] = ds[i - 1] + track[i].dist(track[i - 1]);
+        assertEquals("length", ds[ds.length - 1], spline.getPolygonLength(), 1e-9);
+        double[] xs = new double[ds.length];
+        double[] ys = new double[ds.length];
+        spline.evaluateAtDistance(ds, 0, ds.length, xs, ys, 0);
+        for (int i = 0; i < track.length; ++i) {
+            assertEquals("x", track[i].getX(), xs[i], 1e-9);
+            assertEquals("y", track[i].getY(), ys[i], 1e-9);
+        }
+
+        // Random positions, in any order, must match sorted ones.
+        Random rand = new Random(4);
+        double[] rs = new double[1000];
+        for (int i = 0; i < rs.length; ++i)
+            rs[i] = rand.nextDouble() * spline.getPolygonLength();
+        double[] rx = new double[rs.length];
+        double[] ry = new double[rs.length];
+        spline.evaluateAtDistance(rs, 0, rs.length, rx, ry, 0);
+        double[] one = new double[1];
+        double[] ox = new double[1];
+        double[] oy = new double[1];
+        for (int i = 0; i < rs.length; ++i) {
+            one[0] = rs[i];
+            spline.evaluateAtDistance(one, 0, 1, ox, oy, 0);
+            assertEquals("random x", ox[0], rx[i]);
+            assertEquals("random y", oy[0], ry[i]);
+        }
+    }
+
+
+    public void testStreaming() {
+        Point[] track = makeTrack(2000, 5);
+        Point[] ref = new CubicSpline(track).interpolate(6);
+
+        StreamingSpline stream = new StreamingSpline(6);
+        double[] xs = new double[ref.length];
+        double[] ys = new double[ref.length];
+        int n = 0;
+        for (Point p : track)
+            n += stream.add(p.getX(), p.getY(), xs, ys, n);
+        assertEquals("flush size", ref.length - n, stream.getFlushOutput());
+        n += stream.flush(xs, ys, n);
+        assertEquals("count", ref.length, n);
+
+        double maxErr = 0;
+        for (int i = 0; i < n; ++i) {
+            maxErr = Math.max(maxErr, Math.abs(ref[i].getX() - xs[i]));
+            maxErr = Math.max(maxErr, Math.abs(ref[i].getY() - ys[i]));
+        }
+        assertTrue("error " + maxErr, maxErr < 1e-6);
+        assertEquals("reset", 0, stream.getNumPoints());
+    }
+
+
+    public void testShortStream() {
+        // A stream shorter than the look-ahead gives exactly the same
+        // result as the full solution.
+        Point[] track = makeTrack(6, 6);
+        Point[] ref = new CubicSpline(track).interpolate(3);
+        StreamingSpline stream = new StreamingSpline(3, 8);
+        double[] xs = new double[ref.length];
+        double[] ys = new double[ref.length];
+        for (Point p : track)
+            assertEquals("no output", 0, stream.add(p.getX(), p.getY(), xs, ys, 0));
+        assertEquals("count", ref.length, stream.flush(xs, ys, 0));
+        for (int i = 0; i < ref.length; ++i) {
+            assertEquals("x", ref[i].getX(), xs[i]);
+            assertEquals("y", ref[i].getY(), ys[i]);
+        }
+
+        // Too short to make a curve.
+        stream.add(1, 1, xs, ys, 0);
+        assertEquals("one point", 0, stream.flush(xs, ys, 0));
+    }
+
+}
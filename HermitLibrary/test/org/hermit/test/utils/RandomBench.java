@@ -0,0 +1,136 @@
+
+/**
+ * utils: general utility functions.
+ *
+ * <p>This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation (see COPYING).
+ *
+ * <p>This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA
+ * 02111-1307, USA.
+ */
+
+
+package org.hermit.test.utils;
+
+
+import java.util.Random;
+
+import net.goui.util.MTRandom;
+
+import org.hermit.utils.SFMTRandom;
+import org.hermit.utils.SplitRandom;
+
+
+/**
+ * Benchmark of random double generation: scalar nextDouble() against
+ * the bulk methods of MTRandom and SFMTRandom.  This is a stand-alone
+ * program, not a unit test.
+ *
+ * <p>The argument is the number of doubles to generate in each run;
+ * the default is 5 * 10^7.
+ */
+public class RandomBench {
+
+    // ******************************************************************** //
+    // Benchmarks.
+    // ******************************************************************** //
+
+    private static void report(String name, int n, long t0, long t1, double sum) {
+        double ms = (t1 - t0) / 1e6;
+        System.out.format("%-20s n=%9d: %8.1f ms  %8.1f M/s  (mean %.5f)\n",
+                          name, n, ms, n / ms / 1000, sum / n);
+    }
+
+
+    private static double sum(double[] buf, int len) {
+        double s = 0;
+        for (int i = 0; i < len; ++i)
+            s += buf[i];
+        return s;
+    }
+
+
+    private static void runScalar(String name, Random rnd, int n) {
+        long t0 = System.nanoTime();
+        double s = 0;
+        for (int i = 0; i < n; ++i)
+            s += rnd.nextDouble();
+        long t1 = System.nanoTime();
+        report(name, n, t0, t1, s);
+    }
+
+
+    private static void runBulk(String name, Random rnd, double[] buf, int n) {
+        long t0 = System.nanoTime();
+        double s = 0;
+        for (int done = 0; done < n; done += buf.length) {
+            int len = Math.min(buf.length, n - done);
+            if (rnd instanceof MTRandom)
+                ((MTRandom) rnd).nextDoubles(buf, 0, len);
+            else
+                ((SFMTRandom) rnd).nextDoubles(buf, 0, len);
+            s += sum(buf, len);
+        }
+        long t1 = System.nanoTime();
+        report(name, n, t0, t1, s);
+    }
+
+
+    private static void runSplit(String name, SplitRandom rnd, double[] buf, int n) {
+        long t0 = System.nanoTime();
+        double s = 0;
+        for (int done = 0; done < n; done += buf.length) {
+            int len = Math.min(buf.length, n - done);
+            rnd.nextDoubles(buf, 0, len, 0, 1);
+            s += sum(buf, len);
+        }
+        long t1 = System.nanoTime();
+        report(name, n, t0, t1, s);
+    }
+
+
+    private static void runBench(int n) {
+        double[] buf = new double[BUFFER_SIZE];
+        runScalar("Random", new Random(1), n);
+        runScalar("MTRandom", new MTRandom(1), n);
+        runBulk("MTRandom bulk", new MTRandom(1), buf, n);
+        runScalar("SFMTRandom", new SFMTRandom(1), n);
+        runBulk("SFMTRandom bulk", new SFMTRandom(1), buf, n);
+        runSplit("SplitRandom bulk", new SplitRandom(1), buf, n);
+    }
+
+
+    // ******************************************************************** //
+    // Main.
+    // ******************************************************************** //
+
+    /**
+     * @param args          The number of doubles to generate.
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 50000000;
+
+        // Warm up.
+        runBench(Math.min(n, 2000000));
+        System.out.println();
+        runBench(n);
+    }
+
+
+    // ******************************************************************** //
+    // Class Data.
+    // ******************************************************************** //
+
+    // The size of the buffer for bulk generation.
+    private static final int BUFFER_SIZE = 4096;
+
+}
+